@@ -0,0 +1,110 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.engine.api.data;
+
+import java.util.List;
+
+/**
+ * Collects mixed write operations against the data storage and sends them in batches.
+ * Operations are grouped by collection and flushed as unordered bulk writes once a collection
+ * gathers the configured number of operations. The number of batches being written at the same time
+ * is limited, adding further operations blocks until a batch finishes.
+ *
+ * The bulk can be used just once, the results are available after {@link #execute()}.
+ */
+public interface DataBulk extends AutoCloseable {
+
+   /**
+    * Default number of operations in a single batch.
+    */
+   int DEFAULT_BATCH_SIZE = 1000;
+
+   /**
+    * Default number of batches being written at the same time.
+    */
+   int DEFAULT_MAX_IN_FLIGHT_BATCHES = 2;
+
+   /**
+    * Adds a new document.
+    *
+    * @param collectionName
+    *       Name of the collection where the document is created.
+    * @param document
+    *       Document to be inserted.
+    * @return This bulk to chain further operations.
+    */
+   DataBulk insert(final String collectionName, final DataDocument document);
+
+   /**
+    * Sets the attributes of a document, the document is created when it does not exist.
+    *
+    * @param collectionName
+    *       Name of the collection where the document is located.
+    * @param updatedDocument
+    *       Attributes to be set.
+    * @param filter
+    *       Query filter that identifies the document.
+    * @return This bulk to chain further operations.
+    */
+   DataBulk update(final String collectionName, final DataDocument updatedDocument, final DataFilter filter);
+
+   /**
+    * Replaces a document, the document is created when it does not exist.
+    *
+    * @param collectionName
+    *       Name of the collection where the document is located.
+    * @param replaceDocument
+    *       New content of the document.
+    * @param filter
+    *       Query filter that identifies the document.
+    * @return This bulk to chain further operations.
+    */
+   DataBulk replace(final String collectionName, final DataDocument replaceDocument, final DataFilter filter);
+
+   /**
+    * Drops a document.
+    *
+    * @param collectionName
+    *       Name of the collection where the document is located.
+    * @param filter
+    *       Query filter that identifies the document.
+    * @return This bulk to chain further operations.
+    */
+   DataBulk drop(final String collectionName, final DataFilter filter);
+
+   /**
+    * Sends all collected operations that were not written yet and waits for all batches to finish.
+    *
+    * @return Results of all operations in the order they were added.
+    */
+   List<DataBulkResult> execute();
+
+   /**
+    * Gets the number of operations added so far.
+    *
+    * @return The number of operations.
+    */
+   int size();
+
+   /**
+    * Executes the remaining operations when not executed yet.
+    */
+   @Override
+   void close();
+}
@@ -0,0 +1,97 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.engine.api.data;
+
+/**
+ * Result of a single operation in a {@link DataBulk}.
+ */
+public class DataBulkResult {
+
+   public enum Operation {
+      INSERT, UPDATE, REPLACE, DROP
+   }
+
+   /**
+    * Order of the operation in the bulk.
+    */
+   private final int index;
+
+   /**
+    * Type of the operation.
+    */
+   private final Operation operation;
+
+   /**
+    * Name of the collection the operation was executed on.
+    */
+   private final String collectionName;
+
+   /**
+    * Id of the inserted or upserted document when applicable.
+    */
+   private final String documentId;
+
+   /**
+    * Error message when the operation failed.
+    */
+   private final String error;
+
+   public DataBulkResult(final int index, final Operation operation, final String collectionName, final String documentId, final String error) {
+      this.index = index;
+      this.operation = operation;
+      this.collectionName = collectionName;
+      this.documentId = documentId;
+      this.error = error;
+   }
+
+   public int getIndex() {
+      return index;
+   }
+
+   public Operation getOperation() {
+      return operation;
+   }
+
+   public String getCollectionName() {
+      return collectionName;
+   }
+
+   public String getDocumentId() {
+      return documentId;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   public boolean isSuccessful() {
+      return error == null;
+   }
+
+   @Override
+   public String toString() {
+      return "DataBulkResult{" +
+            "index=" + index +
+            ", operation=" + operation +
+            ", collectionName='" + collectionName + '\'' +
+            ", documentId='" + documentId + '\'' +
+            ", error='" + error + '\'' +
+            '}';
+   }
+}
@@ -416,7 +416,28 @@ public interface DataStorage extends Serializable {
    void incrementAttributeValueBy(final String collectionName, final DataFilter filter, final String attributeName, final int incBy);
 
    /**
-    * Gets the next value of sequence.
+    * Starts a bulk of write operations with the default batch size and number of batches written at the same time.
+    *
+    * @return A new bulk of write operations.
+    */
+   default DataBulk bulk() {
+      return bulk(DataBulk.DEFAULT_BATCH_SIZE, DataBulk.DEFAULT_MAX_IN_FLIGHT_BATCHES);
+   }
+
+   /**
+    * Starts a bulk of write operations.
+    *
+    * @param batchSize
+    *       Maximal number of operations sent to the storage at once.
+    * @param maxInFlightBatches
+    *       Maximal number of batches being written at the same time.
+    * @return A new bulk of write operations.
+    */
+   DataBulk bulk(final int batchSize, final int maxInFlightBatches);
+
+   /**
+    * Gets the next value of sequence. The values are unique even when the storage is shared by more nodes,
+    * but they do not need to be continuous.
     *
     * @param collectionName
     *       Name of the collection with sequences.
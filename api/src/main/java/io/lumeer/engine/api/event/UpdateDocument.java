@@ -27,7 +27,23 @@ import io.lumeer.api.model.Document;
  */
 public class UpdateDocument extends DocumentEvent {
 
+   private final Document originalDocument;
+
    public UpdateDocument(final Document document) {
+      this(document, null);
+   }
+
+   public UpdateDocument(final Document document, final Document originalDocument) {
       super(document);
+      this.originalDocument = originalDocument;
+   }
+
+   /**
+    * Gets the document as it was before the update.
+    *
+    * @return The original document with its data, null when not known.
+    */
+   public Document getOriginalDocument() {
+      return originalDocument;
    }
 }
@@ -21,6 +21,7 @@ package io.lumeer.core.auth;
 import io.lumeer.api.model.User;
 import io.lumeer.core.facade.ConfigurationFacade;
 import io.lumeer.core.facade.SentryFacade;
+import io.lumeer.core.util.PushBroker;
 
 import com.auth0.SessionUtils;
 import com.auth0.client.auth.AuthAPI;
@@ -64,6 +65,8 @@ import javax.servlet.http.HttpServletResponse;
 public class Auth0Filter implements Filter {
 
    private static final long TOKEN_REFRESH_PERIOD = 10L * 60 * 1000; // 10 minutes
+   private static final String PUSH_ENDPOINT_PATH = "/push";
+   private static final String PUSH_TICKET = "ticket";
    private static final String VIEW_CODE = "view_code";
    private static final String CORRELATION_ID = "correlation_id";
 
@@ -85,6 +88,9 @@ public class Auth0Filter implements Filter {
    @Inject
    private SentryFacade sentryFacade;
 
+   @Inject
+   private PushBroker pushBroker;
+
    private Map<String, AuthenticatedUser.AuthUserInfo> authUserCache = new ConcurrentHashMap<>();
    private Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
 
@@ -130,6 +136,17 @@ public class Auth0Filter implements Filter {
          return;
       }
 
+      // push connections are authorized by a ticket obtained from an authenticated request, the endpoint consumes it
+      if (isPushHandshake(req)) {
+         if (!pushBroker.isTicketValid(req.getParameter(PUSH_TICKET))) {
+            res.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+         }
+
+         filterChain.doFilter(servletRequest, servletResponse);
+         return;
+      }
+
       if (req.getPathInfo() == null || !req.getPathInfo().startsWith("/paymentNotify/")) {
          final String accessToken = getAccessToken(req);
 
@@ -241,6 +258,10 @@ public class Auth0Filter implements Filter {
 
    }
 
+   private boolean isPushHandshake(final HttpServletRequest request) {
+      return "websocket".equalsIgnoreCase(request.getHeader("Upgrade")) && PUSH_ENDPOINT_PATH.equals(request.getServletPath()) && request.getPathInfo() == null;
+   }
+
    private String getAccessToken(final HttpServletRequest request) {
       final String bearer = request.getHeader("Authorization");
       if (bearer != null) {
@@ -31,6 +31,7 @@ import io.lumeer.api.model.View;
 import io.lumeer.api.model.common.Resource;
 import io.lumeer.core.WorkspaceKeeper;
 import io.lumeer.core.exception.NoPermissionException;
+import io.lumeer.core.exception.NoSystemPermissionException;
 import io.lumeer.core.exception.ServiceLimitsExceededException;
 import io.lumeer.core.facade.CollectionFacade;
 import io.lumeer.core.facade.FreshdeskFacade;
@@ -43,6 +44,7 @@ import io.lumeer.storage.api.dao.UserDao;
 import io.lumeer.storage.api.dao.ViewDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -123,6 +125,20 @@ public class PermissionsChecker {
       }
    }
 
+   /**
+    * Checks if the user is allowed to manage the whole system.
+    *
+    * @throws NoSystemPermissionException
+    *       when the user is not allowed to.
+    */
+   public void checkSystemPermission() {
+      String currentUserEmail = authenticatedUser.getUserEmail();
+      List<String> allowedEmails = Arrays.asList("support@lumeer.io", "martin@vecerovi.com", "kubedo8@gmail.com", "livoratom@gmail.com", "aturing@lumeer.io");
+      if (!allowedEmails.contains(currentUserEmail)) {
+         throw new NoSystemPermissionException();
+      }
+   }
+
    /**
     * Checks if user is manager in organization or project
     */
@@ -330,7 +346,22 @@ public class PermissionsChecker {
    }
 
    private Set<String> getUserGroups(final Resource resource, final String userId) {
-      if (resource instanceof Organization || userId == null || "".equals(userId)) {
+      if (resource instanceof Organization) {
+         return Collections.emptySet();
+      }
+
+      return getUserGroups(userId);
+   }
+
+   /**
+    * Gets the groups of the specified user in the current organization.
+    *
+    * @param userId
+    *       id of the user
+    * @return ids of the groups
+    */
+   public Set<String> getUserGroups(final String userId) {
+      if (userId == null || "".equals(userId)) {
          return Collections.emptySet();
       }
 
@@ -418,6 +449,16 @@ public class PermissionsChecker {
     *       The list of documents that are about to be created.
     */
    public void checkDocumentLimits(final List<Document> documents) {
+      checkDocumentLimits(documents.size());
+   }
+
+   /**
+    * Checks whether it is possible to create more documents.
+    *
+    * @param newDocuments
+    *       The number of documents that are about to be created.
+    */
+   public void checkDocumentLimits(final long newDocuments) {
       if (skipLimits()) {
          return;
       }
@@ -425,13 +466,30 @@ public class PermissionsChecker {
       final ServiceLimits limits = paymentFacade.getCurrentServiceLimits(workspaceKeeper.getOrganization().get());
       final long documentsCount = countDocuments();
 
-      if (limits.getDocuments() > 0 && documentsCount + documents.size() > limits.getDocuments()) {
+      if (limits.getDocuments() > 0 && documentsCount + newDocuments > limits.getDocuments()) {
          final Optional<Organization> organization = workspaceKeeper.getOrganization();
          freshdeskFacade.logLimitsExceeded(authenticatedUser.getCurrentUser(), "DOCUMENT", organization.isPresent() ? organization.get().getCode() : "<empty>");
          throw new ServiceLimitsExceededException(limits.getDocuments(), documentsCount, null);
       }
    }
 
+   /**
+    * Gets the maximal number of documents in the current organization.
+    *
+    * @return The number of documents, 0 when there is no limit.
+    */
+   public long getDocumentsLimit() {
+      if (skipLimits()) {
+         return 0;
+      }
+
+      return Math.max(0, paymentFacade.getCurrentServiceLimits(workspaceKeeper.getOrganization().get()).getDocuments());
+   }
+
+   public long getDocumentsCount() {
+      return countDocuments();
+   }
+
    private long countDocuments() {
       return collectionFacade.getDocumentsCountInAllCollections();
    }
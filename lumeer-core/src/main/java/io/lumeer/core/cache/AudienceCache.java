@@ -0,0 +1,222 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.cache;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Permission;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.Role;
+import io.lumeer.api.model.View;
+import io.lumeer.api.model.common.Resource;
+import io.lumeer.core.WorkspaceKeeper;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.core.util.ClusterEventCodec;
+import io.lumeer.engine.api.event.LinkTypeEvent;
+import io.lumeer.engine.api.event.ResourceEvent;
+import io.lumeer.engine.api.event.UpdateResource;
+import io.lumeer.engine.api.event.UserEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Keeps the ids of users that can read a collection, the audience of the push notifications about its documents.
+ *
+ * An audience is recomputed only after a change of the collection permissions, the views or link types that share the collection,
+ * the organization or project managers, or the group memberships. Changes on other nodes of the cluster are observed through
+ * {@link ClusterEventBus}, the {@link #TIME_TO_LIVE} bounds staleness in cases no event is fired for.
+ */
+@ApplicationScoped
+public class AudienceCache {
+
+   public static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(10);
+
+   private final Map<String, Audience> audiences = new ConcurrentHashMap<>();
+
+   // incremented by every invalidation so that audiences computed concurrently with it are not stored
+   private final AtomicLong generation = new AtomicLong();
+
+   @Inject
+   private ClusterEventBus clusterEventBus;
+
+   @Inject
+   private WorkspaceKeeper workspaceKeeper;
+
+   public AudienceCache() {
+   }
+
+   AudienceCache(final ClusterEventBus clusterEventBus, final WorkspaceKeeper workspaceKeeper) {
+      this.clusterEventBus = clusterEventBus;
+      this.workspaceKeeper = workspaceKeeper;
+   }
+
+   @PostConstruct
+   public void init() {
+      clusterEventBus.subscribe(ResourceEvent.class, event -> resourceChanged(event, null));
+      clusterEventBus.subscribe(LinkTypeEvent.class, this::linkTypeChanged);
+      clusterEventBus.subscribe(UserEvent.class, this::userChanged);
+      clusterEventBus.subscribe(ClusterEventCodec.GroupMembersChange.class, change -> invalidateOrganization(change.getOrganizationId()));
+   }
+
+   /**
+    * Gets the ids of users that can read the collection.
+    *
+    * @param organizationId
+    *       Id of the organization of the collection.
+    * @param projectId
+    *       Id of the project of the collection.
+    * @param collectionId
+    *       Id of the collection.
+    * @param loader
+    *       Computes the audience when it is not cached.
+    * @return Unmodifiable set of user ids.
+    */
+   public Set<String> getAudience(final String organizationId, final String projectId, final String collectionId, final Supplier<Set<String>> loader) {
+      final long now = System.currentTimeMillis();
+      final Audience cached = audiences.get(collectionId);
+      if (cached != null && cached.expiresAt > now) {
+         return cached.userIds;
+      }
+
+      final long loadGeneration = generation.get();
+      final Audience audience = new Audience(organizationId, projectId, Collections.unmodifiableSet(loader.get()), now + TIME_TO_LIVE);
+      if (generation.get() == loadGeneration) {
+         audiences.put(collectionId, audience);
+
+         // an invalidation that started after the check may have missed the audience just stored
+         if (generation.get() != loadGeneration) {
+            audiences.remove(collectionId, audience);
+         }
+      }
+
+      return audience.userIds;
+   }
+
+   public void invalidateCollection(final String collectionId) {
+      generation.incrementAndGet();
+      audiences.remove(collectionId);
+   }
+
+   public void invalidateProject(final String projectId) {
+      generation.incrementAndGet();
+      audiences.values().removeIf(audience -> projectId.equals(audience.projectId));
+   }
+
+   public void invalidateOrganization(final String organizationId) {
+      generation.incrementAndGet();
+      audiences.values().removeIf(audience -> organizationId.equals(audience.organizationId));
+   }
+
+   public void clear() {
+      generation.incrementAndGet();
+      audiences.clear();
+   }
+
+   /**
+    * Invalidates the audiences of the organization on all nodes of the cluster after a change of its groups.
+    *
+    * @param organizationId
+    *       Id of the organization.
+    */
+   public void groupMembersChanged(final String organizationId) {
+      invalidateOrganization(organizationId);
+      clusterEventBus.publish(new ClusterEventCodec.GroupMembersChange(organizationId));
+   }
+
+   public void resourceChanged(@Observes final ResourceEvent event) {
+      resourceChanged(event, workspaceKeeper.getProject().map(Project::getId).orElse(null));
+   }
+
+   public void linkTypeChanged(@Observes final LinkTypeEvent event) {
+      if (event.getLinkType() != null && event.getLinkType().getCollectionIds() != null) {
+         event.getLinkType().getCollectionIds().forEach(this::invalidateCollection);
+      }
+   }
+
+   public void userChanged(@Observes final UserEvent event) {
+      if (event.getOrganizationId() != null) {
+         invalidateOrganization(event.getOrganizationId());
+      }
+   }
+
+   private void resourceChanged(final ResourceEvent event, final String currentProjectId) {
+      if (event instanceof UpdateResource && !permissionsChanged(((UpdateResource) event).getOriginalResource(), event.getResource())) {
+         return;
+      }
+
+      final Resource resource = event.getResource();
+      if (resource instanceof Collection) {
+         invalidateCollection(resource.getId());
+      } else if (resource instanceof Project) {
+         invalidateProject(resource.getId());
+      } else if (resource instanceof Organization) {
+         invalidateOrganization(resource.getId());
+      } else if (resource instanceof View) {
+         // views do not know their project, changes on other nodes invalidate all projects
+         if (currentProjectId != null) {
+            invalidateProject(currentProjectId);
+         } else {
+            clear();
+         }
+      }
+   }
+
+   private static boolean permissionsChanged(final Resource originalResource, final Resource resource) {
+      if (originalResource == null || resource == null) {
+         return true;
+      }
+      if (resource instanceof View && !Objects.equals(((View) originalResource).getQuery(), ((View) resource).getQuery())) {
+         return true;
+      }
+
+      // permissions are equal by their ids only
+      return !rolesOf(originalResource.getPermissions().getUserPermissions()).equals(rolesOf(resource.getPermissions().getUserPermissions()))
+            || !rolesOf(originalResource.getPermissions().getGroupPermissions()).equals(rolesOf(resource.getPermissions().getGroupPermissions()));
+   }
+
+   private static Map<String, Set<Role>> rolesOf(final Set<Permission> permissions) {
+      return permissions.stream().collect(Collectors.toMap(Permission::getId, Permission::getRoles, (roles1, roles2) -> roles1));
+   }
+
+   private static final class Audience {
+      private final String organizationId;
+      private final String projectId;
+      private final Set<String> userIds;
+      private final long expiresAt;
+
+      private Audience(final String organizationId, final String projectId, final Set<String> userIds, final long expiresAt) {
+         this.organizationId = organizationId;
+         this.projectId = projectId;
+         this.userIds = userIds;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
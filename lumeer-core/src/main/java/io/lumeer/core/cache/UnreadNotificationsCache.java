@@ -0,0 +1,107 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.cache;
+
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.engine.api.event.ChangeUserNotification;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Keeps the number of unread notifications of the users, so that clients can poll it often.
+ * A count is dropped whenever any notification of the user changes on any node and counted again on the next request.
+ * Counts expire after {@link #TIME_TO_LIVE}, so a change missed by the cluster does not keep a wrong count for long.
+ */
+@ApplicationScoped
+public class UnreadNotificationsCache {
+
+   public static final long TIME_TO_LIVE = TimeUnit.MINUTES.toMillis(1);
+
+   private final Map<String, Count> counts = new ConcurrentHashMap<>();
+
+   // incremented by every invalidation so that counts computed concurrently with it are not stored
+   private final AtomicLong generation = new AtomicLong();
+
+   @Inject
+   private ClusterEventBus clusterEventBus;
+
+   public UnreadNotificationsCache() {
+   }
+
+   UnreadNotificationsCache(final ClusterEventBus clusterEventBus) {
+      this.clusterEventBus = clusterEventBus;
+   }
+
+   @PostConstruct
+   public void init() {
+      clusterEventBus.subscribe(ChangeUserNotification.class, this::notificationChanged);
+   }
+
+   public long getUnreadCount(final String userId, final Supplier<Long> counter) {
+      final long now = System.currentTimeMillis();
+      final Count cached = counts.get(userId);
+      if (cached != null && cached.expiresAt > now) {
+         return cached.value;
+      }
+
+      final long countGeneration = generation.get();
+      final Count count = new Count(counter.get(), now + TIME_TO_LIVE);
+      if (generation.get() == countGeneration) {
+         counts.put(userId, count);
+
+         // an invalidation that started after the check may have missed the count just stored
+         if (generation.get() != countGeneration) {
+            counts.remove(userId, count);
+         }
+      }
+
+      return count.value;
+   }
+
+   public void clear() {
+      generation.incrementAndGet();
+      counts.clear();
+   }
+
+   public void notificationChanged(@Observes final ChangeUserNotification event) {
+      if (event.getUserNotification() != null && event.getUserNotification().getUserId() != null) {
+         generation.incrementAndGet();
+         counts.remove(event.getUserNotification().getUserId());
+      }
+   }
+
+   private static class Count {
+
+      private final long value;
+      private final long expiresAt;
+
+      private Count(final long value, final long expiresAt) {
+         this.value = value;
+         this.expiresAt = expiresAt;
+      }
+   }
+}
@@ -29,6 +29,7 @@ import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
 import io.lumeer.api.model.User;
 import io.lumeer.api.model.common.Resource;
+import io.lumeer.core.cache.AudienceCache;
 import io.lumeer.core.util.CodeGenerator;
 import io.lumeer.core.util.ResourceUtils;
 import io.lumeer.storage.api.dao.CollectionDao;
@@ -37,6 +38,7 @@ import io.lumeer.storage.api.dao.DocumentDao;
 import io.lumeer.storage.api.dao.FavoriteItemDao;
 import io.lumeer.storage.api.dao.LinkInstanceDao;
 import io.lumeer.storage.api.dao.LinkTypeDao;
+import io.lumeer.storage.api.dao.UserDao;
 import io.lumeer.storage.api.dao.ViewDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 
@@ -74,6 +76,12 @@ public class CollectionFacade extends AbstractFacade {
    @Inject
    private ViewDao viewDao;
 
+   @Inject
+   private UserDao userDao;
+
+   @Inject
+   private AudienceCache audienceCache;
+
    public Collection createCollection(Collection collection) {
       checkProjectWriteRole();
       long collectionsCount = collectionDao.getCollectionsCount();
@@ -308,27 +316,42 @@ public class CollectionFacade extends AbstractFacade {
    }
 
    public Set<String> getUsersIdsWithAccess(final String collectionId) {
-      return getUsersIdsWithAccess(collectionDao.getCollectionById(collectionId));
+      return audienceCache.getAudience(getCurrentOrganization().getId(), getCurrentProject().getId(), collectionId,
+            () -> getUsersIdsWithAccess(collectionDao.getCollectionById(collectionId)));
    }
 
    public Set<String> getUsersIdsWithAccess(final Collection collection) {
       final Set<String> result = new HashSet<>();
+      final Set<String> groupIds = new HashSet<>();
 
       result.addAll(collection.getPermissions().getUserPermissions().stream()
                               .filter(ResourceUtils::canReadByPermission)
                               .map(Permission::getId).collect(Collectors.toSet()));
+      groupIds.addAll(collection.getPermissions().getGroupPermissions().stream()
+                                .filter(ResourceUtils::canReadByPermission)
+                                .map(Permission::getId).collect(Collectors.toSet()));
 
       result.addAll(ResourceUtils.getManagers(getCurrentOrganization()));
       result.addAll(ResourceUtils.getManagers(getCurrentProject()));
 
       viewDao.getViewsPermissionsByCollection(collection.getId()).stream()
              .map(Resource::getPermissions)
-             .map(Permissions::getUserPermissions)
-             .forEach(permissions -> result.addAll(permissions.stream()
-                                                              .filter(ResourceUtils::canReadByPermission)
-                                                              .map(Permission::getId).collect(Collectors.toList()))
-             );
-      // TODO: Handle user groups as well
+             .forEach(permissions -> {
+                result.addAll(permissions.getUserPermissions().stream()
+                                         .filter(ResourceUtils::canReadByPermission)
+                                         .map(Permission::getId).collect(Collectors.toList()));
+                groupIds.addAll(permissions.getGroupPermissions().stream()
+                                           .filter(ResourceUtils::canReadByPermission)
+                                           .map(Permission::getId).collect(Collectors.toList()));
+             });
+
+      if (!groupIds.isEmpty()) {
+         final String organizationId = getCurrentOrganization().getId();
+         userDao.getAllUsers(organizationId).stream()
+                .filter(user -> user.getGroups() != null && user.getGroups().containsKey(organizationId))
+                .filter(user -> user.getGroups().get(organizationId).stream().anyMatch(groupIds::contains))
+                .forEach(user -> result.add(user.getId()));
+      }
 
       return result;
    }
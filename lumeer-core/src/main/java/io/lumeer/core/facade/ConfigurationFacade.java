@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.enterprise.context.SessionScoped;
@@ -69,7 +70,7 @@ public class ConfigurationFacade implements Serializable {
 
    protected static final String USER_CONFIG_COLLECTION = "_config_user";
    protected static final String PROJECT_CONFIG_COLLECTION = "_config_project";
-   protected static final String ORGANIZATION_CONFIG_COLLECTION = "_config_organization";
+   public static final String ORGANIZATION_CONFIG_COLLECTION = "_config_organization";
 
    @Inject
    private AuthenticatedUser authenticatedUser;
@@ -89,19 +90,38 @@ public class ConfigurationFacade implements Serializable {
     * @return Pre-configured data storage.
     */
    public List<StorageConnection> getDataStorage() {
-      final String hosts = getSystemConfigurationString(DB_HOSTS_PROPERTY).orElse("localhost:27017");
-      final String db = getSystemConfigurationString(DB_USER_PROPERTY).orElse("pepa");
-      final String pwd = getSystemConfigurationString(DB_PASSWORD_PROPERTY).orElse("");
-
-      return getStorageConnections(hosts, db, pwd);
+      return getDataStorage(this::getSystemConfigurationString);
    }
 
    public String getDataStorageDatabase() {
-      return getSystemConfigurationString(DB_NAME_PROPERTY).orElse("lumeer");
+      return getDataStorageDatabase(this::getSystemConfigurationString);
    }
 
    public Boolean getDataStorageUseSsl() {
-      return Boolean.valueOf(getSystemConfigurationString(DB_USE_SSL).orElse("false"));
+      return getDataStorageUseSsl(this::getSystemConfigurationString);
+   }
+
+   /**
+    * Gets the data storage with the given system configuration, for use outside of any session.
+    *
+    * @param configuration
+    *       Gets the value of a system configuration property.
+    * @return Pre-configured data storage.
+    */
+   public static List<StorageConnection> getDataStorage(final Function<String, Optional<String>> configuration) {
+      final String hosts = configuration.apply(DB_HOSTS_PROPERTY).orElse("localhost:27017");
+      final String db = configuration.apply(DB_USER_PROPERTY).orElse("pepa");
+      final String pwd = configuration.apply(DB_PASSWORD_PROPERTY).orElse("");
+
+      return getStorageConnections(hosts, db, pwd);
+   }
+
+   public static String getDataStorageDatabase(final Function<String, Optional<String>> configuration) {
+      return configuration.apply(DB_NAME_PROPERTY).orElse("lumeer");
+   }
+
+   public static Boolean getDataStorageUseSsl(final Function<String, Optional<String>> configuration) {
+      return Boolean.valueOf(configuration.apply(DB_USE_SSL).orElse("false"));
    }
 
    /**
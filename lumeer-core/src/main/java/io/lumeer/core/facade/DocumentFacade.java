@@ -102,7 +102,7 @@ public class DocumentFacade extends AbstractFacade {
       // TODO archive the old document
       DataDocument updatedData = dataDao.updateData(collection.getId(), documentId, data);
 
-      Document updatedDocument = updateDocument(collection, documentId, data);
+      Document updatedDocument = updateDocument(collection, documentId, data, oldData);
       updatedDocument.setData(updatedData);
 
       return updatedDocument;
@@ -113,9 +113,10 @@ public class DocumentFacade extends AbstractFacade {
       permissionsChecker.checkRoleWithView(collection, Role.WRITE, Role.WRITE);
 
       final Document document = documentDao.getDocumentById(documentId);
+      final Document originalDocument = new Document(document);
       document.setMetaData(metaData);
 
-      return updateDocument(document);
+      return updateDocument(document, originalDocument);
    }
 
    public Document patchDocumentData(String collectionId, String documentId, DataDocument data) {
@@ -134,7 +135,7 @@ public class DocumentFacade extends AbstractFacade {
 
       DataDocument newData = new DataDocument(oldData);
       newData.putAll(data);
-      Document updatedDocument = updateDocument(collection, documentId, newData);
+      Document updatedDocument = updateDocument(collection, documentId, newData, oldData);
       updatedDocument.setData(patchedData);
 
       return updatedDocument;
@@ -145,27 +146,32 @@ public class DocumentFacade extends AbstractFacade {
       permissionsChecker.checkRoleWithView(collection, Role.WRITE, Role.WRITE);
 
       final Document document = documentDao.getDocumentById(documentId);
+      final Document originalDocument = new Document(document);
       if (document.getMetaData() == null) {
          document.setMetaData(new DataDocument());
+      } else {
+         document.setMetaData(new DataDocument(document.getMetaData()));
       }
       metaData.forEach((key, value) -> document.getMetaData().put(key, value));
 
-      return updateDocument(document);
+      return updateDocument(document, originalDocument);
    }
 
-   private Document updateDocument(final Collection collection, final String documentId, final DataDocument data) {
+   private Document updateDocument(final Collection collection, final String documentId, final DataDocument data, final DataDocument oldData) {
       final Document document = documentDao.getDocumentById(documentId);
+      final Document originalDocument = new Document(document);
+      originalDocument.setData(oldData);
       document.setCollectionId(collection.getId());
       document.setData(data);
 
-      return updateDocument(document);
+      return updateDocument(document, originalDocument);
    }
 
-   private Document updateDocument(final Document document) {
+   private Document updateDocument(final Document document, final Document originalDocument) {
       document.setUpdatedBy(authenticatedUser.getCurrentUserId());
       document.setUpdateDate(ZonedDateTime.now());
 
-      return documentDao.updateDocument(document.getId(), document);
+      return documentDao.updateDocument(document.getId(), document, originalDocument);
    }
 
    public void deleteDocument(String collectionId, String documentId) {
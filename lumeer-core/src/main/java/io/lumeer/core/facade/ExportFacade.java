@@ -0,0 +1,201 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.facade;
+
+import io.lumeer.api.model.Attribute;
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Document;
+import io.lumeer.api.model.Query;
+import io.lumeer.api.model.QueryStem;
+import io.lumeer.api.model.Role;
+import io.lumeer.core.exception.BadFormatException;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.core.util.DocumentWriter;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.DocumentDao;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.query.SearchQueryStem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+
+@RequestScoped
+public class ExportFacade extends AbstractFacade {
+
+   @Inject
+   private CollectionDao collectionDao;
+
+   @Inject
+   private DataDao dataDao;
+
+   @Inject
+   private DocumentDao documentDao;
+
+   /**
+    * Prepares an export of the documents of a collection. Everything is checked before anything is written,
+    * the data are read with a cursor when the export is written.
+    *
+    * @param collectionId
+    *       Id of the collection to export.
+    * @param format
+    *       Format of the export, one of the import formats.
+    * @param query
+    *       The query whose stem of the collection filters the documents, null to export all of them.
+    * @param attributeIds
+    *       Ids of the attributes to export, null or empty to export all of them.
+    * @return The export to write.
+    */
+   public Export exportDocuments(String collectionId, String format, Query query, List<String> attributeIds) {
+      if (!DocumentParser.isSupported(format)) {
+         throw new BadFormatException("Unsupported export format " + format);
+      }
+
+      final Collection collection = collectionDao.getCollectionById(collectionId);
+      permissionsChecker.checkRoleWithView(collection, Role.READ, Role.READ);
+
+      final List<Attribute> attributes = getExportedAttributes(collection, attributeIds);
+      final String fileName = collection.getName() + "." + format.toLowerCase();
+      if (query == null) {
+         return new Export(fileName, output -> writeDocuments(collection, null, attributes, format, output));
+      }
+
+      return createStem(collectionId, query)
+            .map(stem -> new Export(fileName, output -> writeDocuments(collection, stem, attributes, format, output)))
+            .orElseGet(() -> new Export(fileName, output -> writeHeaders(attributes, format, output)));
+   }
+
+   private List<Attribute> getExportedAttributes(Collection collection, List<String> attributeIds) {
+      if (attributeIds == null || attributeIds.isEmpty()) {
+         return collection.getAttributes().stream()
+                          // ids are generated with an increasing number, this keeps the order of creation
+                          .sorted(Comparator.comparing((Attribute attribute) -> attribute.getId().length()).thenComparing(Attribute::getId))
+                          .collect(Collectors.toList());
+      }
+
+      final Map<String, Attribute> attributes = collection.getAttributes().stream().collect(Collectors.toMap(Attribute::getId, Function.identity()));
+      return attributeIds.stream().map(attributeId -> Optional.ofNullable(attributes.get(attributeId))
+                                                              .orElseThrow(() -> new BadFormatException("Unknown attribute " + attributeId)))
+                         .collect(Collectors.toList());
+   }
+
+   /**
+    * Creates the stem selecting the exported documents.
+    *
+    * @return The stem, empty when the query cannot match any document of the collection.
+    */
+   private Optional<SearchQueryStem> createStem(String collectionId, Query query) {
+      final Optional<QueryStem> queryStem = query.getStems().stream().filter(stem -> collectionId.equals(stem.getCollectionId())).findFirst();
+      if (!queryStem.isPresent()) {
+         return Optional.of(SearchQueryStem.createBuilder(collectionId).fulltexts(query.getFulltexts()).build());
+      }
+
+      final SearchQueryStem stem = new SearchQueryStem(queryStem.get(), query.getFulltexts());
+      final Set<AttributeFilter> filters = stem.getFilters().stream()
+                                               .filter(filter -> collectionId.equals(filter.getCollectionId()))
+                                               .collect(Collectors.toSet());
+
+      Set<String> documentIds = Collections.emptySet();
+      if (stem.containsDocumentIdsQuery()) {
+         documentIds = documentDao.getDocumentsByIds(stem.getDocumentIds().toArray(new String[0])).stream()
+                                  .filter(document -> collectionId.equals(document.getCollectionId()))
+                                  .map(Document::getId)
+                                  .collect(Collectors.toSet());
+
+         // an empty set of ids does not filter anything in the stem
+         if (documentIds.isEmpty()) {
+            return Optional.empty();
+         }
+      }
+
+      return Optional.of(SearchQueryStem.createBuilder(collectionId)
+                                        .fulltexts(stem.getFulltexts())
+                                        .filters(filters)
+                                        .documentIds(documentIds)
+                                        .build());
+   }
+
+   private void writeDocuments(Collection collection, SearchQueryStem stem, List<Attribute> attributes, String format, OutputStream output) throws IOException {
+      final String[] headers = attributes.stream().map(Attribute::getName).toArray(String[]::new);
+      final String[] attributeIds = attributes.stream().map(Attribute::getId).toArray(String[]::new);
+      final Object[] values = new Object[attributeIds.length];
+
+      try (DocumentWriter writer = DocumentWriter.open(format, output, headers)) {
+         dataDao.streamData(collection, stem, new HashSet<>(Arrays.asList(attributeIds)), data -> {
+            for (int i = 0; i < attributeIds.length; i++) {
+               values[i] = data.get(attributeIds[i]);
+            }
+            writer.writeRow(values);
+         });
+      } catch (UncheckedIOException e) {
+         throw e.getCause();
+      }
+   }
+
+   private void writeHeaders(List<Attribute> attributes, String format, OutputStream output) throws IOException {
+      final String[] headers = attributes.stream().map(Attribute::getName).toArray(String[]::new);
+      DocumentWriter.open(format, output, headers).close();
+   }
+
+   @FunctionalInterface
+   private interface ExportWriter {
+      void write(OutputStream output) throws IOException;
+   }
+
+   /**
+    * Documents prepared for export.
+    */
+   public static class Export {
+
+      private final String fileName;
+      private final ExportWriter writer;
+
+      private Export(final String fileName, final ExportWriter writer) {
+         this.fileName = fileName;
+         this.writer = writer;
+      }
+
+      public String getFileName() {
+         return fileName;
+      }
+
+      /**
+       * Writes the documents, the output is closed afterwards.
+       *
+       * @param output
+       *       The output to write to.
+       */
+      public void writeTo(final OutputStream output) throws IOException {
+         writer.write(output);
+      }
+   }
+}
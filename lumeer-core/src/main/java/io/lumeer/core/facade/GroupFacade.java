@@ -22,6 +22,7 @@ import io.lumeer.api.model.Group;
 import io.lumeer.api.model.Organization;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
+import io.lumeer.core.cache.AudienceCache;
 import io.lumeer.storage.api.dao.GroupDao;
 import io.lumeer.storage.api.dao.UserDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
@@ -39,6 +40,9 @@ public class GroupFacade extends AbstractFacade {
    @Inject
    private UserDao userDao;
 
+   @Inject
+   private AudienceCache audienceCache;
+
    public Group createGroup(Group group) {
       checkPermissions();
 
@@ -73,6 +77,7 @@ public class GroupFacade extends AbstractFacade {
       userDao.deleteGroupFromUsers(organization.getId(), groupId);
 
       userCache.clear();
+      audienceCache.groupMembersChanged(organization.getId());
    }
 
    private void checkPermissions() {
@@ -20,36 +20,46 @@ package io.lumeer.core.facade;
 
 import io.lumeer.api.model.Attribute;
 import io.lumeer.api.model.Collection;
-import io.lumeer.api.model.Document;
 import io.lumeer.api.model.ImportedCollection;
-import io.lumeer.core.auth.PermissionsChecker;
-import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.core.exception.BadFormatException;
+import io.lumeer.core.task.ContextualTaskFactory;
+import io.lumeer.core.task.ImportJob;
+import io.lumeer.core.task.ImportJobs;
+import io.lumeer.core.task.ImportTask;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.core.util.ImportColumn;
 import io.lumeer.storage.api.dao.CollectionDao;
-import io.lumeer.storage.api.dao.DataDao;
-import io.lumeer.storage.api.dao.DocumentDao;
-
-import com.univocity.parsers.csv.CsvParser;
-import com.univocity.parsers.csv.CsvParserSettings;
-
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringReader;
-import java.time.ZonedDateTime;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 
 @RequestScoped
 public class ImportFacade extends AbstractFacade {
 
-   public static final String FORMAT_CSV = "csv";
+   public static final String FORMAT_CSV = DocumentParser.FORMAT_CSV;
+   public static final String FORMAT_JSON_LINES = DocumentParser.FORMAT_JSON_LINES;
+   public static final String FORMAT_XLSX = DocumentParser.FORMAT_XLSX;
 
-   private static final int MAX_PARSED_DOCUMENTS = 1000;
+   /**
+    * Number of rows read ahead to infer the types of the columns.
+    */
+   public static final int TYPE_SAMPLE_SIZE = 100;
 
    @Inject
    private CollectionFacade collectionFacade;
@@ -58,26 +68,88 @@ public class ImportFacade extends AbstractFacade {
    private CollectionDao collectionDao;
 
    @Inject
-   private DocumentDao documentDao;
+   private ManagedThreadFactory threadFactory;
 
    @Inject
-   private DataDao dataDao;
+   private ContextualTaskFactory contextualTaskFactory;
 
    @Inject
-   private PermissionsChecker permissionsChecker;
+   private ImportJobs importJobs;
 
    public Collection importDocuments(String format, ImportedCollection importedCollection) {
-      Collection collectionToCreate = importedCollection.getCollection();
-      collectionToCreate.setName(generateCollectionName(collectionToCreate.getName()));
-      Collection collection = collectionFacade.createCollection(collectionToCreate);
+      String data = importedCollection.getData();
+      if (data == null || data.trim().isEmpty()) {
+         data = "";
+      }
 
-      switch (format.toLowerCase()) {
-         case FORMAT_CSV:
-            parseCSVFile(collection, importedCollection.getData());
-            break;
+      if (DocumentParser.requiresFile(format) && !DocumentParser.isBinary(format)) {
+         return importDocuments(format, importedCollection.getCollection(), new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
       }
 
-      return collection;
+      return importDocuments(format, importedCollection.getCollection(), new StringReader(data));
+   }
+
+   /**
+    * Imports the documents while reading them, so the data never needs to be held in memory at once.
+    *
+    * @param format
+    *       Format of the data, it must be a textual one that is read only once.
+    * @param collectionToCreate
+    *       Collection to import the documents to, it is created first.
+    * @param data
+    *       Reader of the data, the caller is responsible for closing it.
+    * @return The created collection.
+    */
+   public Collection importDocuments(String format, Collection collectionToCreate, Reader data) {
+      if (!DocumentParser.isSupported(format) || DocumentParser.requiresFile(format)) {
+         throw new BadFormatException("Unsupported import format " + format);
+      }
+
+      Collection collection = createCollection(collectionToCreate);
+      importDocuments(collection, DocumentParser.open(format, data));
+
+      return collectionDao.getCollectionById(collection.getId());
+   }
+
+   /**
+    * Imports the documents while reading them. Binary formats need random access and JSON Lines are read twice, so they are stored
+    * in a temporary file first.
+    *
+    * @param format
+    *       Format of the data.
+    * @param collectionToCreate
+    *       Collection to import the documents to, it is created first.
+    * @param data
+    *       The data to import, the caller is responsible for closing it.
+    * @return The created collection.
+    */
+   public Collection importDocuments(String format, Collection collectionToCreate, InputStream data) {
+      if (!DocumentParser.requiresFile(format)) {
+         return importDocuments(format, collectionToCreate, new BufferedReader(new InputStreamReader(data, StandardCharsets.UTF_8)));
+      }
+
+      final Path file = storeData(format, data);
+      try {
+         Collection collection = createCollection(collectionToCreate);
+         importDocuments(collection, openFile(format, file));
+
+         return collectionDao.getCollectionById(collection.getId());
+      } finally {
+         deleteFile(file);
+      }
+   }
+
+   private void deleteFile(Path file) {
+      try {
+         Files.deleteIfExists(file);
+      } catch (IOException e) {
+         // the temporary directory is cleaned eventually
+      }
+   }
+
+   private Collection createCollection(Collection collectionToCreate) {
+      collectionToCreate.setName(generateCollectionName(collectionToCreate.getName()));
+      return collectionFacade.createCollection(collectionToCreate);
    }
 
    private String generateCollectionName(String collectionName) {
@@ -96,105 +168,133 @@ public class ImportFacade extends AbstractFacade {
       return nameWithSuffix;
    }
 
-   private void parseCSVFile(Collection collection, String data) {
-      if (data == null || data.trim().isEmpty()) {
-         return;
+   /**
+    * Stores the data and imports them in background, so that large files do not hold the request.
+    *
+    * @param format
+    *       Format of the data.
+    * @param collectionToCreate
+    *       Collection to import the documents to, it is created before the import starts.
+    * @param data
+    *       The data to import.
+    * @return The job to watch the progress of the import.
+    */
+   public ImportJob startImportJob(String format, Collection collectionToCreate, InputStream data) {
+      if (!DocumentParser.isSupported(format)) {
+         throw new BadFormatException("Unsupported import format " + format);
       }
-      CsvParserSettings settings = new CsvParserSettings();
-      settings.detectFormatAutomatically();
-      settings.setHeaderExtractionEnabled(true);
 
-      CsvParser parser = new CsvParser(settings);
-      parser.beginParsing(new StringReader(data));
+      final Path file = storeData(format, data);
+      try {
+         Collection collection = createCollection(collectionToCreate);
+
+         String[] headerIds = new String[0];
+         ImportColumn[] columns = new ImportColumn[0];
+         try (DocumentParser parser = openFile(format, file)) {
+            if (parser.getHeaders().length > 0) {
+               columns = ImportColumn.infer(parser.sample(TYPE_SAMPLE_SIZE), parser.getHeaders().length);
+               headerIds = createAttributes(collection.getId(), parser.getHeaders(), columns);
+            }
+         }
 
-      String[] headers = Arrays.stream(parser.getRecordMetadata().headers())
-                               .filter(Objects::nonNull)
-                               .toArray(String[]::new);
+         final ImportJob job = importJobs.createJob(authenticatedUser.getCurrentUserId(), getProjectId(), collection.getId(), format.toLowerCase(), file,
+               headerIds, columns);
+         importJobs.submitJob(createImportTask(job));
 
-      if (headers.length == 0) {
-         return;
+         return job;
+      } catch (RuntimeException e) {
+         // the file belongs to the job only once it is created
+         deleteFile(file);
+         throw e;
       }
+   }
 
-      List<Attribute> createdAttributes = createAttributes(collection.getId(), headers);
-      collection.setAttributes(new HashSet<>(createdAttributes));
-      collection.setLastAttributeNum(collection.getLastAttributeNum() + createdAttributes.size());
-      String[] headerIds = createdAttributes.stream().map(Attribute::getId).toArray(String[]::new);
+   public ImportJob getImportJob(String jobId) {
+      final ImportJob job = importJobs.getJob(jobId);
+      if (job == null || !job.getUserId().equals(authenticatedUser.getCurrentUserId()) || !job.getProjectId().equals(getProjectId())) {
+         throw new ResourceNotFoundException("Unknown import job " + jobId);
+      }
 
-      int[] counts = new int[headers.length];
+      return job;
+   }
 
-      int documentsCount = 0;
-      List<Document> documents = new ArrayList<>();
-      String[] row;
-      while ((row = parser.parseNext()) != null) {
-         Document d = createDocumentFromRow(headerIds, row, counts);
-         addDocumentMetadata(collection.getId(), d);
+   public ImportJob cancelImportJob(String jobId) {
+      getImportJob(jobId);
 
-         documents.add(d);
+      final ImportJob job = importJobs.cancelJob(jobId);
+      if (job == null) {
+         throw new BadFormatException("Import job " + jobId + " has already finished");
+      }
 
-         if (documents.size() >= MAX_PARSED_DOCUMENTS) {
-            addDocumentsToDb(collection.getId(), documents);
-            documents.clear();
-         }
+      return job;
+   }
 
-         documentsCount++;
-      }
+   public ImportJob resumeImportJob(String jobId) {
+      getImportJob(jobId);
 
-      if (!documents.isEmpty()) {
-         addDocumentsToDb(collection.getId(), documents);
+      final ImportJob job = importJobs.resumeJob(jobId, this::createImportTask);
+      if (job == null) {
+         throw new BadFormatException("Import job " + jobId + " cannot be resumed");
       }
 
-      parser.stopParsing();
-
-      addCollectionMetadata(collection, headerIds, counts, documentsCount);
+      return job;
    }
 
-   private void addCollectionMetadata(Collection collection, String[] headersIds, int[] counts, int documentsCount) {
-      final Collection originalCollection = collection.copy();
-      collection.getAttributes().forEach(attr -> {
-         int index = Arrays.asList(headersIds).indexOf(attr.getId());
-         attr.setUsageCount(counts[index]);
-      });
-
-      collection.setDocumentsCount(documentsCount);
-      collection.setLastTimeUsed(ZonedDateTime.now());
-      collectionDao.updateCollection(collection.getId(), collection, originalCollection);
+   private ImportTask createImportTask(ImportJob job) {
+      return contextualTaskFactory.getInstance(ImportTask.class)
+                                  .setJob(job)
+                                  .setThreadFactory(threadFactory)
+                                  .setDocumentsLimit(permissionsChecker.getDocumentsLimit(), permissionsChecker.getDocumentsCount());
    }
 
-   private List<Attribute> createAttributes(String collectionId, String[] headers) {
-      List<Attribute> attributes = Arrays.stream(headers).map(header -> new Attribute(header, header, null, 0)).collect(Collectors.toList());
-      return new ArrayList<>(collectionFacade.createCollectionAttributes(collectionId, attributes));
+   private String getProjectId() {
+      return workspaceKeeper.getProject().get().getId();
    }
 
-   private void addDocumentsToDb(String collectionId, List<Document> documents) {
-      permissionsChecker.checkDocumentLimits(documents);
-
-      List<Document> storedDocuments = documentDao.createDocuments(documents);
-
-      List<DataDocument> dataDocuments = new LinkedList<>();
-      for (int i = 0; i < documents.size(); i++) {
-         DataDocument dataDocument = documents.get(i).getData();
-         dataDocument.setId(storedDocuments.get(i).getId());
-         dataDocuments.add(dataDocument);
+   private Path storeData(String format, InputStream data) {
+      try {
+         final Path file = Files.createTempFile("lumeer-import", "." + format.toLowerCase());
+         Files.copy(data, file, StandardCopyOption.REPLACE_EXISTING);
+         return file;
+      } catch (IOException e) {
+         throw new BadFormatException("Unable to read the imported data", e);
       }
-      dataDao.createData(collectionId, dataDocuments);
    }
 
-   private void addDocumentMetadata(String collectionId, Document document) {
-      document.setCollectionId(collectionId);
-      document.setCreatedBy(authenticatedUser.getCurrentUserId());
-      document.setCreationDate(ZonedDateTime.now());
+   private DocumentParser openFile(String format, Path file) {
+      try {
+         return DocumentParser.open(format, file);
+      } catch (IOException e) {
+         throw new BadFormatException("Unable to read the imported data", e);
+      }
    }
 
-   private Document createDocumentFromRow(String[] headers, String[] row, int[] counts) {
-      final DataDocument d = new DataDocument();
+   private void importDocuments(Collection collection, DocumentParser documentParser) {
+      try (DocumentParser parser = documentParser) {
+         String[] headers = parser.getHeaders();
+         if (headers.length == 0) {
+            return;
+         }
+
+         ImportColumn[] columns = ImportColumn.infer(parser.sample(TYPE_SAMPLE_SIZE), headers.length);
+         String[] headerIds = createAttributes(collection.getId(), headers, columns);
+
+         ImportJob job = new ImportJob(null, authenticatedUser.getCurrentUserId(), getProjectId(), collection.getId(), null, null, headerIds, columns);
+         ImportTask task = createImportTask(job).setParser(parser);
+         task.process();
 
-      for (int i = 0; i < Math.min(headers.length, row.length); i++) {
-         if (row[i] != null) {
-            d.append(headers[i], row[i]);
-            counts[i]++;
+         if (task.getFailure() != null) {
+            throw task.getFailure();
          }
       }
+   }
+
+   private String[] createAttributes(String collectionId, String[] headers, ImportColumn[] columns) {
+      List<Attribute> attributes = new ArrayList<>(headers.length);
+      for (int i = 0; i < headers.length; i++) {
+         attributes.add(new Attribute(headers[i], headers[i], columns[i].getConstraint(), 0));
+      }
 
-      return new Document(d);
+      return collectionFacade.createCollectionAttributes(collectionId, attributes).stream().map(Attribute::getId).toArray(String[]::new);
    }
 }
@@ -25,7 +25,6 @@ import io.lumeer.api.model.Role;
 import io.lumeer.api.model.User;
 import io.lumeer.core.cache.WorkspaceCache;
 import io.lumeer.core.exception.NoPermissionException;
-import io.lumeer.core.exception.NoSystemPermissionException;
 import io.lumeer.storage.api.dao.FavoriteItemDao;
 import io.lumeer.storage.api.dao.GroupDao;
 import io.lumeer.storage.api.dao.OrganizationDao;
@@ -34,7 +33,6 @@ import io.lumeer.storage.api.dao.ProjectDao;
 import io.lumeer.storage.api.dao.UserDao;
 import io.lumeer.storage.api.query.DatabaseQuery;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -69,7 +67,7 @@ public class OrganizationFacade extends AbstractFacade {
    private WorkspaceCache workspaceCache;
 
    public Organization createOrganization(final Organization organization) {
-      checkSystemPermission();
+      permissionsChecker.checkSystemPermission();
 
       Permission defaultUserPermission = Permission.buildWithRoles(authenticatedUser.getCurrentUserId(), Organization.ROLES);
       organization.getPermissions().updateUserPermissions(defaultUserPermission);
@@ -215,12 +213,4 @@ public class OrganizationFacade extends AbstractFacade {
       userDao.deleteUsersGroups(organization.getId());
       userCache.clear();
    }
-
-   private void checkSystemPermission() {
-      String currentUserEmail = authenticatedUser.getUserEmail();
-      List<String> allowedEmails = Arrays.asList("support@lumeer.io", "martin@vecerovi.com", "kubedo8@gmail.com", "livoratom@gmail.com", "aturing@lumeer.io");
-      if (!allowedEmails.contains(currentUserEmail)) {
-         throw new NoSystemPermissionException();
-      }
-   }
 }
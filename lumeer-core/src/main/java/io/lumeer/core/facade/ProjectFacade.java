@@ -18,24 +18,41 @@
  */
 package io.lumeer.core.facade;
 
+import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Organization;
 import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
+import io.lumeer.api.model.View;
 import io.lumeer.core.auth.AuthenticatedUserGroups;
 import io.lumeer.core.cache.WorkspaceCache;
 import io.lumeer.core.exception.NoPermissionException;
+import io.lumeer.core.task.ContextualTaskFactory;
+import io.lumeer.core.task.MigrateDataStorageLayoutTask;
+import io.lumeer.core.task.TaskExecutor;
 import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.DataStorageLayout;
 import io.lumeer.storage.api.dao.DocumentDao;
 import io.lumeer.storage.api.dao.FavoriteItemDao;
+import io.lumeer.storage.api.dao.IndexDao;
 import io.lumeer.storage.api.dao.LinkInstanceDao;
 import io.lumeer.storage.api.dao.LinkTypeDao;
 import io.lumeer.storage.api.dao.ProjectDao;
+import io.lumeer.storage.api.dao.ProjectSnapshotDao;
 import io.lumeer.storage.api.dao.ViewDao;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
-
+import io.lumeer.storage.api.index.DataIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -72,6 +89,21 @@ public class ProjectFacade extends AbstractFacade {
    @Inject
    private WorkspaceCache workspaceCache;
 
+   @Inject
+   private DataDao dataDao;
+
+   @Inject
+   private IndexDao indexDao;
+
+   @Inject
+   private TaskExecutor taskExecutor;
+
+   @Inject
+   private ContextualTaskFactory contextualTaskFactory;
+
+   @Inject
+   private ProjectSnapshotDao projectSnapshotDao;
+
    public Project createProject(Project project) {
       checkOrganizationWriteRole();
       checkProjectCreate(project);
@@ -86,6 +118,117 @@ public class ProjectFacade extends AbstractFacade {
       return storedProject;
    }
 
+   /**
+    * Prepares a snapshot of the project with all its data, it can be restored by {@link #restoreProject(Project, InputStream)}.
+    * Permissions are checked right away, the snapshot is written later by the returned writer.
+    *
+    * @param projectCode
+    *       Code of the project.
+    * @return The writer of the snapshot.
+    */
+   public SnapshotWriter dumpProject(final String projectCode) {
+      final Project project = projectDao.getProjectByCode(projectCode);
+      permissionsChecker.checkRole(project, Role.MANAGE);
+
+      return output -> projectSnapshotDao.dumpProject(project, output);
+   }
+
+   /**
+    * Creates a new project with the content of a snapshot. The project is removed again when the snapshot cannot be restored.
+    * The service limits are checked before anything is restored, all restored collections and views are owned by the current user only.
+    *
+    * @param project
+    *       The project to create.
+    * @param snapshot
+    *       Snapshot written by {@link #dumpProject(String)}.
+    * @return The created project.
+    */
+   public Project restoreProject(final Project project, final InputStream snapshot) {
+      final Project storedProject = createProject(project);
+
+      try {
+         projectSnapshotDao.restoreProject(storedProject, snapshot, this::checkSnapshotLimits);
+         resetRestoredPermissions(storedProject);
+      } catch (RuntimeException e) {
+         deleteProjectScopedRepositories(storedProject);
+         projectDao.deleteProject(storedProject.getId());
+         throw e;
+      } finally {
+         workspaceKeeper.getProject().ifPresent(this::setProjectScope);
+      }
+
+      return storedProject;
+   }
+
+   private void checkSnapshotLimits(final ProjectSnapshotDao.Summary summary) {
+      // the new project is empty, restoring n collections is like creating the n-th one
+      if (summary.getCollections() > 0) {
+         permissionsChecker.checkCreationLimits(new Collection(null, null, null, null, null), summary.getCollections() - 1);
+      }
+      permissionsChecker.checkDocumentLimits(summary.getDocuments());
+   }
+
+   private void resetRestoredPermissions(final Project project) {
+      final String userId = authenticatedUser.getCurrentUserId();
+      setProjectScope(project);
+
+      collectionDao.getAllCollections().forEach(collection -> {
+         final Collection originalCollection = collection.copy();
+         collection.setPermissions(new Permissions());
+         collection.getPermissions().updateUserPermissions(Permission.buildWithRoles(userId, Collection.ROLES));
+         collectionDao.updateCollection(collection.getId(), collection, originalCollection);
+      });
+
+      viewDao.getAllViews().forEach(view -> {
+         final View originalView = view.copy();
+         view.setPermissions(new Permissions());
+         view.getPermissions().updateUserPermissions(Permission.buildWithRoles(userId, View.ROLES));
+         view.setAuthorId(userId);
+         viewDao.updateView(view.getId(), view, originalView);
+      });
+   }
+
+   private void setProjectScope(final Project project) {
+      collectionDao.setProject(project);
+      viewDao.setProject(project);
+   }
+
+   /**
+    * Copies a project with all its data through a snapshot.
+    *
+    * @param projectCode
+    *       Code of the project to copy.
+    * @param project
+    *       The project to create.
+    * @return The created project.
+    */
+   public Project cloneProject(final String projectCode, final Project project) {
+      final SnapshotWriter writer = dumpProject(projectCode);
+
+      Path snapshot = null;
+      try {
+         snapshot = Files.createTempFile("lumeer-project", ".snapshot");
+
+         try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(snapshot))) {
+            writer.writeTo(output);
+         }
+
+         try (InputStream input = Files.newInputStream(snapshot)) {
+            return restoreProject(project, input);
+         }
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      } finally {
+         if (snapshot != null) {
+            try {
+               Files.deleteIfExists(snapshot);
+            } catch (IOException e) {
+               // the temporary directory is cleaned eventually
+            }
+         }
+      }
+   }
+
    public Project updateProject(final String projectCode, final Project project) {
       final Project storedProject = projectDao.getProjectByCode(projectCode);
       permissionsChecker.checkRole(storedProject, Role.MANAGE);
@@ -188,6 +331,45 @@ public class ProjectFacade extends AbstractFacade {
       workspaceCache.updateProject(projectCode, project);
    }
 
+   public DataStorageLayout getDataStorageLayout(final String projectCode) {
+      final Project project = projectDao.getProjectByCode(projectCode);
+      permissionsChecker.checkRole(project, Role.MANAGE);
+
+      workspaceKeeper.setProject(projectCode);
+      return dataDao.getDataStorageLayout();
+   }
+
+   public void migrateDataStorageLayout(final String projectCode, final DataStorageLayout layout) {
+      final Project project = projectDao.getProjectByCode(projectCode);
+      permissionsChecker.checkRole(project, Role.MANAGE);
+
+      workspaceKeeper.setProject(projectCode);
+      taskExecutor.submitTask(contextualTaskFactory.getInstance(MigrateDataStorageLayoutTask.class).setLayout(layout));
+   }
+
+   public List<DataIndex> getProposedIndexes(final String projectCode) {
+      checkProjectManageRole(projectCode);
+      return indexDao.getProposedIndexes(collectionDao.getAllCollectionIds());
+   }
+
+   public List<DataIndex> createProposedIndexes(final String projectCode) {
+      checkProjectManageRole(projectCode);
+      return indexDao.createProposedIndexes(collectionDao.getAllCollectionIds());
+   }
+
+   public List<DataIndex> getUnusedIndexes(final String projectCode) {
+      checkProjectManageRole(projectCode);
+      return indexDao.getUnusedIndexes(collectionDao.getAllCollectionIds());
+   }
+
+   private void checkProjectManageRole(final String projectCode) {
+      final Project project = projectDao.getProjectByCode(projectCode);
+      permissionsChecker.checkRole(project, Role.MANAGE);
+
+      collectionDao.setProject(project);
+      indexDao.setProject(project);
+   }
+
    private void createProjectScopedRepositories(Project project) {
       collectionDao.createCollectionsRepository(project);
       documentDao.createDocumentsRepository(project);
@@ -224,4 +406,19 @@ public class ProjectFacade extends AbstractFacade {
    private void checkProjectCreate(final Project project) {
       permissionsChecker.checkCreationLimits(project, projectDao.getProjectsCount());
    }
+
+   /**
+    * Writes a project snapshot prepared by {@link #dumpProject(String)}.
+    */
+   @FunctionalInterface
+   public interface SnapshotWriter {
+
+      /**
+       * Writes the snapshot, the output is not closed.
+       *
+       * @param output
+       *       The output to write to.
+       */
+      void writeTo(OutputStream output);
+   }
 }
@@ -18,11 +18,13 @@
  */
 package io.lumeer.core.facade;
 
+import io.lumeer.api.adapter.ZonedDateTimeAdapter;
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Document;
 import io.lumeer.api.model.LinkInstance;
 import io.lumeer.api.model.LinkType;
 import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Project;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.api.model.Role;
@@ -32,8 +34,12 @@ import io.lumeer.api.model.View;
 import io.lumeer.api.model.common.Resource;
 import io.lumeer.core.auth.RequestDataKeeper;
 import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
+import io.lumeer.core.util.PushBroker;
+import io.lumeer.core.util.PushDispatcher;
+import io.lumeer.core.util.PushPayload;
 import io.lumeer.core.util.PusherClient;
 import io.lumeer.core.util.ResourceUtils;
+import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.event.AddFavoriteItem;
 import io.lumeer.engine.api.event.CreateDocument;
 import io.lumeer.engine.api.event.CreateLinkInstance;
@@ -65,10 +71,14 @@ import io.lumeer.storage.api.exception.ResourceNotFoundException;
 
 import org.marvec.pusher.data.Event;
 
+import java.time.ZonedDateTime;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -79,9 +89,12 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 /**
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
@@ -89,7 +102,7 @@ import javax.inject.Inject;
 @ApplicationScoped
 public class PusherFacade extends AbstractFacade {
 
-   private static final String PRIVATE_CHANNEL_PREFIX = "private-";
+   private static final String PRIVATE_CHANNEL_PREFIX = PushBroker.PRIVATE_CHANNEL_PREFIX;
    private static final String UPDATE_EVENT_SUFFIX = ":update";
    private static final String CREATE_EVENT_SUFFIX = ":create";
    private static final String REMOVE_EVENT_SUFFIX = ":remove";
@@ -100,6 +113,16 @@ public class PusherFacade extends AbstractFacade {
    private String PUSHER_CLUSTER;
 
    private PusherClient pusherClient = null;
+   private PushDispatcher pushDispatcher = null;
+
+   // clients understanding DocumentDelta:update are opted in by configuration, the others keep getting Document:update
+   private boolean documentDeltas = false;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   @Inject
+   private PushBroker pushBroker;
 
    @Inject
    private Logger log;
@@ -137,9 +160,43 @@ public class PusherFacade extends AbstractFacade {
       PUSHER_KEY = Optional.ofNullable(defaultConfigurationProducer.get(DefaultConfigurationProducer.PUSHER_KEY)).orElse("");
       PUSHER_SECRET = Optional.ofNullable(defaultConfigurationProducer.get(DefaultConfigurationProducer.PUSHER_SECRET)).orElse("");
       PUSHER_CLUSTER = Optional.ofNullable(defaultConfigurationProducer.get(DefaultConfigurationProducer.PUSHER_CLUSTER)).orElse("");
+      documentDeltas = Boolean.parseBoolean(defaultConfigurationProducer.get(DefaultConfigurationProducer.PUSHER_DOCUMENT_DELTAS));
 
       if (PUSHER_SECRET != null && !"".equals(PUSHER_SECRET)) {
          pusherClient = new PusherClient(PUSHER_APP_ID, PUSHER_KEY, PUSHER_SECRET, PUSHER_CLUSTER);
+         pushDispatcher = new PushDispatcher(pusherClient, threadFactory,
+               getIntConfiguration(DefaultConfigurationProducer.PUSHER_QUEUE_CAPACITY, PushDispatcher.DEFAULT_QUEUE_CAPACITY),
+               getIntConfiguration(DefaultConfigurationProducer.PUSHER_WORKERS, PushDispatcher.DEFAULT_WORKERS),
+               getIntConfiguration(DefaultConfigurationProducer.PUSHER_COALESCE_WINDOW, (int) PushDispatcher.DEFAULT_COALESCE_WINDOW),
+               getOverflowPolicy(),
+               PushDispatcher.DEFAULT_BLOCK_TIMEOUT);
+      }
+   }
+
+   @PreDestroy
+   public void destroy() {
+      if (pushDispatcher != null) {
+         pushDispatcher.shutdown();
+      }
+   }
+
+   private int getIntConfiguration(final String key, final int defaultValue) {
+      final String value = defaultConfigurationProducer.get(key);
+      try {
+         return value != null && !value.isEmpty() ? Integer.parseInt(value.trim()) : defaultValue;
+      } catch (NumberFormatException e) {
+         log.warning("Invalid value of " + key + ": " + value + ", using " + defaultValue);
+         return defaultValue;
+      }
+   }
+
+   private PushDispatcher.OverflowPolicy getOverflowPolicy() {
+      final String value = defaultConfigurationProducer.get(DefaultConfigurationProducer.PUSHER_OVERFLOW_POLICY);
+      try {
+         return PushDispatcher.OverflowPolicy.fromString(value);
+      } catch (IllegalArgumentException e) {
+         log.warning("Invalid value of " + DefaultConfigurationProducer.PUSHER_OVERFLOW_POLICY + ": " + value + ", using " + PushDispatcher.OverflowPolicy.BLOCK);
+         return PushDispatcher.OverflowPolicy.BLOCK;
       }
    }
 
@@ -163,6 +220,29 @@ public class PusherFacade extends AbstractFacade {
       return pusherClient;
    }
 
+   /**
+    * Sends an event to the user, also from background threads without any request.
+    *
+    * @param userId
+    *       Id of the user to notify.
+    * @param eventName
+    *       Name of the event.
+    * @param message
+    *       Content of the event.
+    */
+   public void sendUserNotification(final String userId, final String eventName, final Object message) {
+      try {
+         sendNotificationsBatch(Collections.singletonList(new Event(eventChannel(userId), eventName, message)));
+      } catch (Exception e) {
+         log.log(Level.WARNING, "Unable to send push notification: ", e);
+      }
+   }
+
+   public Map<String, Long> getPushMetrics() {
+      permissionsChecker.checkSystemPermission();
+      return pushDispatcher != null ? pushDispatcher.getMetrics() : Collections.emptyMap();
+   }
+
    public void createResource(@Observes final CreateResource createResource) {
       if (isEnabled()) {
          try {
@@ -237,19 +317,19 @@ public class PusherFacade extends AbstractFacade {
       }
 
       List<LinkType> linkTypes = linkTypeDao.getLinkTypesByCollectionId(updatedCollection.getId());
-      List<View> views = viewDao.getAllViews();
+      ViewsIndex viewsIndex = new ViewsIndex(viewDao.getAllViews(), linkTypes);
       List<Event> notifications = new ArrayList<>();
 
       if (removedUsers.size() > 0) {
-         notifications.addAll(createRemoveCollectionNotification(updatedCollection, removedUsers, views, linkTypes));
+         notifications.addAll(createRemoveCollectionNotification(updatedCollection, removedUsers, viewsIndex));
          if (linkTypes.size() > 0) {
-            notifications.addAll(createRemoveCollectionLinkTypesNotification(linkTypes, removedUsers, views));
+            notifications.addAll(createRemoveCollectionLinkTypesNotification(linkTypes, removedUsers, viewsIndex));
          }
       }
 
       if (addedUsers.size() > 0 && linkTypes.size() > 0) {
          Map<String, Collection> collectionMapByLinkTypes = getCollectionsMapFromLinkTypes(linkTypes);
-         notifications.addAll(createSendCollectionLinkTypesNotification(linkTypes, addedUsers, views, collectionMapByLinkTypes));
+         notifications.addAll(createSendCollectionLinkTypesNotification(linkTypes, addedUsers, viewsIndex, collectionMapByLinkTypes));
       }
 
       if (notifications.size() > 0) {
@@ -263,19 +343,11 @@ public class PusherFacade extends AbstractFacade {
       return collectionDao.getCollectionsByIds(collectionIds).stream().collect(Collectors.toMap(Collection::getId, Function.identity()));
    }
 
-   private List<Event> createRemoveCollectionNotification(final Collection collection, final Set<String> userIds, final List<View> views, final List<LinkType> linkTypes) {
+   private List<Event> createRemoveCollectionNotification(final Collection collection, final Set<String> userIds, final ViewsIndex viewsIndex) {
       List<Event> notifications = new ArrayList<>();
 
       for (String user : userIds) { // checks if user has collection in some view
-         List<View> viewsByUser = views.stream().filter(view -> permissionsChecker.hasRole(view, Role.READ, user)).collect(Collectors.toList());
-         Set<String> collectionIdsInViews = new HashSet<>();
-         viewsByUser.forEach(view -> {
-            collectionIdsInViews.addAll(view.getQuery().getCollectionIds());
-            List<LinkType> viewLinkTypes = linkTypes.stream().filter(lt -> view.getQuery().getLinkTypeIds().contains(lt.getId())).collect(Collectors.toList());
-            viewLinkTypes.forEach(lt -> collectionIdsInViews.addAll(lt.getCollectionIds()));
-         });
-
-         if (!collectionIdsInViews.contains(collection.getId())) {
+         if (!viewsIndex.hasCollectionInViews(user, collection.getId())) {
             notifications.add(createEventForResource(collection, REMOVE_EVENT_SUFFIX, user));
          }
       }
@@ -283,32 +355,28 @@ public class PusherFacade extends AbstractFacade {
       return notifications;
    }
 
-   private List<Event> createRemoveCollectionLinkTypesNotification(final List<LinkType> linkTypes, final Set<String> userIds, final List<View> views) {
+   private List<Event> createRemoveCollectionLinkTypesNotification(final List<LinkType> linkTypes, final Set<String> userIds, final ViewsIndex viewsIndex) {
       List<Event> notifications = new ArrayList<>();
 
       for (String user : userIds) {
-         filterLinkTypesNotInViews(linkTypes, views, user).forEach(linkType -> notifications.add(createEventForRemove(linkType.getClass().getSimpleName(),
+         filterLinkTypesNotInViews(linkTypes, viewsIndex, user).forEach(linkType -> notifications.add(createEventForRemove(linkType.getClass().getSimpleName(),
                new ResourceId(linkType.getId(), getOrganization().getId(), getProject().getId()), user)));
       }
 
       return notifications;
    }
 
-   private List<LinkType> filterLinkTypesNotInViews(List<LinkType> linkTypes, List<View> views, String user) {
-      List<View> viewsByUser = views.stream().filter(view -> permissionsChecker.hasRole(view, Role.READ, user)).collect(Collectors.toList());
-      Set<String> linkTypeIdsInView = viewsByUser.stream().map(view -> view.getQuery().getLinkTypeIds())
-                                                 .flatMap(java.util.Collection::stream).collect(Collectors.toSet());
-
-      return linkTypes.stream().filter(linkType -> !linkTypeIdsInView.contains(linkType.getId())).collect(Collectors.toList());
+   private List<LinkType> filterLinkTypesNotInViews(List<LinkType> linkTypes, ViewsIndex viewsIndex, String user) {
+      return linkTypes.stream().filter(linkType -> !viewsIndex.hasLinkTypeInViews(user, linkType.getId())).collect(Collectors.toList());
    }
 
-   private List<Event> createSendCollectionLinkTypesNotification(final List<LinkType> linkTypes, final Set<String> userIds, final List<View> views, final Map<String, Collection> collectionsMap) {
+   private List<Event> createSendCollectionLinkTypesNotification(final List<LinkType> linkTypes, final Set<String> userIds, final ViewsIndex viewsIndex, final Map<String, Collection> collectionsMap) {
       List<Event> notifications = new ArrayList<>();
 
       for (String user : userIds) {
-         filterLinkTypesNotInViews(linkTypes, views, user).stream()
-                                                          .filter(linkType -> canUserReadLinkType(user, linkType, collectionsMap))
-                                                          .forEach(linkType -> notifications.add(createEventForWorkspaceObject(linkType, linkType.getId(), UPDATE_EVENT_SUFFIX, user)));
+         filterLinkTypesNotInViews(linkTypes, viewsIndex, user).stream()
+                                                               .filter(linkType -> canUserReadLinkType(user, linkType, collectionsMap))
+                                                               .forEach(linkType -> notifications.add(createEventForWorkspaceObject(linkType, linkType.getId(), UPDATE_EVENT_SUFFIX, user)));
       }
 
       return notifications;
@@ -334,7 +402,6 @@ public class PusherFacade extends AbstractFacade {
          return;
       }
 
-      List<View> views = viewDao.getAllViews();
       List<LinkType> linkTypes = linkTypeDao.getLinkTypesByIds(updatedView.getQuery().getLinkTypeIds());
       List<Collection> collections = new ArrayList<>(getCollectionsMapFromLinkTypes(linkTypes).values());
 
@@ -342,11 +409,12 @@ public class PusherFacade extends AbstractFacade {
 
       if (removedUsers.size() > 0) {
          removedUsers.forEach(userId -> notifications.add(createEventForResource(updatedView, REMOVE_EVENT_SUFFIX, userId)));
-         if (collections.size() > 0) {
-            collections.forEach(collection -> notifications.addAll(createRemoveCollectionNotification(collection, removedUsers, views, linkTypes)));
-         }
-         if (linkTypes.size() > 0) {
-            linkTypes.forEach(linkType -> notifications.addAll(createRemoveCollectionLinkTypesNotification(linkTypes, removedUsers, views)));
+         if (collections.size() > 0 || linkTypes.size() > 0) {
+            ViewsIndex viewsIndex = new ViewsIndex(viewDao.getAllViews(), linkTypes);
+            collections.forEach(collection -> notifications.addAll(createRemoveCollectionNotification(collection, removedUsers, viewsIndex)));
+            if (linkTypes.size() > 0) {
+               notifications.addAll(createRemoveCollectionLinkTypesNotification(linkTypes, removedUsers, viewsIndex));
+            }
          }
       }
 
@@ -389,24 +457,31 @@ public class PusherFacade extends AbstractFacade {
    }
 
    private void sendNotificationsByUsers(final Object object, final Set<String> userIds, final String event) {
-      sendNotificationsBatch(userIds.stream()
-                                    .map(userId -> createEvent(object, event, userId))
-                                    .collect(Collectors.toList()));
+      sendNotificationsBatch(createEvents(object, userIds, event));
    }
 
-   private Event createEvent(final Object object, final String event, final String userId) {
+   List<Event> createEvents(final Object object, final Set<String> userIds, final String event) {
+      final FilteredResources filteredResources = new FilteredResources();
+      return userIds.stream()
+                    .map(userId -> createEvent(object, event, userId, filteredResources))
+                    .collect(Collectors.toList());
+   }
+
+   private Event createEvent(final Object object, final String event, final String userId, final FilteredResources filteredResources) {
       if (object instanceof Document) {
          return createEventForWorkspaceObject(object, ((Document) object).getId(), event, userId);
+      } else if (object instanceof DocumentDelta) {
+         return createEventForWorkspaceObject(object, ((DocumentDelta) object).getId(), event, userId);
       } else if (object instanceof LinkType) {
          return createEventForWorkspaceObject(object, ((LinkType) object).getId(), event, userId);
       } else if (object instanceof LinkInstance) {
          return createEventForWorkspaceObject(object, ((LinkInstance) object).getId(), event, userId);
       } else if (object instanceof Resource) {
-         return createEventForResource((Resource) object, event, userId);
+         return createEventForResource((Resource) object, event, userId, filteredResources);
       } else if (object instanceof ObjectWithParent) {
          ObjectWithParent objectWithParent = ((ObjectWithParent) object);
          if (objectWithParent.object instanceof Resource) {
-            return createEventForNestedResource(objectWithParent, event, userId);
+            return createEventForNestedResource(objectWithParent, event, userId, filteredResources);
          } else {
             return createEventForObjectWithParent(objectWithParent, event, userId);
          }
@@ -428,23 +503,27 @@ public class PusherFacade extends AbstractFacade {
    }
 
    private Event createEventForResource(final Resource resource, final String event, final String userId) {
+      return createEventForResource(resource, event, userId, new FilteredResources());
+   }
+
+   private Event createEventForResource(final Resource resource, final String event, final String userId, final FilteredResources filteredResources) {
       if (REMOVE_EVENT_SUFFIX.equals(event)) {
          return createEventForRemove(resource.getClass().getSimpleName(), getResourceId(resource), userId);
       }
-      return createEventForObject(filterUserRoles(userId, resource), event, userId);
+      return createEventForObject(filteredResources.filterUserRoles(userId, resource), event, userId);
    }
 
    private Event createEventForObject(final Object object, final String event, final String userId) {
       return new Event(eventChannel(userId), object.getClass().getSimpleName() + event, object);
    }
 
-   private Event createEventForNestedResource(final ObjectWithParent objectWithParent, final String event, final String userId) {
+   private Event createEventForNestedResource(final ObjectWithParent objectWithParent, final String event, final String userId, final FilteredResources filteredResources) {
       Resource resource = (Resource) objectWithParent.object;
       if (REMOVE_EVENT_SUFFIX.equals(event)) {
          return createEventForRemove(resource.getClass().getSimpleName(), getResourceId(resource), userId);
       }
 
-      Resource filteredResource = filterUserRoles(userId, resource);
+      Resource filteredResource = filteredResources.filterUserRoles(userId, resource);
       ObjectWithParent newObjectWithParent = new ObjectWithParent(filteredResource, objectWithParent.organizationId, objectWithParent.projectId);
       newObjectWithParent.setCorrelationId(objectWithParent.getCorrelationId());
       return createEventForObjectWithParent(newObjectWithParent, event, userId);
@@ -510,7 +589,13 @@ public class PusherFacade extends AbstractFacade {
    }
 
    public void updateDocument(@Observes final UpdateDocument updateDocument) {
-      documentNotification(updateDocument.getDocument(), UPDATE_EVENT_SUFFIX);
+      // deltas are sent at once and flush the pending coalesced updates of the same user before them, so they keep their order
+      final DocumentDelta delta = documentDeltas ? createDocumentDelta(updateDocument.getDocument(), updateDocument.getOriginalDocument()) : null;
+      if (delta != null) {
+         documentNotification(delta, delta.getCollectionId(), UPDATE_EVENT_SUFFIX);
+      } else {
+         documentNotification(updateDocument.getDocument(), UPDATE_EVENT_SUFFIX);
+      }
    }
 
    public void removeDocument(@Observes final RemoveDocument removeDocument) {
@@ -518,9 +603,13 @@ public class PusherFacade extends AbstractFacade {
    }
 
    private void documentNotification(final Document document, final String eventSuffix) {
+      documentNotification(document, document.getCollectionId(), eventSuffix);
+   }
+
+   private void documentNotification(final Object document, final String collectionId, final String eventSuffix) {
       if (isEnabled()) {
          try {
-            sendNotificationsByUsers(document, collectionFacade.getUsersIdsWithAccess(document.getCollectionId()), eventSuffix);
+            sendNotificationsByUsers(document, collectionFacade.getUsersIdsWithAccess(collectionId), eventSuffix);
          } catch (Exception e) {
             log.log(Level.WARNING, "Unable to send push notification: ", e);
          }
@@ -735,23 +824,146 @@ public class PusherFacade extends AbstractFacade {
    }
 
    private void sendNotification(final String userId, final String event, final Object message) {
-      if (isEnabled() && authenticatedUser.getCurrentUserId() != null && !authenticatedUser.getCurrentUserId().equals(userId)) {
+      if (pusherClient != null && authenticatedUser.getCurrentUserId() != null && !authenticatedUser.getCurrentUserId().equals(userId)) {
          pusherClient.trigger(PRIVATE_CHANNEL_PREFIX + userId, message.getClass().getSimpleName() + event, message);
       }
    }
 
    private void sendNotificationsBatch(List<Event> notifications) {
       if (isEnabled() && notifications != null && notifications.size() > 0) {
-         pusherClient.trigger(notifications);
+         final Map<Object, PushPayload> payloads = new HashMap<>();
+         final Map<PushPayload, List<Event>> payloadEvents = new LinkedHashMap<>();
+         notifications.forEach(notification -> {
+            final PushPayload payload = payloads.computeIfAbsent(payloadKey(notification), key -> new PushPayload(notification.getData()));
+            if (pushDispatcher != null) {
+               pushDispatcher.submit(new Event(notification.getChannel(), notification.getName(), payload), coalesceKey(notification));
+            }
+            payloadEvents.computeIfAbsent(payload, key -> new ArrayList<>()).add(notification);
+         });
+
+         // the payload key contains the event name, all events sharing a payload have the same name
+         payloadEvents.forEach((payload, events) ->
+               pushBroker.publish(events.stream().map(Event::getChannel).collect(Collectors.toList()), events.get(0).getName(), payload));
+      }
+   }
+
+   /**
+    * Events for different users mostly carry the same content, only resources differ in the permissions left by {@link FilteredResources}.
+    * Events with equal keys share a single payload that is serialized once.
+    */
+   private Object payloadKey(final Event event) {
+      final Object data = event.getData();
+      if (data instanceof ObjectWithParent) {
+         final ObjectWithParent objectWithParent = (ObjectWithParent) data;
+         return Arrays.asList(event.getName(), objectKey(objectWithParent.object), objectWithParent.organizationId, objectWithParent.projectId, objectWithParent.correlationId);
+      } else if (data instanceof ResourceId) {
+         final ResourceId resourceId = (ResourceId) data;
+         return Arrays.asList(event.getName(), resourceId.id, resourceId.organizationId, resourceId.projectId);
+      }
+
+      return Arrays.asList(event.getName(), objectKey(data));
+   }
+
+   private Object objectKey(final Object object) {
+      if (object instanceof Resource) {
+         final Resource resource = (Resource) object;
+         return Arrays.asList(resource.getClass(), resource.getId(), resource.getVersion(),
+               rolesKey(resource.getPermissions().getUserPermissions()), rolesKey(resource.getPermissions().getGroupPermissions()));
+      }
+
+      return new IdentityKey(object);
+   }
+
+   private static Map<String, Set<Role>> rolesKey(final Set<Permission> permissions) {
+      return permissions.stream().collect(Collectors.toMap(Permission::getId, Permission::getRoles, (roles1, roles2) -> roles1));
+   }
+
+   private String coalesceKey(final Event event) {
+      if (!event.getName().endsWith(UPDATE_EVENT_SUFFIX)) {
+         return null;
+      }
+
+      final Object object = event.getData() instanceof ObjectWithParent ? ((ObjectWithParent) event.getData()).object : event.getData();
+      if (object instanceof Document) {
+         return event.getChannel() + event.getName() + ((Document) object).getId();
+      } else if (object instanceof LinkInstance) {
+         return event.getChannel() + event.getName() + ((LinkInstance) object).getId();
+      }
+
+      return null;
+   }
+
+   /**
+    * Creates a delta of the document data update when it is smaller than the whole document.
+    * Metadata changes and updates of most of the attributes are sent as whole documents.
+    */
+   DocumentDelta createDocumentDelta(final Document document, final Document originalDocument) {
+      if (originalDocument == null || originalDocument.getData() == null || document.getData() == null || document.getDataVersion() == null
+            || !Objects.equals(document.getMetaData(), originalDocument.getMetaData())) {
+         return null;
+      }
+
+      final DataDocument changedData = new DataDocument();
+      document.getData().forEach((key, value) -> {
+         if (!originalDocument.getData().containsKey(key) || !Objects.equals(value, originalDocument.getData().get(key))) {
+            changedData.put(key, value);
+         }
+      });
+
+      final Set<String> removedAttributes = new HashSet<>(originalDocument.getData().keySet());
+      removedAttributes.removeAll(document.getData().keySet());
+
+      if (changedData.size() + removedAttributes.size() >= document.getData().size()) {
+         return null;
       }
+
+      return new DocumentDelta(document, changedData, removedAttributes);
    }
 
    private boolean isEnabled() {
-      return pusherClient != null;
+      return pusherClient != null || pushBroker.isActive();
+   }
+
+   public String createPushTicket() {
+      return pushBroker.createTicket(authenticatedUser.getCurrentUserId());
    }
 
-   private <T extends Resource> T filterUserRoles(final String userId, final T resource) {
-      return this.keepOnlyActualUserRoles(resource.copy(), userId);
+   /**
+    * Copies of resources with only the permissions the recipient may see, as {@link #keepOnlyActualUserRoles(Resource, String)} leaves them.
+    * Recipients left with the same permissions (typically the managers) share a single copy, the managers of each resource are resolved once.
+    */
+   private final class FilteredResources {
+      private final Map<IdentityKey, Set<String>> managers = new HashMap<>();
+      private final Map<List<Object>, Resource> copies = new HashMap<>();
+
+      @SuppressWarnings("unchecked")
+      private <T extends Resource> T filterUserRoles(final String userId, final T resource) {
+         final Set<String> resourceManagers = managers.computeIfAbsent(new IdentityKey(resource), key -> {
+            final Set<String> userIds = permissionsChecker.getWorkspaceManagers();
+            userIds.addAll(ResourceUtils.getManagers(resource));
+            return userIds;
+         });
+
+         final Map<String, Set<Role>> roles = new HashMap<>();
+         resource.getPermissions().getUserPermissions().stream()
+                 .filter(permission -> resourceManagers.contains(permission.getId()) && !permission.getRoles().isEmpty())
+                 .forEach(permission -> roles.put(permission.getId(), permission.getRoles()));
+         final Set<Role> userRoles = permissionsChecker.getActualRoles(resource, userId);
+         if (userRoles.isEmpty()) {
+            roles.remove(userId);
+         } else {
+            roles.put(userId, userRoles);
+         }
+
+         return (T) copies.computeIfAbsent(Arrays.asList(new IdentityKey(resource), roles), key -> {
+            final T copy = resource.copy();
+            copy.getPermissions().clear();
+            copy.getPermissions().updateUserPermissions(roles.entrySet().stream()
+                                                             .map(entry -> Permission.buildWithRoles(entry.getKey(), entry.getValue()))
+                                                             .toArray(Permission[]::new));
+            return copy;
+         });
+      }
    }
 
    private static Set<String> intersection(Set<Set<String>> sets) {
@@ -762,6 +974,85 @@ public class PusherFacade extends AbstractFacade {
             }).orElse(new HashSet<>());
    }
 
+   /**
+    * Views of the project indexed by the users and groups that can read them and by the collections and link types they show.
+    * Built once per permissions change, the readable views of every changed user are resolved only once.
+    */
+   private final class ViewsIndex {
+      private final Set<String> allViewIds = new HashSet<>();
+      private final Map<String, Set<String>> viewsByUser = new HashMap<>();
+      private final Map<String, Set<String>> viewsByGroup = new HashMap<>();
+      private final Map<String, Set<String>> viewsByCollection = new HashMap<>();
+      private final Map<String, Set<String>> viewsByLinkType = new HashMap<>();
+      private final Map<String, Set<String>> readableViews = new HashMap<>();
+
+      private ViewsIndex(final List<View> views, final List<LinkType> linkTypes) {
+         final Map<String, LinkType> linkTypesById = linkTypes.stream().collect(Collectors.toMap(LinkType::getId, Function.identity(), (lt1, lt2) -> lt1));
+
+         for (final View view : views) {
+            allViewIds.add(view.getId());
+            view.getPermissions().getUserPermissions().stream().filter(this::canRead)
+                .forEach(permission -> viewsByUser.computeIfAbsent(permission.getId(), id -> new HashSet<>()).add(view.getId()));
+            view.getPermissions().getGroupPermissions().stream().filter(this::canRead)
+                .forEach(permission -> viewsByGroup.computeIfAbsent(permission.getId(), id -> new HashSet<>()).add(view.getId()));
+
+            view.getQuery().getCollectionIds().forEach(collectionId -> viewsByCollection.computeIfAbsent(collectionId, id -> new HashSet<>()).add(view.getId()));
+            view.getQuery().getLinkTypeIds().forEach(linkTypeId -> {
+               viewsByLinkType.computeIfAbsent(linkTypeId, id -> new HashSet<>()).add(view.getId());
+               final LinkType linkType = linkTypesById.get(linkTypeId);
+               if (linkType != null) {
+                  linkType.getCollectionIds().forEach(collectionId -> viewsByCollection.computeIfAbsent(collectionId, id -> new HashSet<>()).add(view.getId()));
+               }
+            });
+         }
+      }
+
+      private boolean canRead(final Permission permission) {
+         return Role.withTransitionRoles(permission.getRoles()).contains(Role.READ);
+      }
+
+      private Set<String> getReadableViews(final String userId) {
+         return readableViews.computeIfAbsent(userId, id -> {
+            if (permissionsChecker.isManager(id)) {
+               return allViewIds;
+            }
+
+            final Set<String> viewIds = new HashSet<>(viewsByUser.getOrDefault(id, Collections.emptySet()));
+            final Set<String> groups = permissionsChecker.getUserGroups(id);
+            if (groups != null) {
+               groups.forEach(group -> viewIds.addAll(viewsByGroup.getOrDefault(group, Collections.emptySet())));
+            }
+            return viewIds;
+         });
+      }
+
+      private boolean hasCollectionInViews(final String userId, final String collectionId) {
+         return !Collections.disjoint(getReadableViews(userId), viewsByCollection.getOrDefault(collectionId, Collections.emptySet()));
+      }
+
+      private boolean hasLinkTypeInViews(final String userId, final String linkTypeId) {
+         return !Collections.disjoint(getReadableViews(userId), viewsByLinkType.getOrDefault(linkTypeId, Collections.emptySet()));
+      }
+   }
+
+   private static final class IdentityKey {
+      private final Object object;
+
+      private IdentityKey(final Object object) {
+         this.object = object;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         return o instanceof IdentityKey && ((IdentityKey) o).object == object;
+      }
+
+      @Override
+      public int hashCode() {
+         return System.identityHashCode(object);
+      }
+   }
+
    public static final class ResourceId {
       private final String id;
       private final String organizationId;
@@ -795,6 +1086,61 @@ public class PusherFacade extends AbstractFacade {
 
    }
 
+   /**
+    * Changed attributes of a document.
+    * Clients apply it only to the document in {@link #getDataVersion()} - 1 and load the whole document when they are behind,
+    * deltas with a version not newer than the one known to the client are stale and must be ignored.
+    */
+   public static final class DocumentDelta {
+      private final String id;
+      private final String collectionId;
+      private final Integer dataVersion;
+      private final DataDocument data;
+      private final Set<String> removedAttributes;
+      private final String updatedBy;
+
+      @XmlJavaTypeAdapter(ZonedDateTimeAdapter.class)
+      private final ZonedDateTime updateDate;
+
+      public DocumentDelta(final Document document, final DataDocument data, final Set<String> removedAttributes) {
+         this.id = document.getId();
+         this.collectionId = document.getCollectionId();
+         this.dataVersion = document.getDataVersion();
+         this.data = data;
+         this.removedAttributes = removedAttributes;
+         this.updatedBy = document.getUpdatedBy();
+         this.updateDate = document.getUpdateDate();
+      }
+
+      public String getId() {
+         return id;
+      }
+
+      public String getCollectionId() {
+         return collectionId;
+      }
+
+      public Integer getDataVersion() {
+         return dataVersion;
+      }
+
+      public DataDocument getData() {
+         return data;
+      }
+
+      public Set<String> getRemovedAttributes() {
+         return removedAttributes;
+      }
+
+      public String getUpdatedBy() {
+         return updatedBy;
+      }
+
+      public ZonedDateTime getUpdateDate() {
+         return updateDate;
+      }
+   }
+
    public static final class ObjectWithParent {
       private final Object object;
       private final String organizationId;
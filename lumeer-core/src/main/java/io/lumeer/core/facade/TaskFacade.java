@@ -0,0 +1,56 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.facade;
+
+import io.lumeer.core.task.TaskExecutor;
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+
+import java.util.Map;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+
+/**
+ * Exposes the state of the background tasks processed by the {@link TaskExecutor} to the system users.
+ */
+@RequestScoped
+public class TaskFacade extends AbstractFacade {
+
+   @Inject
+   TaskExecutor taskExecutor;
+
+   public Map<String, Long> getTaskMetrics() {
+      permissionsChecker.checkSystemPermission();
+      return taskExecutor.getMetrics();
+   }
+
+   public QueuedTask getTask(final String taskId) {
+      permissionsChecker.checkSystemPermission();
+
+      final QueuedTask task = taskExecutor.getTask(taskId);
+      if (task == null) {
+         throw new ResourceNotFoundException("Task " + taskId + " not found.");
+      }
+
+      // the serialized task is not of any use to the client
+      task.setPayload(null);
+
+      return task;
+   }
+}
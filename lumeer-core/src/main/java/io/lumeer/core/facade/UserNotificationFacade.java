@@ -25,15 +25,24 @@ import io.lumeer.api.model.View;
 import io.lumeer.api.model.common.Resource;
 import io.lumeer.core.WorkspaceKeeper;
 import io.lumeer.core.auth.AuthenticatedUser;
+import io.lumeer.core.cache.UnreadNotificationsCache;
 import io.lumeer.core.exception.AccessForbiddenException;
+import io.lumeer.core.exception.BadFormatException;
+import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
 import io.lumeer.core.util.ResourceUtils;
+import io.lumeer.core.util.UserNotificationWriter;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.event.CreateResource;
 import io.lumeer.engine.api.event.RemoveResource;
 import io.lumeer.engine.api.event.UpdateResource;
 import io.lumeer.storage.api.dao.UserNotificationDao;
+import io.lumeer.storage.api.dao.UserNotificationWrite;
 
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +60,15 @@ import javax.inject.Inject;
 @RequestScoped
 public class UserNotificationFacade extends AbstractFacade {
 
+   public static final int DEFAULT_FEED_LIMIT = 100;
+   public static final int MAX_FEED_LIMIT = 500;
+
+   /**
+    * Notifications are written in the background by each node, so the feed skips the most recent ones
+    * until all writes with an older creation time are surely stored.
+    */
+   public static final long DEFAULT_FEED_LAG = 5000L;
+
    private Logger log = Logger.getLogger(UserNotificationFacade.class.getName());
 
    @Inject
@@ -62,10 +80,72 @@ public class UserNotificationFacade extends AbstractFacade {
    @Inject
    private WorkspaceKeeper workspaceKeeper;
 
+   @Inject
+   private UserNotificationWriter userNotificationWriter;
+
+   @Inject
+   private UnreadNotificationsCache unreadNotificationsCache;
+
+   @Inject
+   private DefaultConfigurationProducer defaultConfigurationProducer;
+
    public List<UserNotification> getNotifications() {
       return dao.getRecentNotifications(authenticatedUser.getCurrentUserId());
    }
 
+   /**
+    * Gets notifications created after the given one.
+    *
+    * @param since
+    *       Id of the last notification known to the client or a timestamp in milliseconds, null to get the most recent notifications.
+    * @param limit
+    *       Maximal number of notifications returned, {@link #DEFAULT_FEED_LIMIT} when null.
+    * @return Notifications ordered from the oldest one, without the ones created in the last {@link #DEFAULT_FEED_LAG} milliseconds.
+    */
+   public List<UserNotification> getNotificationsFeed(final String since, final Integer limit) {
+      final String userId = authenticatedUser.getCurrentUserId();
+      final int feedLimit = limit != null && limit > 0 ? Math.min(limit, MAX_FEED_LIMIT) : DEFAULT_FEED_LIMIT;
+      final ZonedDateTime until = ZonedDateTime.now().minus(getFeedLag(), ChronoUnit.MILLIS);
+
+      if (since == null || since.isEmpty()) {
+         return dao.getNotificationsSince(userId, null, null, until, feedLimit);
+      }
+
+      if (since.chars().allMatch(Character::isDigit)) {
+         return dao.getNotificationsSince(userId, parseTimestamp(since), null, until, feedLimit);
+      }
+
+      final UserNotification sinceNotification = dao.getNotificationById(since);
+      if (sinceNotification == null || !userId.equals(sinceNotification.getUserId())) {
+         throw new BadFormatException("Unknown notification " + since);
+      }
+
+      return dao.getNotificationsSince(userId, sinceNotification.getCreatedAt(), sinceNotification.getId(), until, feedLimit);
+   }
+
+   private ZonedDateTime parseTimestamp(final String timestamp) {
+      try {
+         return ZonedDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(timestamp)), ZoneOffset.UTC);
+      } catch (NumberFormatException | DateTimeException e) {
+         throw new BadFormatException("Invalid timestamp " + timestamp);
+      }
+   }
+
+   private long getFeedLag() {
+      final String lag = defaultConfigurationProducer.get(DefaultConfigurationProducer.NOTIFICATIONS_FEED_LAG);
+      try {
+         return lag != null && !lag.isEmpty() ? Long.parseLong(lag) : DEFAULT_FEED_LAG;
+      } catch (NumberFormatException e) {
+         log.warning("Invalid value of " + DefaultConfigurationProducer.NOTIFICATIONS_FEED_LAG + ": " + lag + ", using " + DEFAULT_FEED_LAG);
+         return DEFAULT_FEED_LAG;
+      }
+   }
+
+   public long getUnreadNotificationsCount() {
+      final String userId = authenticatedUser.getCurrentUserId();
+      return unreadNotificationsCache.getUnreadCount(userId, () -> dao.getUnreadNotificationsCount(userId));
+   }
+
    public void deleteNotification(final String notificationId) {
       final UserNotification userNotification = dao.getNotificationById(notificationId);
 
@@ -91,9 +171,9 @@ public class UserNotificationFacade extends AbstractFacade {
       return null;
    }
 
-   private List<UserNotification> createResourceSharedNotifications(final Resource resource, final java.util.Collection<String> newUsers) {
+   private void createResourceSharedNotifications(final Resource resource, final java.util.Collection<String> newUsers) {
       if (!workspaceKeeper.getOrganization().isPresent() && resource.getType() != ResourceType.ORGANIZATION) {
-         return Collections.emptyList();
+         return;
       }
 
       // TODO check that all newUsers are in resource permissions
@@ -143,11 +223,11 @@ public class UserNotificationFacade extends AbstractFacade {
          data.append(UserNotification.ViewShared.VIEW_NAME, resource.getName());
       }
 
-      final List<UserNotification> notifications = newUsers.stream().map(userId ->
-            createNotification(userId, getNotificationTypeByResource(resource), data)
-      ).collect(Collectors.toList());
-
-      return dao.createNotificationsBatch(notifications);
+      final String searchField = getSearchField(resource);
+      final String searchId = getSearchId(resource);
+      userNotificationWriter.write(newUsers.stream().map(userId ->
+            UserNotificationWrite.create(createNotification(userId, getNotificationTypeByResource(resource), data), searchField, searchId)
+      ).collect(Collectors.toList()));
    }
 
    private UserNotification.NotificationType getNotificationTypeByResource(final Resource resource) {
@@ -218,7 +298,11 @@ public class UserNotificationFacade extends AbstractFacade {
    }
 
    public void removeResource(@Observes final RemoveResource removedResource) {
-      removeNotifications(removedResource.getResource());
+      try {
+         removeNotifications(removedResource.getResource());
+      } catch (Exception e) {
+         log.log(Level.WARNING, "Unable to remove notifications: ", e);
+      }
    }
 
    private void removeNotifications(Resource resource) {
@@ -226,22 +310,31 @@ public class UserNotificationFacade extends AbstractFacade {
    }
 
    private void removeNotifications(Resource resource, Set<String> users) {
+      final String searchField = getSearchField(resource);
+      if (searchField != null) {
+         userNotificationWriter.write(UserNotificationWrite.remove(searchField, getSearchId(resource), users));
+      }
+   }
+
+   private String getSearchField(final Resource resource) {
       switch (resource.getType()) {
          case ORGANIZATION:
-            dao.removeNotifications(UserNotification.DATA + "." + UserNotification.OrganizationShared.ORGANIZATION_ID, resource.getId(), users);
-            break;
+            return UserNotification.DATA + "." + UserNotification.OrganizationShared.ORGANIZATION_ID;
          case PROJECT:
-            dao.removeNotifications(UserNotification.DATA + "." + UserNotification.ProjectShared.PROJECT_ID, resource.getId(), users);
-            break;
+            return UserNotification.DATA + "." + UserNotification.ProjectShared.PROJECT_ID;
          case COLLECTION:
-            dao.removeNotifications(UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ID, resource.getId(), users);
-            break;
+            return UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ID;
          case VIEW:
-            dao.removeNotifications(UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_CODE, resource.getCode(), users);
-            break;
+            return UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_CODE;
+         default:
+            return null;
       }
    }
 
+   private String getSearchId(final Resource resource) {
+      return resource.getType() == ResourceType.VIEW ? resource.getCode() : resource.getId();
+   }
+
    private void updateExistingNotifications(final Resource original, final Resource updated) {
       // we do not carry any detailed information on these types in notifications
       // original is null when we are in tests
@@ -252,7 +345,7 @@ public class UserNotificationFacade extends AbstractFacade {
       if (isResourceUpdated(original, updated)) {
          switch (original.getType()) {
             case PROJECT:
-               dao.updateNotifications(
+               userNotificationWriter.write(UserNotificationWrite.update(
                      UserNotification.DATA + "." + UserNotification.ProjectShared.PROJECT_ID,
                      original.getId(),
                      Map.of(
@@ -261,10 +354,10 @@ public class UserNotificationFacade extends AbstractFacade {
                            UserNotification.DATA + "." + UserNotification.ProjectShared.PROJECT_ICON, updated.getIcon(),
                            UserNotification.DATA + "." + UserNotification.ProjectShared.PROJECT_NAME, updated.getName()
                      )
-               );
+               ));
                break;
             case COLLECTION:
-               dao.updateNotifications(
+               userNotificationWriter.write(UserNotificationWrite.update(
                      UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ID,
                      original.getId(),
                      Map.of(
@@ -272,17 +365,17 @@ public class UserNotificationFacade extends AbstractFacade {
                            UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ICON, updated.getIcon(),
                            UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_NAME, updated.getName()
                      )
-               );
+               ));
                break;
             case VIEW:
-               dao.updateNotifications(
+               userNotificationWriter.write(UserNotificationWrite.update(
                      UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_CODE,
                      original.getCode(),
                      Map.of(
                            UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_NAME, updated.getName(),
                            UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_PERSPECTIVE, ((View) updated).getPerspective()
                      )
-               );
+               ));
                break;
          }
       }
@@ -57,6 +57,20 @@ public class DefaultConfigurationProducer implements Serializable {
    public static final String PUSHER_KEY = "pusher_key";
    public static final String PUSHER_SECRET = "pusher_secret";
    public static final String PUSHER_CLUSTER = "pusher_cluster";
+   public static final String PUSHER_QUEUE_CAPACITY = "pusher_queue_capacity";
+   public static final String PUSHER_WORKERS = "pusher_workers";
+   public static final String PUSHER_COALESCE_WINDOW = "pusher_coalesce_window";
+   public static final String PUSHER_OVERFLOW_POLICY = "pusher_overflow_policy";
+   public static final String PUSHER_DOCUMENT_DELTAS = "pusher_document_deltas";
+
+   public static final String NOTIFICATIONS_FLUSH_INTERVAL = "notifications_flush_interval";
+   public static final String NOTIFICATIONS_FEED_LAG = "notifications_feed_lag";
+   public static final String NOTIFICATIONS_READ_RETENTION = "notifications_read_retention";
+   public static final String NOTIFICATIONS_ARCHIVE_AFTER = "notifications_archive_after";
+
+   // workers of the database task queue, the tasks distributed through JMS are processed by TaskProcessorBean with its own fixed number of sessions
+   public static final String TASKS_WORKERS = "tasks_workers";
+   public static final String TASKS_POLL_INTERVAL = "tasks_poll_interval";
 
    public static final String SENTRY_DSN = "sentry_dsn";
 
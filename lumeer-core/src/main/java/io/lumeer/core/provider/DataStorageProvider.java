@@ -18,13 +18,19 @@
  */
 package io.lumeer.core.provider;
 
+import io.lumeer.api.model.Config;
+import io.lumeer.api.model.Organization;
 import io.lumeer.core.WorkspaceKeeper;
 import io.lumeer.core.facade.ConfigurationFacade;
+import io.lumeer.core.facade.configuration.ConfigurationManipulator;
+import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
 import io.lumeer.engine.api.data.DataStorage;
 import io.lumeer.engine.api.data.DataStorageFactory;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -45,17 +51,45 @@ public class DataStorageProvider {
    @Inject
    private WorkspaceKeeper workspaceKeeper;
 
+   @Inject
+   private ConfigurationManipulator configurationManipulator;
+
+   @Inject
+   private DefaultConfigurationProducer defaultConfigurationProducer;
+
    public DataStorage getUserStorage() {
       String code = workspaceKeeper.getOrganization().isPresent() ? workspaceKeeper.getOrganization().get().getCode() : "Default";
       return connections.computeIfAbsent(code,
             k -> dataStorageFactory.getStorage(configurationFacade.getDataStorage(), configurationFacade.getDataStorageDatabase(), configurationFacade.getDataStorageUseSsl()));
    }
 
+   /**
+    * Gets the user data storage of the given organization outside of any request, e.g. in background tasks.
+    *
+    * @param organization
+    *       The organization, null for the default storage.
+    * @return The user data storage.
+    */
+   public DataStorage getUserStorage(final Organization organization) {
+      String code = organization != null ? organization.getCode() : "Default";
+      return connections.computeIfAbsent(code, k -> {
+         final Function<String, Optional<String>> configuration = key -> getOrganizationConfiguration(organization, key);
+         return dataStorageFactory.getStorage(ConfigurationFacade.getDataStorage(configuration), ConfigurationFacade.getDataStorageDatabase(configuration), ConfigurationFacade.getDataStorageUseSsl(configuration));
+      });
+   }
+
    public DataStorage getSystemStorage() {
       return connections.computeIfAbsent(SYSTEM_CONNECTION,
             k -> dataStorageFactory.getStorage(configurationFacade.getSystemDataStorage(), configurationFacade.getSystemDataStorageDatabase(), configurationFacade.getSystemDataStorageUseSsl()));
    }
 
+   private Optional<String> getOrganizationConfiguration(final Organization organization, final String key) {
+      final Config config = organization != null ? configurationManipulator.getConfiguration(ConfigurationFacade.ORGANIZATION_CONFIG_COLLECTION, organization.getId(), key) : null;
+      final Object value = config != null ? config.getValue() : defaultConfigurationProducer.get(key);
+
+      return value != null ? Optional.of(value.toString()) : Optional.empty();
+   }
+
    @PreDestroy
    public void closeConnections() {
       connections.forEach((k, v) -> v.disconnect());
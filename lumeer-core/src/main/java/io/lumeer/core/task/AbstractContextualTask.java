@@ -27,9 +27,10 @@ import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
  */
 public abstract class AbstractContextualTask implements ContextualTask {
 
-   protected User initiator;
-   protected DaoContextSnapshot daoContextSnapshot;
-   protected PusherClient pusherClient;
+   // the context is not serialized, the task executor initializes the task again on the node processing it
+   protected transient User initiator;
+   protected transient DaoContextSnapshot daoContextSnapshot;
+   protected transient PusherClient pusherClient;
 
    @Override
    public ContextualTask initialize(final User initiator, final DaoContextSnapshot daoContextSnapshot, final PusherClient pusherClient) {
@@ -39,4 +40,14 @@ public abstract class AbstractContextualTask implements ContextualTask {
 
       return this;
    }
+
+   @Override
+   public User getInitiator() {
+      return initiator;
+   }
+
+   @Override
+   public DaoContextSnapshot getDaoContextSnapshot() {
+      return daoContextSnapshot;
+   }
 }
@@ -28,4 +28,8 @@ import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
 public interface ContextualTask extends Task {
 
    ContextualTask initialize(final User initiator, final DaoContextSnapshot daoContextSnapshot, final PusherClient pusherClient);
+
+   User getInitiator();
+
+   DaoContextSnapshot getDaoContextSnapshot();
 }
@@ -0,0 +1,277 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.core.util.ImportColumn;
+import io.lumeer.storage.api.dao.ImportJobState;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of an import running in background, shared by the task performing it and the clients polling it.
+ * The node processing the job stores its state as {@link ImportJobState}, the other nodes see a snapshot of it.
+ */
+public class ImportJob {
+
+   public enum Status {
+      QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+   }
+
+   private final String id;
+   private final String userId;
+   private final String projectId;
+   private final String collectionId;
+   private final String format;
+   private final Path file;
+   private final String[] attributeIds;
+   private final ImportColumn[] columns;
+
+   private final AtomicLong rowsParsed = new AtomicLong();
+   private final AtomicLong rowsInserted = new AtomicLong();
+   private final Set<Long> insertedBatches = ConcurrentHashMap.newKeySet();
+   private final Map<Long, List<String>> incompleteBatches = new ConcurrentHashMap<>();
+
+   private volatile Status status = Status.QUEUED;
+   private volatile String error;
+   private volatile boolean cancelRequested;
+   private volatile long finishedAt;
+
+   public ImportJob(final String id, final String userId, final String projectId, final String collectionId, final String format, final Path file,
+         final String[] attributeIds, final ImportColumn[] columns) {
+      this.id = id;
+      this.userId = userId;
+      this.projectId = projectId;
+      this.collectionId = collectionId;
+      this.format = format;
+      this.file = file;
+      this.attributeIds = attributeIds;
+      this.columns = columns;
+   }
+
+   /**
+    * @return Snapshot of a job stored by another node, it cannot be processed on this one.
+    */
+   static ImportJob fromState(final ImportJobState state) {
+      final ImportJob job = new ImportJob(state.getId(), state.getUserId(), state.getProjectId(), state.getCollectionId(), state.getFormat(),
+            null, null, null);
+      job.rowsParsed.set(state.getRowsParsed());
+      job.rowsInserted.set(state.getRowsInserted());
+      job.status = Status.valueOf(state.getStatus().name());
+      job.error = state.getError();
+      job.cancelRequested = state.isCancelRequested();
+      job.finishedAt = state.getFinishedAt() != null ? state.getFinishedAt() : 0;
+
+      return job;
+   }
+
+   synchronized ImportJobState toState() {
+      final ImportJobState state = new ImportJobState();
+      state.setId(id);
+      state.setUserId(userId);
+      state.setProjectId(projectId);
+      state.setCollectionId(collectionId);
+      state.setFormat(format);
+      state.setStatus(ImportJobState.Status.valueOf(status.name()));
+      state.setRowsParsed(rowsParsed.get());
+      state.setRowsInserted(rowsInserted.get());
+      state.setError(error);
+      state.setFinishedAt(isFinished() ? finishedAt : null);
+
+      return state;
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   @JsonIgnore
+   public String getUserId() {
+      return userId;
+   }
+
+   @JsonIgnore
+   public String getProjectId() {
+      return projectId;
+   }
+
+   public String getCollectionId() {
+      return collectionId;
+   }
+
+   public String getFormat() {
+      return format;
+   }
+
+   @JsonIgnore
+   public Path getFile() {
+      return file;
+   }
+
+   @JsonIgnore
+   public String[] getAttributeIds() {
+      return attributeIds;
+   }
+
+   /**
+    * @return Types of the columns in the order of the attributes.
+    */
+   @JsonIgnore
+   public ImportColumn[] getColumns() {
+      return columns;
+   }
+
+   public long getRowsParsed() {
+      return rowsParsed.get();
+   }
+
+   public long getRowsInserted() {
+      return rowsInserted.get();
+   }
+
+   public Status getStatus() {
+      return status;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   @JsonIgnore
+   public long getFinishedAt() {
+      return finishedAt;
+   }
+
+   @JsonIgnore
+   public boolean isFinished() {
+      return status != Status.QUEUED && status != Status.RUNNING;
+   }
+
+   @JsonIgnore
+   public boolean isCancelRequested() {
+      return cancelRequested;
+   }
+
+   void rowParsed() {
+      rowsParsed.incrementAndGet();
+   }
+
+   /**
+    * Batches are written in no particular order, a resumed job skips exactly those that have been written.
+    */
+   boolean isBatchInserted(final long batchIndex) {
+      return insertedBatches.contains(batchIndex);
+   }
+
+   void batchInserted(final long batchIndex, final int rows) {
+      insertedBatches.add(batchIndex);
+      incompleteBatches.remove(batchIndex);
+      rowsInserted.addAndGet(rows);
+   }
+
+   /**
+    * Remembers the ids of the documents being written, so that they can be removed when the batch is not written completely.
+    */
+   void batchStarted(final long batchIndex, final List<String> documentIds) {
+      incompleteBatches.put(batchIndex, documentIds);
+   }
+
+   /**
+    * @return Ids of the documents of the batch that was not written completely, null when there is no such batch.
+    */
+   List<String> getIncompleteBatch(final long batchIndex) {
+      return incompleteBatches.get(batchIndex);
+   }
+
+   void batchRemoved(final long batchIndex) {
+      incompleteBatches.remove(batchIndex);
+   }
+
+   /**
+    * @return False when the job was cancelled before it started.
+    */
+   synchronized boolean start() {
+      if (status != Status.QUEUED) {
+         return false;
+      }
+
+      status = Status.RUNNING;
+      rowsParsed.set(0);
+      return true;
+   }
+
+   synchronized void complete() {
+      finish(Status.COMPLETED, null);
+   }
+
+   synchronized void fail(final String error) {
+      finish(Status.FAILED, error);
+   }
+
+   synchronized void cancelled() {
+      finish(Status.CANCELLED, null);
+   }
+
+   /**
+    * Stops the job, the rows inserted so far are kept and the job can be resumed.
+    *
+    * @return False when the job has already finished.
+    */
+   public synchronized boolean cancel() {
+      if (status == Status.QUEUED) {
+         finish(Status.CANCELLED, null);
+         return true;
+      }
+
+      if (status == Status.RUNNING) {
+         cancelRequested = true;
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Queues a failed or cancelled job again, it continues after the last inserted row.
+    *
+    * @return False when the job cannot be resumed.
+    */
+   public synchronized boolean resume() {
+      if (status != Status.FAILED && status != Status.CANCELLED) {
+         return false;
+      }
+
+      status = Status.QUEUED;
+      error = null;
+      cancelRequested = false;
+      return true;
+   }
+
+   private void finish(final Status status, final String error) {
+      this.status = status;
+      this.error = error;
+      this.finishedAt = System.currentTimeMillis();
+   }
+}
@@ -0,0 +1,277 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.core.facade.PusherFacade;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.core.util.ClusterEventCodec;
+import io.lumeer.core.util.ImportColumn;
+import io.lumeer.storage.api.dao.ImportJobDao;
+import io.lumeer.storage.api.dao.ImportJobState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Keeps the import jobs of this node, together with the uploaded files, until a day after they finish.
+ *
+ * The state of every job is stored by {@link ImportJobDao}, so that any node can report or cancel it. A job is processed only by the node
+ * that received the file, the other nodes ask it to resume the job through {@link ClusterEventBus} and to cancel it through the stored state,
+ * which the node checks after every written batch.
+ */
+@ApplicationScoped
+public class ImportJobs {
+
+   public static final long JOB_RETENTION = TimeUnit.DAYS.toMillis(1);
+
+   private static final String FINISH_EVENT = ImportJob.class.getSimpleName() + ":finish";
+
+   private static final Set<ImportJobState.Status> QUEUED = EnumSet.of(ImportJobState.Status.QUEUED);
+   private static final Set<ImportJobState.Status> RUNNING = EnumSet.of(ImportJobState.Status.RUNNING);
+   private static final Set<ImportJobState.Status> RESUMABLE = EnumSet.of(ImportJobState.Status.FAILED, ImportJobState.Status.CANCELLED);
+
+   private static final Logger log = Logger.getLogger(ImportJobs.class.getName());
+
+   private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+   // the last task of every job, a job resumed by another node continues with a copy of it
+   private final Map<String, ImportTask> tasks = new ConcurrentHashMap<>();
+
+   @Inject
+   private PusherFacade pusherFacade;
+
+   @Inject
+   private ImportJobDao importJobDao;
+
+   @Inject
+   private ClusterEventBus clusterEventBus;
+
+   @Inject
+   private TaskExecutor taskExecutor;
+
+   public ImportJobs() {
+   }
+
+   ImportJobs(final PusherFacade pusherFacade, final ImportJobDao importJobDao, final ClusterEventBus clusterEventBus, final TaskExecutor taskExecutor) {
+      this.pusherFacade = pusherFacade;
+      this.importJobDao = importJobDao;
+      this.clusterEventBus = clusterEventBus;
+      this.taskExecutor = taskExecutor;
+   }
+
+   @PostConstruct
+   public void init() {
+      clusterEventBus.subscribe(ClusterEventCodec.ImportJobResume.class, resume -> resumeLocalJob(resume.getJobId()));
+   }
+
+   public ImportJob createJob(final String userId, final String projectId, final String collectionId, final String format, final Path file,
+         final String[] attributeIds, final ImportColumn[] columns) {
+      removeExpiredJobs();
+
+      final ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId, projectId, collectionId, format, file, attributeIds, columns);
+      final ImportJobState state = job.toState();
+      state.setOwner(clusterEventBus.getNodeId());
+      importJobDao.createJob(state);
+      jobs.put(job.getId(), job);
+
+      return job;
+   }
+
+   /**
+    * Submits the task processing a job of this node.
+    *
+    * @param task
+    *       The task with the job created by {@link #createJob}.
+    */
+   public void submitJob(final ImportTask task) {
+      task.setImportJobs(this);
+      tasks.put(task.getJob().getId(), task);
+      taskExecutor.submitTask(task);
+   }
+
+   /**
+    * @return The job, a snapshot of its stored state when it belongs to another node, null when it is not known.
+    */
+   public ImportJob getJob(final String jobId) {
+      final ImportJob job = jobs.get(jobId);
+      if (job != null) {
+         return job;
+      }
+
+      final ImportJobState state = importJobDao.getJob(jobId);
+      return state != null ? ImportJob.fromState(state) : null;
+   }
+
+   /**
+    * Cancels a queued job, a running job is stopped by its node after the batch being written.
+    *
+    * @return The job after the cancellation, null when it has already finished.
+    */
+   public ImportJob cancelJob(final String jobId) {
+      final ImportJob job = jobs.get(jobId);
+      if (job == null) {
+         final ImportJobState state = importJobDao.cancelJob(jobId);
+         return state != null ? ImportJob.fromState(state) : null;
+      }
+
+      if (!job.cancel()) {
+         return null;
+      }
+      if (job.isFinished()) {
+         // the queued task ends without starting the job
+         importJobDao.updateStatus(job.toState(), QUEUED);
+      }
+
+      return job;
+   }
+
+   /**
+    * Queues a failed or cancelled job again, the job of another node is resumed by that node.
+    *
+    * @param taskFactory
+    *       Creates the task resuming a job of this node.
+    * @return The queued job, null when it cannot be resumed.
+    */
+   public ImportJob resumeJob(final String jobId, final Function<ImportJob, ImportTask> taskFactory) {
+      final ImportJob job = jobs.get(jobId);
+      if (job != null) {
+         if (!job.resume()) {
+            return null;
+         }
+
+         importJobDao.updateStatus(job.toState(), RESUMABLE);
+         submitJob(taskFactory.apply(job));
+
+         return job;
+      }
+
+      // the file of a job owned by this node is lost after a restart
+      final ImportJobState state = importJobDao.getJob(jobId);
+      if (state == null || clusterEventBus.getNodeId().equals(state.getOwner()) || !clusterEventBus.isClustered()) {
+         return null;
+      }
+
+      state.setStatus(ImportJobState.Status.QUEUED);
+      state.setError(null);
+      state.setFinishedAt(null);
+      if (!importJobDao.updateStatus(state, RESUMABLE)) {
+         return null;
+      }
+      clusterEventBus.publish(new ClusterEventCodec.ImportJobResume(jobId));
+
+      return ImportJob.fromState(state);
+   }
+
+   /**
+    * Stores the start of the job.
+    *
+    * @return False when the job has been cancelled by another node.
+    */
+   boolean jobStarted(final ImportJob job) {
+      try {
+         return importJobDao.updateStatus(job.toState(), QUEUED);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to store the start of import job " + job.getId(), e);
+         return true;
+      }
+   }
+
+   /**
+    * Stores the progress of the job and stops it when another node asked to.
+    */
+   void jobProgress(final ImportJob job) {
+      try {
+         final ImportJobState state = importJobDao.updateProgress(job.getId(), job.getRowsParsed(), job.getRowsInserted());
+         if (state != null && state.isCancelRequested()) {
+            job.cancel();
+         }
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to store the progress of import job " + job.getId(), e);
+      }
+   }
+
+   /**
+    * Stores the end of the job and announces it to its initiator. The uploaded file of a completed job is not needed any more.
+    *
+    * @param job
+    *       The finished job.
+    */
+   public void jobFinished(final ImportJob job) {
+      try {
+         importJobDao.updateStatus(job.toState(), RUNNING);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to store the end of import job " + job.getId(), e);
+      }
+
+      if (job.getStatus() == ImportJob.Status.COMPLETED) {
+         deleteFile(job);
+      }
+
+      pusherFacade.sendUserNotification(job.getUserId(), FINISH_EVENT, job);
+   }
+
+   @PreDestroy
+   public void destroy() {
+      jobs.values().forEach(this::deleteFile);
+      jobs.clear();
+      tasks.clear();
+   }
+
+   private void resumeLocalJob(final String jobId) {
+      final ImportJob job = jobs.get(jobId);
+      final ImportTask task = tasks.get(jobId);
+      if (job != null && task != null && job.resume()) {
+         submitJob(task.copy());
+      }
+   }
+
+   private void removeExpiredJobs() {
+      final long expiredBefore = System.currentTimeMillis() - JOB_RETENTION;
+      jobs.values().removeIf(job -> {
+         if (job.isFinished() && job.getFinishedAt() < expiredBefore) {
+            tasks.remove(job.getId());
+            deleteFile(job);
+            return true;
+         }
+         return false;
+      });
+   }
+
+   private void deleteFile(final ImportJob job) {
+      try {
+         Files.deleteIfExists(job.getFile());
+      } catch (IOException e) {
+         log.log(Level.WARNING, "Unable to delete imported file " + job.getFile(), e);
+      }
+   }
+}
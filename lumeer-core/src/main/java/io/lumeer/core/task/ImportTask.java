@@ -0,0 +1,345 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Document;
+import io.lumeer.core.exception.ServiceLimitsExceededException;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.core.util.ImportColumn;
+import io.lumeer.core.util.ImportPipeline;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.DocumentDao;
+import io.lumeer.storage.api.exception.StorageException;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Imports the data of an {@link ImportJob} to its collection, whose attributes have already been created.
+ * Rows are parsed on the calling thread, converted to documents with values encoded by the {@link ImportColumn} types
+ * and written by an {@link ImportPipeline}.
+ * A resumed job skips the batches written before. The progress of a background job is stored by {@link ImportJobs} after every written batch.
+ */
+public class ImportTask extends AbstractContextualTask {
+
+   public static final int BATCH_SIZE = 1000;
+   public static final int CONVERTERS = 2;
+   public static final int WRITERS = 4;
+   public static final int QUEUE_CAPACITY = 4;
+
+   private static final Logger log = Logger.getLogger(ImportTask.class.getName());
+
+   private ImportJob job;
+   private ImportJobs importJobs;
+   private ThreadFactory threadFactory;
+   private DocumentParser parser;
+   private DocumentDao documentDao;
+   private DataDao dataDao;
+   private long documentsLimit;
+   private long documentsCount;
+   private long submittedRows;
+   private long insertedRows;
+   private RuntimeException failure;
+
+   public ImportTask setJob(final ImportJob job) {
+      this.job = job;
+      return this;
+   }
+
+   public ImportJob getJob() {
+      return job;
+   }
+
+   /**
+    * @param importJobs
+    *       Jobs to announce the end of the job to, null when the import runs inside a request.
+    */
+   public ImportTask setImportJobs(final ImportJobs importJobs) {
+      this.importJobs = importJobs;
+      return this;
+   }
+
+   public ImportTask setThreadFactory(final ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+      return this;
+   }
+
+   /**
+    * @param parser
+    *       Parser positioned after the headers, the file of the job is read when not set.
+    */
+   public ImportTask setParser(final DocumentParser parser) {
+      this.parser = parser;
+      return this;
+   }
+
+   /**
+    * @param documentsLimit
+    *       Maximal number of documents in the organization, 0 for no limit.
+    * @param documentsCount
+    *       Current number of documents in the organization.
+    */
+   public ImportTask setDocumentsLimit(final long documentsLimit, final long documentsCount) {
+      this.documentsLimit = documentsLimit;
+      this.documentsCount = documentsCount;
+      return this;
+   }
+
+   /**
+    * @return The reason of the job failure, null when it has not failed.
+    */
+   public RuntimeException getFailure() {
+      return failure;
+   }
+
+   @Override
+   public int getPriority() {
+      return PRIORITY_HIGH;
+   }
+
+   /**
+    * The uploaded file and the job state are kept by this node, other nodes ask it to resume the job through {@link ImportJobs}.
+    */
+   @Override
+   public boolean isLocal() {
+      return true;
+   }
+
+   @Override
+   public void process() {
+      if (!job.start()) {
+         return;
+      }
+      if (importJobs != null && !importJobs.jobStarted(job)) {
+         job.cancelled();
+         return;
+      }
+
+      final long insertedBefore = job.getRowsInserted();
+      try {
+         importRows();
+      } catch (RuntimeException e) {
+         failure = e;
+      } catch (Exception e) {
+         failure = new IllegalStateException(e);
+      }
+      insertedRows = job.getRowsInserted() - insertedBefore;
+
+      if (failure != null) {
+         log.log(Level.WARNING, "Import to collection " + job.getCollectionId() + " failed: ", failure);
+         job.fail(failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName());
+      }
+
+      if (importJobs != null) {
+         importJobs.jobFinished(job);
+      }
+   }
+
+   /**
+    * Creates a task resuming the job outside of a request, in the context of this task. The documents inserted by this task are added
+    * to the documents count the limit is checked against.
+    *
+    * @return The new task reading the file of the job.
+    */
+   public ImportTask copy() {
+      final ImportTask task = new ImportTask().setJob(job)
+                                              .setImportJobs(importJobs)
+                                              .setThreadFactory(threadFactory)
+                                              .setDocumentsLimit(documentsLimit, documentsCount + insertedRows);
+      task.initialize(initiator, daoContextSnapshot, pusherClient);
+
+      return task;
+   }
+
+   private void importRows() throws IOException, InterruptedException {
+      // the documents inserted by the previous runs of the job are already in the documents count
+      submittedRows = 0;
+      documentDao = daoContextSnapshot.getDocumentDao();
+      dataDao = daoContextSnapshot.getDataDao();
+      final String[] attributeIds = job.getAttributeIds();
+      final int[] counts = new int[attributeIds.length];
+
+      if (attributeIds.length > 0) {
+         if (parser != null) {
+            parseRows(parser, attributeIds, counts);
+         } else {
+            try (DocumentParser fileParser = DocumentParser.open(job.getFormat(), job.getFile())) {
+               parseRows(fileParser, attributeIds, counts);
+            }
+         }
+      }
+
+      if (job.isCancelRequested()) {
+         job.cancelled();
+         return;
+      }
+
+      updateCollection(attributeIds, counts);
+      job.complete();
+   }
+
+   private void parseRows(final DocumentParser parser, final String[] attributeIds, final int[] counts) throws InterruptedException {
+      final ImportPipeline<DataDocument, Document> pipeline = new ImportPipeline<>(threadFactory, CONVERTERS, WRITERS, QUEUE_CAPACITY,
+            this::createDocument, this::insertDocuments);
+      pipeline.start();
+
+      try {
+         long batchIndex = 0;
+         List<DataDocument> rows = new ArrayList<>(BATCH_SIZE);
+         DataDocument data;
+
+         while ((data = parser.nextRow(attributeIds, counts)) != null) {
+            job.rowParsed();
+            rows.add(data);
+
+            if (rows.size() >= BATCH_SIZE) {
+               if (!submitBatch(pipeline, batchIndex++, rows)) {
+                  break;
+               }
+               rows = new ArrayList<>(BATCH_SIZE);
+            }
+         }
+
+         if (data == null && !rows.isEmpty()) {
+            submitBatch(pipeline, batchIndex, rows);
+         }
+      } catch (RuntimeException e) {
+         pipeline.abort(e);
+      }
+
+      pipeline.finish();
+   }
+
+   /**
+    * @return False when no more batches should be submitted.
+    */
+   private boolean submitBatch(final ImportPipeline<DataDocument, Document> pipeline, final long batchIndex, final List<DataDocument> rows) throws InterruptedException {
+      if (job.isCancelRequested()) {
+         return false;
+      }
+
+      if (job.isBatchInserted(batchIndex)) {
+         return true;
+      }
+
+      checkDocumentsLimit(submittedRows + rows.size());
+      submittedRows += rows.size();
+
+      return pipeline.submit(batchIndex, rows);
+   }
+
+   private void checkDocumentsLimit(final long importedDocuments) {
+      if (documentsLimit > 0 && documentsCount + importedDocuments > documentsLimit) {
+         throw new ServiceLimitsExceededException(documentsLimit, documentsCount + importedDocuments, null);
+      }
+   }
+
+   private Document createDocument(final DataDocument data) {
+      final String[] attributeIds = job.getAttributeIds();
+      final ImportColumn[] columns = job.getColumns();
+      for (int i = 0; i < attributeIds.length; i++) {
+         final Object value = data.get(attributeIds[i]);
+         if (value instanceof String) {
+            data.put(attributeIds[i], columns[i].encode((String) value));
+         }
+      }
+
+      final Document document = new Document(data);
+      document.setId(documentDao.generateDocumentId());
+      document.setCollectionId(job.getCollectionId());
+      document.setCreatedBy(initiator.getId());
+      document.setCreationDate(ZonedDateTime.now());
+      data.setId(document.getId());
+
+      return document;
+   }
+
+   private void insertDocuments(final long batchIndex, final List<Document> documents) {
+      // a batch that failed in a previous run and could not be removed then
+      removeBatch(batchIndex);
+
+      job.batchStarted(batchIndex, documents.stream().map(Document::getId).collect(Collectors.toList()));
+      try {
+         documentDao.createDocuments(documents);
+
+         final List<DataDocument> dataDocuments = new ArrayList<>(documents.size());
+         documents.forEach(document -> dataDocuments.add(document.getData()));
+         dataDao.createData(job.getCollectionId(), dataDocuments);
+      } catch (RuntimeException e) {
+         try {
+            removeBatch(batchIndex);
+         } catch (RuntimeException removeFailure) {
+            e.addSuppressed(removeFailure);
+         }
+         throw e;
+      }
+
+      job.batchInserted(batchIndex, documents.size());
+      if (importJobs != null) {
+         importJobs.jobProgress(job);
+      }
+   }
+
+   /**
+    * Removes the documents of a batch that was not written completely, so that a resumed job does not leave them behind.
+    */
+   private void removeBatch(final long batchIndex) {
+      final List<String> documentIds = job.getIncompleteBatch(batchIndex);
+      if (documentIds == null) {
+         return;
+      }
+
+      for (final String documentId : documentIds) {
+         try {
+            documentDao.deleteDocument(documentId);
+         } catch (StorageException e) {
+            // the document has not been created
+         }
+         dataDao.deleteData(job.getCollectionId(), documentId);
+      }
+      job.batchRemoved(batchIndex);
+   }
+
+   private void updateCollection(final String[] attributeIds, final int[] counts) {
+      final CollectionDao collectionDao = daoContextSnapshot.getCollectionDao();
+      final Collection collection = collectionDao.getCollectionById(job.getCollectionId());
+      final Collection originalCollection = collection.copy();
+
+      collection.getAttributes().forEach(attribute -> {
+         final int index = Arrays.asList(attributeIds).indexOf(attribute.getId());
+         if (index >= 0) {
+            attribute.setUsageCount(counts[index]);
+         }
+      });
+      collection.setDocumentsCount((int) job.getRowsInserted());
+      collection.setLastTimeUsed(ZonedDateTime.now());
+
+      collectionDao.updateCollection(collection.getId(), collection, originalCollection);
+   }
+}
@@ -0,0 +1,52 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.storage.api.dao.DataStorageLayout;
+
+/**
+ * Moves the data of the project in the captured context to another storage layout.
+ */
+public class MigrateDataStorageLayoutTask extends AbstractContextualTask {
+
+   private DataStorageLayout layout;
+
+   public MigrateDataStorageLayoutTask setLayout(final DataStorageLayout layout) {
+      this.layout = layout;
+      return this;
+   }
+
+   @Override
+   public int getPriority() {
+      return PRIORITY_LOW;
+   }
+
+   /**
+    * A failed migration is rolled back, so it can be started again.
+    */
+   @Override
+   public int getMaxAttempts() {
+      return 3;
+   }
+
+   @Override
+   public void process() {
+      daoContextSnapshot.getDataDao().migrateDataStorageLayout(layout, daoContextSnapshot.getCollectionDao()::getAllCollectionIds);
+   }
+}
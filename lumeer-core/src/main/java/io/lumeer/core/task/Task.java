@@ -27,5 +27,35 @@ import java.io.Serializable;
  */
 public interface Task extends Serializable {
 
+   int PRIORITY_LOW = -10;
+   int PRIORITY_NORMAL = 0;
+   int PRIORITY_HIGH = 10;
+
    void process();
+
+   /**
+    * @return Priority of the task, tasks with higher priority are started first.
+    */
+   default int getPriority() {
+      return PRIORITY_NORMAL;
+   }
+
+   /**
+    * A task is retried with increasing delays when it throws an exception, only idempotent tasks should allow more attempts.
+    *
+    * @return Maximal number of attempts to process the task.
+    */
+   default int getMaxAttempts() {
+      return 1;
+   }
+
+   /**
+    * Local tasks hold state that cannot be serialized, such as open files, and are processed only by the node that submitted them.
+    * Other tasks are serialized to the task queue and processed by any node.
+    *
+    * @return True when the task must be processed on this node.
+    */
+   default boolean isLocal() {
+      return false;
+   }
 }
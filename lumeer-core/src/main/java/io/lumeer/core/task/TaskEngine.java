@@ -0,0 +1,482 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.dao.TaskQueueDao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Processes the tasks of the persistent {@link TaskQueueDao} on this node. Worker threads lease the due tasks with the highest priority,
+ * the leases are renewed while the node is alive, so a task is processed by a single node at a time and the tasks of a crashed node
+ * are taken over by the others once their leases expire. Only the leases of the tasks being processed by the workers and of the local tasks
+ * are renewed. A task that throws an exception is retried with exponentially increasing delays until it runs out of attempts,
+ * a task that throws an error fails immediately.
+ * Tasks are stored serialized, except for local tasks which are kept in memory and leased by this node from the very beginning.
+ * When there is a {@link TaskTransport}, the other tasks are sent through it instead of the queue and processed by {@link #processDispatched(QueuedTask)}
+ * on the node that receives them. Tasks the transport fails to send are stored in the queue.
+ */
+public class TaskEngine {
+
+   public static final int DEFAULT_WORKERS = 2;
+   public static final long DEFAULT_POLL_INTERVAL = 1000;
+   public static final long DEFAULT_LEASE_DURATION = TimeUnit.MINUTES.toMillis(5);
+   public static final long DEFAULT_RETRY_DELAY = TimeUnit.SECONDS.toMillis(10);
+   public static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(1);
+   public static final int MAX_ERROR_LENGTH = 1000;
+
+   private static final Logger log = Logger.getLogger(TaskEngine.class.getName());
+
+   private final TaskQueueDao taskQueueDao;
+   private final String nodeId;
+   private final long pollInterval;
+   private final long leaseDuration;
+   private final long retryDelay;
+   private final BiConsumer<QueuedTask, Task> initializer;
+   private final TaskTransport transport;
+
+   private final Map<String, Task> localTasks = new ConcurrentHashMap<>();
+   private final Set<String> runningTasks = ConcurrentHashMap.newKeySet();
+   private final List<Thread> workers = new ArrayList<>();
+   private final ScheduledExecutorService heartbeat;
+   private final Object signal = new Object();
+   private volatile boolean running = true;
+
+   private final LongAdder submitted = new LongAdder();
+   private final LongAdder dispatched = new LongAdder();
+   private final LongAdder started = new LongAdder();
+   private final LongAdder completed = new LongAdder();
+   private final LongAdder retried = new LongAdder();
+   private final LongAdder failed = new LongAdder();
+   private final LongAdder leasesLost = new LongAdder();
+   private final LongAdder processingTime = new LongAdder();
+   private final AtomicLong active = new AtomicLong();
+
+   /**
+    * @param initializer
+    *       Prepares a deserialized task to be processed, typically restores its context.
+    * @param transport
+    *       Started transport for the tasks that are not local, null to keep all tasks in the queue.
+    */
+   public TaskEngine(final TaskQueueDao taskQueueDao, final String nodeId, final ThreadFactory threadFactory, final int workers,
+         final long pollInterval, final long leaseDuration, final long retryDelay, final BiConsumer<QueuedTask, Task> initializer,
+         final TaskTransport transport) {
+      this.taskQueueDao = taskQueueDao;
+      this.nodeId = nodeId;
+      this.pollInterval = pollInterval;
+      this.leaseDuration = leaseDuration;
+      this.retryDelay = retryDelay;
+      this.initializer = initializer;
+      this.transport = transport;
+
+      for (int i = 0; i < Math.max(workers, 1); i++) {
+         final Thread worker = threadFactory.newThread(this::work);
+         worker.setName("task-worker-" + i);
+         worker.setDaemon(true);
+         this.workers.add(worker);
+         worker.start();
+      }
+
+      final long renewInterval = Math.max(leaseDuration / 3, 1);
+      heartbeat = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      heartbeat.scheduleWithFixedDelay(this::renewLeases, renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+   }
+
+   public String getNodeId() {
+      return nodeId;
+   }
+
+   /**
+    * Stores the task in the queue, or sends it through the transport.
+    *
+    * @param task
+    *       The task, must be serializable unless it is local.
+    * @param runAt
+    *       Time in milliseconds since the epoch when the task can be started at the earliest.
+    * @param organizationId
+    *       Organization of the task context, may be null.
+    * @param projectId
+    *       Project of the task context, may be null.
+    * @param userId
+    *       User who submitted the task, may be null.
+    * @return Id of the queued task.
+    */
+   public String submit(final Task task, final long runAt, final String organizationId, final String projectId, final String userId) {
+      final long now = System.currentTimeMillis();
+      final QueuedTask queuedTask = new QueuedTask();
+      queuedTask.setId(UUID.randomUUID().toString());
+      queuedTask.setType(task.getClass().getName());
+      queuedTask.setPriority(task.getPriority());
+      queuedTask.setMaxAttempts(Math.max(task.getMaxAttempts(), 1));
+      queuedTask.setState(QueuedTask.State.QUEUED);
+      queuedTask.setCreatedAt(now);
+      queuedTask.setRunAt(runAt);
+      queuedTask.setOrganizationId(organizationId);
+      queuedTask.setProjectId(projectId);
+      queuedTask.setUserId(userId);
+
+      if (task.isLocal()) {
+         queuedTask.setOwner(nodeId);
+         queuedTask.setLeaseUntil(now + leaseDuration);
+         localTasks.put(queuedTask.getId(), task);
+      } else {
+         queuedTask.setPayload(serialize(task));
+
+         if (transport != null) {
+            try {
+               transport.send(queuedTask, Math.max(runAt - now, 0));
+               submitted.increment();
+               dispatched.increment();
+               return queuedTask.getId();
+            } catch (RuntimeException e) {
+               // the workers of all nodes poll the queue as well
+               log.log(Level.WARNING, "Unable to send task " + queuedTask + ", storing it in the queue", e);
+            }
+         }
+      }
+
+      try {
+         taskQueueDao.createTask(queuedTask);
+      } catch (RuntimeException e) {
+         localTasks.remove(queuedTask.getId());
+         throw e;
+      }
+      submitted.increment();
+
+      if (runAt <= now) {
+         synchronized (signal) {
+            signal.notify();
+         }
+      }
+
+      return queuedTask.getId();
+   }
+
+   public void stop() {
+      running = false;
+      heartbeat.shutdownNow();
+      workers.forEach(Thread::interrupt);
+   }
+
+   public Map<String, Long> getMetrics() {
+      return Map.of("submitted", submitted.sum(), "dispatched", dispatched.sum(), "started", started.sum(), "completed", completed.sum(), "retried", retried.sum(),
+            "failed", failed.sum(), "leasesLost", leasesLost.sum(), "active", active.get(), "processingTime", processingTime.sum());
+   }
+
+   private void work() {
+      while (running && !Thread.currentThread().isInterrupted()) {
+         boolean processed;
+         try {
+            processed = processNext();
+         } catch (Throwable e) {
+            // the worker must survive anything, it would be lost for good otherwise
+            log.log(Level.SEVERE, "Task worker failed: ", e);
+            processed = false;
+         }
+
+         if (!processed) {
+            synchronized (signal) {
+               try {
+                  signal.wait(pollInterval);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+         }
+      }
+   }
+
+   private boolean processNext() {
+      final QueuedTask queuedTask;
+      try {
+         queuedTask = taskQueueDao.leaseTask(nodeId, leaseDuration);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to lease a task: ", e);
+         return false;
+      }
+
+      if (queuedTask == null) {
+         return false;
+      }
+
+      runningTasks.add(queuedTask.getId());
+      started.increment();
+      active.incrementAndGet();
+      final long start = System.currentTimeMillis();
+      try {
+         process(queuedTask);
+      } finally {
+         processingTime.add(System.currentTimeMillis() - start);
+         active.decrementAndGet();
+         runningTasks.remove(queuedTask.getId());
+      }
+
+      return true;
+   }
+
+   /**
+    * Processes a task received from the transport. A failed task is sent again with a delay while it has attempts left.
+    *
+    * @param queuedTask
+    *       The received task, its number of attempts does not include this one.
+    */
+   public void processDispatched(final QueuedTask queuedTask) {
+      // the task was redelivered after its node crashed in the last attempt
+      if (queuedTask.getAttempts() >= queuedTask.getMaxAttempts()) {
+         log.warning("Task " + queuedTask + " was interrupted in its last attempt");
+         failed.increment();
+         return;
+      }
+
+      queuedTask.setAttempts(queuedTask.getAttempts() + 1);
+      queuedTask.setStartedAt(System.currentTimeMillis());
+
+      started.increment();
+      active.incrementAndGet();
+      try {
+         final Task task;
+         try {
+            task = deserialize(queuedTask.getPayload());
+         } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.log(Level.WARNING, "Unable to deserialize task " + queuedTask, e);
+            failed.increment();
+            return;
+         }
+
+         final Throwable failure = run(queuedTask, task);
+         if (failure == null) {
+            completed.increment();
+         } else if (canRetry(queuedTask, failure)) {
+            retried.increment();
+            queuedTask.setError(truncate(failure.toString()));
+            final long delay = getRetryDelay(queuedTask);
+            try {
+               transport.send(queuedTask, delay);
+            } catch (RuntimeException e) {
+               log.log(Level.WARNING, "Unable to send retry of task " + queuedTask + ", storing it in the queue", e);
+               queueRetry(queuedTask, delay);
+            }
+         } else {
+            failed.increment();
+         }
+      } finally {
+         processingTime.add(System.currentTimeMillis() - queuedTask.getStartedAt());
+         active.decrementAndGet();
+      }
+   }
+
+   private void queueRetry(final QueuedTask queuedTask, final long delay) {
+      queuedTask.setState(QueuedTask.State.QUEUED);
+      queuedTask.setRunAt(System.currentTimeMillis() + delay);
+      queuedTask.setOwner(null);
+      queuedTask.setLeaseUntil(null);
+
+      try {
+         taskQueueDao.createTask(queuedTask);
+      } catch (RuntimeException e) {
+         failed.increment();
+         log.log(Level.WARNING, "Unable to retry task " + queuedTask, e);
+      }
+   }
+
+   private void process(final QueuedTask queuedTask) {
+      // the lease of a running task expired, most probably its node crashed
+      if (queuedTask.getAttempts() > queuedTask.getMaxAttempts()) {
+         finish(queuedTask, QueuedTask.State.FAILED, "The task was interrupted in its last attempt");
+         return;
+      }
+
+      final Task task;
+      try {
+         task = queuedTask.getPayload() != null ? deserialize(queuedTask.getPayload()) : localTasks.get(queuedTask.getId());
+      } catch (IOException | ClassNotFoundException | ClassCastException e) {
+         log.log(Level.WARNING, "Unable to deserialize task " + queuedTask, e);
+         finish(queuedTask, QueuedTask.State.FAILED, "Unable to deserialize the task: " + e);
+         return;
+      }
+
+      if (task == null) {
+         finish(queuedTask, QueuedTask.State.FAILED, "The task was lost together with the node that submitted it");
+         return;
+      }
+
+      final Throwable failure = run(queuedTask, task);
+      if (failure == null) {
+         finish(queuedTask, QueuedTask.State.COMPLETED, null);
+      } else if (canRetry(queuedTask, failure)) {
+         retry(queuedTask, failure.toString());
+      } else {
+         finish(queuedTask, QueuedTask.State.FAILED, failure.toString());
+      }
+   }
+
+   private Throwable run(final QueuedTask queuedTask, final Task task) {
+      try {
+         initializer.accept(queuedTask, task);
+         task.process();
+         return null;
+      } catch (Throwable e) {
+         if (canRetry(queuedTask, e)) {
+            log.log(Level.INFO, "Task " + queuedTask + " failed, it will be retried: ", e);
+         } else {
+            log.log(e instanceof Error ? Level.SEVERE : Level.WARNING, "Task " + queuedTask + " failed: ", e);
+         }
+         return e;
+      }
+   }
+
+   /**
+    * Errors like running out of memory would most probably repeat, tasks that throw them are not retried.
+    */
+   private boolean canRetry(final QueuedTask queuedTask, final Throwable failure) {
+      return !(failure instanceof Error) && queuedTask.getAttempts() < queuedTask.getMaxAttempts();
+   }
+
+   private long getRetryDelay(final QueuedTask queuedTask) {
+      return Math.min(retryDelay << Math.min(queuedTask.getAttempts() - 1, 20), MAX_RETRY_DELAY);
+   }
+
+   private void retry(final QueuedTask queuedTask, final String error) {
+      retried.increment();
+
+      try {
+         if (!taskQueueDao.retryTask(queuedTask.getId(), nodeId, System.currentTimeMillis() + getRetryDelay(queuedTask), truncate(error), queuedTask.getPayload() == null)) {
+            leaseLost(queuedTask);
+         }
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to retry task " + queuedTask, e);
+      }
+   }
+
+   private void finish(final QueuedTask queuedTask, final QueuedTask.State state, final String error) {
+      (state == QueuedTask.State.COMPLETED ? completed : failed).increment();
+      localTasks.remove(queuedTask.getId());
+
+      try {
+         if (!taskQueueDao.finishTask(queuedTask.getId(), nodeId, state, truncate(error))) {
+            leaseLost(queuedTask);
+         }
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to finish task " + queuedTask, e);
+      }
+   }
+
+   private void leaseLost(final QueuedTask queuedTask) {
+      leasesLost.increment();
+      log.warning("Lease of task " + queuedTask + " expired before it finished, the task might have been processed by another node as well.");
+   }
+
+   private void renewLeases() {
+      final Set<String> taskIds = new HashSet<>(runningTasks);
+      taskIds.addAll(localTasks.keySet());
+      if (taskIds.isEmpty()) {
+         return;
+      }
+
+      try {
+         taskQueueDao.renewLeases(nodeId, taskIds, leaseDuration);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to renew task leases: ", e);
+      }
+   }
+
+   private static String truncate(final String error) {
+      return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+   }
+
+   static byte[] serialize(final Task task) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+         output.writeObject(task);
+      } catch (IOException e) {
+         throw new IllegalArgumentException("Task " + task.getClass().getName() + " cannot be serialized, it must be local: " + e, e);
+      }
+
+      return bytes.toByteArray();
+   }
+
+   static Task deserialize(final byte[] payload) throws IOException, ClassNotFoundException {
+      try (ObjectInputStream input = new TaskInputStream(new ByteArrayInputStream(payload))) {
+         return (Task) input.readObject();
+      }
+   }
+
+   /**
+    * Loads the classes of the application deployment and accepts only the JDK and application classes.
+    */
+   private static final class TaskInputStream extends ObjectInputStream {
+
+      private TaskInputStream(final InputStream input) throws IOException {
+         super(input);
+         setObjectInputFilter(TaskInputStream::filter);
+      }
+
+      @Override
+      protected Class<?> resolveClass(final ObjectStreamClass description) throws IOException, ClassNotFoundException {
+         final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+         if (classLoader != null) {
+            try {
+               return Class.forName(description.getName(), false, classLoader);
+            } catch (ClassNotFoundException e) {
+               // try the default class loader
+            }
+         }
+
+         return super.resolveClass(description);
+      }
+
+      private static ObjectInputFilter.Status filter(final ObjectInputFilter.FilterInfo info) {
+         Class<?> serialClass = info.serialClass();
+         if (serialClass == null) {
+            return ObjectInputFilter.Status.UNDECIDED;
+         }
+
+         while (serialClass.isArray()) {
+            serialClass = serialClass.getComponentType();
+         }
+
+         final String name = serialClass.getName();
+         return serialClass.isPrimitive() || name.startsWith("java.") || name.startsWith("io.lumeer.") ? ObjectInputFilter.Status.UNDECIDED : ObjectInputFilter.Status.REJECTED;
+      }
+   }
+}
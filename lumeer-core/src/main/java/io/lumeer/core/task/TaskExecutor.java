@@ -18,12 +18,36 @@
  */
 package io.lumeer.core.task;
 
-import javax.enterprise.concurrent.ManagedExecutorService;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.User;
+import io.lumeer.core.facade.PusherFacade;
+import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
+import io.lumeer.core.provider.DataStorageProvider;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.engine.api.data.DataStorage;
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.dao.TaskQueueDao;
+import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
+import io.lumeer.storage.api.dao.context.DaoContextSnapshotFactory;
+
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
 /**
- * Executes tasks in background.
+ * Executes tasks in background. Tasks are stored in the persistent task queue and processed by the {@link TaskEngine}
+ * of any node, the context of a {@link ContextualTask} is restored on the node processing it.
+ * The number of workers per node is set by {@link DefaultConfigurationProducer#TASKS_WORKERS}.
+ * When a {@link TaskTransport} is available, the tasks that are not local are distributed through it instead.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -31,11 +55,162 @@ import javax.inject.Inject;
 public class TaskExecutor {
 
    @Inject
-   private ManagedExecutorService executorService;
+   private TaskQueueDao taskQueueDao;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   @Inject
+   private DefaultConfigurationProducer defaultConfigurationProducer;
+
+   @Inject
+   private ClusterEventBus clusterEventBus;
+
+   @Inject
+   private DaoContextSnapshotFactory daoContextSnapshotFactory;
+
+   @Inject
+   private DataStorageProvider dataStorageProvider;
+
+   @Inject
+   private PusherFacade pusherFacade;
+
+   @Inject
+   private Instance<TaskTransport> transports;
+
+   private TaskTransport transport;
+   private TaskEngine taskEngine;
+
+   public void init(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+      getTaskEngine();
+   }
+
+   @PreDestroy
+   public synchronized void destroy() {
+      if (taskEngine != null) {
+         taskEngine.stop();
+         taskEngine = null;
+      }
+      if (transport != null) {
+         transport.stop();
+         transport = null;
+      }
+   }
+
+   /**
+    * Submits the task to be processed as soon as possible.
+    *
+    * @return Id of the queued task.
+    */
+   public String submitTask(final Task task) {
+      return scheduleTask(task, System.currentTimeMillis());
+   }
+
+   /**
+    * Submits the task to be processed after the given delay.
+    *
+    * @return Id of the queued task.
+    */
+   public String submitTask(final Task task, final long delay, final TimeUnit unit) {
+      return scheduleTask(task, System.currentTimeMillis() + unit.toMillis(delay));
+   }
+
+   /**
+    * Submits the task to be processed at the given time.
+    *
+    * @return Id of the queued task.
+    */
+   public String scheduleTask(final Task task, final ZonedDateTime time) {
+      return scheduleTask(task, time.toInstant().toEpochMilli());
+   }
+
+   /**
+    * Processes a task delivered by the {@link TaskTransport}.
+    *
+    * @param queuedTask
+    *       The received task.
+    */
+   public void processTask(final QueuedTask queuedTask) {
+      getTaskEngine().processDispatched(queuedTask);
+   }
+
+   /**
+    * @return The task, null when it is not found or when it was sent through the {@link TaskTransport}.
+    */
+   public QueuedTask getTask(final String taskId) {
+      return taskQueueDao.getTask(taskId);
+   }
+
+   /**
+    * @return Metrics of the tasks processed by this node together with the number of tasks in the queue by their state.
+    */
+   public Map<String, Long> getMetrics() {
+      final Map<String, Long> metrics = new HashMap<>(getTaskEngine().getMetrics());
+      taskQueueDao.countTasks().forEach((state, count) -> metrics.put(state.name().toLowerCase(), count));
+
+      return metrics;
+   }
+
+   private String scheduleTask(final Task task, final long runAt) {
+      String organizationId = null;
+      String projectId = null;
+      String userId = null;
+
+      if (task instanceof ContextualTask) {
+         final ContextualTask contextualTask = (ContextualTask) task;
+         final DaoContextSnapshot daoContextSnapshot = contextualTask.getDaoContextSnapshot();
+         if (daoContextSnapshot != null) {
+            organizationId = daoContextSnapshot.getOrganization().map(Organization::getId).orElse(null);
+            projectId = daoContextSnapshot.getProject().map(Project::getId).orElse(null);
+         }
+         if (contextualTask.getInitiator() != null) {
+            userId = contextualTask.getInitiator().getId();
+         }
+      }
+
+      return getTaskEngine().submit(task, runAt, organizationId, projectId, userId);
+   }
+
+   private synchronized TaskEngine getTaskEngine() {
+      if (taskEngine == null) {
+         if (transports.isResolvable()) {
+            final TaskTransport candidate = transports.get();
+            if (candidate.start()) {
+               transport = candidate;
+            }
+         }
+
+         taskEngine = new TaskEngine(taskQueueDao, clusterEventBus.getNodeId(), threadFactory,
+               getIntConfiguration(DefaultConfigurationProducer.TASKS_WORKERS, TaskEngine.DEFAULT_WORKERS),
+               getIntConfiguration(DefaultConfigurationProducer.TASKS_POLL_INTERVAL, (int) TaskEngine.DEFAULT_POLL_INTERVAL),
+               TaskEngine.DEFAULT_LEASE_DURATION, TaskEngine.DEFAULT_RETRY_DELAY, this::initializeTask, transport);
+      }
+
+      return taskEngine;
+   }
+
+   /**
+    * Restores the context of a contextual task that was deserialized from the queue. Local tasks keep the context they were submitted with.
+    */
+   private void initializeTask(final QueuedTask queuedTask, final Task task) {
+      if (queuedTask.getPayload() == null || !(task instanceof ContextualTask)) {
+         return;
+      }
+
+      final DataStorage systemDataStorage = dataStorageProvider.getSystemStorage();
+      final DaoContextSnapshot systemSnapshot = daoContextSnapshotFactory.getInstance(systemDataStorage, systemDataStorage, null, null);
+
+      final Organization organization = queuedTask.getOrganizationId() != null ? systemSnapshot.getOrganizationDao().getOrganizationById(queuedTask.getOrganizationId()) : null;
+      final DataStorage userDataStorage = dataStorageProvider.getUserStorage(organization);
+      final Project project = queuedTask.getProjectId() != null ?
+            daoContextSnapshotFactory.getInstance(systemDataStorage, userDataStorage, organization, null).getProjectDao().getProjectById(queuedTask.getProjectId()) : null;
+      final User initiator = queuedTask.getUserId() != null ? systemSnapshot.getUserDao().getUserById(queuedTask.getUserId()) : null;
+
+      ((ContextualTask) task).initialize(initiator, daoContextSnapshotFactory.getInstance(systemDataStorage, userDataStorage, organization, project), pusherFacade.getPusherClient());
+   }
 
-   public void submitTask(final Task task) {
-      executorService.submit(() -> {
-         task.process();
-      });
+   private int getIntConfiguration(final String key, final int defaultValue) {
+      final String value = defaultConfigurationProducer.get(key);
+      return value != null && !value.isEmpty() ? Integer.parseInt(value) : defaultValue;
    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import io.lumeer.storage.api.dao.QueuedTask;
+
+/**
+ * Delivers serialized tasks to the nodes of the cluster instead of the persistent task queue, see {@link TaskExecutor}.
+ * Every task sent must be delivered to a single node, which passes it to {@link TaskExecutor#processTask(QueuedTask)}.
+ */
+public interface TaskTransport {
+
+   /**
+    * Connects to the messaging system.
+    *
+    * @return True when the transport is connected, false when it is not available on this node.
+    */
+   boolean start();
+
+   /**
+    * Sends the task to be processed by any node.
+    *
+    * @param task
+    *       The task with its serialized payload and context.
+    * @param delay
+    *       Delay in milliseconds before the task gets delivered.
+    */
+   void send(QueuedTask task, long delay);
+
+   void stop();
+}
@@ -0,0 +1,228 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.engine.api.event.ChangeUserNotification;
+import io.lumeer.engine.api.event.LinkTypeEvent;
+import io.lumeer.engine.api.event.ResourceEvent;
+import io.lumeer.engine.api.event.UserEvent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+/**
+ * Shares the events fired on this node with all other nodes of the cluster.
+ *
+ * Local events reach their observers through CDI as before, subscribers of the bus receive the events fired on the other nodes.
+ * The observed events and the events published directly are shared when {@link ClusterEventCodec} supports their type,
+ * the codec supports only the types some subscriber consumes. Events are encoded and sent by a background thread,
+ * when its queue is full the events are dropped. Without a {@link ClusterTransport} the node runs standalone and nothing is sent.
+ */
+@ApplicationScoped
+public class ClusterEventBus {
+
+   public static final int SEND_QUEUE_CAPACITY = 10_000;
+
+   private static final Logger log = Logger.getLogger(ClusterEventBus.class.getName());
+
+   private final String nodeId = UUID.randomUUID().toString();
+   private final ClusterEventCodec codec = new ClusterEventCodec();
+   private final List<Subscriber<?>> subscribers = new CopyOnWriteArrayList<>();
+   private final BlockingQueue<Object> outgoing = new LinkedBlockingQueue<>(SEND_QUEUE_CAPACITY);
+
+   private final LongAdder published = new LongAdder();
+   private final LongAdder received = new LongAdder();
+   private final LongAdder failed = new LongAdder();
+   private final LongAdder dropped = new LongAdder();
+
+   @Inject
+   private Instance<ClusterTransport> transports;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   private volatile ClusterTransport transport;
+   private Thread sender;
+
+   @PostConstruct
+   public void init() {
+      if (transports.isResolvable()) {
+         final ClusterTransport candidate = transports.get();
+         if (candidate.start(this::receive)) {
+            transport = candidate;
+            sender = threadFactory.newThread(() -> send(candidate));
+            sender.setName("cluster-event-sender");
+            sender.start();
+            log.info("Cluster event bus started on node " + nodeId);
+         }
+      }
+   }
+
+   @PreDestroy
+   public void destroy() {
+      final ClusterTransport currentTransport = transport;
+      if (currentTransport != null) {
+         transport = null;
+         sender.interrupt();
+         try {
+            sender.join(1000);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         currentTransport.stop();
+      }
+   }
+
+   public String getNodeId() {
+      return nodeId;
+   }
+
+   public boolean isClustered() {
+      return transport != null;
+   }
+
+   /**
+    * Registers a consumer of events of the given type fired on other nodes.
+    *
+    * @param type
+    *       Type of the events, subtypes are delivered as well.
+    * @param consumer
+    *       Consumer called from the transport threads.
+    */
+   public <T> void subscribe(final Class<T> type, final Consumer<? super T> consumer) {
+      subscribers.add(new Subscriber<>(type, consumer));
+   }
+
+   /**
+    * Queues the event to be sent to all other nodes.
+    *
+    * @param event
+    *       The event, its type must be supported by {@link ClusterEventCodec}.
+    */
+   public void publish(final Object event) {
+      if (transport == null || !codec.supports(event.getClass())) {
+         return;
+      }
+
+      if (!outgoing.offer(event)) {
+         dropped.increment();
+         if (dropped.sum() % 1000 == 1) {
+            log.warning("Cluster event queue is full, dropped " + dropped.sum() + " events so far.");
+         }
+      }
+   }
+
+   private void send(final ClusterTransport currentTransport) {
+      while (transport != null) {
+         final Object event;
+         try {
+            event = outgoing.poll(1, TimeUnit.SECONDS);
+         } catch (InterruptedException e) {
+            return;
+         }
+
+         if (event != null) {
+            try {
+               currentTransport.send(codec.encode(nodeId, event));
+               published.increment();
+            } catch (IOException | RuntimeException e) {
+               failed.increment();
+               log.log(Level.WARNING, "Unable to publish cluster event " + event.getClass().getSimpleName(), e);
+            }
+         }
+      }
+   }
+
+   void receive(final byte[] message) {
+      final ClusterEventCodec.Message decoded;
+      try {
+         decoded = codec.decode(message);
+      } catch (IOException | RuntimeException e) {
+         failed.increment();
+         log.log(Level.WARNING, "Unable to decode cluster event", e);
+         return;
+      }
+
+      if (nodeId.equals(decoded.getNodeId())) {
+         return;
+      }
+
+      received.increment();
+      subscribers.forEach(subscriber -> subscriber.deliver(decoded.getEvent()));
+   }
+
+   public Map<String, Long> getMetrics() {
+      return Map.of("published", published.sum(), "received", received.sum(), "failed", failed.sum(),
+            "dropped", dropped.sum(), "queued", (long) outgoing.size());
+   }
+
+   // only the events with subscribers are shared, no node consumes the changes of documents, link instances, favorites or payments
+   public void linkTypeEvent(@Observes final LinkTypeEvent event) {
+      publish(event);
+   }
+
+   public void resourceEvent(@Observes final ResourceEvent event) {
+      publish(event);
+   }
+
+   public void userEvent(@Observes final UserEvent event) {
+      publish(event);
+   }
+
+   public void userNotification(@Observes final ChangeUserNotification event) {
+      publish(event);
+   }
+
+   private static final class Subscriber<T> {
+      private final Class<T> type;
+      private final Consumer<? super T> consumer;
+
+      private Subscriber(final Class<T> type, final Consumer<? super T> consumer) {
+         this.type = type;
+         this.consumer = consumer;
+      }
+
+      private void deliver(final Object event) {
+         if (type.isInstance(event)) {
+            try {
+               consumer.accept(type.cast(event));
+            } catch (RuntimeException e) {
+               log.log(Level.WARNING, "Cluster event subscriber failed", e);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,375 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.LinkType;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.User;
+import io.lumeer.api.model.UserNotification;
+import io.lumeer.api.model.View;
+import io.lumeer.api.model.common.Resource;
+import io.lumeer.engine.api.event.CreateLinkType;
+import io.lumeer.engine.api.event.CreateOrUpdateUser;
+import io.lumeer.engine.api.event.CreateOrUpdateUserNotification;
+import io.lumeer.engine.api.event.CreateResource;
+import io.lumeer.engine.api.event.RemoveLinkType;
+import io.lumeer.engine.api.event.RemoveResource;
+import io.lumeer.engine.api.event.RemoveUser;
+import io.lumeer.engine.api.event.RemoveUserNotification;
+import io.lumeer.engine.api.event.UpdateLinkType;
+import io.lumeer.engine.api.event.UpdateResource;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary form of the events exchanged through {@link ClusterEventBus}.
+ *
+ * A message starts with a version, the id of the sending node, a tag identifying the event type and a compression flag.
+ * Event fields follow in a fixed order, nested models are stored as their JSON form, and bodies larger than
+ * {@link #COMPRESSION_THRESHOLD} are deflated. Tags are part of the wire format and must never be reused.
+ */
+public class ClusterEventCodec {
+
+   public static final int COMPRESSION_THRESHOLD = 512;
+
+   private static final byte VERSION = 1;
+
+   private static final ObjectMapper mapper = PusherClient.createObjectMapper()
+         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+   private final Map<Class<?>, Entry<?>> entriesByType = new HashMap<>();
+   private final Map<Byte, Entry<?>> entriesByTag = new HashMap<>();
+
+   public ClusterEventCodec() {
+      register(7, CreateLinkType.class, (out, e) -> writeModel(out, e.getLinkType()), in -> new CreateLinkType(readModel(in, LinkType.class)));
+      register(8, UpdateLinkType.class, (out, e) -> writeModel(out, e.getLinkType()), in -> new UpdateLinkType(readModel(in, LinkType.class)));
+      register(9, RemoveLinkType.class, (out, e) -> writeModel(out, e.getLinkType()), in -> new RemoveLinkType(readModel(in, LinkType.class)));
+      register(10, CreateResource.class, (out, e) -> writeResource(out, e.getResource()), in -> new CreateResource(readResource(in)));
+      register(11, UpdateResource.class, (out, e) -> {
+         writeResource(out, e.getResource());
+         writeResource(out, e.getOriginalResource());
+      }, in -> new UpdateResource(readResource(in), readResource(in)));
+      register(12, RemoveResource.class, (out, e) -> writeResource(out, e.getResource()), in -> new RemoveResource(readResource(in)));
+      register(13, CreateOrUpdateUser.class, (out, e) -> {
+         writeString(out, e.getOrganizationId());
+         writeModel(out, e.getUser());
+      }, in -> new CreateOrUpdateUser(readString(in), readModel(in, User.class)));
+      register(14, RemoveUser.class, (out, e) -> {
+         writeString(out, e.getOrganizationId());
+         writeModel(out, e.getUser());
+      }, in -> new RemoveUser(readString(in), readModel(in, User.class)));
+      register(17, CreateOrUpdateUserNotification.class, (out, e) -> writeModel(out, e.getUserNotification()),
+            in -> new CreateOrUpdateUserNotification(readModel(in, UserNotification.class)));
+      register(18, RemoveUserNotification.class, (out, e) -> writeModel(out, e.getUserNotification()),
+            in -> new RemoveUserNotification(readModel(in, UserNotification.class)));
+      register(22, GroupMembersChange.class, (out, e) -> writeString(out, e.getOrganizationId()), in -> new GroupMembersChange(readString(in)));
+      register(23, ImportJobResume.class, (out, e) -> writeString(out, e.getJobId()), in -> new ImportJobResume(readString(in)));
+      register(101, PushFrame.class, (out, e) -> {
+         out.writeInt(e.getChannels().size());
+         for (final String channel : e.getChannels()) {
+            out.writeUTF(channel);
+         }
+         writeString(out, e.getEvent());
+         writeModel(out, e.getJson());
+      }, in -> new PushFrame(readStrings(in), readString(in), readModel(in, String.class)));
+   }
+
+   private <T> void register(final int tag, final Class<T> type, final Writer<T> writer, final Reader<T> reader) {
+      final Entry<T> entry = new Entry<>((byte) tag, writer, reader);
+      entriesByType.put(type, entry);
+      entriesByTag.put(entry.tag, entry);
+   }
+
+   public boolean supports(final Class<?> type) {
+      return entriesByType.containsKey(type);
+   }
+
+   /**
+    * Encodes the event.
+    *
+    * @param nodeId
+    *       Id of the sending node.
+    * @param event
+    *       The event to encode, its exact type must be supported.
+    * @return The encoded message.
+    * @throws IOException
+    *       When the event cannot be encoded.
+    */
+   @SuppressWarnings("unchecked")
+   public byte[] encode(final String nodeId, final Object event) throws IOException {
+      final Entry<Object> entry = (Entry<Object>) entriesByType.get(event.getClass());
+      if (entry == null) {
+         throw new IOException("Unsupported cluster event " + event.getClass().getName());
+      }
+
+      final ByteArrayOutputStream body = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(body)) {
+         entry.writer.write(out, event);
+      }
+
+      final boolean compressed = body.size() > COMPRESSION_THRESHOLD;
+      final ByteArrayOutputStream message = new ByteArrayOutputStream(body.size() / (compressed ? 4 : 1) + 64);
+      try (DataOutputStream out = new DataOutputStream(message)) {
+         out.writeByte(VERSION);
+         out.writeUTF(nodeId);
+         out.writeByte(entry.tag);
+         out.writeBoolean(compressed);
+
+         if (compressed) {
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+               body.writeTo(deflater);
+            }
+         } else {
+            body.writeTo(out);
+         }
+      }
+
+      return message.toByteArray();
+   }
+
+   /**
+    * Decodes the message.
+    *
+    * @param message
+    *       The message produced by {@link #encode(String, Object)}.
+    * @return The decoded event along with the id of the node that sent it.
+    * @throws IOException
+    *       When the message is corrupted or was produced by an incompatible version.
+    */
+   public Message decode(final byte[] message) throws IOException {
+      final DataInputStream header = new DataInputStream(new ByteArrayInputStream(message));
+      final byte version = header.readByte();
+      if (version != VERSION) {
+         throw new IOException("Unsupported cluster event version " + version);
+      }
+
+      final String nodeId = header.readUTF();
+      final byte tag = header.readByte();
+      final Entry<?> entry = entriesByTag.get(tag);
+      if (entry == null) {
+         throw new IOException("Unknown cluster event tag " + tag);
+      }
+
+      final InputStream body = header.readBoolean() ? new InflaterInputStream(header) : header;
+      try (DataInputStream in = new DataInputStream(body)) {
+         return new Message(nodeId, entry.reader.read(in));
+      }
+   }
+
+   private static void writeString(final DataOutputStream out, final String value) throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+         out.writeUTF(value);
+      }
+   }
+
+   private static String readString(final DataInputStream in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
+   }
+
+   private static List<String> readStrings(final DataInputStream in) throws IOException {
+      final int size = in.readInt();
+      final List<String> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+         values.add(in.readUTF());
+      }
+
+      return values;
+   }
+
+   private static void writeModel(final DataOutputStream out, final Object model) throws IOException {
+      if (model == null) {
+         out.writeInt(-1);
+         return;
+      }
+
+      final byte[] json = model instanceof String ? ((String) model).getBytes(StandardCharsets.UTF_8) : mapper.writeValueAsBytes(model);
+      out.writeInt(json.length);
+      out.write(json);
+   }
+
+   private static <T> T readModel(final DataInputStream in, final Class<T> type) throws IOException {
+      final int length = in.readInt();
+      if (length < 0) {
+         return null;
+      }
+
+      final byte[] json = new byte[length];
+      in.readFully(json);
+
+      return type == String.class ? type.cast(new String(json, StandardCharsets.UTF_8)) : mapper.readValue(json, type);
+   }
+
+   private static void writeResource(final DataOutputStream out, final Resource resource) throws IOException {
+      out.writeByte(resourceTag(resource));
+      writeModel(out, resource);
+   }
+
+   private static Resource readResource(final DataInputStream in) throws IOException {
+      final byte tag = in.readByte();
+      switch (tag) {
+         case 0:
+            return readModel(in, Resource.class);
+         case 1:
+            return readModel(in, Organization.class);
+         case 2:
+            return readModel(in, Project.class);
+         case 3:
+            return readModel(in, Collection.class);
+         case 4:
+            return readModel(in, View.class);
+         default:
+            throw new IOException("Unknown resource tag " + tag);
+      }
+   }
+
+   private static byte resourceTag(final Resource resource) throws IOException {
+      if (resource == null) {
+         return 0;
+      } else if (resource instanceof Organization) {
+         return 1;
+      } else if (resource instanceof Project) {
+         return 2;
+      } else if (resource instanceof Collection) {
+         return 3;
+      } else if (resource instanceof View) {
+         return 4;
+      }
+
+      throw new IOException("Unsupported resource " + resource.getClass().getName());
+   }
+
+   /**
+    * Push notification already serialized on the node that produced it, sent to all the channels sharing the same content.
+    */
+   public static class PushFrame {
+
+      private final List<String> channels;
+      private final String event;
+      private final String json;
+
+      public PushFrame(final List<String> channels, final String event, final String json) {
+         this.channels = channels;
+         this.event = event;
+         this.json = json;
+      }
+
+      public List<String> getChannels() {
+         return channels;
+      }
+
+      public String getEvent() {
+         return event;
+      }
+
+      public String getJson() {
+         return json;
+      }
+   }
+
+   /**
+    * Change of the members of the groups in an organization, there is no CDI event for it.
+    */
+   public static class GroupMembersChange {
+
+      private final String organizationId;
+
+      public GroupMembersChange(final String organizationId) {
+         this.organizationId = organizationId;
+      }
+
+      public String getOrganizationId() {
+         return organizationId;
+      }
+   }
+
+   /**
+    * Request to resume an import job, only the node that owns the job can process it.
+    */
+   public static class ImportJobResume {
+
+      private final String jobId;
+
+      public ImportJobResume(final String jobId) {
+         this.jobId = jobId;
+      }
+
+      public String getJobId() {
+         return jobId;
+      }
+   }
+
+   public static class Message {
+
+      private final String nodeId;
+      private final Object event;
+
+      private Message(final String nodeId, final Object event) {
+         this.nodeId = nodeId;
+         this.event = event;
+      }
+
+      public String getNodeId() {
+         return nodeId;
+      }
+
+      public Object getEvent() {
+         return event;
+      }
+   }
+
+   @FunctionalInterface
+   private interface Writer<T> {
+      void write(DataOutputStream out, T event) throws IOException;
+   }
+
+   @FunctionalInterface
+   private interface Reader<T> {
+      T read(DataInputStream in) throws IOException;
+   }
+
+   private static final class Entry<T> {
+      private final byte tag;
+      private final Writer<T> writer;
+      private final Reader<T> reader;
+
+      private Entry(final byte tag, final Writer<T> writer, final Reader<T> reader) {
+         this.tag = tag;
+         this.writer = writer;
+         this.reader = reader;
+      }
+   }
+}
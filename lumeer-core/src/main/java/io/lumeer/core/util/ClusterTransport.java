@@ -0,0 +1,47 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded cluster events between the nodes, see {@link ClusterEventBus}.
+ * Every message sent must be delivered to all nodes, the sender included.
+ */
+public interface ClusterTransport {
+
+   /**
+    * Starts delivering messages sent by any node.
+    *
+    * @param receiver
+    *       Consumer of the received messages, called from the transport threads.
+    * @return True when the transport is connected, false when it is not available on this node.
+    */
+   boolean start(Consumer<byte[]> receiver);
+
+   /**
+    * Sends the message, called from a single thread of the bus only.
+    *
+    * @param message
+    *       The encoded message.
+    */
+   void send(byte[] message);
+
+   void stop();
+}
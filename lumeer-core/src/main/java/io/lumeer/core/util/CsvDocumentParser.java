@@ -0,0 +1,62 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.univocity.parsers.csv.CsvParser;
+import com.univocity.parsers.csv.CsvParserSettings;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads document data from CSV. The first row holds the names of the attributes.
+ */
+public class CsvDocumentParser extends DocumentParser {
+
+   private final CsvParser parser;
+   private final String[] headers;
+
+   public CsvDocumentParser(final Reader data) {
+      final CsvParserSettings settings = new CsvParserSettings();
+      settings.detectFormatAutomatically();
+      settings.setHeaderExtractionEnabled(true);
+
+      parser = new CsvParser(settings);
+      parser.beginParsing(data);
+
+      final String[] parsedHeaders = parser.getRecordMetadata().headers();
+      headers = parsedHeaders != null ? Arrays.stream(parsedHeaders).filter(Objects::nonNull).toArray(String[]::new) : new String[0];
+   }
+
+   @Override
+   public String[] getHeaders() {
+      return headers;
+   }
+
+   @Override
+   protected String[] parseNext() {
+      return parser.parseNext();
+   }
+
+   @Override
+   protected void closeParser() {
+      parser.stopParsing();
+   }
+}
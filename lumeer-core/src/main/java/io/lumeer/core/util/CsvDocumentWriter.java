@@ -0,0 +1,56 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.univocity.parsers.csv.CsvWriter;
+import com.univocity.parsers.csv.CsvWriterSettings;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes document data as CSV, the first row holds the names of the attributes.
+ */
+public class CsvDocumentWriter extends DocumentWriter {
+
+   private final CsvWriter writer;
+   private final String[] row;
+
+   public CsvDocumentWriter(final OutputStream output, final String[] headers) {
+      writer = new CsvWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), new CsvWriterSettings());
+      writer.writeHeaders(headers);
+      row = new String[headers.length];
+   }
+
+   @Override
+   public void writeRow(final Object[] values) {
+      for (int i = 0; i < row.length; i++) {
+         row[i] = i < values.length ? formatValue(values[i]) : null;
+      }
+
+      writer.writeRow((Object[]) row);
+   }
+
+   @Override
+   public void close() {
+      writer.close();
+   }
+}
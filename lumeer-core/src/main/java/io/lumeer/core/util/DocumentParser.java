@@ -0,0 +1,183 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.engine.api.data.DataDocument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads document data of an import, one row at a time. The parsers never hold more than a few rows in memory.
+ */
+public abstract class DocumentParser implements AutoCloseable {
+
+   public static final String FORMAT_CSV = "csv";
+   public static final String FORMAT_JSON_LINES = "jsonl";
+   public static final String FORMAT_XLSX = "xlsx";
+
+   private final Deque<Object[]> sampledRows = new ArrayDeque<>();
+
+   /**
+    * Opens a parser of textual data.
+    *
+    * @param format
+    *       Format of the data.
+    * @param data
+    *       Reader of the data, the caller is responsible for closing it.
+    * @return The parser, or null when the format cannot be read from a stream of text.
+    */
+   public static DocumentParser open(final String format, final Reader data) {
+      if (FORMAT_CSV.equalsIgnoreCase(format)) {
+         return new CsvDocumentParser(data);
+      }
+
+      return null;
+   }
+
+   /**
+    * Opens a parser of a file, the file is closed with the parser.
+    *
+    * @param format
+    *       Format of the data.
+    * @param file
+    *       The file with the data.
+    * @return The parser, or null when the format is not supported.
+    */
+   public static DocumentParser open(final String format, final Path file) throws IOException {
+      if (FORMAT_XLSX.equalsIgnoreCase(format)) {
+         return new XlsxDocumentParser(file);
+      }
+      if (FORMAT_JSON_LINES.equalsIgnoreCase(format)) {
+         return new JsonLinesDocumentParser(file);
+      }
+
+      final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+      final DocumentParser parser = open(format, reader);
+      if (parser == null) {
+         reader.close();
+         return null;
+      }
+
+      parser.closeWith(reader);
+      return parser;
+   }
+
+   /**
+    * @param format
+    *       Format of the data.
+    * @return True when the data cannot be read as text.
+    */
+   public static boolean isBinary(final String format) {
+      return FORMAT_XLSX.equalsIgnoreCase(format);
+   }
+
+   /**
+    * @param format
+    *       Format of the data.
+    * @return True when the data must be stored in a file before they are parsed, because they are read more than once.
+    */
+   public static boolean requiresFile(final String format) {
+      return isBinary(format) || FORMAT_JSON_LINES.equalsIgnoreCase(format);
+   }
+
+   public static boolean isSupported(final String format) {
+      return format != null && (FORMAT_CSV.equalsIgnoreCase(format) || FORMAT_JSON_LINES.equalsIgnoreCase(format) || FORMAT_XLSX.equalsIgnoreCase(format));
+   }
+
+   private AutoCloseable resource;
+
+   /**
+    * @return Names of the attributes, the values of rows come in the same order.
+    */
+   public abstract String[] getHeaders();
+
+   /**
+    * @return Values of the next row, either text or values of their native types, null when there are no more rows.
+    */
+   protected abstract Object[] parseNext();
+
+   /**
+    * Reads rows ahead without consuming them, they are still returned by {@link #nextRow(String[], int[])}.
+    *
+    * @param rows
+    *       Number of rows to read.
+    * @return The first rows, fewer when the data is shorter.
+    */
+   public List<Object[]> sample(final int rows) {
+      Object[] row;
+      while (sampledRows.size() < rows && (row = parseNext()) != null) {
+         sampledRows.add(row);
+      }
+
+      return new ArrayList<>(sampledRows);
+   }
+
+   /**
+    * Parses the next row.
+    *
+    * @param attributeIds
+    *       Ids of the attributes in the order of the headers.
+    * @param counts
+    *       Usage counts of the attributes, incremented for every value found.
+    * @return Data of the row, null when there are no more rows.
+    */
+   public DataDocument nextRow(final String[] attributeIds, final int[] counts) {
+      final Object[] row = sampledRows.isEmpty() ? parseNext() : sampledRows.poll();
+      if (row == null) {
+         return null;
+      }
+
+      final DataDocument data = new DataDocument();
+      for (int i = 0; i < Math.min(attributeIds.length, row.length); i++) {
+         if (row[i] != null) {
+            data.append(attributeIds[i], row[i]);
+            counts[i]++;
+         }
+      }
+
+      return data;
+   }
+
+   private void closeWith(final AutoCloseable resource) {
+      this.resource = resource;
+   }
+
+   protected abstract void closeParser();
+
+   @Override
+   public void close() {
+      closeParser();
+
+      if (resource != null) {
+         try {
+            resource.close();
+         } catch (Exception e) {
+            // nothing more to read
+         }
+      }
+   }
+}
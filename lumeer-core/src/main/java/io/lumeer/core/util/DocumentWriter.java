@@ -0,0 +1,95 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Writes document data of an export, one row at a time, directly to the output.
+ */
+public abstract class DocumentWriter implements AutoCloseable {
+
+   protected static final ObjectMapper mapper = new ObjectMapper();
+
+   /**
+    * Opens a writer of the given format.
+    *
+    * @param format
+    *       Format of the data, see {@link DocumentParser}.
+    * @param output
+    *       The output to write to, it is closed with the writer.
+    * @param headers
+    *       Names of the attributes, the values of rows come in the same order.
+    * @return The writer, or null when the format is not supported.
+    */
+   public static DocumentWriter open(final String format, final OutputStream output, final String[] headers) throws IOException {
+      switch (format.toLowerCase()) {
+         case DocumentParser.FORMAT_CSV:
+            return new CsvDocumentWriter(output, headers);
+         case DocumentParser.FORMAT_JSON_LINES:
+            return new JsonLinesDocumentWriter(output, headers);
+         case DocumentParser.FORMAT_XLSX:
+            return new XlsxDocumentWriter(output, headers);
+         default:
+            return null;
+      }
+   }
+
+   /**
+    * Writes the next row.
+    *
+    * @param values
+    *       Values in the order of the headers, null for a missing value.
+    * @throws java.io.UncheckedIOException
+    *       When the output cannot be written.
+    */
+   public abstract void writeRow(Object[] values);
+
+   @Override
+   public abstract void close() throws IOException;
+
+   /**
+    * @return Textual representation of the value, nested values are written as JSON.
+    */
+   protected static String formatValue(final Object value) {
+      if (value == null || value instanceof String) {
+         return (String) value;
+      }
+
+      if (value instanceof Date) {
+         return ((Date) value).toInstant().toString();
+      }
+
+      if (value instanceof Map || value instanceof Iterable) {
+         try {
+            return mapper.writeValueAsString(value);
+         } catch (JsonProcessingException e) {
+            return value.toString();
+         }
+      }
+
+      return value.toString();
+   }
+}
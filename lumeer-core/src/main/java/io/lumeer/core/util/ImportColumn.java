@@ -0,0 +1,209 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.api.model.Constraint;
+import io.lumeer.api.model.ConstraintType;
+import io.lumeer.engine.api.data.DataDocument;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Type of an imported column inferred from a sample of its values. Numbers and dates are encoded to their native types,
+ * so that they can be compared and indexed, columns with a few repeating values become selects.
+ * Values that do not match the inferred type are kept as they are, so are the values parsed to their native types already.
+ */
+public class ImportColumn {
+
+   public static final int MAX_SELECT_OPTIONS = 10;
+
+   private static final Pattern INTEGER = Pattern.compile("-?(0|[1-9]\\d{0,17})");
+   private static final Pattern DECIMAL = Pattern.compile("-?(0|[1-9]\\d*)\\.\\d+");
+
+   // java.time pattern and the same format for the client
+   private static final String[][] DATE_FORMATS = {
+         { "uuuu-MM-dd", "YYYY-MM-DD" },
+         { "uuuu-MM-dd HH:mm:ss", "YYYY-MM-DD HH:mm:ss" },
+         { "uuuu-MM-dd HH:mm", "YYYY-MM-DD HH:mm" },
+         { "uuuu-MM-dd'T'HH:mm:ss", "YYYY-MM-DDTHH:mm:ss" },
+         { "dd.MM.uuuu", "DD.MM.YYYY" },
+         { "d.M.uuuu", "D.M.YYYY" },
+         { "dd.MM.uuuu HH:mm", "DD.MM.YYYY HH:mm" },
+         { "MM/dd/uuuu", "MM/DD/YYYY" },
+         { "uuuu/MM/dd", "YYYY/MM/DD" }
+   };
+
+   private static final ImportColumn TEXT = new ImportColumn(ConstraintType.Text, null, null, null);
+   private static final ImportColumn NUMBER = new ImportColumn(ConstraintType.Number, null, null, null);
+   private static final ImportColumn BOOLEAN = new ImportColumn(ConstraintType.Boolean, null, null, null);
+
+   private final ConstraintType type;
+   private final DateTimeFormatter dateFormatter;
+   private final String dateFormat;
+   private final List<String> options;
+
+   private ImportColumn(final ConstraintType type, final DateTimeFormatter dateFormatter, final String dateFormat, final List<String> options) {
+      this.type = type;
+      this.dateFormatter = dateFormatter;
+      this.dateFormat = dateFormat;
+      this.options = options;
+   }
+
+   /**
+    * Infers the types of the columns.
+    *
+    * @param rows
+    *       Sample of the parsed rows, the values are either text or values of their native types.
+    * @param columns
+    *       Number of the columns.
+    * @return Types of the columns.
+    */
+   public static ImportColumn[] infer(final List<Object[]> rows, final int columns) {
+      final ImportColumn[] result = new ImportColumn[columns];
+
+      for (int i = 0; i < columns; i++) {
+         final int column = i;
+         final List<Object> values = rows.stream()
+                                         .map(row -> column < row.length ? row[column] : null)
+                                         .map(value -> value instanceof String ? ((String) value).trim() : value)
+                                         .filter(value -> value != null && !"".equals(value))
+                                         .collect(Collectors.toList());
+
+         if (values.stream().allMatch(value -> value instanceof String)) {
+            result[i] = infer(values.stream().map(value -> (String) value).collect(Collectors.toList()));
+         } else if (values.stream().allMatch(value -> value instanceof Number)) {
+            result[i] = NUMBER;
+         } else if (values.stream().allMatch(value -> value instanceof Boolean)) {
+            result[i] = BOOLEAN;
+         } else {
+            result[i] = TEXT;
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Infers the type of a column.
+    *
+    * @param values
+    *       Sample of non-empty values of the column.
+    * @return Type of the column.
+    */
+   public static ImportColumn infer(final List<String> values) {
+      if (values.isEmpty()) {
+         return TEXT;
+      }
+
+      if (values.stream().allMatch(value -> INTEGER.matcher(value).matches() || DECIMAL.matcher(value).matches())) {
+         return NUMBER;
+      }
+
+      for (final String[] format : DATE_FORMATS) {
+         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format[0]).withResolverStyle(ResolverStyle.STRICT);
+         final ImportColumn column = new ImportColumn(ConstraintType.DateTime, formatter, format[1], null);
+         if (values.stream().allMatch(value -> column.parseDate(value) != null)) {
+            return column;
+         }
+      }
+
+      final Set<String> distinct = new LinkedHashSet<>(values);
+      if (distinct.size() <= MAX_SELECT_OPTIONS && distinct.size() * 2 <= values.size()) {
+         return new ImportColumn(ConstraintType.Select, null, null, new ArrayList<>(distinct));
+      }
+
+      return TEXT;
+   }
+
+   public ConstraintType getType() {
+      return type;
+   }
+
+   /**
+    * @return Constraint of the attribute created for the column, null for text.
+    */
+   public Constraint getConstraint() {
+      switch (type) {
+         case Number:
+            return new Constraint(ConstraintType.Number, new DataDocument());
+         case Boolean:
+            return new Constraint(ConstraintType.Boolean, new DataDocument());
+         case DateTime:
+            return new Constraint(ConstraintType.DateTime, new DataDocument("format", dateFormat));
+         case Select:
+            return new Constraint(ConstraintType.Select, new DataDocument("options",
+                  options.stream().map(option -> new DataDocument("value", option)).collect(Collectors.toList())));
+         default:
+            return null;
+      }
+   }
+
+   /**
+    * Encodes the value to the type of the column.
+    *
+    * @param value
+    *       The parsed value.
+    * @return The encoded value, or the value itself when it does not match the type.
+    */
+   public Object encode(final String value) {
+      if (value == null) {
+         return null;
+      }
+
+      final String trimmed = value.trim();
+      switch (type) {
+         case Number:
+            if (INTEGER.matcher(trimmed).matches()) {
+               return Long.parseLong(trimmed);
+            }
+            if (DECIMAL.matcher(trimmed).matches()) {
+               return Double.parseDouble(trimmed);
+            }
+            return value;
+         case DateTime:
+            final Date date = parseDate(trimmed);
+            return date != null ? date : value;
+         default:
+            return value;
+      }
+   }
+
+   private Date parseDate(final String value) {
+      try {
+         if (dateFormat.contains("HH")) {
+            return Date.from(LocalDateTime.parse(value, dateFormatter).toInstant(ZoneOffset.UTC));
+         }
+         return Date.from(LocalDate.parse(value, dateFormatter).atStartOfDay().toInstant(ZoneOffset.UTC));
+      } catch (DateTimeParseException e) {
+         return null;
+      }
+   }
+}
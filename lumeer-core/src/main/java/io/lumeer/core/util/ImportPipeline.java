@@ -0,0 +1,202 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs an import in stages connected by bounded queues. The calling thread parses batches of rows and submits them,
+ * converter threads turn the rows into items and writer threads store the items. A slow stage blocks the previous one,
+ * so the memory used stays the same for any size of the imported data.
+ *
+ * @param <R>
+ *       Type of the parsed rows.
+ * @param <D>
+ *       Type of the stored items.
+ */
+public class ImportPipeline<R, D> {
+
+   @FunctionalInterface
+   public interface Writer<D> {
+      void write(long batchIndex, List<D> items);
+   }
+
+   private static final long POLL_INTERVAL = 100L;
+
+   private final ThreadFactory threadFactory;
+   private final int converters;
+   private final int writers;
+   private final Function<R, D> converter;
+   private final Writer<D> writer;
+
+   private final BlockingQueue<Batch<R>> parsed;
+   private final BlockingQueue<Batch<D>> converted;
+   private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+   private final List<Thread> converterThreads = new ArrayList<>();
+   private final List<Thread> writerThreads = new ArrayList<>();
+
+   public ImportPipeline(final ThreadFactory threadFactory, final int converters, final int writers, final int queueCapacity,
+         final Function<R, D> converter, final Writer<D> writer) {
+      this.threadFactory = threadFactory;
+      this.converters = converters;
+      this.writers = writers;
+      this.converter = converter;
+      this.writer = writer;
+      this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+      this.converted = new ArrayBlockingQueue<>(queueCapacity);
+   }
+
+   public void start() {
+      for (int i = 0; i < converters; i++) {
+         converterThreads.add(startThread(this::convert));
+      }
+      for (int i = 0; i < writers; i++) {
+         writerThreads.add(startThread(this::write));
+      }
+   }
+
+   /**
+    * Passes parsed rows to the converters, waits while they are busy.
+    *
+    * @param batchIndex
+    *       Index of the batch, handed over to the writer.
+    * @param rows
+    *       The parsed rows.
+    * @return False when the pipeline has failed and accepts no more rows.
+    */
+   public boolean submit(final long batchIndex, final List<R> rows) throws InterruptedException {
+      return put(parsed, new Batch<>(batchIndex, rows));
+   }
+
+   /**
+    * Stops the pipeline, the cause is thrown from {@link #finish()}.
+    *
+    * @param cause
+    *       Reason of the stop.
+    */
+   public void abort(final RuntimeException cause) {
+      failure.compareAndSet(null, cause);
+   }
+
+   /**
+    * Waits until all submitted rows are written and stops the threads.
+    *
+    * @throws RuntimeException
+    *       The first failure of any stage.
+    */
+   public void finish() throws InterruptedException {
+      for (int i = 0; i < converters; i++) {
+         put(parsed, new Batch<>(-1, null));
+      }
+      for (final Thread thread : converterThreads) {
+         thread.join();
+      }
+
+      for (int i = 0; i < writers; i++) {
+         put(converted, new Batch<>(-1, null));
+      }
+      for (final Thread thread : writerThreads) {
+         thread.join();
+      }
+
+      if (failure.get() != null) {
+         throw failure.get();
+      }
+   }
+
+   private Thread startThread(final Runnable stage) {
+      final Thread thread = threadFactory.newThread(() -> {
+         try {
+            stage.run();
+         } catch (RuntimeException e) {
+            abort(e);
+         }
+      });
+      thread.start();
+
+      return thread;
+   }
+
+   private void convert() {
+      try {
+         Batch<R> batch;
+         while ((batch = take(parsed)) != null && batch.items != null) {
+            final List<D> items = batch.items.stream().map(converter).collect(Collectors.toList());
+            if (!put(converted, new Batch<>(batch.index, items))) {
+               return;
+            }
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         abort(new IllegalStateException("Import has been interrupted"));
+      }
+   }
+
+   private void write() {
+      try {
+         Batch<D> batch;
+         while ((batch = take(converted)) != null && batch.items != null) {
+            writer.write(batch.index, batch.items);
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         abort(new IllegalStateException("Import has been interrupted"));
+      }
+   }
+
+   private <T> boolean put(final BlockingQueue<T> queue, final T item) throws InterruptedException {
+      while (!queue.offer(item, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+         if (failure.get() != null) {
+            return false;
+         }
+      }
+
+      return failure.get() == null;
+   }
+
+   private <T> T take(final BlockingQueue<T> queue) throws InterruptedException {
+      T item;
+      while ((item = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS)) == null) {
+         if (failure.get() != null) {
+            return null;
+         }
+      }
+
+      return failure.get() == null ? item : null;
+   }
+
+   private static final class Batch<T> {
+      private final long index;
+      private final List<T> items;
+
+      private Batch(final long index, final List<T> items) {
+         this.index = index;
+         this.items = items;
+      }
+   }
+}
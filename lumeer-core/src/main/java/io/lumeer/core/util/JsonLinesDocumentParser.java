@@ -0,0 +1,144 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads document data from JSON Lines, one object per line. The file is read twice, first to collect the keys of all the objects
+ * as the attributes, then to read the objects one by one.
+ * Values keep their JSON types, except for integers that do not fit in a long and nested objects with keys that cannot be stored,
+ * which are kept as JSON text.
+ */
+public class JsonLinesDocumentParser extends DocumentParser {
+
+   private static final ObjectMapper mapper = new ObjectMapper();
+
+   private final String[] headers;
+   private final MappingIterator<Map<String, Object>> objects;
+
+   public JsonLinesDocumentParser(final Path file) throws IOException {
+      headers = readKeys(file);
+      objects = mapper.readerFor(Map.class).readValues(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+   }
+
+   private static String[] readKeys(final Path file) throws IOException {
+      final Set<String> keys = new LinkedHashSet<>();
+
+      try (JsonParser parser = mapper.getFactory().createParser(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+         JsonToken token;
+         while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+               while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                  keys.add(parser.getCurrentName());
+                  parser.nextToken();
+                  parser.skipChildren();
+               }
+            } else {
+               parser.skipChildren();
+            }
+         }
+      }
+
+      return keys.toArray(new String[0]);
+   }
+
+   @Override
+   public String[] getHeaders() {
+      return headers;
+   }
+
+   @Override
+   protected Object[] parseNext() {
+      if (!objects.hasNext()) {
+         return null;
+      }
+
+      final Map<String, Object> object = objects.next();
+      final Object[] row = new Object[headers.length];
+      for (int i = 0; i < headers.length; i++) {
+         row[i] = toValue(object.get(headers[i]));
+      }
+
+      return row;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Object toValue(final Object value) {
+      if (value instanceof BigInteger) {
+         return value.toString();
+      }
+
+      if (value instanceof Map) {
+         final Map<String, Object> map = (Map<String, Object>) value;
+         if (!map.keySet().stream().allMatch(JsonLinesDocumentParser::isStorableKey)) {
+            return toJson(map);
+         }
+
+         final Map<String, Object> result = new LinkedHashMap<>();
+         map.forEach((key, nestedValue) -> result.put(key, toValue(nestedValue)));
+         return result;
+      }
+
+      if (value instanceof List) {
+         final List<Object> result = new ArrayList<>();
+         ((List<Object>) value).forEach(item -> result.add(toValue(item)));
+         return result;
+      }
+
+      return value;
+   }
+
+   private static boolean isStorableKey(final String key) {
+      return !key.isEmpty() && !key.startsWith("$") && !key.contains(".");
+   }
+
+   private static String toJson(final Object value) {
+      try {
+         return mapper.writeValueAsString(value);
+      } catch (JsonProcessingException e) {
+         return value.toString();
+      }
+   }
+
+   @Override
+   protected void closeParser() {
+      try {
+         objects.close();
+      } catch (IOException e) {
+         // nothing more to read
+      }
+   }
+}
@@ -0,0 +1,63 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Date;
+
+/**
+ * Writes document data as JSON Lines, one object per row. Missing values are left out of the objects.
+ */
+public class JsonLinesDocumentWriter extends DocumentWriter {
+
+   private final JsonGenerator generator;
+   private final String[] headers;
+
+   public JsonLinesDocumentWriter(final OutputStream output, final String[] headers) throws IOException {
+      this.generator = mapper.getFactory().createGenerator(output);
+      this.generator.setRootValueSeparator(null);
+      this.headers = headers;
+   }
+
+   @Override
+   public void writeRow(final Object[] values) {
+      try {
+         generator.writeStartObject();
+         for (int i = 0; i < Math.min(headers.length, values.length); i++) {
+            if (values[i] != null) {
+               generator.writeFieldName(headers[i]);
+               generator.writeObject(values[i] instanceof Date ? formatValue(values[i]) : values[i]);
+            }
+         }
+         generator.writeEndObject();
+         generator.writeRaw('\n');
+      } catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      generator.close();
+   }
+}
@@ -0,0 +1,206 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.storage.api.dao.PushTicketDao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Delivers push notifications to clients connected directly to this node, an alternative to Pusher.
+ * Clients subscribe to the private-&lt;userId&gt; channel of the user that obtained a one-time ticket for the connection.
+ * Tickets are stored in the database, a client can connect to any node of the cluster.
+ * In a cluster, notifications are relayed through {@link ClusterEventBus} to the clients connected to other nodes.
+ */
+@ApplicationScoped
+public class PushBroker {
+
+   public static final String PRIVATE_CHANNEL_PREFIX = "private-";
+
+   private static final long TICKET_VALIDITY = 60_000L;
+
+   private static final Logger log = Logger.getLogger(PushBroker.class.getName());
+
+   private static final ObjectMapper mapper = new ObjectMapper();
+
+   private final Map<String, Set<PushConnection>> channels = new ConcurrentHashMap<>();
+
+   private final LongAdder published = new LongAdder();
+   private final LongAdder slowConsumers = new LongAdder();
+
+   @Inject
+   private ClusterEventBus clusterEventBus;
+
+   @Inject
+   private PushTicketDao pushTicketDao;
+
+   public PushBroker() {
+   }
+
+   PushBroker(final PushTicketDao pushTicketDao) {
+      this.pushTicketDao = pushTicketDao;
+   }
+
+   @PostConstruct
+   public void init() {
+      clusterEventBus.subscribe(ClusterEventCodec.PushFrame.class, frame -> frame.getChannels().forEach(channel -> deliver(channel, frame.getEvent(), frame.getJson())));
+   }
+
+   /**
+    * Issues a one-time ticket that authorizes a new connection of the user.
+    *
+    * @param userId
+    *       Id of the user connecting.
+    * @return The ticket to pass when connecting.
+    */
+   public String createTicket(final String userId) {
+      final String ticket = UUID.randomUUID().toString();
+      pushTicketDao.createTicket(ticket, userId, System.currentTimeMillis() + TICKET_VALIDITY);
+
+      return ticket;
+   }
+
+   /**
+    * Checks the ticket without consuming it, used to authorize the handshake of the connection.
+    *
+    * @param ticket
+    *       The ticket passed by the client.
+    * @return True when the ticket can be used to connect.
+    */
+   public boolean isTicketValid(final String ticket) {
+      return ticket != null && pushTicketDao.getTicketUser(ticket) != null;
+   }
+
+   /**
+    * Consumes the ticket.
+    *
+    * @param ticket
+    *       The ticket passed by the client.
+    * @return Id of the user the ticket was issued for, null when the ticket is not valid.
+    */
+   public String consumeTicket(final String ticket) {
+      return ticket != null ? pushTicketDao.consumeTicket(ticket) : null;
+   }
+
+   public void register(final PushConnection connection) {
+      channels.computeIfAbsent(PRIVATE_CHANNEL_PREFIX + connection.getUserId(), channel -> ConcurrentHashMap.newKeySet()).add(connection);
+   }
+
+   public void unregister(final PushConnection connection) {
+      channels.computeIfPresent(PRIVATE_CHANNEL_PREFIX + connection.getUserId(), (channel, connections) -> {
+         connections.remove(connection);
+         return connections.isEmpty() ? null : connections;
+      });
+   }
+
+   public boolean hasConnections() {
+      return !channels.isEmpty();
+   }
+
+   public boolean hasConnections(final String channel) {
+      return channels.containsKey(channel);
+   }
+
+   /**
+    * Checks whether published notifications can reach any client, either on this node or on any other node of the cluster.
+    *
+    * @return True when notifications should be published.
+    */
+   public boolean isActive() {
+      return hasConnections() || isClustered();
+   }
+
+   /**
+    * Sends the event to all connections subscribed to the channel.
+    *
+    * @param channel
+    *       Name of the channel.
+    * @param event
+    *       Name of the event.
+    * @param payload
+    *       Payload of the event.
+    */
+   public void publish(final String channel, final String event, final PushPayload payload) {
+      publish(List.of(channel), event, payload);
+   }
+
+   /**
+    * Sends the same event to all connections subscribed to any of the channels. Other nodes of the cluster get a single message.
+    *
+    * @param channels
+    *       Names of the channels.
+    * @param event
+    *       Name of the event.
+    * @param payload
+    *       Payload of the event.
+    */
+   public void publish(final List<String> channels, final String event, final PushPayload payload) {
+      if (isClustered()) {
+         clusterEventBus.publish(new ClusterEventCodec.PushFrame(channels, event, payload.getJson()));
+      }
+
+      channels.forEach(channel -> deliver(channel, event, payload.getJson()));
+   }
+
+   private boolean isClustered() {
+      return clusterEventBus != null && clusterEventBus.isClustered();
+   }
+
+   private void deliver(final String channel, final String event, final String json) {
+      final Set<PushConnection> connections = channels.get(channel);
+      if (connections == null || connections.isEmpty()) {
+         return;
+      }
+
+      final String message;
+      try {
+         message = "{\"channel\":" + mapper.writeValueAsString(channel) + ",\"event\":" + mapper.writeValueAsString(event) + ",\"data\":" + json + "}";
+      } catch (JsonProcessingException e) {
+         log.warning("Unable to serialize push notification: " + e.getMessage());
+         return;
+      }
+
+      for (final PushConnection connection : connections) {
+         if (connection.send(message)) {
+            published.increment();
+         } else {
+            slowConsumers.increment();
+            unregister(connection);
+         }
+      }
+   }
+
+   public Map<String, Long> getMetrics() {
+      return Map.of("connections", (long) channels.values().stream().mapToInt(Set::size).sum(),
+            "published", published.sum(),
+            "slowConsumers", slowConsumers.sum());
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Connection of a single client to the built-in push transport.
+ * Messages are sent one at a time, messages submitted while a send is in progress wait in a bounded buffer.
+ * A client that does not keep up and fills the buffer is disconnected, it is supposed to reconnect and reload its data.
+ */
+public abstract class PushConnection {
+
+   public static final int DEFAULT_BUFFER_SIZE = 1000;
+
+   /**
+    * Reasons for closing a connection from the server side.
+    */
+   public enum CloseCause {
+      /**
+       * The client did not keep up and filled the buffer.
+       */
+      SLOW_CONSUMER,
+
+      /**
+       * A message could not be sent.
+       */
+      SEND_FAILED
+   }
+
+   private final String userId;
+   private final int bufferSize;
+   private final Queue<String> buffer = new ArrayDeque<>();
+   private boolean sending = false;
+   private boolean closed = false;
+
+   protected PushConnection(final String userId, final int bufferSize) {
+      this.userId = userId;
+      this.bufferSize = bufferSize;
+   }
+
+   public String getUserId() {
+      return userId;
+   }
+
+   /**
+    * Sends the message or buffers it when another message is being sent.
+    *
+    * @param message
+    *       The message to send.
+    * @return False when the connection is closed or it was closed because of a full buffer.
+    */
+   public boolean send(final String message) {
+      synchronized (this) {
+         if (closed) {
+            return false;
+         }
+
+         if (sending) {
+            if (buffer.size() < bufferSize) {
+               buffer.add(message);
+               return true;
+            }
+
+            closed = true;
+            buffer.clear();
+         } else {
+            sending = true;
+         }
+      }
+
+      if (isClosed()) {
+         close(CloseCause.SLOW_CONSUMER);
+         return false;
+      }
+
+      sendText(message);
+      return true;
+   }
+
+   /**
+    * Must be called by implementations when an asynchronous send finishes.
+    *
+    * @param error
+    *       The failure of the send or null when the message was sent.
+    */
+   protected void sendCompleted(final Throwable error) {
+      final String next;
+      synchronized (this) {
+         if (error != null) {
+            closed = true;
+            buffer.clear();
+         }
+
+         next = buffer.poll();
+         if (next == null) {
+            sending = false;
+         }
+      }
+
+      if (error != null) {
+         close(CloseCause.SEND_FAILED);
+      } else if (next != null) {
+         sendText(next);
+      }
+   }
+
+   public synchronized boolean isClosed() {
+      return closed;
+   }
+
+   public synchronized int getBufferedMessages() {
+      return buffer.size();
+   }
+
+   /**
+    * Starts an asynchronous send of the message, {@link #sendCompleted(Throwable)} must be called once it finishes.
+    *
+    * @param message
+    *       The message to send.
+    */
+   protected abstract void sendText(final String message);
+
+   /**
+    * Closes the underlying connection.
+    *
+    * @param cause
+    *       The reason why the connection is closed.
+    */
+   protected abstract void close(final CloseCause cause);
+}
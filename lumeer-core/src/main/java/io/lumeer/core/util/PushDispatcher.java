@@ -0,0 +1,416 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import org.marvec.pusher.data.Event;
+import org.marvec.pusher.data.Result;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends push notifications in background so that the request threads do not wait for Pusher.
+ * Events are kept in a bounded queue drained by worker threads and sent in batches of at most {@link #MAX_BATCH_SIZE} events.
+ * Events with a coalesce key (typically an update of the same object for the same user) are held for the coalesce window,
+ * an event with the same key submitted within the window replaces the held one and only the last one is sent. Other events are sent at once.
+ * Each channel is always served by the same worker and the events of a channel are sent in the order they were submitted:
+ * a replacing event takes the place of the last event of the channel and an event sent at once flushes the held events
+ * submitted before it. When the queue is full, the submitting thread either waits for a limited time or the event
+ * is dropped, based on the {@link OverflowPolicy}.
+ */
+public class PushDispatcher {
+
+   /**
+    * Maximal number of events Pusher accepts in a single batch.
+    */
+   public static final int MAX_BATCH_SIZE = 10;
+
+   public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+   public static final int DEFAULT_WORKERS = 2;
+   public static final long DEFAULT_COALESCE_WINDOW = 200;
+   public static final long DEFAULT_BLOCK_TIMEOUT = 1000;
+
+   private static final long SHUTDOWN_TIMEOUT = 5000;
+
+   public enum OverflowPolicy {
+      /**
+       * Waits for a free space in the queue, drops the event when there is no space after the block timeout.
+       */
+      BLOCK,
+
+      /**
+       * Drops the event immediately.
+       */
+      DROP;
+
+      public static OverflowPolicy fromString(final String policy) {
+         return policy == null || policy.isEmpty() ? BLOCK : OverflowPolicy.valueOf(policy.toUpperCase());
+      }
+   }
+
+   private static final Logger log = Logger.getLogger(PushDispatcher.class.getName());
+
+   private final PusherClient pusherClient;
+   private final long coalesceWindow;
+   private final OverflowPolicy overflowPolicy;
+   private final long blockTimeout;
+
+   private final List<Lane> lanes = new ArrayList<>();
+   private final Semaphore capacity;
+   private final List<Thread> workers = new ArrayList<>();
+   private volatile boolean running = true;
+
+   private final LongAdder submitted = new LongAdder();
+   private final LongAdder coalesced = new LongAdder();
+   private final LongAdder dropped = new LongAdder();
+   private final LongAdder sent = new LongAdder();
+   private final LongAdder failed = new LongAdder();
+   private final LongAdder batches = new LongAdder();
+
+   public PushDispatcher(final PusherClient pusherClient, final ThreadFactory threadFactory, final int queueCapacity, final int workers,
+         final long coalesceWindow, final OverflowPolicy overflowPolicy, final long blockTimeout) {
+      this.pusherClient = pusherClient;
+      this.capacity = new Semaphore(queueCapacity);
+      this.coalesceWindow = coalesceWindow;
+      this.overflowPolicy = overflowPolicy;
+      this.blockTimeout = blockTimeout;
+
+      for (int i = 0; i < Math.max(workers, 1); i++) {
+         final Lane lane = new Lane();
+         lanes.add(lane);
+         final Thread worker = threadFactory.newThread(() -> work(lane));
+         worker.setName("push-dispatcher-" + i);
+         worker.setDaemon(true);
+         this.workers.add(worker);
+         worker.start();
+      }
+   }
+
+   /**
+    * Queues the event to be sent immediately.
+    *
+    * @param event
+    *       The event to send.
+    * @return True when the event was queued, false when it was dropped.
+    */
+   public boolean submit(final Event event) {
+      return submit(event, null);
+   }
+
+   /**
+    * Queues the event to be sent after the coalesce window. When there already is a queued event with the same key,
+    * it gets replaced by this event.
+    *
+    * @param event
+    *       The event to send.
+    * @param coalesceKey
+    *       Identification of the events that can replace each other, null when the event must be always sent, it is sent immediately then.
+    * @return True when the event was queued or merged, false when it was dropped.
+    */
+   public boolean submit(final Event event, final String coalesceKey) {
+      submitted.increment();
+
+      final Lane lane = lanes.get(Math.floorMod(event.getChannel().hashCode(), lanes.size()));
+      if (coalesceKey != null && lane.replace(event, coalesceKey)) {
+         coalesced.increment();
+         return true;
+      }
+
+      if (!acquireCapacity()) {
+         return false;
+      }
+
+      if (!lane.add(event, coalesceKey)) {
+         // replaced an event queued meanwhile
+         capacity.release();
+         coalesced.increment();
+      }
+
+      return true;
+   }
+
+   public void submit(final List<Event> events) {
+      events.forEach(this::submit);
+   }
+
+   private boolean acquireCapacity() {
+      boolean acquired = capacity.tryAcquire();
+
+      if (!acquired && overflowPolicy == OverflowPolicy.BLOCK) {
+         try {
+            acquired = capacity.tryAcquire(blockTimeout, TimeUnit.MILLISECONDS);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+
+      if (!acquired) {
+         dropped.increment();
+         if (dropped.sum() % 1000 == 1) {
+            log.warning("Push notification queue is full, dropped " + dropped.sum() + " events so far.");
+         }
+      }
+
+      return acquired;
+   }
+
+   private void work(final Lane lane) {
+      while (running) {
+         try {
+            send(lane.take());
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+         } catch (Exception e) {
+            log.log(Level.WARNING, "Unable to send push notification: ", e);
+         }
+      }
+   }
+
+   private void send(final List<Event> events) {
+      capacity.release(events.size());
+
+      for (int i = 0; i < events.size(); i += MAX_BATCH_SIZE) {
+         final List<Event> batch = events.subList(i, Math.min(i + MAX_BATCH_SIZE, events.size()));
+         batches.increment();
+
+         try {
+            final Result result = pusherClient.trigger(batch);
+            if (result != null && result.getStatus() == Result.Status.SUCCESS) {
+               sent.add(batch.size());
+            } else {
+               failed.add(batch.size());
+               log.log(Level.WARNING, "Unable to send push notifications: " + (result != null ? result.getStatus() + " " + result.getMessage() : "no result"));
+            }
+         } catch (RuntimeException e) {
+            failed.add(batch.size());
+            log.log(Level.WARNING, "Unable to send push notifications: ", e);
+         }
+      }
+   }
+
+   /**
+    * Stops the workers, waits for them to finish the batches being sent and sends all events remaining in the queue.
+    */
+   public void shutdown() {
+      running = false;
+      workers.forEach(Thread::interrupt);
+
+      try {
+         for (final Thread worker : workers) {
+            worker.join(SHUTDOWN_TIMEOUT);
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+
+      lanes.forEach(lane -> send(lane.drain()));
+   }
+
+   public int getQueueSize() {
+      return lanes.stream().mapToInt(Lane::size).sum();
+   }
+
+   /**
+    * Gets the counters of submitted, coalesced, dropped, sent and failed events and sent batches together with the current queue size.
+    *
+    * @return Map of metric names to values.
+    */
+   public Map<String, Long> getMetrics() {
+      final Map<String, Long> metrics = new LinkedHashMap<>();
+      metrics.put("submitted", submitted.sum());
+      metrics.put("coalesced", coalesced.sum());
+      metrics.put("dropped", dropped.sum());
+      metrics.put("sent", sent.sum());
+      metrics.put("failed", failed.sum());
+      metrics.put("batches", batches.sum());
+      metrics.put("queued", (long) getQueueSize());
+
+      return metrics;
+   }
+
+   /**
+    * Events of the channels served by a single worker, the channels take turns.
+    */
+   private class Lane {
+
+      private final Map<String, Channel> channels = new LinkedHashMap<>();
+      private final Map<String, PendingEvent> coalescingEvents = new HashMap<>();
+      private int size;
+
+      /**
+       * Replaces the queued event with the same key, the new event is moved to the end of its channel.
+       *
+       * @return False when there is no such event.
+       */
+      private synchronized boolean replace(final Event event, final String coalesceKey) {
+         final PendingEvent pending = coalescingEvents.get(coalesceKey);
+         if (pending == null) {
+            return false;
+         }
+
+         final Channel channel = channels.get(event.getChannel());
+         channel.events.remove(pending);
+         final PendingEvent replacement = new PendingEvent(event, coalesceKey, pending.dueTime);
+         channel.events.add(replacement);
+         coalescingEvents.put(coalesceKey, replacement);
+
+         return true;
+      }
+
+      /**
+       * @return False when the event replaced a queued one instead.
+       */
+      private synchronized boolean add(final Event event, final String coalesceKey) {
+         if (coalesceKey != null && replace(event, coalesceKey)) {
+            return false;
+         }
+
+         final Channel channel = channels.computeIfAbsent(event.getChannel(), key -> new Channel());
+         final long now = System.currentTimeMillis();
+         if (coalesceKey != null) {
+            final PendingEvent pending = new PendingEvent(event, coalesceKey, now + coalesceWindow);
+            channel.events.add(pending);
+            coalescingEvents.put(coalesceKey, pending);
+         } else {
+            channel.events.add(new PendingEvent(event, null, now));
+            channel.immediateEvents++;
+         }
+         size++;
+         notifyAll();
+
+         return true;
+      }
+
+      /**
+       * Waits for the events that are due, at most {@link #MAX_BATCH_SIZE} of them.
+       *
+       * @return The events to send, empty when the dispatcher stops.
+       */
+      private synchronized List<Event> take() throws InterruptedException {
+         final List<Event> events = new ArrayList<>(MAX_BATCH_SIZE);
+
+         while (running) {
+            final long now = System.currentTimeMillis();
+            long nextDueTime = now + TimeUnit.SECONDS.toMillis(1);
+            final List<Map.Entry<String, Channel>> servedChannels = new ArrayList<>();
+
+            final Iterator<Map.Entry<String, Channel>> iterator = channels.entrySet().iterator();
+            while (iterator.hasNext() && events.size() < MAX_BATCH_SIZE) {
+               final Map.Entry<String, Channel> entry = iterator.next();
+               final Channel channel = entry.getValue();
+
+               if (channel.isDue(now)) {
+                  while (events.size() < MAX_BATCH_SIZE && channel.isDue(now)) {
+                     events.add(poll(channel));
+                  }
+
+                  // served channels go last, so that busy channels do not hold back the others
+                  iterator.remove();
+                  if (!channel.events.isEmpty()) {
+                     servedChannels.add(entry);
+                  }
+               }
+
+               if (!channel.events.isEmpty() && !channel.isDue(now)) {
+                  nextDueTime = Math.min(nextDueTime, channel.events.peekFirst().dueTime);
+               }
+            }
+            servedChannels.forEach(entry -> channels.put(entry.getKey(), entry.getValue()));
+
+            if (!events.isEmpty()) {
+               return events;
+            }
+
+            wait(Math.max(1, nextDueTime - now));
+         }
+
+         return events;
+      }
+
+      private Event poll(final Channel channel) {
+         final PendingEvent pending = channel.events.pollFirst();
+         if (pending.coalesceKey != null) {
+            coalescingEvents.remove(pending.coalesceKey, pending);
+         } else {
+            channel.immediateEvents--;
+         }
+         size--;
+
+         return pending.event;
+      }
+
+      /**
+       * Removes all queued events.
+       */
+      private synchronized List<Event> drain() {
+         final List<Event> events = new ArrayList<>(size);
+         channels.values().forEach(channel -> {
+            while (!channel.events.isEmpty()) {
+               events.add(poll(channel));
+            }
+         });
+         channels.clear();
+
+         return events;
+      }
+
+      private synchronized int size() {
+         return size;
+      }
+   }
+
+   private static class Channel {
+
+      private final Deque<PendingEvent> events = new ArrayDeque<>();
+      private int immediateEvents;
+
+      /**
+       * The first event is due when its time has come or when there is an event to be sent immediately after it.
+       */
+      private boolean isDue(final long now) {
+         return !events.isEmpty() && (immediateEvents > 0 || events.peekFirst().dueTime <= now);
+      }
+   }
+
+   private static class PendingEvent {
+
+      private final Event event;
+      private final String coalesceKey;
+      private final long dueTime;
+
+      private PendingEvent(final Event event, final String coalesceKey, final long dueTime) {
+         this.event = event;
+         this.coalesceKey = coalesceKey;
+         this.dueTime = dueTime;
+      }
+   }
+}
@@ -0,0 +1,69 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Payload of a push notification that can be shared by events sent to more channels.
+ * The payload is serialized just once, no matter how many events carry it.
+ */
+public class PushPayload {
+
+   private static final ObjectMapper mapper = PusherClient.createObjectMapper();
+
+   private final Object data;
+   private volatile String serialized;
+
+   public PushPayload(final Object data) {
+      this.data = data;
+   }
+
+   public Object getData() {
+      return data;
+   }
+
+   /**
+    * @return The payload serialized to JSON, null when it cannot be serialized.
+    */
+   public String getJson() {
+      String result = serialized;
+      if (result == null) {
+         synchronized (this) {
+            result = serialized;
+            if (result == null) {
+               result = writeValue(data);
+               serialized = result;
+            }
+         }
+      }
+
+      return result;
+   }
+
+   private static String writeValue(final Object data) {
+      try {
+         return mapper.writeValueAsString(data);
+      } catch (IOException e) {
+         return null;
+      }
+   }
+}
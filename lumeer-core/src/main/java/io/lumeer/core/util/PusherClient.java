@@ -44,21 +44,29 @@ public class PusherClient {
       pusher.setCluster(cluster);
       pusher.setEncrypted(true);
 
-      mapper = new ObjectMapper();
+      mapper = createObjectMapper();
+
+      pusher.setDataMarshaller(o -> o instanceof PushPayload ? ((PushPayload) o).getJson() : serialize(o));
+   }
+
+   public static ObjectMapper createObjectMapper() {
+      final ObjectMapper mapper = new ObjectMapper();
       AnnotationIntrospector primary = new JacksonAnnotationIntrospector();
       AnnotationIntrospector secondary = new JaxbAnnotationIntrospector(TypeFactory.defaultInstance());
       AnnotationIntrospector pair = AnnotationIntrospector.pair(primary, secondary);
       mapper.setAnnotationIntrospector(pair);
 
-      pusher.setDataMarshaller(o -> {
-         StringWriter sw = new StringWriter();
-         try {
-            mapper.writeValue(sw, o);
-            return sw.toString();
-         } catch (IOException e) {
-            return null;
-         }
-      });
+      return mapper;
+   }
+
+   private String serialize(final Object o) {
+      StringWriter sw = new StringWriter();
+      try {
+         mapper.writeValue(sw, o);
+         return sw.toString();
+      } catch (IOException e) {
+         return null;
+      }
    }
 
    public Result trigger(final String channel, final String eventName, final Object message) {
@@ -28,6 +28,7 @@ import io.lumeer.engine.api.data.DataStorageFactory;
 import java.util.logging.Logger;
 import javax.annotation.Resource;
 import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Dependent;
 import javax.enterprise.context.RequestScoped;
@@ -54,6 +55,10 @@ public class Resources {
    @Produces
    private ManagedExecutorService managedExecutorService;
 
+   @Resource
+   @Produces
+   private ManagedThreadFactory managedThreadFactory;
+
    @Produces
    @Dependent
    public Logger produceLog(InjectionPoint injectionPoint) {
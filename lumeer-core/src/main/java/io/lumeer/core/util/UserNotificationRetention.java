@@ -0,0 +1,127 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
+import io.lumeer.storage.api.dao.UserNotificationDao;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+/**
+ * Applies the retention policy of user notifications. Read notifications are removed by the database once they are older
+ * than {@link DefaultConfigurationProducer#NOTIFICATIONS_READ_RETENTION} days, and all notifications older than
+ * {@link DefaultConfigurationProducer#NOTIFICATIONS_ARCHIVE_AFTER} days are periodically moved to the archive.
+ * Both are disabled when not configured.
+ */
+@ApplicationScoped
+public class UserNotificationRetention {
+
+   public static final long ARCHIVE_INTERVAL_MINUTES = 60L;
+   public static final int ARCHIVE_BATCH_SIZE = 1000;
+
+   private static final Logger log = Logger.getLogger(UserNotificationRetention.class.getName());
+
+   @Inject
+   private UserNotificationDao userNotificationDao;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   @Inject
+   private DefaultConfigurationProducer defaultConfigurationProducer;
+
+   private ScheduledExecutorService archiver;
+
+   public void init(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+      final Duration readRetention = getDays(DefaultConfigurationProducer.NOTIFICATIONS_READ_RETENTION);
+      try {
+         userNotificationDao.setReadNotificationsRetention(readRetention != null ? readRetention.getSeconds() : null);
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to set retention of read notifications: ", e);
+      }
+
+      final Duration archiveAfter = getDays(DefaultConfigurationProducer.NOTIFICATIONS_ARCHIVE_AFTER);
+      if (archiveAfter != null) {
+         archiver = Executors.newSingleThreadScheduledExecutor(threadFactory);
+         archiver.scheduleWithFixedDelay(() -> archive(archiveAfter), 1, ARCHIVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+      }
+   }
+
+   @PreDestroy
+   public void destroy() {
+      if (archiver != null) {
+         archiver.shutdownNow();
+      }
+   }
+
+   /**
+    * Archives all notifications older than the given age.
+    *
+    * @param age
+    *       Age of the notifications to archive.
+    * @return Number of archived notifications.
+    */
+   public int archive(final Duration age) {
+      final ZonedDateTime createdBefore = ZonedDateTime.now().minus(age);
+      int archived = 0;
+
+      try {
+         int batch;
+         do {
+            batch = userNotificationDao.archiveNotifications(createdBefore, ARCHIVE_BATCH_SIZE);
+            archived += batch;
+         } while (batch == ARCHIVE_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+      } catch (RuntimeException e) {
+         log.log(Level.WARNING, "Unable to archive user notifications: ", e);
+      }
+
+      if (archived > 0) {
+         log.info("Archived " + archived + " user notifications created before " + createdBefore);
+      }
+
+      return archived;
+   }
+
+   private Duration getDays(final String key) {
+      final String value = defaultConfigurationProducer.get(key);
+      if (value == null || value.isEmpty()) {
+         return null;
+      }
+
+      try {
+         final long days = Long.parseLong(value);
+         return days > 0 ? Duration.ofDays(days) : null;
+      } catch (NumberFormatException e) {
+         log.warning("Invalid number of days in " + key + ": " + value);
+         return null;
+      }
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import io.lumeer.core.facade.configuration.DefaultConfigurationProducer;
+import io.lumeer.storage.api.dao.UserNotificationDao;
+import io.lumeer.storage.api.dao.UserNotificationWrite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Collects user notification writes and performs them in the background, all writes gathered during a flush interval at once.
+ * Resource updates thus do not wait for the notification bookkeeping.
+ */
+@ApplicationScoped
+public class UserNotificationWriter {
+
+   public static final long DEFAULT_FLUSH_INTERVAL = 200L;
+   public static final int MAX_BATCH_SIZE = 1000;
+
+   private static final Logger log = Logger.getLogger(UserNotificationWriter.class.getName());
+
+   private final Queue<UserNotificationWrite> pending = new ConcurrentLinkedQueue<>();
+
+   @Inject
+   private UserNotificationDao userNotificationDao;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   @Inject
+   private DefaultConfigurationProducer defaultConfigurationProducer;
+
+   private ScheduledExecutorService flusher;
+
+   @PostConstruct
+   public void init() {
+      final String configuredInterval = defaultConfigurationProducer.get(DefaultConfigurationProducer.NOTIFICATIONS_FLUSH_INTERVAL);
+      final long flushInterval = configuredInterval != null && !configuredInterval.isEmpty() ? Long.parseLong(configuredInterval) : DEFAULT_FLUSH_INTERVAL;
+
+      flusher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+   }
+
+   @PreDestroy
+   public void destroy() {
+      flusher.shutdown();
+      try {
+         flusher.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      flush();
+   }
+
+   public void write(final UserNotificationWrite write) {
+      pending.add(write);
+   }
+
+   public void write(final List<UserNotificationWrite> writes) {
+      pending.addAll(writes);
+   }
+
+   /**
+    * Performs all pending writes.
+    */
+   public synchronized void flush() {
+      while (!pending.isEmpty()) {
+         final List<UserNotificationWrite> batch = new ArrayList<>();
+         UserNotificationWrite write;
+         while (batch.size() < MAX_BATCH_SIZE && (write = pending.poll()) != null) {
+            batch.add(write);
+         }
+
+         try {
+            userNotificationDao.writeNotifications(mergeUpdates(batch));
+         } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to write " + batch.size() + " user notifications: ", e);
+         }
+      }
+   }
+
+   /**
+    * Merges consecutive updates of the same notifications, the later values win.
+    */
+   static List<UserNotificationWrite> mergeUpdates(final List<UserNotificationWrite> writes) {
+      final List<UserNotificationWrite> merged = new ArrayList<>(writes.size());
+
+      for (final UserNotificationWrite write : writes) {
+         final UserNotificationWrite previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+         if (previous != null && write.getOperation() == UserNotificationWrite.Operation.UPDATE && previous.getOperation() == UserNotificationWrite.Operation.UPDATE
+               && write.getSearchField().equals(previous.getSearchField()) && write.getSearchId().equals(previous.getSearchId())) {
+            final Map<String, String> updates = new HashMap<>(previous.getUpdates());
+            updates.putAll(write.getUpdates());
+            merged.set(merged.size() - 1, UserNotificationWrite.update(write.getSearchField(), write.getSearchId(), updates));
+         } else {
+            merged.add(write);
+         }
+      }
+
+      return merged;
+   }
+}
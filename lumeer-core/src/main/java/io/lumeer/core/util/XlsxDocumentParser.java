@@ -0,0 +1,283 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads document data from the first sheet of an XLSX workbook. The sheet is streamed with StAX, only the shared
+ * strings are kept in memory. The first row holds the names of the attributes.
+ */
+public class XlsxDocumentParser extends DocumentParser {
+
+   private static final String WORKBOOK = "xl/workbook.xml";
+   private static final String WORKBOOK_RELATIONS = "xl/_rels/workbook.xml.rels";
+   private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+   private static final String DEFAULT_SHEET = "xl/worksheets/sheet1.xml";
+   private static final String RELATIONSHIPS_NAMESPACE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+   private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+   private final ZipFile zipFile;
+   private final List<String> sharedStrings;
+   private final InputStream sheetStream;
+   private final XMLStreamReader sheet;
+   private final String[] headers;
+
+   public XlsxDocumentParser(final Path file) throws IOException {
+      zipFile = new ZipFile(file.toFile());
+
+      try {
+         sharedStrings = readSharedStrings();
+
+         final ZipEntry sheetEntry = zipFile.getEntry(findFirstSheet());
+         if (sheetEntry == null) {
+            throw new IOException("The workbook has no sheet.");
+         }
+
+         sheetStream = zipFile.getInputStream(sheetEntry);
+         sheet = xmlInputFactory.createXMLStreamReader(sheetStream);
+
+         final String[] firstRow = readRow();
+         headers = firstRow != null ? firstRow : new String[0];
+      } catch (XMLStreamException | IOException | RuntimeException e) {
+         zipFile.close();
+         throw e instanceof IOException ? (IOException) e : new IOException(e);
+      }
+   }
+
+   @Override
+   public String[] getHeaders() {
+      return headers;
+   }
+
+   @Override
+   protected String[] parseNext() {
+      final String[] row = readRow();
+      if (row == null || row.length >= headers.length) {
+         return row;
+      }
+
+      final String[] padded = new String[headers.length];
+      System.arraycopy(row, 0, padded, 0, row.length);
+      return padded;
+   }
+
+   private String[] readRow() {
+      try {
+         while (sheet.hasNext()) {
+            if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+               return readCells();
+            }
+         }
+
+         return null;
+      } catch (XMLStreamException e) {
+         throw new UncheckedIOException(new IOException(e));
+      }
+   }
+
+   private String[] readCells() throws XMLStreamException {
+      final List<String> cells = new ArrayList<>();
+      int nextColumn = 0;
+
+      while (sheet.hasNext()) {
+         final int event = sheet.next();
+         if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) {
+            break;
+         }
+
+         if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheet.getLocalName())) {
+            final String reference = sheet.getAttributeValue(null, "r");
+            final int column = reference != null ? columnIndex(reference) : nextColumn;
+            final String value = readCell(sheet.getAttributeValue(null, "t"));
+
+            while (cells.size() <= column) {
+               cells.add(null);
+            }
+            cells.set(column, value);
+            nextColumn = column + 1;
+         }
+      }
+
+      return cells.toArray(new String[0]);
+   }
+
+   private String readCell(final String type) throws XMLStreamException {
+      String value = null;
+      final StringBuilder inlineString = new StringBuilder();
+
+      while (sheet.hasNext()) {
+         final int event = sheet.next();
+         if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheet.getLocalName())) {
+            break;
+         }
+
+         if (event == XMLStreamConstants.START_ELEMENT) {
+            if ("v".equals(sheet.getLocalName())) {
+               value = sheet.getElementText();
+            } else if ("t".equals(sheet.getLocalName())) {
+               inlineString.append(sheet.getElementText());
+            }
+         }
+      }
+
+      if ("inlineStr".equals(type)) {
+         return inlineString.length() > 0 ? inlineString.toString() : null;
+      }
+
+      if (value == null || value.isEmpty()) {
+         return null;
+      }
+
+      if ("s".equals(type)) {
+         final int index = Integer.parseInt(value.trim());
+         return index < sharedStrings.size() ? sharedStrings.get(index) : null;
+      }
+
+      if ("b".equals(type)) {
+         return Boolean.toString("1".equals(value.trim()));
+      }
+
+      return value;
+   }
+
+   private static int columnIndex(final String reference) {
+      int column = 0;
+      for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+         column = column * 26 + (Character.toUpperCase(reference.charAt(i)) - 'A' + 1);
+      }
+
+      return column - 1;
+   }
+
+   private List<String> readSharedStrings() throws IOException, XMLStreamException {
+      final List<String> strings = new ArrayList<>();
+      final ZipEntry entry = zipFile.getEntry(SHARED_STRINGS);
+      if (entry == null) {
+         return strings;
+      }
+
+      try (InputStream stream = zipFile.getInputStream(entry)) {
+         final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(stream);
+         StringBuilder current = null;
+         boolean phonetic = false;
+
+         while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+               switch (reader.getLocalName()) {
+                  case "si":
+                     current = new StringBuilder();
+                     break;
+                  case "rPh":
+                     phonetic = true;
+                     break;
+                  case "t":
+                     if (current != null && !phonetic) {
+                        current.append(reader.getElementText());
+                     }
+                     break;
+               }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+               if ("si".equals(reader.getLocalName()) && current != null) {
+                  strings.add(current.toString());
+                  current = null;
+               } else if ("rPh".equals(reader.getLocalName())) {
+                  phonetic = false;
+               }
+            }
+         }
+
+         reader.close();
+      }
+
+      return strings;
+   }
+
+   private String findFirstSheet() throws IOException, XMLStreamException {
+      final String relationId = readAttribute(WORKBOOK, "sheet", RELATIONSHIPS_NAMESPACE, "id", null);
+      if (relationId == null) {
+         return DEFAULT_SHEET;
+      }
+
+      final String target = readAttribute(WORKBOOK_RELATIONS, "Relationship", null, "Target", relationId);
+      if (target == null) {
+         return DEFAULT_SHEET;
+      }
+
+      return target.startsWith("/") ? target.substring(1) : "xl/" + target;
+   }
+
+   private String readAttribute(final String entryName, final String element, final String namespace, final String attribute, final String id) throws IOException, XMLStreamException {
+      final ZipEntry entry = zipFile.getEntry(entryName);
+      if (entry == null) {
+         return null;
+      }
+
+      try (InputStream stream = zipFile.getInputStream(entry)) {
+         final XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(stream);
+         try {
+            while (reader.hasNext()) {
+               if (reader.next() == XMLStreamConstants.START_ELEMENT && element.equals(reader.getLocalName())
+                     && (id == null || id.equals(reader.getAttributeValue(null, "Id")))) {
+                  return reader.getAttributeValue(namespace, attribute);
+               }
+            }
+            return null;
+         } finally {
+            reader.close();
+         }
+      }
+   }
+
+   private static XMLInputFactory createXmlInputFactory() {
+      final XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      return factory;
+   }
+
+   @Override
+   protected void closeParser() {
+      try {
+         sheet.close();
+      } catch (XMLStreamException e) {
+         // nothing more to read
+      }
+
+      try {
+         sheetStream.close();
+         zipFile.close();
+      } catch (IOException e) {
+         // nothing more to read
+      }
+   }
+}
@@ -0,0 +1,180 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes document data as a single sheet XLSX workbook. The sheet is streamed with StAX and uses inline strings,
+ * so nothing is kept in memory. The first row holds the names of the attributes.
+ */
+public class XlsxDocumentWriter extends DocumentWriter {
+
+   private static final String MAIN_NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+   private static final String CONTENT_TYPES = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+         + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+         + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+         + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+         + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+         + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+         + "</Types>";
+   private static final String RELATIONS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+         + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+         + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+         + "</Relationships>";
+   private static final String WORKBOOK = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+         + "<workbook xmlns=\"" + MAIN_NAMESPACE + "\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+         + "<sheets><sheet name=\"Data\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>";
+   private static final String WORKBOOK_RELATIONS = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+         + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+         + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+         + "</Relationships>";
+
+   /**
+    * Maximal length of a cell text accepted by spreadsheet applications.
+    */
+   private static final int MAX_CELL_LENGTH = 32767;
+
+   private final ZipOutputStream zip;
+   private final XMLStreamWriter sheet;
+   private final String[] columnNames;
+   private int rowNumber;
+
+   public XlsxDocumentWriter(final OutputStream output, final String[] headers) throws IOException {
+      zip = new ZipOutputStream(output);
+      writeEntry("[Content_Types].xml", CONTENT_TYPES);
+      writeEntry("_rels/.rels", RELATIONS);
+      writeEntry("xl/workbook.xml", WORKBOOK);
+      writeEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELATIONS);
+
+      columnNames = new String[headers.length];
+      for (int i = 0; i < headers.length; i++) {
+         columnNames[i] = columnName(i);
+      }
+
+      zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+      try {
+         sheet = XMLOutputFactory.newInstance().createXMLStreamWriter(zip, StandardCharsets.UTF_8.name());
+         sheet.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+         sheet.writeStartElement("worksheet");
+         sheet.writeDefaultNamespace(MAIN_NAMESPACE);
+         sheet.writeStartElement("sheetData");
+      } catch (XMLStreamException e) {
+         throw new IOException(e);
+      }
+
+      writeRow(headers);
+   }
+
+   private void writeEntry(final String name, final String content) throws IOException {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.write(content.getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+   }
+
+   @Override
+   public void writeRow(final Object[] values) {
+      rowNumber++;
+      try {
+         sheet.writeStartElement("row");
+         sheet.writeAttribute("r", Integer.toString(rowNumber));
+
+         for (int i = 0; i < Math.min(columnNames.length, values.length); i++) {
+            if (values[i] != null) {
+               writeCell(columnNames[i] + rowNumber, values[i]);
+            }
+         }
+
+         sheet.writeEndElement();
+      } catch (XMLStreamException e) {
+         throw new UncheckedIOException(new IOException(e));
+      }
+   }
+
+   private void writeCell(final String reference, final Object value) throws XMLStreamException {
+      sheet.writeStartElement("c");
+      sheet.writeAttribute("r", reference);
+
+      if (value instanceof Number) {
+         sheet.writeStartElement("v");
+         sheet.writeCharacters(value.toString());
+         sheet.writeEndElement();
+      } else if (value instanceof Boolean) {
+         sheet.writeAttribute("t", "b");
+         sheet.writeStartElement("v");
+         sheet.writeCharacters((Boolean) value ? "1" : "0");
+         sheet.writeEndElement();
+      } else {
+         sheet.writeAttribute("t", "inlineStr");
+         sheet.writeStartElement("is");
+         sheet.writeStartElement("t");
+         sheet.writeCharacters(cellText(formatValue(value)));
+         sheet.writeEndElement();
+         sheet.writeEndElement();
+      }
+
+      sheet.writeEndElement();
+   }
+
+   private static String cellText(final String text) {
+      final StringBuilder builder = new StringBuilder(Math.min(text.length(), MAX_CELL_LENGTH));
+      for (int i = 0; i < text.length() && builder.length() < MAX_CELL_LENGTH; i++) {
+         final char c = text.charAt(i);
+         // characters not allowed in XML are dropped
+         if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+            builder.append(c);
+         }
+      }
+
+      return builder.toString();
+   }
+
+   static String columnName(final int index) {
+      final StringBuilder name = new StringBuilder();
+      for (int i = index + 1; i > 0; i = (i - 1) / 26) {
+         name.insert(0, (char) ('A' + (i - 1) % 26));
+      }
+
+      return name.toString();
+   }
+
+   @Override
+   public void close() throws IOException {
+      try {
+         sheet.writeEndElement();
+         sheet.writeEndElement();
+         sheet.writeEndDocument();
+         sheet.close();
+      } catch (XMLStreamException e) {
+         throw new IOException(e);
+      }
+
+      zip.closeEntry();
+      zip.close();
+   }
+}
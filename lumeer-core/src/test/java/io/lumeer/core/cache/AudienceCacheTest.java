@@ -0,0 +1,150 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Permission;
+import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.Role;
+import io.lumeer.core.WorkspaceKeeper;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.core.util.ClusterEventCodec;
+import io.lumeer.engine.api.event.UpdateResource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public class AudienceCacheTest {
+
+   private ClusterEventBus clusterEventBus;
+   private AudienceCache audienceCache;
+   private final AtomicInteger loads = new AtomicInteger();
+
+   @Before
+   public void setUp() {
+      clusterEventBus = mock(ClusterEventBus.class);
+      final WorkspaceKeeper workspaceKeeper = mock(WorkspaceKeeper.class);
+      when(workspaceKeeper.getProject()).thenReturn(Optional.empty());
+
+      audienceCache = new AudienceCache(clusterEventBus, workspaceKeeper);
+      audienceCache.init();
+   }
+
+   @Test
+   public void testCachedAudience() {
+      assertThat(getAudience("o1", "p1", "c1")).containsExactly("u1");
+      assertThat(getAudience("o1", "p1", "c1")).containsExactly("u1");
+      assertThat(loads.get()).isEqualTo(1);
+
+      getAudience("o1", "p1", "c2");
+      getAudience("o1", "p2", "c3");
+      getAudience("o2", "p3", "c4");
+      assertThat(loads.get()).isEqualTo(4);
+
+      audienceCache.invalidateCollection("c1");
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(5);
+
+      audienceCache.invalidateProject("p1");
+      getAudience("o1", "p1", "c1");
+      getAudience("o1", "p1", "c2");
+      getAudience("o1", "p2", "c3");
+      assertThat(loads.get()).isEqualTo(7);
+
+      audienceCache.invalidateOrganization("o1");
+      getAudience("o1", "p1", "c1");
+      getAudience("o1", "p2", "c3");
+      getAudience("o2", "p3", "c4");
+      assertThat(loads.get()).isEqualTo(9);
+   }
+
+   @Test
+   public void testInvalidationDuringLoad() {
+      final Set<String> audience = audienceCache.getAudience("o1", "p1", "c1", () -> {
+         loads.incrementAndGet();
+         audienceCache.invalidateCollection("c1");
+         return new HashSet<>(Collections.singleton("u1"));
+      });
+
+      // the audience loaded before the invalidation finished is returned, but not kept
+      assertThat(audience).containsExactly("u1");
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(2);
+   }
+
+   @Test
+   public void testPermissionsChange() {
+      final Collection collection = new Collection("CODE", "name", "icon", "color", new Permissions());
+      collection.setId("c1");
+      final Collection renamed = collection.copy();
+      renamed.setName("new name");
+      final Collection shared = collection.copy();
+      shared.getPermissions().updateUserPermissions(Permission.buildWithRoles("u2", Collections.singleton(Role.READ)));
+
+      getAudience("o1", "p1", "c1");
+      audienceCache.resourceChanged(new UpdateResource(renamed, collection));
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(1);
+
+      audienceCache.resourceChanged(new UpdateResource(shared, collection));
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(2);
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testGroupMembersChange() {
+      getAudience("o1", "p1", "c1");
+      audienceCache.groupMembersChanged("o1");
+      verify(clusterEventBus).publish(any(ClusterEventCodec.GroupMembersChange.class));
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(2);
+
+      // the change made on another node
+      final ArgumentCaptor<Consumer<ClusterEventCodec.GroupMembersChange>> subscriber = ArgumentCaptor.forClass(Consumer.class);
+      verify(clusterEventBus).subscribe(eq(ClusterEventCodec.GroupMembersChange.class), subscriber.capture());
+      subscriber.getValue().accept(new ClusterEventCodec.GroupMembersChange("o1"));
+      getAudience("o1", "p1", "c1");
+      assertThat(loads.get()).isEqualTo(3);
+   }
+
+   private Set<String> getAudience(final String organizationId, final String projectId, final String collectionId) {
+      final Supplier<Set<String>> loader = () -> {
+         loads.incrementAndGet();
+         return new HashSet<>(Collections.singleton("u1"));
+      };
+      return audienceCache.getAudience(organizationId, projectId, collectionId, loader);
+   }
+}
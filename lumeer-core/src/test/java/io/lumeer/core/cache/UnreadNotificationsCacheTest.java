@@ -0,0 +1,100 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import io.lumeer.api.model.UserNotification;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.engine.api.event.ChangeUserNotification;
+import io.lumeer.engine.api.event.CreateOrUpdateUserNotification;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class UnreadNotificationsCacheTest {
+
+   private ClusterEventBus clusterEventBus;
+   private UnreadNotificationsCache unreadNotificationsCache;
+   private final AtomicInteger counts = new AtomicInteger();
+
+   @Before
+   public void setUp() {
+      clusterEventBus = mock(ClusterEventBus.class);
+      unreadNotificationsCache = new UnreadNotificationsCache(clusterEventBus);
+      unreadNotificationsCache.init();
+   }
+
+   @Test
+   public void testCachedCount() {
+      assertThat(getUnreadCount("u1")).isEqualTo(1L);
+      assertThat(getUnreadCount("u1")).isEqualTo(1L);
+      getUnreadCount("u2");
+      assertThat(counts.get()).isEqualTo(2);
+
+      unreadNotificationsCache.notificationChanged(new CreateOrUpdateUserNotification(notification("u1")));
+      assertThat(getUnreadCount("u1")).isEqualTo(3L);
+      getUnreadCount("u2");
+      assertThat(counts.get()).isEqualTo(3);
+   }
+
+   @Test
+   public void testInvalidationDuringCount() {
+      final long count = unreadNotificationsCache.getUnreadCount("u1", () -> {
+         counts.incrementAndGet();
+         unreadNotificationsCache.notificationChanged(new CreateOrUpdateUserNotification(notification("u1")));
+         return 5L;
+      });
+
+      // the count computed before the invalidation finished is returned, but not kept
+      assertThat(count).isEqualTo(5L);
+      getUnreadCount("u1");
+      assertThat(counts.get()).isEqualTo(2);
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testChangeOnAnotherNode() {
+      getUnreadCount("u1");
+
+      final ArgumentCaptor<Consumer<ChangeUserNotification>> subscriber = ArgumentCaptor.forClass(Consumer.class);
+      verify(clusterEventBus).subscribe(eq(ChangeUserNotification.class), subscriber.capture());
+      subscriber.getValue().accept(new CreateOrUpdateUserNotification(notification("u1")));
+
+      getUnreadCount("u1");
+      assertThat(counts.get()).isEqualTo(2);
+   }
+
+   private long getUnreadCount(final String userId) {
+      return unreadNotificationsCache.getUnreadCount(userId, () -> (long) counts.incrementAndGet());
+   }
+
+   private static UserNotification notification(final String userId) {
+      final UserNotification notification = new UserNotification();
+      notification.setUserId(userId);
+      return notification;
+   }
+}
@@ -0,0 +1,123 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.facade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.lumeer.api.model.Document;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Permission;
+import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.Role;
+import io.lumeer.api.model.common.Resource;
+import io.lumeer.core.auth.PermissionsChecker;
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+import org.marvec.pusher.data.Event;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class PusherFacadeTest {
+
+   private final PusherFacade pusherFacade = new PusherFacade();
+
+   @Test
+   public void testDocumentDelta() {
+      final Document original = createDocument(new DataDocument("a", 1).append("b", 2).append("c", 3).append("d", 4), 1);
+      final Document updated = createDocument(new DataDocument("a", 1).append("b", 20).append("c", 3).append("e", 5), 2);
+
+      final PusherFacade.DocumentDelta delta = pusherFacade.createDocumentDelta(updated, original);
+
+      assertThat(delta).isNotNull();
+      assertThat(delta.getId()).isEqualTo("doc1");
+      assertThat(delta.getCollectionId()).isEqualTo("coll1");
+      assertThat(delta.getDataVersion()).isEqualTo(2);
+      assertThat(delta.getData()).containsOnlyKeys("b", "e").containsEntry("b", 20).containsEntry("e", 5);
+      assertThat(delta.getRemovedAttributes()).containsExactly("d");
+   }
+
+   @Test
+   public void testWholeDocument() {
+      final Document original = createDocument(new DataDocument("a", 1).append("b", 2), 1);
+
+      // most of the attributes changed
+      assertThat(pusherFacade.createDocumentDelta(createDocument(new DataDocument("a", 10).append("b", 20), 2), original)).isNull();
+
+      // metadata changed
+      final Document metaDataUpdated = createDocument(new DataDocument("a", 1).append("b", 2).append("c", 3), 2);
+      metaDataUpdated.setMetaData(new DataDocument("parentId", "doc2"));
+      assertThat(pusherFacade.createDocumentDelta(metaDataUpdated, original)).isNull();
+
+      // no original document or version
+      assertThat(pusherFacade.createDocumentDelta(createDocument(new DataDocument("a", 1).append("b", 2).append("c", 3), 2), null)).isNull();
+      assertThat(pusherFacade.createDocumentDelta(createDocument(new DataDocument("a", 1).append("b", 2).append("c", 3), null), original)).isNull();
+   }
+
+   @Test
+   public void testSharedFilteredResources() {
+      final Set<Role> manage = new HashSet<>(Arrays.asList(Role.READ, Role.MANAGE));
+      final Set<Role> read = Collections.singleton(Role.READ);
+      final Permissions permissions = new Permissions();
+      permissions.updateUserPermissions(Permission.buildWithRoles("m1", manage), Permission.buildWithRoles("m2", manage),
+            Permission.buildWithRoles("u1", read), Permission.buildWithRoles("u2", read));
+      final Organization organization = new Organization("ORG", "Organization", "fa-user", "#ffffff", null, permissions);
+      organization.setId("org1");
+
+      final Map<String, Set<Role>> actualRoles = permissions.getUserPermissions().stream().collect(Collectors.toMap(Permission::getId, Permission::getRoles));
+      final PermissionsChecker permissionsChecker = mock(PermissionsChecker.class);
+      when(permissionsChecker.getWorkspaceManagers()).thenAnswer(invocation -> new HashSet<>());
+      when(permissionsChecker.getActualRoles(any(Resource.class), anyString())).thenAnswer(invocation -> actualRoles.get(invocation.<String>getArgument(1)));
+      pusherFacade.permissionsChecker = permissionsChecker;
+
+      final List<Event> events = pusherFacade.createEvents(organization, new LinkedHashSet<>(Arrays.asList("m1", "m2", "u1", "u2")), ":update");
+      final Map<String, Organization> data = events.stream().collect(Collectors.toMap(Event::getChannel, event -> (Organization) event.getData()));
+
+      // the managers see the same permissions and share a copy
+      assertThat(data.get("private-m1")).isSameAs(data.get("private-m2")).isNotSameAs(organization);
+      assertThat(data.get("private-m1").getPermissions().getUserPermissions()).extracting(Permission::getId).containsExactlyInAnyOrder("m1", "m2");
+
+      assertThat(data.get("private-u1")).isNotSameAs(data.get("private-u2"));
+      final Map<String, Permission> u1Permissions = data.get("private-u1").getPermissions().getUserPermissions().stream()
+                                                         .collect(Collectors.toMap(Permission::getId, Function.identity()));
+      assertThat(u1Permissions).containsOnlyKeys("m1", "m2", "u1");
+      assertThat(u1Permissions.get("u1").getRoles()).containsExactly(Role.READ);
+      assertThat(organization.getPermissions().getUserPermissions()).hasSize(4);
+   }
+
+   private Document createDocument(final DataDocument data, final Integer dataVersion) {
+      final Document document = new Document(data);
+      document.setId("doc1");
+      document.setCollectionId("coll1");
+      document.setDataVersion(dataVersion);
+      return document;
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.facade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lumeer.core.auth.PermissionsChecker;
+import io.lumeer.core.exception.NoSystemPermissionException;
+import io.lumeer.core.task.TaskExecutor;
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class TaskFacadeTest {
+
+   private final TaskFacade taskFacade = new TaskFacade();
+
+   @Before
+   public void setUp() {
+      taskFacade.permissionsChecker = mock(PermissionsChecker.class);
+      taskFacade.taskExecutor = mock(TaskExecutor.class);
+   }
+
+   @Test
+   public void testMetrics() {
+      final Map<String, Long> metrics = new HashMap<>();
+      metrics.put("completed", 3L);
+      metrics.put("queued", 1L);
+      when(taskFacade.taskExecutor.getMetrics()).thenReturn(metrics);
+
+      assertThat(taskFacade.getTaskMetrics()).containsEntry("completed", 3L).containsEntry("queued", 1L);
+      verify(taskFacade.permissionsChecker).checkSystemPermission();
+   }
+
+   @Test
+   public void testTask() {
+      final QueuedTask queuedTask = new QueuedTask();
+      queuedTask.setId("task1");
+      queuedTask.setState(QueuedTask.State.RUNNING);
+      queuedTask.setPayload(new byte[] { 1, 2, 3 });
+      when(taskFacade.taskExecutor.getTask("task1")).thenReturn(queuedTask);
+
+      final QueuedTask task = taskFacade.getTask("task1");
+      assertThat(task.getState()).isEqualTo(QueuedTask.State.RUNNING);
+      assertThat(task.getPayload()).isNull();
+
+      assertThatThrownBy(() -> taskFacade.getTask("task2")).isInstanceOf(ResourceNotFoundException.class);
+   }
+
+   @Test
+   public void testNoSystemPermission() {
+      doThrow(new NoSystemPermissionException()).when(taskFacade.permissionsChecker).checkSystemPermission();
+
+      assertThatThrownBy(taskFacade::getTaskMetrics).isInstanceOf(NoSystemPermissionException.class);
+      assertThatThrownBy(() -> taskFacade.getTask("task1")).isInstanceOf(NoSystemPermissionException.class);
+      verify(taskFacade.taskExecutor, never()).getMetrics();
+      verify(taskFacade.taskExecutor, never()).getTask("task1");
+   }
+}
@@ -0,0 +1,177 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lumeer.core.facade.PusherFacade;
+import io.lumeer.core.util.ClusterEventBus;
+import io.lumeer.core.util.ClusterEventCodec;
+import io.lumeer.core.util.ImportColumn;
+import io.lumeer.storage.api.dao.ImportJobDao;
+import io.lumeer.storage.api.dao.ImportJobState;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+
+public class ImportJobsTest {
+
+   private static final String NODE1 = "node1";
+   private static final String NODE2 = "node2";
+
+   private ImportJobDao importJobDao;
+   private ClusterEventBus clusterEventBus;
+   private TaskExecutor taskExecutor;
+   private ImportJobs importJobs;
+
+   @Before
+   public void setUp() {
+      importJobDao = mock(ImportJobDao.class);
+      clusterEventBus = mock(ClusterEventBus.class);
+      when(clusterEventBus.getNodeId()).thenReturn(NODE1);
+      when(clusterEventBus.isClustered()).thenReturn(true);
+      taskExecutor = mock(TaskExecutor.class);
+
+      importJobs = new ImportJobs(mock(PusherFacade.class), importJobDao, clusterEventBus, taskExecutor);
+      importJobs.init();
+   }
+
+   @Test
+   public void testJobOfOtherNode() {
+      final ImportJobState state = createState(ImportJobState.Status.RUNNING);
+      when(importJobDao.getJob("job1")).thenReturn(state);
+
+      final ImportJob job = importJobs.getJob("job1");
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.RUNNING);
+      assertThat(job.getRowsInserted()).isEqualTo(1000);
+      assertThat(job.getUserId()).isEqualTo("user1");
+      assertThat(importJobs.getJob("job2")).isNull();
+
+      state.setCancelRequested(true);
+      when(importJobDao.cancelJob("job1")).thenReturn(state);
+      assertThat(importJobs.cancelJob("job1").isCancelRequested()).isTrue();
+      assertThat(importJobs.cancelJob("job2")).isNull();
+   }
+
+   @Test
+   public void testResumeOfOtherNode() {
+      when(importJobDao.getJob("job1")).thenReturn(createState(ImportJobState.Status.FAILED));
+      when(importJobDao.updateStatus(any(ImportJobState.class), anySet())).thenReturn(true);
+
+      final ImportJob job = importJobs.resumeJob("job1", resumedJob -> null);
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+      assertThat(job.getError()).isNull();
+
+      final ArgumentCaptor<ClusterEventCodec.ImportJobResume> resume = ArgumentCaptor.forClass(ClusterEventCodec.ImportJobResume.class);
+      verify(clusterEventBus).publish(resume.capture());
+      assertThat(resume.getValue().getJobId()).isEqualTo("job1");
+      verify(taskExecutor, never()).submitTask(any(Task.class));
+   }
+
+   @Test
+   public void testLostJobOfThisNode() {
+      final ImportJobState state = createState(ImportJobState.Status.FAILED);
+      state.setOwner(NODE1);
+      when(importJobDao.getJob("job1")).thenReturn(state);
+
+      // the file of the job did not survive the restart of the node
+      assertThat(importJobs.resumeJob("job1", resumedJob -> null)).isNull();
+      verify(importJobDao, never()).updateStatus(any(ImportJobState.class), anySet());
+   }
+
+   @Test
+   @SuppressWarnings("unchecked")
+   public void testResumeRequestedByOtherNode() {
+      final ImportJob job = createJob();
+      final ImportTask task = mock(ImportTask.class);
+      final ImportTask copy = mock(ImportTask.class);
+      when(task.getJob()).thenReturn(job);
+      when(task.copy()).thenReturn(copy);
+      when(copy.getJob()).thenReturn(job);
+      importJobs.submitJob(task);
+
+      assertThat(job.start()).isTrue();
+      job.fail("database unavailable");
+
+      final ArgumentCaptor<Consumer<ClusterEventCodec.ImportJobResume>> subscriber = ArgumentCaptor.forClass(Consumer.class);
+      verify(clusterEventBus).subscribe(eq(ClusterEventCodec.ImportJobResume.class), subscriber.capture());
+      subscriber.getValue().accept(new ClusterEventCodec.ImportJobResume(job.getId()));
+      subscriber.getValue().accept(new ClusterEventCodec.ImportJobResume("job2"));
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+      verify(taskExecutor).submitTask(copy);
+   }
+
+   @Test
+   public void testCancelRequestedByOtherNode() {
+      final ImportJob job = createJob();
+      assertThat(job.start()).isTrue();
+      when(importJobDao.updateStatus(any(ImportJobState.class), eq(Collections.singleton(ImportJobState.Status.QUEUED)))).thenReturn(false);
+      assertThat(importJobs.jobStarted(job)).isFalse();
+
+      final ImportJobState state = createState(ImportJobState.Status.RUNNING);
+      when(importJobDao.updateProgress(eq(job.getId()), anyLong(), anyLong())).thenReturn(state);
+      importJobs.jobProgress(job);
+      assertThat(job.isCancelRequested()).isFalse();
+
+      state.setCancelRequested(true);
+      importJobs.jobProgress(job);
+      assertThat(job.isCancelRequested()).isTrue();
+   }
+
+   private ImportJob createJob() {
+      final ImportJob job = importJobs.createJob("user1", "project1", "coll1", "csv", null, new String[] { "a1" },
+            ImportColumn.infer(Collections.emptyList(), 1));
+
+      final ArgumentCaptor<ImportJobState> state = ArgumentCaptor.forClass(ImportJobState.class);
+      verify(importJobDao).createJob(state.capture());
+      assertThat(state.getValue().getOwner()).isEqualTo(NODE1);
+      assertThat(state.getValue().getStatus()).isEqualTo(ImportJobState.Status.QUEUED);
+
+      return job;
+   }
+
+   private ImportJobState createState(final ImportJobState.Status status) {
+      final ImportJobState state = new ImportJobState();
+      state.setId("job1");
+      state.setOwner(NODE2);
+      state.setUserId("user1");
+      state.setProjectId("project1");
+      state.setCollectionId("coll1");
+      state.setFormat("csv");
+      state.setStatus(status);
+      state.setRowsParsed(1200);
+      state.setRowsInserted(1000);
+      state.setError(status == ImportJobState.Status.FAILED ? "database unavailable" : null);
+
+      return state;
+   }
+}
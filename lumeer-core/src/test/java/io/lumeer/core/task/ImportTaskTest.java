@@ -0,0 +1,269 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Document;
+import io.lumeer.api.model.User;
+import io.lumeer.core.exception.ServiceLimitsExceededException;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.core.util.ImportColumn;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.DocumentDao;
+import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public class ImportTaskTest {
+
+   private static final String COLLECTION_ID = "coll1";
+   private static final int ROWS = 2 * ImportTask.BATCH_SIZE + 500;
+
+   private final Set<String> storedDocuments = ConcurrentHashMap.newKeySet();
+   private final Map<String, String> storedData = new ConcurrentHashMap<>();
+   private volatile Consumer<List<DataDocument>> onCreateData = data -> { };
+
+   private DaoContextSnapshot daoContextSnapshot;
+   private Collection collection;
+
+   @Before
+   public void setUp() {
+      final DocumentDao documentDao = mock(DocumentDao.class);
+      when(documentDao.generateDocumentId()).thenAnswer(invocation -> UUID.randomUUID().toString());
+      when(documentDao.createDocuments(anyList())).thenAnswer(invocation -> {
+         final List<Document> documents = invocation.getArgument(0);
+         documents.forEach(document -> storedDocuments.add(document.getId()));
+         return documents;
+      });
+      doAnswer(invocation -> storedDocuments.remove(invocation.<String>getArgument(0))).when(documentDao).deleteDocument(anyString());
+
+      final DataDao dataDao = mock(DataDao.class);
+      when(dataDao.createData(anyString(), anyList())).thenAnswer(invocation -> {
+         final List<DataDocument> data = invocation.getArgument(1);
+         onCreateData.accept(data);
+         data.forEach(row -> storedData.put(row.getId(), row.getString("a1")));
+         return data;
+      });
+      doAnswer(invocation -> storedData.remove(invocation.<String>getArgument(1))).when(dataDao).deleteData(anyString(), anyString());
+
+      collection = mock(Collection.class);
+      final CollectionDao collectionDao = mock(CollectionDao.class);
+      when(collectionDao.getCollectionById(COLLECTION_ID)).thenReturn(collection);
+
+      daoContextSnapshot = mock(DaoContextSnapshot.class);
+      when(daoContextSnapshot.getDocumentDao()).thenReturn(documentDao);
+      when(daoContextSnapshot.getDataDao()).thenReturn(dataDao);
+      when(daoContextSnapshot.getCollectionDao()).thenReturn(collectionDao);
+   }
+
+   @Test
+   public void testProgress() {
+      final ImportJob job = createJob();
+      final ImportTask task = createTask(job);
+      task.process();
+
+      assertThat(task.getFailure()).isNull();
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+      assertThat(job.getRowsParsed()).isEqualTo(ROWS);
+      assertThat(job.getRowsInserted()).isEqualTo(ROWS);
+      assertStored(ROWS);
+      verify(collection).setDocumentsCount(ROWS);
+   }
+
+   @Test
+   public void testCancelBeforeStart() {
+      final ImportJob job = createJob();
+      assertThat(job.cancel()).isTrue();
+
+      createTask(job).process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.CANCELLED);
+      assertStored(0);
+      assertThat(job.cancel()).isFalse();
+   }
+
+   @Test
+   public void testCancelAndResume() {
+      final ImportJob job = createJob();
+      final ImportTask task = createTask(job);
+      // cancelled while parsing the second batch, only the first one gets written
+      task.setParser(new RowsParser(ROWS, ImportTask.BATCH_SIZE + 1, job::cancel));
+      task.process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.CANCELLED);
+      assertThat(job.getRowsInserted()).isEqualTo(ImportTask.BATCH_SIZE);
+      assertThat(job.resume()).isTrue();
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.QUEUED);
+
+      // the resumed job skips the batches written before the cancellation
+      createTask(job).process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+      assertThat(job.getRowsInserted()).isEqualTo(ROWS);
+      assertStored(ROWS);
+      assertThat(job.resume()).isFalse();
+   }
+
+   @Test
+   public void testFailureAndResume() {
+      final ImportJob job = createJob();
+      final AtomicInteger writes = new AtomicInteger();
+      // the documents of the batch are already created when writing the data fails
+      onCreateData = data -> {
+         if (writes.incrementAndGet() == 2) {
+            throw new IllegalStateException("database unavailable");
+         }
+      };
+      final ImportTask task = createTask(job);
+      task.process();
+
+      assertThat(task.getFailure()).hasMessage("database unavailable");
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.FAILED);
+      assertThat(job.getError()).isEqualTo("database unavailable");
+      assertStored((int) job.getRowsInserted());
+
+      assertThat(job.resume()).isTrue();
+      onCreateData = data -> { };
+      createTask(job).process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+      assertThat(job.getError()).isNull();
+      assertStored(ROWS);
+   }
+
+   @Test
+   public void testDocumentsLimitOnResume() {
+      final ImportJob job = createJob();
+      final ImportTask task = createTask(job).setDocumentsLimit(ROWS, 0);
+      task.setParser(new RowsParser(ROWS, ImportTask.BATCH_SIZE + 1, job::cancel));
+      task.process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.CANCELLED);
+      assertThat(job.resume()).isTrue();
+
+      // the documents count already contains the rows inserted before
+      final ImportTask resumedTask = createTask(job).setDocumentsLimit(ROWS, job.getRowsInserted());
+      resumedTask.process();
+
+      assertThat(resumedTask.getFailure()).isNull();
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.COMPLETED);
+      assertStored(ROWS);
+   }
+
+   @Test
+   public void testDocumentsLimitOfCopy() {
+      final ImportJob job = createJob();
+      final ImportTask task = createTask(job).setDocumentsLimit(ROWS - 1, 0);
+      task.setParser(new RowsParser(ROWS, ImportTask.BATCH_SIZE + 1, job::cancel));
+      task.process();
+
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.CANCELLED);
+      assertThat(job.resume()).isTrue();
+
+      // the copy counts the rows inserted by the original task
+      final ImportTask copy = task.copy().setParser(new RowsParser(ROWS, 0, null));
+      copy.process();
+
+      assertThat(copy.getFailure()).isInstanceOf(ServiceLimitsExceededException.class);
+      assertThat(job.getStatus()).isEqualTo(ImportJob.Status.FAILED);
+      assertThat(job.getRowsInserted()).isLessThan(ROWS);
+   }
+
+   private void assertStored(final int rows) {
+      assertThat(storedDocuments).hasSize(rows);
+      assertThat(storedData.keySet()).hasSize(rows).containsExactlyInAnyOrderElementsOf(storedDocuments);
+      assertThat(new HashSet<>(storedData.values())).hasSize(rows);
+   }
+
+   private ImportJob createJob() {
+      return new ImportJob("job1", "user1", "project1", COLLECTION_ID, DocumentParser.FORMAT_CSV, null,
+            new String[] { "a1", "a2" }, ImportColumn.infer(Collections.emptyList(), 2));
+   }
+
+   private ImportTask createTask(final ImportJob job) {
+      final User user = new User("user1", "User", "user1@lumeer.io", null);
+      final ImportTask task = new ImportTask().setJob(job)
+                                              .setThreadFactory(Executors.defaultThreadFactory())
+                                              .setParser(new RowsParser(ROWS, 0, null));
+      task.initialize(user, daoContextSnapshot, null);
+
+      return task;
+   }
+
+   /**
+    * Generates the rows, optionally runs an action when parsing the given row.
+    */
+   private static class RowsParser extends DocumentParser {
+
+      private final int rows;
+      private final int actionRow;
+      private final Runnable action;
+      private int row = 0;
+
+      private RowsParser(final int rows, final int actionRow, final Runnable action) {
+         this.rows = rows;
+         this.actionRow = actionRow;
+         this.action = action;
+      }
+
+      @Override
+      public String[] getHeaders() {
+         return new String[] { "name", "value" };
+      }
+
+      @Override
+      protected Object[] parseNext() {
+         if (row >= rows) {
+            return null;
+         }
+         if (action != null && row == actionRow) {
+            action.run();
+         }
+
+         row++;
+         return new Object[] { "row" + row, String.valueOf(row) };
+      }
+
+      @Override
+      protected void closeParser() {
+      }
+   }
+}
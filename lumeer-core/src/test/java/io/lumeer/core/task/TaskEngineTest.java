@@ -0,0 +1,470 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.dao.TaskQueueDao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class TaskEngineTest {
+
+   private static final List<String> processed = new CopyOnWriteArrayList<>();
+   private static final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+
+   private final InMemoryTaskQueueDao taskQueueDao = new InMemoryTaskQueueDao();
+   private final List<String> initializedUsers = new CopyOnWriteArrayList<>();
+   private TaskEngine engine;
+
+   @Before
+   public void setUp() {
+      processed.clear();
+      attempts.clear();
+   }
+
+   @After
+   public void tearDown() {
+      if (engine != null) {
+         engine.stop();
+      }
+   }
+
+   private TaskEngine createEngine(final int workers) {
+      return createEngine(workers, null);
+   }
+
+   private TaskEngine createEngine(final int workers, final TaskTransport transport) {
+      engine = new TaskEngine(taskQueueDao, "node1", Executors.defaultThreadFactory(), workers, 20, 60_000, 10,
+            (queuedTask, task) -> initializedUsers.add(String.valueOf(queuedTask.getUserId())), transport);
+      return engine;
+   }
+
+   @Test
+   public void testPriorities() throws Exception {
+      createEngine(1);
+
+      final long runAt = System.currentTimeMillis() + 200;
+      engine.submit(new RecordingTask("low", Task.PRIORITY_LOW, 1, 0), runAt, null, null, null);
+      engine.submit(new RecordingTask("normal", Task.PRIORITY_NORMAL, 1, 0), runAt, null, null, null);
+      engine.submit(new RecordingTask("high", Task.PRIORITY_HIGH, 1, 0), runAt, null, null, null);
+
+      waitFor(() -> processed.size() == 3);
+      assertThat(processed).containsExactly("high", "normal", "low");
+      assertThat(taskQueueDao.countTasks()).containsEntry(QueuedTask.State.COMPLETED, 3L).containsEntry(QueuedTask.State.QUEUED, 0L);
+   }
+
+   @Test
+   public void testRetries() throws Exception {
+      createEngine(2);
+
+      final String id = engine.submit(new RecordingTask("flaky", Task.PRIORITY_NORMAL, 3, 2), System.currentTimeMillis(), "org", "project", "user");
+
+      waitFor(() -> taskQueueDao.getTask(id).getState() == QueuedTask.State.COMPLETED);
+      final QueuedTask queuedTask = taskQueueDao.getTask(id);
+      assertThat(queuedTask.getAttempts()).isEqualTo(3);
+      assertThat(queuedTask.getPayload()).isNull();
+      assertThat(processed).containsExactly("flaky");
+      assertThat(initializedUsers).containsExactly("user", "user", "user");
+      assertThat(engine.getMetrics()).containsEntry("retried", 2L).containsEntry("completed", 1L).containsEntry("failed", 0L);
+   }
+
+   @Test
+   public void testFailure() throws Exception {
+      createEngine(2);
+
+      final String id = engine.submit(new RecordingTask("broken", Task.PRIORITY_NORMAL, 2, 5), System.currentTimeMillis(), null, null, null);
+
+      waitFor(() -> taskQueueDao.getTask(id).getState() == QueuedTask.State.FAILED);
+      final QueuedTask queuedTask = taskQueueDao.getTask(id);
+      assertThat(queuedTask.getAttempts()).isEqualTo(2);
+      assertThat(queuedTask.getError()).contains("attempt 2 of broken failed");
+      assertThat(processed).isEmpty();
+      assertThat(engine.getMetrics()).containsEntry("retried", 1L).containsEntry("failed", 1L);
+   }
+
+   @Test
+   public void testError() throws Exception {
+      createEngine(1);
+
+      final String id = engine.submit(new ErrorTask(), System.currentTimeMillis(), null, null, null);
+      engine.submit(new RecordingTask("next", Task.PRIORITY_LOW, 1, 0), System.currentTimeMillis(), null, null, null);
+
+      waitFor(() -> processed.size() == 1);
+      final QueuedTask queuedTask = taskQueueDao.getTask(id);
+      assertThat(queuedTask.getState()).isEqualTo(QueuedTask.State.FAILED);
+      assertThat(queuedTask.getAttempts()).isEqualTo(1);
+      assertThat(queuedTask.getError()).contains("missing class");
+      assertThat(processed).containsExactly("next");
+      assertThat(engine.getMetrics()).containsEntry("retried", 0L).containsEntry("failed", 1L).containsEntry("completed", 1L);
+   }
+
+   @Test
+   public void testDelayedTask() throws Exception {
+      createEngine(1);
+
+      final long runAt = System.currentTimeMillis() + 300;
+      final String id = engine.submit(new RecordingTask("delayed", Task.PRIORITY_NORMAL, 1, 0), runAt, null, null, null);
+
+      waitFor(() -> processed.size() == 1);
+      assertThat(taskQueueDao.getTask(id).getStartedAt()).isGreaterThanOrEqualTo(runAt);
+   }
+
+   @Test
+   public void testLocalTask() throws Exception {
+      createEngine(1);
+
+      final Object lock = new Object();
+      final String id = engine.submit(new LocalTask(lock), System.currentTimeMillis(), null, null, null);
+
+      waitFor(() -> processed.size() == 1);
+      assertThat(processed).containsExactly("local");
+      assertThat(taskQueueDao.getTask(id).getState()).isEqualTo(QueuedTask.State.COMPLETED);
+      assertThat(initializedUsers).containsExactly("null");
+   }
+
+   @Test
+   public void testLostLocalTask() throws Exception {
+      final QueuedTask lost = new QueuedTask();
+      lost.setId(UUID.randomUUID().toString());
+      lost.setType(LocalTask.class.getName());
+      lost.setMaxAttempts(1);
+      lost.setState(QueuedTask.State.QUEUED);
+      lost.setOwner("node2");
+      lost.setLeaseUntil(System.currentTimeMillis() - 1);
+      taskQueueDao.createTask(lost);
+
+      createEngine(1);
+
+      waitFor(() -> taskQueueDao.getTask(lost.getId()).getState() == QueuedTask.State.FAILED);
+      assertThat(taskQueueDao.getTask(lost.getId()).getError()).contains("lost");
+   }
+
+   @Test
+   public void testTransport() throws Exception {
+      final List<QueuedTask> sent = new CopyOnWriteArrayList<>();
+      final List<Long> delays = new CopyOnWriteArrayList<>();
+      createEngine(1, new TaskTransport() {
+         @Override
+         public boolean start() {
+            return true;
+         }
+
+         @Override
+         public void send(final QueuedTask task, final long delay) {
+            sent.add(task);
+            delays.add(delay);
+         }
+
+         @Override
+         public void stop() {
+         }
+      });
+
+      engine.submit(new RecordingTask("dispatched", Task.PRIORITY_HIGH, 2, 1), System.currentTimeMillis(), "org", "project", "user");
+      assertThat(sent).hasSize(1);
+      assertThat(sent.get(0).getPriority()).isEqualTo(Task.PRIORITY_HIGH);
+      assertThat(sent.get(0).getPayload()).isNotEmpty();
+
+      engine.processDispatched(sent.get(0));
+      assertThat(sent).hasSize(2);
+      assertThat(sent.get(1).getAttempts()).isEqualTo(1);
+      assertThat(sent.get(1).getError()).contains("attempt 1 of dispatched failed");
+      assertThat(delays.get(1)).isEqualTo(10L);
+
+      engine.processDispatched(sent.get(1));
+      assertThat(sent).hasSize(2);
+      assertThat(processed).containsExactly("dispatched");
+      assertThat(initializedUsers).containsExactly("user", "user");
+
+      // local tasks stay in the queue of this node
+      final String id = engine.submit(new LocalTask(new Object()), System.currentTimeMillis(), null, null, null);
+      waitFor(() -> processed.size() == 2);
+      assertThat(sent).hasSize(2);
+      assertThat(taskQueueDao.getTask(id).getState()).isEqualTo(QueuedTask.State.COMPLETED);
+
+      assertThat(engine.getMetrics()).containsEntry("submitted", 2L).containsEntry("dispatched", 1L).containsEntry("retried", 1L).containsEntry("completed", 2L);
+   }
+
+   @Test
+   public void testTransportFailure() throws Exception {
+      final AtomicInteger sendAttempts = new AtomicInteger();
+      createEngine(1, new TaskTransport() {
+         @Override
+         public boolean start() {
+            return true;
+         }
+
+         @Override
+         public void send(final QueuedTask task, final long delay) {
+            sendAttempts.incrementAndGet();
+            throw new IllegalStateException("broker is down");
+         }
+
+         @Override
+         public void stop() {
+         }
+      });
+
+      final String id = engine.submit(new RecordingTask("fallback", Task.PRIORITY_NORMAL, 1, 0), System.currentTimeMillis(), null, null, null);
+
+      waitFor(() -> processed.size() == 1);
+      assertThat(sendAttempts.get()).isEqualTo(1);
+      assertThat(taskQueueDao.getTask(id).getState()).isEqualTo(QueuedTask.State.COMPLETED);
+      assertThat(engine.getMetrics()).containsEntry("submitted", 1L).containsEntry("dispatched", 0L);
+
+      // a dispatched task whose retry cannot be sent is retried from the queue
+      final QueuedTask dispatched = new QueuedTask();
+      dispatched.setId(UUID.randomUUID().toString());
+      dispatched.setType(RecordingTask.class.getName());
+      dispatched.setMaxAttempts(2);
+      dispatched.setPayload(TaskEngine.serialize(new RecordingTask("retried", Task.PRIORITY_NORMAL, 2, 1)));
+
+      engine.processDispatched(dispatched);
+      waitFor(() -> processed.size() == 2);
+      assertThat(processed).containsExactly("fallback", "retried");
+      assertThat(taskQueueDao.getTask(dispatched.getId()).getAttempts()).isEqualTo(2);
+   }
+
+   @Test
+   public void testRedeliveredLastAttempt() throws Exception {
+      createEngine(1);
+
+      final QueuedTask redelivered = new QueuedTask();
+      redelivered.setId(UUID.randomUUID().toString());
+      redelivered.setType(RecordingTask.class.getName());
+      redelivered.setMaxAttempts(2);
+      redelivered.setAttempts(2);
+      redelivered.setPayload(TaskEngine.serialize(new RecordingTask("redelivered", Task.PRIORITY_NORMAL, 2, 0)));
+
+      engine.processDispatched(redelivered);
+      assertThat(processed).isEmpty();
+      assertThat(engine.getMetrics()).containsEntry("failed", 1L).containsEntry("started", 0L);
+   }
+
+   @Test
+   public void testSerialization() throws Exception {
+      final RecordingTask task = (RecordingTask) TaskEngine.deserialize(TaskEngine.serialize(new RecordingTask("task", Task.PRIORITY_HIGH, 2, 0)));
+      assertThat(task.name).isEqualTo("task");
+      assertThat(task.getPriority()).isEqualTo(Task.PRIORITY_HIGH);
+      assertThat(task.getMaxAttempts()).isEqualTo(2);
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNonSerializableTask() {
+      TaskEngine.serialize(new LocalTask(new Object()));
+   }
+
+   private static void waitFor(final Supplier<Boolean> condition) throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + 10_000;
+      while (!condition.get() && System.currentTimeMillis() < deadline) {
+         Thread.sleep(20);
+      }
+   }
+
+   public static class RecordingTask implements Task {
+
+      private final String name;
+      private final int priority;
+      private final int maxAttempts;
+      private final int failures;
+
+      public RecordingTask(final String name, final int priority, final int maxAttempts, final int failures) {
+         this.name = name;
+         this.priority = priority;
+         this.maxAttempts = maxAttempts;
+         this.failures = failures;
+      }
+
+      @Override
+      public int getPriority() {
+         return priority;
+      }
+
+      @Override
+      public int getMaxAttempts() {
+         return maxAttempts;
+      }
+
+      @Override
+      public void process() {
+         final int attempt = attempts.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+         if (attempt <= failures) {
+            throw new IllegalStateException("attempt " + attempt + " of " + name + " failed");
+         }
+         processed.add(name);
+      }
+   }
+
+   public static class ErrorTask implements Task {
+
+      @Override
+      public int getPriority() {
+         return PRIORITY_HIGH;
+      }
+
+      @Override
+      public int getMaxAttempts() {
+         return 3;
+      }
+
+      @Override
+      public void process() {
+         throw new NoClassDefFoundError("missing class");
+      }
+   }
+
+   public static class LocalTask implements Task {
+
+      private final Object lock;
+
+      public LocalTask(final Object lock) {
+         this.lock = lock;
+      }
+
+      @Override
+      public boolean isLocal() {
+         return true;
+      }
+
+      @Override
+      public void process() {
+         synchronized (lock) {
+            processed.add("local");
+         }
+      }
+   }
+
+   /**
+    * Keeps the tasks in memory with the lease semantics of the database implementation.
+    */
+   private static class InMemoryTaskQueueDao implements TaskQueueDao {
+
+      private final Map<String, QueuedTask> tasks = new ConcurrentHashMap<>();
+
+      @Override
+      public void createTaskQueueRepository() {
+      }
+
+      @Override
+      public QueuedTask createTask(final QueuedTask task) {
+         tasks.put(task.getId(), task);
+         return task;
+      }
+
+      @Override
+      public QueuedTask getTask(final String taskId) {
+         return tasks.get(taskId);
+      }
+
+      @Override
+      public synchronized QueuedTask leaseTask(final String nodeId, final long leaseDuration) {
+         final long now = System.currentTimeMillis();
+         final Optional<QueuedTask> leased = tasks.values().stream()
+                                                  .filter(task -> isDue(task, nodeId, now) || isExpired(task, now))
+                                                  .min(Comparator.comparing(QueuedTask::getPriority).reversed().thenComparing(QueuedTask::getRunAt));
+         leased.ifPresent(task -> {
+            task.setState(QueuedTask.State.RUNNING);
+            task.setOwner(nodeId);
+            task.setLeaseUntil(now + leaseDuration);
+            task.setStartedAt(now);
+            task.setAttempts(task.getAttempts() + 1);
+         });
+
+         return leased.orElse(null);
+      }
+
+      private boolean isDue(final QueuedTask task, final String nodeId, final long now) {
+         return task.getState() == QueuedTask.State.QUEUED && task.getRunAt() <= now && (task.getOwner() == null || task.getOwner().equals(nodeId));
+      }
+
+      private boolean isExpired(final QueuedTask task, final long now) {
+         return (task.getState() == QueuedTask.State.QUEUED || task.getState() == QueuedTask.State.RUNNING) && task.getLeaseUntil() != null && task.getLeaseUntil() < now;
+      }
+
+      @Override
+      public synchronized long renewLeases(final String nodeId, final Set<String> taskIds, final long leaseDuration) {
+         return tasks.values().stream().filter(task -> taskIds.contains(task.getId()) && nodeId.equals(task.getOwner()) && task.getFinishedAt() == null)
+                     .peek(task -> task.setLeaseUntil(System.currentTimeMillis() + leaseDuration)).count();
+      }
+
+      @Override
+      public synchronized boolean retryTask(final String taskId, final String nodeId, final long runAt, final String error, final boolean keepLease) {
+         final QueuedTask task = getLeasedTask(taskId, nodeId);
+         if (task == null) {
+            return false;
+         }
+
+         task.setState(QueuedTask.State.QUEUED);
+         task.setRunAt(runAt);
+         task.setError(error);
+         if (!keepLease) {
+            task.setOwner(null);
+            task.setLeaseUntil(null);
+         }
+         return true;
+      }
+
+      @Override
+      public synchronized boolean finishTask(final String taskId, final String nodeId, final QueuedTask.State state, final String error) {
+         final QueuedTask task = getLeasedTask(taskId, nodeId);
+         if (task == null) {
+            return false;
+         }
+
+         task.setState(state);
+         task.setFinishedAt(System.currentTimeMillis());
+         task.setError(error);
+         task.setOwner(null);
+         task.setLeaseUntil(null);
+         task.setPayload(null);
+         return true;
+      }
+
+      private QueuedTask getLeasedTask(final String taskId, final String nodeId) {
+         final QueuedTask task = tasks.get(taskId);
+         return task != null && nodeId.equals(task.getOwner()) && task.getState() == QueuedTask.State.RUNNING ? task : null;
+      }
+
+      @Override
+      public Map<QueuedTask.State, Long> countTasks() {
+         final Map<QueuedTask.State, Long> counts = new EnumMap<>(QueuedTask.State.class);
+         Arrays.stream(QueuedTask.State.values()).forEach(state -> counts.put(state, tasks.values().stream().filter(task -> Objects.equals(task.getState(), state)).count()));
+         return counts;
+      }
+   }
+}
@@ -0,0 +1,103 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.User;
+import io.lumeer.engine.api.event.CreateOrUpdateUser;
+import io.lumeer.engine.api.event.UpdateDocument;
+import io.lumeer.engine.api.event.UpdateLinkType;
+import io.lumeer.engine.api.event.UpdateResource;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ClusterEventCodecTest {
+
+   private final ClusterEventCodec codec = new ClusterEventCodec();
+
+   @Test
+   public void testUserEvent() throws IOException {
+      final User user = new User("u1", "name", "user@lumeer.io", Map.of("o1", Set.of("g1")));
+
+      final ClusterEventCodec.Message message = codec.decode(codec.encode("node1", new CreateOrUpdateUser("o1", user)));
+
+      assertThat(message.getNodeId()).isEqualTo("node1");
+      assertThat(message.getEvent()).isInstanceOf(CreateOrUpdateUser.class);
+      final CreateOrUpdateUser decoded = (CreateOrUpdateUser) message.getEvent();
+      assertThat(decoded.getOrganizationId()).isEqualTo("o1");
+      assertThat(decoded.getUser().getId()).isEqualTo("u1");
+      assertThat(decoded.getUser().getEmail()).isEqualTo("user@lumeer.io");
+      assertThat(decoded.getUser().getGroups()).containsEntry("o1", Set.of("g1"));
+   }
+
+   @Test
+   public void testResourceEvent() throws IOException {
+      final Collection collection = new Collection("CODE", "name", "icon", "color", new Permissions());
+      collection.setId("c1");
+      final Collection original = new Collection("CODE", "old name", "icon", "color", new Permissions());
+      original.setId("c1");
+
+      final UpdateResource decoded = (UpdateResource) codec.decode(codec.encode("node1", new UpdateResource(collection, original))).getEvent();
+
+      assertThat(decoded.getResource()).isInstanceOf(Collection.class);
+      assertThat(decoded.getResource().getName()).isEqualTo("name");
+      assertThat(decoded.getOriginalResource()).isInstanceOf(Collection.class);
+      assertThat(decoded.getOriginalResource().getName()).isEqualTo("old name");
+   }
+
+   @Test
+   public void testGroupMembersChange() throws IOException {
+      final ClusterEventCodec.Message message = codec.decode(codec.encode("node1", new ClusterEventCodec.GroupMembersChange("o1")));
+
+      assertThat(message.getEvent()).isInstanceOf(ClusterEventCodec.GroupMembersChange.class);
+      assertThat(((ClusterEventCodec.GroupMembersChange) message.getEvent()).getOrganizationId()).isEqualTo("o1");
+   }
+
+   @Test
+   public void testCompressedPushFrame() throws IOException {
+      final StringBuilder json = new StringBuilder("[");
+      for (int i = 0; i < 200; i++) {
+         json.append(i > 0 ? "," : "").append("{\"id\":").append(i).append("}");
+      }
+      json.append("]");
+
+      final byte[] message = codec.encode("node1", new ClusterEventCodec.PushFrame(List.of("private-u1", "private-u2"), "Document:update", json.toString()));
+      assertThat(message.length).isLessThan(json.length());
+
+      final ClusterEventCodec.PushFrame decoded = (ClusterEventCodec.PushFrame) codec.decode(message).getEvent();
+      assertThat(decoded.getChannels()).containsExactly("private-u1", "private-u2");
+      assertThat(decoded.getEvent()).isEqualTo("Document:update");
+      assertThat(decoded.getJson()).isEqualTo(json.toString());
+   }
+
+   @Test
+   public void testUnsupportedEvent() {
+      assertThat(codec.supports(String.class)).isFalse();
+      assertThat(codec.supports(UpdateDocument.class)).isFalse();
+      assertThat(codec.supports(UpdateLinkType.class)).isTrue();
+   }
+}
@@ -0,0 +1,74 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+public class CsvDocumentParserTest {
+
+   @Test
+   public void testParseRows() {
+      final int[] counts = new int[3];
+      final String[] attributeIds = { "a1", "a2", "a3" };
+
+      try (CsvDocumentParser parser = new CsvDocumentParser(new StringReader("h1;h2;h3\na;b;c\n;e;\n"))) {
+         assertThat(parser.getHeaders()).containsExactly("h1", "h2", "h3");
+
+         final DataDocument first = parser.nextRow(attributeIds, counts);
+         assertThat(first).containsEntry("a1", "a").containsEntry("a2", "b").containsEntry("a3", "c");
+
+         final DataDocument second = parser.nextRow(attributeIds, counts);
+         assertThat(second).containsOnlyKeys("a2");
+
+         assertThat(parser.nextRow(attributeIds, counts)).isNull();
+      }
+
+      assertThat(counts).containsExactly(1, 2, 1);
+   }
+
+   @Test
+   public void testSampleDoesNotConsumeRows() {
+      final String[] attributeIds = { "a1" };
+      final int[] counts = new int[1];
+
+      try (CsvDocumentParser parser = new CsvDocumentParser(new StringReader("h1\n1\n2\n3\n"))) {
+         assertThat(parser.sample(2)).hasSize(2);
+         assertThat(parser.sample(5)).hasSize(3);
+
+         assertThat(parser.nextRow(attributeIds, counts)).containsEntry("a1", "1");
+         assertThat(parser.nextRow(attributeIds, counts)).containsEntry("a1", "2");
+         assertThat(parser.nextRow(attributeIds, counts)).containsEntry("a1", "3");
+         assertThat(parser.nextRow(attributeIds, counts)).isNull();
+      }
+   }
+
+   @Test
+   public void testEmptyData() {
+      try (CsvDocumentParser parser = new CsvDocumentParser(new StringReader(""))) {
+         assertThat(parser.getHeaders()).isEmpty();
+         assertThat(parser.nextRow(new String[0], new int[0])).isNull();
+      }
+   }
+}
@@ -0,0 +1,98 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Date;
+
+public class DocumentWriterTest {
+
+   private static final String[] HEADERS = { "name", "count", "created", "tags" };
+   private static final String[] IDS = { "a1", "a2", "a3", "a4" };
+   private static final Date DATE = new Date(1500000000000L);
+
+   private byte[] write(final String format) throws IOException {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      try (DocumentWriter writer = DocumentWriter.open(format, output, HEADERS)) {
+         writer.writeRow(new Object[] { "Alice, \"A\"", 42L, DATE, Collections.singletonList("x") });
+         writer.writeRow(new Object[] { null, 1.5, null, null });
+      }
+
+      return output.toByteArray();
+   }
+
+   @Test
+   public void testCsv() throws IOException {
+      final String csv = new String(write(DocumentParser.FORMAT_CSV), StandardCharsets.UTF_8);
+
+      try (DocumentParser parser = DocumentParser.open(DocumentParser.FORMAT_CSV, new StringReader(csv))) {
+         assertThat(parser.getHeaders()).containsExactly(HEADERS);
+         assertThat(parser.nextRow(IDS, new int[4])).isEqualTo(new DataDocument("a1", "Alice, \"A\"").append("a2", "42")
+                                                                                                .append("a3", "2017-07-14T02:40:00Z").append("a4", "[\"x\"]"));
+         assertThat(parser.nextRow(IDS, new int[4])).isEqualTo(new DataDocument("a2", "1.5"));
+         assertThat(parser.nextRow(IDS, new int[4])).isNull();
+      }
+   }
+
+   @Test
+   public void testJsonLines() throws IOException {
+      final String json = new String(write(DocumentParser.FORMAT_JSON_LINES), StandardCharsets.UTF_8);
+
+      assertThat(json).isEqualTo("{\"name\":\"Alice, \\\"A\\\"\",\"count\":42,\"created\":\"2017-07-14T02:40:00Z\",\"tags\":[\"x\"]}\n{\"count\":1.5}\n");
+   }
+
+   @Test
+   public void testXlsx() throws IOException {
+      final Path file = Files.createTempFile("lumeer-test", ".xlsx");
+      try {
+         Files.write(file, write(DocumentParser.FORMAT_XLSX));
+
+         try (DocumentParser parser = DocumentParser.open(DocumentParser.FORMAT_XLSX, file)) {
+            assertThat(parser.getHeaders()).containsExactly(HEADERS);
+            assertThat(parser.nextRow(IDS, new int[4])).isEqualTo(new DataDocument("a1", "Alice, \"A\"").append("a2", "42")
+                                                                                                   .append("a3", "2017-07-14T02:40:00Z").append("a4", "[\"x\"]"));
+            assertThat(parser.nextRow(IDS, new int[4])).isEqualTo(new DataDocument("a2", "1.5"));
+            assertThat(parser.nextRow(IDS, new int[4])).isNull();
+         }
+      } finally {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   @Test
+   public void testXlsxColumnNames() {
+      assertThat(XlsxDocumentWriter.columnName(0)).isEqualTo("A");
+      assertThat(XlsxDocumentWriter.columnName(25)).isEqualTo("Z");
+      assertThat(XlsxDocumentWriter.columnName(26)).isEqualTo("AA");
+      assertThat(XlsxDocumentWriter.columnName(701)).isEqualTo("ZZ");
+      assertThat(XlsxDocumentWriter.columnName(702)).isEqualTo("AAA");
+   }
+}
@@ -0,0 +1,86 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.ConstraintType;
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+public class ImportColumnTest {
+
+   @Test
+   public void testInferNumbers() {
+      final ImportColumn column = ImportColumn.infer(Arrays.asList("1", "-20", "3.5"));
+
+      assertThat(column.getType()).isEqualTo(ConstraintType.Number);
+      assertThat(column.encode("42")).isEqualTo(42L);
+      assertThat(column.encode("4.25")).isEqualTo(4.25);
+      assertThat(column.encode("n/a")).isEqualTo("n/a");
+   }
+
+   @Test
+   public void testLeadingZerosAreText() {
+      assertThat(ImportColumn.infer(Arrays.asList("01234", "12345", "99999")).getType()).isEqualTo(ConstraintType.Text);
+   }
+
+   @Test
+   public void testInferDates() {
+      final ImportColumn column = ImportColumn.infer(Arrays.asList("2018-10-01", "2018-12-31"));
+
+      assertThat(column.getType()).isEqualTo(ConstraintType.DateTime);
+      assertThat(column.getConstraint().getConfig()).isEqualTo(new DataDocument("format", "YYYY-MM-DD"));
+      assertThat(column.encode("2018-02-01")).isEqualTo(new Date(1517443200000L));
+      assertThat(column.encode("2018-02-30")).isEqualTo("2018-02-30");
+
+      assertThat(ImportColumn.infer(Arrays.asList("1.2.2018", "24.12.2018")).getType()).isEqualTo(ConstraintType.DateTime);
+   }
+
+   @Test
+   public void testInferSelect() {
+      assertThat(ImportColumn.infer(Arrays.asList("open", "closed", "open", "open")).getType()).isEqualTo(ConstraintType.Select);
+      assertThat(ImportColumn.infer(Arrays.asList("open", "closed", "new")).getType()).isEqualTo(ConstraintType.Text);
+      assertThat(ImportColumn.infer(Collections.emptyList()).getConstraint()).isNull();
+   }
+
+   @Test
+   public void testInferColumns() {
+      final ImportColumn[] columns = ImportColumn.infer(Arrays.asList(new String[] { "1", "x" }, new String[] { "2" }), 2);
+
+      assertThat(columns[0].getType()).isEqualTo(ConstraintType.Number);
+      assertThat(columns[1].getType()).isEqualTo(ConstraintType.Text);
+   }
+
+   @Test
+   public void testInferNativeColumns() {
+      final ImportColumn[] columns = ImportColumn.infer(Arrays.asList(new Object[] { 1, true, "x", 1 }, new Object[] { 2.5, false, null, "1" }), 4);
+
+      assertThat(columns[0].getType()).isEqualTo(ConstraintType.Number);
+      assertThat(columns[1].getType()).isEqualTo(ConstraintType.Boolean);
+      assertThat(columns[1].getConstraint().getType()).isEqualTo(ConstraintType.Boolean);
+      assertThat(columns[2].getType()).isEqualTo(ConstraintType.Text);
+      assertThat(columns[3].getType()).isEqualTo(ConstraintType.Text);
+   }
+}
@@ -0,0 +1,75 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ImportPipelineTest {
+
+   @Test
+   public void testAllBatchesWritten() throws InterruptedException {
+      final Set<String> written = ConcurrentHashMap.newKeySet();
+      final Set<Long> batches = ConcurrentHashMap.newKeySet();
+
+      final ImportPipeline<Integer, String> pipeline = new ImportPipeline<>(Executors.defaultThreadFactory(), 2, 3, 2,
+            String::valueOf, (batchIndex, items) -> {
+         batches.add(batchIndex);
+         written.addAll(items);
+      });
+      pipeline.start();
+
+      for (int i = 0; i < 100; i++) {
+         final int first = i * 10;
+         assertThat(pipeline.submit(i, IntStream.range(first, first + 10).boxed().collect(Collectors.toList()))).isTrue();
+      }
+      pipeline.finish();
+
+      assertThat(batches).hasSize(100);
+      assertThat(written).hasSize(1000).contains("0", "999");
+   }
+
+   @Test
+   public void testWriterFailure() throws InterruptedException {
+      final ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(Executors.defaultThreadFactory(), 1, 1, 1,
+            i -> i, (batchIndex, items) -> {
+         throw new IllegalArgumentException("write failed");
+      });
+      pipeline.start();
+
+      final List<Boolean> accepted = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+         accepted.add(pipeline.submit(i, Arrays.asList(i)));
+      }
+
+      assertThat(accepted).contains(false);
+      assertThatThrownBy(pipeline::finish).isInstanceOf(IllegalArgumentException.class).hasMessage("write failed");
+   }
+}
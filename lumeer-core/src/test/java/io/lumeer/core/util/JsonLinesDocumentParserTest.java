@@ -0,0 +1,112 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+public class JsonLinesDocumentParserTest {
+
+   private static final String DATA = "{\"name\": \"Alice\", \"age\": 30}\n"
+         + "\n"
+         + "{\"name\": \"Bob\", \"tags\": [\"a\", \"b\"], \"address\": {\"city\": \"Brno\"}}\n"
+         + "{\"name\": null, \"age\": 7.5, \"active\": true}\n";
+
+   private Path file;
+
+   @After
+   public void deleteFile() throws IOException {
+      if (file != null) {
+         Files.delete(file);
+      }
+   }
+
+   private JsonLinesDocumentParser open(final String data) throws IOException {
+      file = Files.createTempFile("lumeer-test", ".jsonl");
+      Files.write(file, data.getBytes(StandardCharsets.UTF_8));
+      return new JsonLinesDocumentParser(file);
+   }
+
+   @Test
+   public void testHeadersAreUnionOfKeys() throws IOException {
+      try (JsonLinesDocumentParser parser = open(DATA)) {
+         assertThat(parser.getHeaders()).containsExactly("name", "age", "tags", "address", "active");
+      }
+   }
+
+   @Test
+   public void testNextRow() throws IOException {
+      try (JsonLinesDocumentParser parser = open(DATA)) {
+         final String[] ids = { "a1", "a2", "a3", "a4", "a5" };
+         final int[] counts = new int[ids.length];
+
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a1", "Alice").append("a2", 30));
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a1", "Bob").append("a3", Arrays.asList("a", "b"))
+                                                                                         .append("a4", Map.of("city", "Brno")));
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a2", 7.5).append("a5", true));
+         assertThat(parser.nextRow(ids, counts)).isNull();
+         assertThat(counts).containsExactly(2, 2, 1, 1, 1);
+      }
+   }
+
+   @Test
+   public void testLateKeys() throws IOException {
+      final StringBuilder data = new StringBuilder();
+      for (int i = 0; i < 1000; i++) {
+         data.append("{\"id\": ").append(i).append("}\n");
+      }
+      data.append("{\"id\": -1, \"late\": \"x\"}\n");
+
+      try (JsonLinesDocumentParser parser = open(data.toString())) {
+         assertThat(parser.getHeaders()).containsExactly("id", "late");
+
+         final String[] ids = { "a1", "a2" };
+         final int[] counts = new int[ids.length];
+         DataDocument row = null;
+         for (int i = 0; i <= 1000; i++) {
+            row = parser.nextRow(ids, counts);
+         }
+
+         assertThat(row).isEqualTo(new DataDocument("a1", -1).append("a2", "x"));
+         assertThat(parser.nextRow(ids, counts)).isNull();
+         assertThat(counts).containsExactly(1001, 1);
+      }
+   }
+
+   @Test
+   public void testValuesThatCannotBeStored() throws IOException {
+      try (JsonLinesDocumentParser parser = open("{\"big\": 123456789012345678901234567890, \"nested\": {\"a.b\": 1}}\n")) {
+         final String[] ids = { "a1", "a2" };
+
+         assertThat(parser.nextRow(ids, new int[ids.length]))
+               .isEqualTo(new DataDocument("a1", "123456789012345678901234567890").append("a2", "{\"a.b\":1}"));
+      }
+   }
+}
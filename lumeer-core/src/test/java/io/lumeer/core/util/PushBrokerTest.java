@@ -0,0 +1,156 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.dao.PushTicketDao;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PushBrokerTest {
+
+   private static class TestPushTicketDao implements PushTicketDao {
+
+      private final Map<String, String> tickets = new HashMap<>();
+
+      @Override
+      public void createPushTicketRepository() {
+      }
+
+      @Override
+      public void createTicket(final String ticket, final String userId, final long expiresAt) {
+         tickets.put(ticket, userId);
+      }
+
+      @Override
+      public String getTicketUser(final String ticket) {
+         return tickets.get(ticket);
+      }
+
+      @Override
+      public String consumeTicket(final String ticket) {
+         return tickets.remove(ticket);
+      }
+   }
+
+   private static class TestConnection extends PushConnection {
+
+      private final List<String> sent = new ArrayList<>();
+      private CloseCause closeCause;
+
+      private TestConnection(final String userId, final int bufferSize) {
+         super(userId, bufferSize);
+      }
+
+      @Override
+      protected void sendText(final String message) {
+         sent.add(message);
+      }
+
+      @Override
+      protected void close(final CloseCause cause) {
+         closeCause = cause;
+      }
+   }
+
+   @Test
+   public void testTickets() {
+      final PushBroker broker = new PushBroker(new TestPushTicketDao());
+      final String ticket = broker.createTicket("user1");
+
+      assertThat(broker.isTicketValid(null)).isFalse();
+      assertThat(broker.isTicketValid("invalid")).isFalse();
+      assertThat(broker.isTicketValid(ticket)).isTrue();
+      assertThat(broker.consumeTicket("invalid")).isNull();
+      assertThat(broker.consumeTicket(ticket)).isEqualTo("user1");
+      assertThat(broker.isTicketValid(ticket)).isFalse();
+      assertThat(broker.consumeTicket(ticket)).isNull();
+   }
+
+   @Test
+   public void testPublishToChannel() {
+      final PushBroker broker = new PushBroker();
+      final TestConnection connection1 = new TestConnection("user1", 10);
+      final TestConnection connection2 = new TestConnection("user2", 10);
+      broker.register(connection1);
+      broker.register(connection2);
+
+      broker.publish("private-user1", "Document:update", new PushPayload(1));
+      connection1.sendCompleted(null);
+      broker.publish("private-user1", "Document:remove", new PushPayload(2));
+
+      assertThat(connection1.sent).containsExactly("{\"channel\":\"private-user1\",\"event\":\"Document:update\",\"data\":1}",
+            "{\"channel\":\"private-user1\",\"event\":\"Document:remove\",\"data\":2}");
+      assertThat(connection2.sent).isEmpty();
+
+      broker.unregister(connection1);
+      broker.unregister(connection2);
+      assertThat(broker.hasConnections()).isFalse();
+   }
+
+   @Test
+   public void testPublishToChannels() {
+      final PushBroker broker = new PushBroker();
+      final TestConnection connection1 = new TestConnection("user1", 10);
+      final TestConnection connection2 = new TestConnection("user2", 10);
+      broker.register(connection1);
+      broker.register(connection2);
+
+      broker.publish(List.of("private-user1", "private-user2", "private-user3"), "Document:update", new PushPayload(1));
+
+      assertThat(connection1.sent).containsExactly("{\"channel\":\"private-user1\",\"event\":\"Document:update\",\"data\":1}");
+      assertThat(connection2.sent).containsExactly("{\"channel\":\"private-user2\",\"event\":\"Document:update\",\"data\":1}");
+   }
+
+   @Test
+   public void testSlowConsumer() {
+      final PushBroker broker = new PushBroker();
+      final TestConnection connection = new TestConnection("user1", 2);
+      broker.register(connection);
+
+      for (int i = 0; i < 4; i++) {
+         broker.publish("private-user1", "Document:update", new PushPayload(i));
+      }
+
+      assertThat(connection.sent).hasSize(1);
+      assertThat(connection.closeCause).isEqualTo(PushConnection.CloseCause.SLOW_CONSUMER);
+      assertThat(broker.hasConnections()).isFalse();
+      assertThat(broker.getMetrics()).containsEntry("slowConsumers", 1L);
+   }
+
+   @Test
+   public void testFailedSend() {
+      final TestConnection connection = new TestConnection("user1", 10);
+      assertThat(connection.send("1")).isTrue();
+      assertThat(connection.send("2")).isTrue();
+
+      connection.sendCompleted(new IllegalStateException("Broken pipe"));
+
+      assertThat(connection.sent).containsExactly("1");
+      assertThat(connection.closeCause).isEqualTo(PushConnection.CloseCause.SEND_FAILED);
+      assertThat(connection.isClosed()).isTrue();
+      assertThat(connection.send("3")).isFalse();
+   }
+}
@@ -0,0 +1,171 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.After;
+import org.junit.Test;
+import org.marvec.pusher.data.Event;
+import org.marvec.pusher.data.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+public class PushDispatcherTest {
+
+   private final List<List<Event>> batches = new CopyOnWriteArrayList<>();
+   private PushDispatcher dispatcher;
+
+   private PushDispatcher createDispatcher(final int capacity, final long coalesceWindow, final PushDispatcher.OverflowPolicy policy) {
+      final PusherClient pusherClient = mock(PusherClient.class);
+      when(pusherClient.trigger(anyList())).thenAnswer(invocation -> {
+         final List<Event> batch = new ArrayList<>(invocation.getArgument(0));
+         if (batch.stream().anyMatch(event -> "fail".equals(event.getData()))) {
+            throw new IllegalStateException("Pusher unavailable");
+         }
+         batches.add(batch);
+         return Result.fromHttpCode(200, "{}");
+      });
+
+      dispatcher = new PushDispatcher(pusherClient, Executors.defaultThreadFactory(), capacity, 2, coalesceWindow, policy, 10);
+      return dispatcher;
+   }
+
+   @After
+   public void tearDown() {
+      if (dispatcher != null) {
+         dispatcher.shutdown();
+      }
+   }
+
+   @Test
+   public void testBatchesAndCoalescing() throws Exception {
+      createDispatcher(1000, 100, PushDispatcher.OverflowPolicy.BLOCK);
+
+      for (int i = 0; i < 25; i++) {
+         dispatcher.submit(new Event("private-user1", "Document:create", i));
+      }
+      for (int i = 0; i < 5; i++) {
+         dispatcher.submit(new Event("private-user2", "Document:update", i), "private-user2Document:updatedoc1");
+      }
+
+      waitForMetric("sent", 26);
+
+      assertThat(batches).allMatch(batch -> batch.size() <= PushDispatcher.MAX_BATCH_SIZE);
+      assertThat(dispatcher.getMetrics()).containsEntry("submitted", 30L).containsEntry("coalesced", 4L).containsEntry("sent", 26L);
+
+      final List<Object> user1Data = new ArrayList<>();
+      final List<Object> user2Data = new ArrayList<>();
+      batches.forEach(batch -> batch.forEach(event -> (event.getChannel().equals("private-user1") ? user1Data : user2Data).add(event.getData())));
+      assertThat(user1Data).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24);
+      assertThat(user2Data).containsExactly(4);
+   }
+
+   @Test
+   public void testDropWhenFull() {
+      createDispatcher(3, 10_000, PushDispatcher.OverflowPolicy.DROP);
+
+      for (int i = 0; i < 5; i++) {
+         dispatcher.submit(new Event("private-user1", "Document:update", i), "private-user1Document:updatedoc" + i);
+      }
+
+      assertThat(dispatcher.getMetrics()).containsEntry("dropped", 2L).containsEntry("queued", 3L);
+   }
+
+   @Test
+   public void testImmediateEvent() throws Exception {
+      createDispatcher(1000, 10_000, PushDispatcher.OverflowPolicy.BLOCK);
+
+      final long start = System.currentTimeMillis();
+      dispatcher.submit(new Event("private-user1", "Document:create", 1));
+      waitForMetric("sent", 1);
+
+      assertThat(System.currentTimeMillis() - start).isLessThan(5_000);
+      assertThat(dispatcher.getMetrics()).containsEntry("sent", 1L);
+   }
+
+   @Test
+   public void testImmediateEventFlushesChannel() throws Exception {
+      createDispatcher(1000, 10_000, PushDispatcher.OverflowPolicy.BLOCK);
+
+      dispatcher.submit(new Event("private-user1", "Document:update", 1), "private-user1Document:updatedoc1");
+      dispatcher.submit(new Event("private-user1", "Document:remove", 2));
+      waitForMetric("sent", 2);
+
+      assertThat(channelData("private-user1")).containsExactly(1, 2);
+   }
+
+   @Test
+   public void testReplacementMovesToTail() throws Exception {
+      createDispatcher(1000, 10_000, PushDispatcher.OverflowPolicy.BLOCK);
+
+      dispatcher.submit(new Event("private-user1", "Document:update", "u1"), "private-user1Document:updatedoc1");
+      dispatcher.submit(new Event("private-user1", "Document:update", "u2"), "private-user1Document:updatedoc2");
+      dispatcher.submit(new Event("private-user1", "Document:update", "u1'"), "private-user1Document:updatedoc1");
+      dispatcher.shutdown();
+
+      assertThat(channelData("private-user1")).containsExactly("u2", "u1'");
+      assertThat(dispatcher.getMetrics()).containsEntry("coalesced", 1L).containsEntry("sent", 2L);
+   }
+
+   @Test
+   public void testTriggerException() throws Exception {
+      createDispatcher(1000, 100, PushDispatcher.OverflowPolicy.BLOCK);
+
+      dispatcher.submit(new Event("private-user1", "Document:create", "fail"));
+      waitForMetric("failed", 1);
+      dispatcher.submit(new Event("private-user1", "Document:create", 1));
+      waitForMetric("sent", 1);
+
+      assertThat(dispatcher.getMetrics()).containsEntry("failed", 1L).containsEntry("sent", 1L);
+      assertThat(channelData("private-user1")).containsExactly(1);
+   }
+
+   @Test
+   public void testShutdownFlushesQueue() {
+      createDispatcher(1000, 10_000, PushDispatcher.OverflowPolicy.BLOCK);
+
+      for (int i = 0; i < 15; i++) {
+         dispatcher.submit(new Event("private-user1", "Document:update", i), "private-user1Document:updatedoc" + i);
+      }
+      dispatcher.shutdown();
+
+      assertThat(dispatcher.getMetrics()).containsEntry("sent", 15L).containsEntry("queued", 0L);
+      assertThat(batches).allMatch(batch -> batch.size() <= PushDispatcher.MAX_BATCH_SIZE);
+   }
+
+   private List<Object> channelData(final String channel) {
+      final List<Object> data = new ArrayList<>();
+      batches.forEach(batch -> batch.stream().filter(event -> event.getChannel().equals(channel)).forEach(event -> data.add(event.getData())));
+      return data;
+   }
+
+   private void waitForMetric(final String metric, final long value) throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + 10_000;
+      while (dispatcher.getMetrics().get(metric) < value && System.currentTimeMillis() < deadline) {
+         Thread.sleep(20);
+      }
+   }
+}
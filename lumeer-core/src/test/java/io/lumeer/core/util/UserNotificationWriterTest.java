@@ -0,0 +1,50 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.dao.UserNotificationWrite;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class UserNotificationWriterTest {
+
+   @Test
+   public void testMergeUpdates() {
+      final List<UserNotificationWrite> merged = UserNotificationWriter.mergeUpdates(Arrays.asList(
+            UserNotificationWrite.update("data.collectionId", "c1", Map.of("data.collectionName", "a", "data.collectionIcon", "i")),
+            UserNotificationWrite.update("data.collectionId", "c1", Map.of("data.collectionName", "b")),
+            UserNotificationWrite.remove("data.collectionId", "c1", Collections.singleton("u1")),
+            UserNotificationWrite.update("data.collectionId", "c1", Map.of("data.collectionName", "c")),
+            UserNotificationWrite.update("data.collectionId", "c2", Map.of("data.collectionName", "d"))
+      ));
+
+      assertThat(merged).hasSize(4);
+      assertThat(merged.get(0).getUpdates()).containsEntry("data.collectionName", "b").containsEntry("data.collectionIcon", "i");
+      assertThat(merged.get(1).getOperation()).isEqualTo(UserNotificationWrite.Operation.REMOVE);
+      assertThat(merged.get(2).getUpdates()).containsEntry("data.collectionName", "c");
+      assertThat(merged.get(3).getSearchId()).isEqualTo("c2");
+   }
+}
@@ -0,0 +1,105 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.engine.api.data.DataDocument;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class XlsxDocumentParserTest {
+
+   private static final String WORKBOOK = "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+         + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+         + "<sheets><sheet name=\"Data\" sheetId=\"1\" r:id=\"rId3\"/></sheets></workbook>";
+   private static final String RELATIONS = "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+         + "<Relationship Id=\"rId1\" Type=\"styles\" Target=\"styles.xml\"/>"
+         + "<Relationship Id=\"rId3\" Type=\"worksheet\" Target=\"worksheets/data.xml\"/></Relationships>";
+   private static final String SHARED_STRINGS = "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+         + "<si><t>name</t></si><si><t>count</t></si><si><r><t>Ali</t></r><r><t>ce</t></r></si><si><t>Bob</t></si></sst>";
+   private static final String SHEET = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+         + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c><c r=\"C1\" t=\"inlineStr\"><is><t>done</t></is></c></row>"
+         + "<row r=\"2\"><c r=\"A2\" t=\"s\"><v>2</v></c><c r=\"B2\"><v>42</v></c><c r=\"C2\" t=\"b\"><v>1</v></c></row>"
+         + "<row r=\"3\"><c r=\"A3\" t=\"s\"><v>3</v></c><c r=\"C3\" t=\"b\"><v>0</v></c></row>"
+         + "<row r=\"5\"><c r=\"B5\"><v>1.5</v></c></row>"
+         + "</sheetData></worksheet>";
+
+   private Path file;
+
+   @Before
+   public void createWorkbook() throws IOException {
+      file = Files.createTempFile("lumeer-test", ".xlsx");
+      try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+         addEntry(zip, "xl/workbook.xml", WORKBOOK);
+         addEntry(zip, "xl/_rels/workbook.xml.rels", RELATIONS);
+         addEntry(zip, "xl/sharedStrings.xml", SHARED_STRINGS);
+         addEntry(zip, "xl/worksheets/data.xml", SHEET);
+      }
+   }
+
+   @After
+   public void deleteWorkbook() throws IOException {
+      Files.deleteIfExists(file);
+   }
+
+   private static void addEntry(final ZipOutputStream zip, final String name, final String content) throws IOException {
+      zip.putNextEntry(new ZipEntry(name));
+      zip.write(content.getBytes(StandardCharsets.UTF_8));
+      zip.closeEntry();
+   }
+
+   @Test
+   public void testHeaders() throws IOException {
+      try (XlsxDocumentParser parser = new XlsxDocumentParser(file)) {
+         assertThat(parser.getHeaders()).containsExactly("name", "count", "done");
+      }
+   }
+
+   @Test
+   public void testNextRow() throws IOException {
+      try (XlsxDocumentParser parser = new XlsxDocumentParser(file)) {
+         final String[] ids = { "a1", "a2", "a3" };
+         final int[] counts = new int[ids.length];
+
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a1", "Alice").append("a2", "42").append("a3", "true"));
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a1", "Bob").append("a3", "false"));
+         assertThat(parser.nextRow(ids, counts)).isEqualTo(new DataDocument("a2", "1.5"));
+         assertThat(parser.nextRow(ids, counts)).isNull();
+         assertThat(counts).containsExactly(2, 2, 2);
+      }
+   }
+
+   @Test
+   public void testOpenByFormat() throws IOException {
+      try (DocumentParser parser = DocumentParser.open(DocumentParser.FORMAT_XLSX, file)) {
+         assertThat(parser).isInstanceOf(XlsxDocumentParser.class);
+         assertThat(parser.sample(10)).hasSize(3);
+      }
+   }
+}
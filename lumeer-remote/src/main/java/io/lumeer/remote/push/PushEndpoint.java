@@ -0,0 +1,110 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.remote.push;
+
+import io.lumeer.core.util.PushBroker;
+import io.lumeer.core.util.PushConnection;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.inject.Inject;
+import javax.websocket.CloseReason;
+import javax.websocket.OnClose;
+import javax.websocket.OnError;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+/**
+ * Built-in push transport, an alternative to Pusher. A client obtains a ticket from pusher/ticket
+ * and connects with it as the ticket query parameter, it then receives all events of its private channel.
+ */
+@ServerEndpoint("/push")
+public class PushEndpoint {
+
+   private static final String TICKET = "ticket";
+   private static final String CONNECTION = "pushConnection";
+
+   private static final Logger log = Logger.getLogger(PushEndpoint.class.getName());
+
+   @Inject
+   private PushBroker pushBroker;
+
+   @OnOpen
+   public void onOpen(final Session session) throws IOException {
+      final List<String> tickets = session.getRequestParameterMap().get(TICKET);
+      final String userId = tickets != null && !tickets.isEmpty() ? pushBroker.consumeTicket(tickets.get(0)) : null;
+
+      if (userId == null) {
+         session.close(new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Invalid ticket"));
+         return;
+      }
+
+      final WebSocketPushConnection connection = new WebSocketPushConnection(session, userId);
+      session.getUserProperties().put(CONNECTION, connection);
+      pushBroker.register(connection);
+   }
+
+   @OnClose
+   public void onClose(final Session session) {
+      unregister(session);
+   }
+
+   @OnError
+   public void onError(final Session session, final Throwable error) {
+      log.log(Level.FINE, "Push connection failed: ", error);
+      unregister(session);
+   }
+
+   private void unregister(final Session session) {
+      final Object connection = session.getUserProperties().remove(CONNECTION);
+      if (connection != null) {
+         pushBroker.unregister((PushConnection) connection);
+      }
+   }
+
+   private static class WebSocketPushConnection extends PushConnection {
+
+      private final Session session;
+
+      private WebSocketPushConnection(final Session session, final String userId) {
+         super(userId, DEFAULT_BUFFER_SIZE);
+         this.session = session;
+      }
+
+      @Override
+      protected void sendText(final String message) {
+         session.getAsyncRemote().sendText(message, result -> sendCompleted(result.getException()));
+      }
+
+      @Override
+      protected void close(final CloseCause cause) {
+         final CloseReason reason = cause == CloseCause.SLOW_CONSUMER
+               ? new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Slow consumer")
+               : new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Send failed");
+         try {
+            session.close(reason);
+         } catch (IOException e) {
+            log.log(Level.FINE, "Unable to close push connection: ", e);
+         }
+      }
+   }
+}
@@ -0,0 +1,129 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.remote.rest;
+
+import io.lumeer.api.model.Query;
+import io.lumeer.core.facade.ExportFacade;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.remote.rest.annotation.QueryProcessor;
+
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+@RequestScoped
+@Path("organizations/{organizationCode}/projects/{projectCode}/export")
+public class ExportService extends AbstractService {
+
+   private static final String MEDIA_TYPE_CSV = "text/csv";
+   private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+   private static final String MEDIA_TYPE_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+   private static final String GZIP = "gzip";
+   private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+   @PathParam("organizationCode")
+   private String organizationCode;
+
+   @PathParam("projectCode")
+   private String projectCode;
+
+   @Inject
+   private ExportFacade exportFacade;
+
+   @PostConstruct
+   public void init() {
+      workspaceKeeper.setWorkspace(organizationCode, projectCode);
+   }
+
+   @GET
+   @Path("collections/{collectionId}")
+   public Response exportCollection(@PathParam("collectionId") String collectionId, @QueryParam("format") String format,
+         @QueryParam("attributeId") List<String> attributeIds, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
+      return createResponse(exportFacade.exportDocuments(collectionId, format, null, attributeIds), format, acceptEncoding);
+   }
+
+   @POST
+   @Path("collections/{collectionId}")
+   @Consumes(MediaType.APPLICATION_JSON)
+   @QueryProcessor
+   public Response exportQuery(@PathParam("collectionId") String collectionId, @QueryParam("format") String format,
+         @QueryParam("attributeId") List<String> attributeIds, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding, Query query) {
+      return createResponse(exportFacade.exportDocuments(collectionId, format, query, attributeIds), format, acceptEncoding);
+   }
+
+   private Response createResponse(ExportFacade.Export export, String format, String acceptEncoding) {
+      // the zip container of XLSX is compressed already
+      final boolean gzip = acceptEncoding != null && acceptEncoding.contains(GZIP) && !DocumentParser.FORMAT_XLSX.equalsIgnoreCase(format);
+
+      final StreamingOutput output = stream -> {
+         final OutputStream target = gzip ? new GZIPOutputStream(stream, GZIP_BUFFER_SIZE) : stream;
+         export.writeTo(target);
+      };
+
+      final Response.ResponseBuilder response = Response.ok(output, getMediaType(format))
+                                                        .header("Content-Disposition", getContentDisposition(export.getFileName()));
+      if (gzip) {
+         response.encoding(GZIP);
+      }
+
+      return response.build();
+   }
+
+   /**
+    * Creates the value of the Content-Disposition header of an attachment. Clients that support RFC 5987 use the exact UTF-8 name,
+    * others get an ASCII approximation.
+    *
+    * @param fileName
+    *       Name of the attached file.
+    * @return The header value.
+    */
+   static String getContentDisposition(String fileName) {
+      final String asciiName = fileName.replaceAll("[^\\x20-\\x7e]", "_").replace("\\", "\\\\").replace("\"", "\\\"");
+      final String encodedName = URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20").replace("*", "%2A");
+
+      return "attachment; filename=\"" + asciiName + "\"; filename*=UTF-8''" + encodedName;
+   }
+
+   private static String getMediaType(String format) {
+      switch (format.toLowerCase()) {
+         case DocumentParser.FORMAT_JSON_LINES:
+            return MEDIA_TYPE_NDJSON;
+         case DocumentParser.FORMAT_XLSX:
+            return MEDIA_TYPE_XLSX;
+         default:
+            return MEDIA_TYPE_CSV + "; charset=UTF-8";
+      }
+   }
+}
@@ -20,12 +20,18 @@ package io.lumeer.remote.rest;
 
 import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.ImportedCollection;
+import io.lumeer.api.model.Permissions;
 import io.lumeer.core.facade.ImportFacade;
+import io.lumeer.core.task.ImportJob;
 
+import java.io.IOException;
+import java.io.InputStream;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -38,6 +44,9 @@ import javax.ws.rs.core.MediaType;
 @Path("organizations/{organizationCode}/projects/{projectCode}/import")
 public class ImportService extends AbstractService {
 
+   private static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+   private static final String MEDIA_TYPE_XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
    @PathParam("organizationCode")
    private String organizationCode;
 
@@ -57,4 +66,41 @@ public class ImportService extends AbstractService {
    public Collection importDocuments(@QueryParam("format") String format, ImportedCollection importedCollection) {
       return importFacade.importDocuments(format, importedCollection);
    }
+
+   @POST
+   @Path("stream")
+   @Consumes({ "text/csv", MEDIA_TYPE_NDJSON, MEDIA_TYPE_XLSX, MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM })
+   public Collection importDocuments(@QueryParam("format") String format, @QueryParam("name") String name, @QueryParam("icon") String icon,
+         @QueryParam("color") String color, InputStream data) throws IOException {
+      final Collection collection = new Collection(null, name, icon, color, new Permissions());
+      try (InputStream stream = data) {
+         return importFacade.importDocuments(format, collection, stream);
+      }
+   }
+
+   @POST
+   @Path("jobs")
+   @Consumes({ "text/csv", MEDIA_TYPE_NDJSON, MEDIA_TYPE_XLSX, MediaType.TEXT_PLAIN, MediaType.APPLICATION_OCTET_STREAM })
+   public ImportJob startImportJob(@QueryParam("format") String format, @QueryParam("name") String name, @QueryParam("icon") String icon,
+         @QueryParam("color") String color, InputStream data) {
+      return importFacade.startImportJob(format, new Collection(null, name, icon, color, new Permissions()), data);
+   }
+
+   @GET
+   @Path("jobs/{jobId}")
+   public ImportJob getImportJob(@PathParam("jobId") String jobId) {
+      return importFacade.getImportJob(jobId);
+   }
+
+   @DELETE
+   @Path("jobs/{jobId}")
+   public ImportJob cancelImportJob(@PathParam("jobId") String jobId) {
+      return importFacade.cancelImportJob(jobId);
+   }
+
+   @POST
+   @Path("jobs/{jobId}/resume")
+   public ImportJob resumeImportJob(@PathParam("jobId") String jobId) {
+      return importFacade.resumeImportJob(jobId);
+   }
 }
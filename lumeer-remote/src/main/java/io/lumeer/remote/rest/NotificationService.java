@@ -31,6 +31,7 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -46,11 +47,35 @@ public class NotificationService extends AbstractService {
    @Inject
    private UserNotificationFacade userNotificationFacade;
 
+   public static final class UnreadCountResponse {
+      private final long count;
+
+      public UnreadCountResponse(final long count) {
+         this.count = count;
+      }
+
+      public long getCount() {
+         return count;
+      }
+   }
+
    @GET
    public List<UserNotification> getNotifications() {
       return userNotificationFacade.getNotifications();
    }
 
+   @GET
+   @Path("feed")
+   public List<UserNotification> getNotificationsFeed(@QueryParam("since") String since, @QueryParam("limit") Integer limit) {
+      return userNotificationFacade.getNotificationsFeed(since, limit);
+   }
+
+   @GET
+   @Path("unread")
+   public UnreadCountResponse getUnreadNotificationsCount() {
+      return new UnreadCountResponse(userNotificationFacade.getUnreadNotificationsCount());
+   }
+
    @PUT
    @Path("{notificationId}")
    public UserNotification updateNotification(@PathParam("notificationId") String notificationId, UserNotification notification) {
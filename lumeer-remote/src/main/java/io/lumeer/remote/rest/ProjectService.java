@@ -22,8 +22,13 @@ import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Permissions;
 import io.lumeer.api.model.Project;
 import io.lumeer.core.WorkspaceKeeper;
+import io.lumeer.core.exception.BadFormatException;
 import io.lumeer.core.facade.ProjectFacade;
+import io.lumeer.storage.api.dao.DataStorageLayout;
+import io.lumeer.storage.api.index.DataIndex;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.PostConstruct;
@@ -37,8 +42,10 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 @RequestScoped
 @Produces(MediaType.APPLICATION_JSON)
@@ -67,6 +74,38 @@ public class ProjectService extends AbstractService {
       return storedProject;
    }
 
+   @POST
+   @Path("snapshot")
+   @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+   public Project restoreProject(@QueryParam("code") String code, @QueryParam("name") String name, @QueryParam("icon") String icon,
+         @QueryParam("color") String color, InputStream snapshot) throws IOException {
+      try (InputStream input = snapshot) {
+         Project storedProject = projectFacade.restoreProject(new Project(code, name, icon, color, null, null), input);
+         storedProject.setCollectionsCount(projectFacade.getCollectionsCount(storedProject));
+         return storedProject;
+      }
+   }
+
+   @GET
+   @Path("{projectCode}/snapshot")
+   @Produces(MediaType.APPLICATION_OCTET_STREAM)
+   public Response dumpProject(@PathParam("projectCode") String projectCode) {
+      // permissions are checked before the response is committed
+      final ProjectFacade.SnapshotWriter writer = projectFacade.dumpProject(projectCode);
+      final StreamingOutput output = writer::writeTo;
+      return Response.ok(output)
+                     .header("Content-Disposition", "attachment; filename=\"" + projectCode + ".snapshot\"")
+                     .build();
+   }
+
+   @POST
+   @Path("{projectCode}/clone")
+   public Project cloneProject(@PathParam("projectCode") String projectCode, Project project) {
+      Project storedProject = projectFacade.cloneProject(projectCode, project);
+      storedProject.setCollectionsCount(projectFacade.getCollectionsCount(storedProject));
+      return storedProject;
+   }
+
    @PUT
    @Path("{projectCode}")
    public Project updateProject(@PathParam("projectCode") String projectCode, Project project) {
@@ -138,4 +177,43 @@ public class ProjectService extends AbstractService {
       return Response.ok().link(getParentUri("groups", groupId), "parent").build();
    }
 
+   @GET
+   @Path("{projectCode}/layout")
+   public DataStorageLayout getDataStorageLayout(@PathParam("projectCode") String projectCode) {
+      return projectFacade.getDataStorageLayout(projectCode);
+   }
+
+   @PUT
+   @Path("{projectCode}/layout/{layout}")
+   public Response migrateDataStorageLayout(@PathParam("projectCode") String projectCode, @PathParam("layout") String layout) {
+      final DataStorageLayout dataStorageLayout;
+      try {
+         dataStorageLayout = DataStorageLayout.fromString(layout);
+      } catch (IllegalArgumentException e) {
+         throw new BadFormatException("Unknown data storage layout " + layout);
+      }
+
+      projectFacade.migrateDataStorageLayout(projectCode, dataStorageLayout);
+
+      return Response.accepted().build();
+   }
+
+   @GET
+   @Path("{projectCode}/indexes/proposed")
+   public List<DataIndex> getProposedIndexes(@PathParam("projectCode") String projectCode) {
+      return projectFacade.getProposedIndexes(projectCode);
+   }
+
+   @POST
+   @Path("{projectCode}/indexes")
+   public List<DataIndex> createProposedIndexes(@PathParam("projectCode") String projectCode) {
+      return projectFacade.createProposedIndexes(projectCode);
+   }
+
+   @GET
+   @Path("{projectCode}/indexes/unused")
+   public List<DataIndex> getUnusedIndexes(@PathParam("projectCode") String projectCode) {
+      return projectFacade.getUnusedIndexes(projectCode);
+   }
+
 }
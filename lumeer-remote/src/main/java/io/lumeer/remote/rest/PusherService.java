@@ -27,6 +27,7 @@ import org.apache.commons.codec.binary.Hex;
 import java.io.UnsupportedEncodingException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.crypto.Mac;
@@ -34,6 +35,7 @@ import javax.crypto.spec.SecretKeySpec;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.FormParam;
+import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -91,6 +93,30 @@ public class PusherService extends AbstractService {
       return Response.ok(new PusherAuthResponse(pusherFacade.getPusherKey() + ":" + auth)).build();
    }
 
+   public static final class PushTicketResponse {
+      private final String ticket;
+
+      public PushTicketResponse(final String ticket) {
+         this.ticket = ticket;
+      }
+
+      public String getTicket() {
+         return ticket;
+      }
+   }
+
+   @POST
+   @Path("ticket")
+   public PushTicketResponse createPushTicket() {
+      return new PushTicketResponse(pusherFacade.createPushTicket());
+   }
+
+   @GET
+   @Path("metrics")
+   public Map<String, Long> getPushMetrics() {
+      return pusherFacade.getPushMetrics();
+   }
+
    private String sign(final String input, final String secret) {
       try {
          final Mac mac = Mac.getInstance("HmacSHA256");
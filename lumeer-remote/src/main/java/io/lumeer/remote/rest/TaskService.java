@@ -0,0 +1,52 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.remote.rest;
+
+import io.lumeer.core.facade.TaskFacade;
+import io.lumeer.storage.api.dao.QueuedTask;
+
+import java.util.Map;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@RequestScoped
+@Produces(MediaType.APPLICATION_JSON)
+@Path("tasks")
+public class TaskService extends AbstractService {
+
+   @Inject
+   private TaskFacade taskFacade;
+
+   @GET
+   @Path("metrics")
+   public Map<String, Long> getTaskMetrics() {
+      return taskFacade.getTaskMetrics();
+   }
+
+   @GET
+   @Path("{taskId}")
+   public QueuedTask getTask(@PathParam("taskId") final String taskId) {
+      return taskFacade.getTask(taskId);
+   }
+}
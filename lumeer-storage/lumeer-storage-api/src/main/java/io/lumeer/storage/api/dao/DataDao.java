@@ -25,6 +25,8 @@ import io.lumeer.storage.api.query.SearchQueryStem;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public interface DataDao {
 
@@ -52,6 +54,33 @@ public interface DataDao {
 
    List<DataDocument> searchData(SearchQueryStem stem, Pagination pagination, Collection collection);
 
+   /**
+    * Reads the data of a collection through a cursor, so that any amount of data can be processed in constant memory.
+    *
+    * @param collection
+    *       the collection to read
+    * @param stem
+    *       filter of the data, null to read all data
+    * @param attributeIds
+    *       attributes to read, null to read all of them
+    * @param consumer
+    *       called with every data document read
+    */
+   void streamData(Collection collection, SearchQueryStem stem, Set<String> attributeIds, Consumer<DataDocument> consumer);
+
    List<DataDocument> searchDataByFulltexts(Set<String> fulltexts, Pagination pagination, List<Collection> projectCollections);
 
+   DataStorageLayout getDataStorageLayout();
+
+   /**
+    * Moves all data of the current project to the given layout while the project stays online.
+    * Writes are mirrored to both layouts until the switch is complete.
+    *
+    * @param layout
+    *       the target layout
+    * @param collectionIds
+    *       supplies ids of all collections in the project, it is asked again in each phase of the migration
+    */
+   void migrateDataStorageLayout(DataStorageLayout layout, Supplier<Set<String>> collectionIds);
+
 }
@@ -0,0 +1,44 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+/**
+ * Physical layout of the documents data of a project.
+ */
+public enum DataStorageLayout {
+
+   /**
+    * Each collection has its own storage (e.g. a database collection per collection).
+    */
+   SEPARATE,
+
+   /**
+    * All collections of a project share one storage, data are discriminated by the collection id.
+    */
+   SHARED;
+
+   @Override
+   public String toString() {
+      return name().toLowerCase();
+   }
+
+   public static DataStorageLayout fromString(final String layout) {
+      return layout != null ? DataStorageLayout.valueOf(layout.toUpperCase()) : null;
+   }
+}
@@ -32,9 +32,23 @@ public interface DocumentDao {
 
    Document createDocument(Document document);
 
+   /**
+    * Stores the documents in no particular order, keeping their ids when already set.
+    *
+    * @param documents
+    *       The documents to store.
+    * @return The stored documents.
+    */
    List<Document> createDocuments(List<Document> documents);
 
-   Document updateDocument(String id, Document document);
+   /**
+    * Generates an id for a document that has not been stored yet, so that its data can be stored at the same time.
+    *
+    * @return The new id.
+    */
+   String generateDocumentId();
+
+   Document updateDocument(String id, Document document, Document originalDocument);
 
    void deleteDocument(String id);
 
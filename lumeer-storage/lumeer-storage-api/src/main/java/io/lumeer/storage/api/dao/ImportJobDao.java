@@ -0,0 +1,61 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+import java.util.Set;
+
+/**
+ * State of the background imports shared by all nodes of the cluster, so that any node can report, cancel or resume a job.
+ * Finished jobs are removed after a while.
+ */
+public interface ImportJobDao {
+
+   String COLLECTION_NAME = "importJobs";
+
+   void createImportJobsRepository();
+
+   /**
+    * Stores a new job, its id must be already set.
+    */
+   ImportJobState createJob(ImportJobState job);
+
+   ImportJobState getJob(String jobId);
+
+   /**
+    * Stores the progress of a running job.
+    *
+    * @return The job after the update, null when it is not running.
+    */
+   ImportJobState updateProgress(String jobId, long rowsParsed, long rowsInserted);
+
+   /**
+    * Stores the status, progress and error of the job when its stored status is one of the expected ones.
+    * The cancellation request is cleared, a finished job gets its finish time.
+    *
+    * @return False when the job has another status.
+    */
+   boolean updateStatus(ImportJobState job, Set<ImportJobState.Status> expectedStatuses);
+
+   /**
+    * Cancels a queued job, or asks the owner to stop a running one.
+    *
+    * @return The job after the update, null when it has already finished.
+    */
+   ImportJobState cancelJob(String jobId);
+}
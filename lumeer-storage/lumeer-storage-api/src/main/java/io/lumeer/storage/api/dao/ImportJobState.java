@@ -0,0 +1,156 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+/**
+ * Persistent state of an import running in background, readable by all nodes of the cluster. The uploaded file stays on the node
+ * that received it, the owner, which is the only one that can process the job.
+ */
+public class ImportJobState {
+
+   public enum Status {
+      QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+   }
+
+   private String id;
+   private String owner;
+   private String userId;
+   private String projectId;
+   private String collectionId;
+   private String format;
+   private Status status;
+   private long rowsParsed;
+   private long rowsInserted;
+   private String error;
+   private boolean cancelRequested;
+   private Long finishedAt;
+
+   public String getId() {
+      return id;
+   }
+
+   public void setId(final String id) {
+      this.id = id;
+   }
+
+   /**
+    * @return Id of the node that processes the job.
+    */
+   public String getOwner() {
+      return owner;
+   }
+
+   public void setOwner(final String owner) {
+      this.owner = owner;
+   }
+
+   public String getUserId() {
+      return userId;
+   }
+
+   public void setUserId(final String userId) {
+      this.userId = userId;
+   }
+
+   public String getProjectId() {
+      return projectId;
+   }
+
+   public void setProjectId(final String projectId) {
+      this.projectId = projectId;
+   }
+
+   public String getCollectionId() {
+      return collectionId;
+   }
+
+   public void setCollectionId(final String collectionId) {
+      this.collectionId = collectionId;
+   }
+
+   public String getFormat() {
+      return format;
+   }
+
+   public void setFormat(final String format) {
+      this.format = format;
+   }
+
+   public Status getStatus() {
+      return status;
+   }
+
+   public void setStatus(final Status status) {
+      this.status = status;
+   }
+
+   public long getRowsParsed() {
+      return rowsParsed;
+   }
+
+   public void setRowsParsed(final long rowsParsed) {
+      this.rowsParsed = rowsParsed;
+   }
+
+   public long getRowsInserted() {
+      return rowsInserted;
+   }
+
+   public void setRowsInserted(final long rowsInserted) {
+      this.rowsInserted = rowsInserted;
+   }
+
+   public String getError() {
+      return error;
+   }
+
+   public void setError(final String error) {
+      this.error = error;
+   }
+
+   /**
+    * @return Whether a node asked the owner to stop the running job.
+    */
+   public boolean isCancelRequested() {
+      return cancelRequested;
+   }
+
+   public void setCancelRequested(final boolean cancelRequested) {
+      this.cancelRequested = cancelRequested;
+   }
+
+   public Long getFinishedAt() {
+      return finishedAt;
+   }
+
+   public void setFinishedAt(final Long finishedAt) {
+      this.finishedAt = finishedAt;
+   }
+
+   @Override
+   public String toString() {
+      return "ImportJobState{" +
+            "id='" + id + '\'' +
+            ", owner='" + owner + '\'' +
+            ", collectionId='" + collectionId + '\'' +
+            ", status=" + status +
+            ", rowsInserted=" + rowsInserted +
+            '}';
+   }
+}
@@ -0,0 +1,58 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+import io.lumeer.api.model.Project;
+import io.lumeer.storage.api.index.DataIndex;
+
+import java.util.List;
+import java.util.Set;
+
+public interface IndexDao {
+
+   void setProject(Project project);
+
+   /**
+    * Proposes indexes for the most frequent query shapes seen in the current project that are not covered yet.
+    * The number of proposals is limited by the remaining index budget of the project.
+    *
+    * @param collectionIds
+    *       ids of all collections in the project
+    * @return proposed indexes ordered by the number of matching queries
+    */
+   List<DataIndex> getProposedIndexes(Set<String> collectionIds);
+
+   /**
+    * Creates all currently proposed indexes.
+    *
+    * @param collectionIds
+    *       ids of all collections in the project
+    * @return created indexes
+    */
+   List<DataIndex> createProposedIndexes(Set<String> collectionIds);
+
+   /**
+    * Lists indexes on the project data that have not been used since the database server started.
+    *
+    * @param collectionIds
+    *       ids of all collections in the project
+    * @return unused indexes
+    */
+   List<DataIndex> getUnusedIndexes(Set<String> collectionIds);
+}
@@ -0,0 +1,95 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+import io.lumeer.api.model.Project;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+/**
+ * Copies whole projects in a compact binary form, much faster than re-creating them entity by entity.
+ */
+public interface ProjectSnapshotDao {
+
+   /**
+    * Writes collections, documents, link types, link instances, views and all data of the project.
+    *
+    * @param project
+    *       the project to dump
+    * @param output
+    *       the output to write the snapshot to, it is not closed
+    */
+   void dumpProject(Project project, OutputStream output);
+
+   /**
+    * Restores a snapshot to a project with empty repositories. All entities get new ids and the references
+    * between them are updated, so a snapshot can be restored any number of times. Only the entities announced
+    * at the beginning of the snapshot are restored.
+    *
+    * @param project
+    *       the project to restore the snapshot to
+    * @param input
+    *       the snapshot written by {@link #dumpProject(Project, OutputStream)}
+    * @param validator
+    *       called with the content of the snapshot before anything is restored, it aborts the restore by throwing an exception
+    */
+   void restoreProject(Project project, InputStream input, Consumer<Summary> validator);
+
+   /**
+    * Numbers of entities in a snapshot.
+    */
+   class Summary {
+
+      private final long collections;
+      private final long documents;
+      private final long linkTypes;
+      private final long linkInstances;
+      private final long views;
+
+      public Summary(final long collections, final long documents, final long linkTypes, final long linkInstances, final long views) {
+         this.collections = collections;
+         this.documents = documents;
+         this.linkTypes = linkTypes;
+         this.linkInstances = linkInstances;
+         this.views = views;
+      }
+
+      public long getCollections() {
+         return collections;
+      }
+
+      public long getDocuments() {
+         return documents;
+      }
+
+      public long getLinkTypes() {
+         return linkTypes;
+      }
+
+      public long getLinkInstances() {
+         return linkInstances;
+      }
+
+      public long getViews() {
+         return views;
+      }
+   }
+}
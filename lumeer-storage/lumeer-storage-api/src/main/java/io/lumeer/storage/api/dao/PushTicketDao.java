@@ -0,0 +1,46 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+/**
+ * One-time tickets authorizing connections to the built-in push transport. Tickets are shared by all nodes of the cluster,
+ * so a client can connect to any node regardless of which node issued its ticket.
+ */
+public interface PushTicketDao {
+
+   String COLLECTION_NAME = "pushTickets";
+
+   void createPushTicketRepository();
+
+   void createTicket(String ticket, String userId, long expiresAt);
+
+   /**
+    * Gets the user the ticket was issued for without consuming the ticket.
+    *
+    * @return Id of the user, null when the ticket does not exist or expired.
+    */
+   String getTicketUser(String ticket);
+
+   /**
+    * Atomically removes the ticket so that it cannot be used again.
+    *
+    * @return Id of the user the ticket was issued for, null when the ticket does not exist or expired.
+    */
+   String consumeTicket(String ticket);
+}
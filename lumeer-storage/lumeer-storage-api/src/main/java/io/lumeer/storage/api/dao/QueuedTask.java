@@ -0,0 +1,217 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+/**
+ * A task waiting in or processed from the {@link TaskQueueDao}. The task itself is kept serialized in the payload,
+ * tasks that can run only on the node that submitted them have no payload and are leased by that node until they finish.
+ */
+public class QueuedTask {
+
+   public enum State {
+      QUEUED, RUNNING, COMPLETED, FAILED
+   }
+
+   private String id;
+   private String type;
+   private int priority;
+   private int maxAttempts;
+   private int attempts;
+   private State state;
+   private long createdAt;
+   private long runAt;
+   private Long startedAt;
+   private Long finishedAt;
+   private String owner;
+   private Long leaseUntil;
+   private String organizationId;
+   private String projectId;
+   private String userId;
+   private byte[] payload;
+   private String error;
+
+   public String getId() {
+      return id;
+   }
+
+   public void setId(final String id) {
+      this.id = id;
+   }
+
+   /**
+    * @return Class name of the task.
+    */
+   public String getType() {
+      return type;
+   }
+
+   public void setType(final String type) {
+      this.type = type;
+   }
+
+   /**
+    * @return Priority of the task, tasks with higher priority are leased first.
+    */
+   public int getPriority() {
+      return priority;
+   }
+
+   public void setPriority(final int priority) {
+      this.priority = priority;
+   }
+
+   public int getMaxAttempts() {
+      return maxAttempts;
+   }
+
+   public void setMaxAttempts(final int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+   }
+
+   /**
+    * @return Number of times the task was leased, including the running attempt.
+    */
+   public int getAttempts() {
+      return attempts;
+   }
+
+   public void setAttempts(final int attempts) {
+      this.attempts = attempts;
+   }
+
+   public State getState() {
+      return state;
+   }
+
+   public void setState(final State state) {
+      this.state = state;
+   }
+
+   public long getCreatedAt() {
+      return createdAt;
+   }
+
+   public void setCreatedAt(final long createdAt) {
+      this.createdAt = createdAt;
+   }
+
+   /**
+    * @return Time in milliseconds since the epoch when the task can be started at the earliest.
+    */
+   public long getRunAt() {
+      return runAt;
+   }
+
+   public void setRunAt(final long runAt) {
+      this.runAt = runAt;
+   }
+
+   public Long getStartedAt() {
+      return startedAt;
+   }
+
+   public void setStartedAt(final Long startedAt) {
+      this.startedAt = startedAt;
+   }
+
+   public Long getFinishedAt() {
+      return finishedAt;
+   }
+
+   public void setFinishedAt(final Long finishedAt) {
+      this.finishedAt = finishedAt;
+   }
+
+   /**
+    * @return Id of the node holding the lease of the task, null when any node can lease it.
+    */
+   public String getOwner() {
+      return owner;
+   }
+
+   public void setOwner(final String owner) {
+      this.owner = owner;
+   }
+
+   public Long getLeaseUntil() {
+      return leaseUntil;
+   }
+
+   public void setLeaseUntil(final Long leaseUntil) {
+      this.leaseUntil = leaseUntil;
+   }
+
+   public String getOrganizationId() {
+      return organizationId;
+   }
+
+   public void setOrganizationId(final String organizationId) {
+      this.organizationId = organizationId;
+   }
+
+   public String getProjectId() {
+      return projectId;
+   }
+
+   public void setProjectId(final String projectId) {
+      this.projectId = projectId;
+   }
+
+   /**
+    * @return Id of the user who submitted the task.
+    */
+   public String getUserId() {
+      return userId;
+   }
+
+   public void setUserId(final String userId) {
+      this.userId = userId;
+   }
+
+   public byte[] getPayload() {
+      return payload;
+   }
+
+   public void setPayload(final byte[] payload) {
+      this.payload = payload;
+   }
+
+   /**
+    * @return Error of the last failed attempt.
+    */
+   public String getError() {
+      return error;
+   }
+
+   public void setError(final String error) {
+      this.error = error;
+   }
+
+   @Override
+   public String toString() {
+      return "QueuedTask{" +
+            "id='" + id + '\'' +
+            ", type='" + type + '\'' +
+            ", priority=" + priority +
+            ", attempts=" + attempts + "/" + maxAttempts +
+            ", state=" + state +
+            ", owner='" + owner + '\'' +
+            '}';
+   }
+}
@@ -0,0 +1,79 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent queue of background tasks shared by all nodes of the cluster. A node processes only the tasks it holds the lease of,
+ * the lease is renewed periodically and a task whose lease expired can be leased again by any node.
+ */
+public interface TaskQueueDao {
+
+   String COLLECTION_NAME = "taskQueue";
+
+   void createTaskQueueRepository();
+
+   /**
+    * Stores a new task, its id must be already set.
+    */
+   QueuedTask createTask(QueuedTask task);
+
+   QueuedTask getTask(String taskId);
+
+   /**
+    * Leases the queued task with the highest priority that is due, is not leased by any other node, or whose lease expired.
+    * The number of attempts of the task is increased.
+    *
+    * @param nodeId
+    *       Id of the leasing node.
+    * @param leaseDuration
+    *       Duration of the lease in milliseconds.
+    * @return The leased task in the running state, null when there is no task to run.
+    */
+   QueuedTask leaseTask(String nodeId, long leaseDuration);
+
+   /**
+    * Extends the leases of the given unfinished tasks held by the node.
+    *
+    * @param taskIds
+    *       Ids of the tasks the node still works on.
+    * @return Number of renewed leases.
+    */
+   long renewLeases(String nodeId, Set<String> taskIds, long leaseDuration);
+
+   /**
+    * Returns a running task to the queue.
+    *
+    * @param keepLease
+    *       Whether the node keeps the lease of the queued task, for tasks that cannot run on other nodes.
+    * @return False when the node does not hold the lease any more.
+    */
+   boolean retryTask(String taskId, String nodeId, long runAt, String error, boolean keepLease);
+
+   /**
+    * Marks a running task as completed or failed. The payload of the task is released, finished tasks are removed after a while.
+    *
+    * @return False when the node does not hold the lease any more.
+    */
+   boolean finishTask(String taskId, String nodeId, QueuedTask.State state, String error);
+
+   Map<QueuedTask.State, Long> countTasks();
+}
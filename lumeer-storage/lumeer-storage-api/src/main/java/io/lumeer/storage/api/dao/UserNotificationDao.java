@@ -20,6 +20,7 @@ package io.lumeer.storage.api.dao;
 
 import io.lumeer.api.model.UserNotification;
 
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +32,26 @@ public interface UserNotificationDao {
 
    List<UserNotification> getRecentNotifications(final String userId);
 
+   /**
+    * Gets notifications of the user created after the cursor, ordered from the oldest one.
+    *
+    * @param userId
+    *       Id of the user.
+    * @param since
+    *       Creation time of the last notification known to the client, null to get the most recent notifications.
+    * @param sinceId
+    *       Id of the last notification known to the client, distinguishes notifications created at the same time; may be null.
+    * @param until
+    *       Only notifications created before this time are returned, so that a notification written late with an older creation time
+    *       cannot end up behind the cursor; null for no limit.
+    * @param limit
+    *       Maximal number of notifications returned.
+    * @return Notifications following the cursor.
+    */
+   List<UserNotification> getNotificationsSince(final String userId, final ZonedDateTime since, final String sinceId, final ZonedDateTime until, final int limit);
+
+   long getUnreadNotificationsCount(final String userId);
+
    UserNotification getNotificationById(final String notificationId);
 
    UserNotification updateNotification(final UserNotification notification);
@@ -43,5 +64,33 @@ public interface UserNotificationDao {
 
    List<UserNotification> createNotificationsBatch(final List<UserNotification> notifications);
 
+   /**
+    * Performs all the writes in their order in a single round trip.
+    *
+    * @param writes
+    *       The writes to perform.
+    */
+   void writeNotifications(final List<UserNotificationWrite> writes);
+
+   /**
+    * Lets the database remove read notifications older than the given retention.
+    *
+    * @param retentionSeconds
+    *       How long to keep read notifications, null to keep them forever.
+    */
+   void setReadNotificationsRetention(final Long retentionSeconds);
+
+   /**
+    * Moves notifications created before the given time to the archive, they are no longer returned to the users.
+    * A remove event is fired for every archived notification.
+    *
+    * @param createdBefore
+    *       Notifications created before this time are archived.
+    * @param limit
+    *       Maximal number of notifications archived at once.
+    * @return Number of archived notifications.
+    */
+   int archiveNotifications(final ZonedDateTime createdBefore, final int limit);
+
    void createUserNotificationsRepository();
 }
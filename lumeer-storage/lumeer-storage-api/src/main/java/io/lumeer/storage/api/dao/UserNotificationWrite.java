@@ -0,0 +1,106 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.dao;
+
+import io.lumeer.api.model.UserNotification;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single write of {@link UserNotificationDao#writeNotifications(java.util.List)}.
+ * Notifications are searched by a field of their data, e.g. the id of the resource they are about.
+ */
+public class UserNotificationWrite {
+
+   public enum Operation {
+      CREATE, UPDATE, REMOVE
+   }
+
+   private final Operation operation;
+   private final String searchField;
+   private final String searchId;
+   private final UserNotification notification;
+   private final Map<String, String> updates;
+   private final Set<String> users;
+
+   private UserNotificationWrite(final Operation operation, final String searchField, final String searchId, final UserNotification notification, final Map<String, String> updates, final Set<String> users) {
+      this.operation = operation;
+      this.searchField = searchField;
+      this.searchId = searchId;
+      this.notification = notification;
+      this.updates = updates;
+      this.users = users;
+   }
+
+   /**
+    * Creates the notification, or replaces the notification of the same user and type having the same value of the search field.
+    */
+   public static UserNotificationWrite create(final UserNotification notification, final String searchField, final String searchId) {
+      return new UserNotificationWrite(Operation.CREATE, searchField, searchId, notification, Collections.emptyMap(), Collections.emptySet());
+   }
+
+   /**
+    * Sets the fields of all notifications with the given value of the search field, notifications already having the values are not touched.
+    */
+   public static UserNotificationWrite update(final String searchField, final String searchId, final Map<String, String> updates) {
+      return new UserNotificationWrite(Operation.UPDATE, searchField, searchId, null, updates, Collections.emptySet());
+   }
+
+   /**
+    * Removes notifications of the given users with the given value of the search field, of all users when the set is empty.
+    */
+   public static UserNotificationWrite remove(final String searchField, final String searchId, final Set<String> users) {
+      return new UserNotificationWrite(Operation.REMOVE, searchField, searchId, null, Collections.emptyMap(), users);
+   }
+
+   public Operation getOperation() {
+      return operation;
+   }
+
+   public String getSearchField() {
+      return searchField;
+   }
+
+   public String getSearchId() {
+      return searchId;
+   }
+
+   public UserNotification getNotification() {
+      return notification;
+   }
+
+   public Map<String, String> getUpdates() {
+      return updates;
+   }
+
+   public Set<String> getUsers() {
+      return users;
+   }
+
+   @Override
+   public String toString() {
+      return "UserNotificationWrite{" +
+            "operation=" + operation +
+            ", searchField='" + searchField + '\'' +
+            ", searchId='" + searchId + '\'' +
+            '}';
+   }
+}
@@ -18,6 +18,8 @@
  */
 package io.lumeer.storage.api.dao.context;
 
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Project;
 import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.CompanyContactDao;
 import io.lumeer.storage.api.dao.DataDao;
@@ -35,6 +37,8 @@ import io.lumeer.storage.api.dao.UserLoginDao;
 import io.lumeer.storage.api.dao.UserNotificationDao;
 import io.lumeer.storage.api.dao.ViewDao;
 
+import java.util.Optional;
+
 /**
  * Holds contextual information necessary to create any Dao object in the application.
  * This is useful in batch processing tasks and long running tasks that are executed out
@@ -47,6 +51,8 @@ import io.lumeer.storage.api.dao.ViewDao;
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
 public interface DaoContextSnapshot {
+   Optional<Organization> getOrganization();
+   Optional<Project> getProject();
    OrganizationDao getOrganizationDao();
    ProjectDao getProjectDao();
    CollectionDao getCollectionDao();
@@ -31,5 +31,14 @@ import io.lumeer.engine.api.data.DataStorage;
 public interface DaoContextSnapshotFactory {
    DaoContextSnapshot getInstance();
    //DaoContextSnapshot getInstance(final DataStorage systemDataStorage, final DataStorage userDataStorage, final SelectedWorkspace selectedWorkspace);
-   //DaoContextSnapshot getInstance(final DataStorage systemDataStorage, final DataStorage userDataStorage, final Organization organization, final Project project);
+
+   /**
+    * Gets a snapshot of the given workspace, works also outside of any request.
+    *
+    * @param organization
+    *       Organization of the workspace, may be null.
+    * @param project
+    *       Project of the workspace, may be null.
+    */
+   DaoContextSnapshot getInstance(final DataStorage systemDataStorage, final DataStorage userDataStorage, final Organization organization, final Project project);
 }
@@ -30,6 +30,11 @@ public class ResourceNotFoundException extends LumeerException {
       this.resourceType = resourceType;
    }
 
+   public ResourceNotFoundException(final String message) {
+      super(message);
+      this.resourceType = null;
+   }
+
    public ResourceType getResourceType() {
       return resourceType;
    }
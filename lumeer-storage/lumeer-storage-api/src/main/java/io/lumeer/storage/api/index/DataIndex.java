@@ -0,0 +1,90 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.api.index;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Describes an index on documents data, either an existing one or a proposed one.
+ */
+public class DataIndex {
+
+   private final String storageName;
+   private final String name;
+   private final List<String> keys;
+   private final long usageCount;
+
+   public DataIndex(final String storageName, final String name, final List<String> keys, final long usageCount) {
+      this.storageName = storageName;
+      this.name = name;
+      this.keys = keys;
+      this.usageCount = usageCount;
+   }
+
+   /**
+    * @return name of the underlying storage (e.g. a database collection) holding the index
+    */
+   public String getStorageName() {
+      return storageName;
+   }
+
+   public String getName() {
+      return name;
+   }
+
+   public List<String> getKeys() {
+      return keys;
+   }
+
+   /**
+    * @return number of recorded queries matching a proposed index, or number of accesses of an existing index
+    */
+   public long getUsageCount() {
+      return usageCount;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof DataIndex)) {
+         return false;
+      }
+      final DataIndex dataIndex = (DataIndex) o;
+      return Objects.equals(storageName, dataIndex.storageName) &&
+            Objects.equals(name, dataIndex.name);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hash(storageName, name);
+   }
+
+   @Override
+   public String toString() {
+      return "DataIndex{" +
+            "storageName='" + storageName + '\'' +
+            ", name='" + name + '\'' +
+            ", keys=" + keys +
+            ", usageCount=" + usageCount +
+            '}';
+   }
+}
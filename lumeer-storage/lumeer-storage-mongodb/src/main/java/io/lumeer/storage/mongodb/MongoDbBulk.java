@@ -0,0 +1,280 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb;
+
+import io.lumeer.engine.api.data.DataBulk;
+import io.lumeer.engine.api.data.DataBulkResult;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.engine.api.data.DataFilter;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk of write operations that are sent to MongoDB as unordered bulk writes.
+ * Batches are written in the calling thread when only a single batch can be in flight,
+ * otherwise they are handed over to the executor of the storage.
+ */
+public class MongoDbBulk implements DataBulk {
+
+   private static final String DOCUMENT_ID = "_id";
+
+   private final MongoDatabase database;
+   private final ExecutorService executor;
+   private final int batchSize;
+   private final Semaphore inFlightBatches;
+
+   private final Map<String, List<BulkOperation>> pendingOperations = new LinkedHashMap<>();
+   private final List<CompletableFuture<Void>> batches = new ArrayList<>();
+   private final Map<Integer, DataBulkResult> results = new ConcurrentHashMap<>();
+   private int size = 0;
+   private boolean executed = false;
+
+   public MongoDbBulk(final MongoDatabase database, final ExecutorService executor, final int batchSize, final int maxInFlightBatches) {
+      if (batchSize < 1 || maxInFlightBatches < 1) {
+         throw new IllegalArgumentException("Batch size and number of batches in flight must be positive.");
+      }
+
+      this.database = database;
+      this.executor = maxInFlightBatches > 1 ? executor : null;
+      this.batchSize = batchSize;
+      this.inFlightBatches = new Semaphore(maxInFlightBatches);
+   }
+
+   @Override
+   public DataBulk insert(final String collectionName, final DataDocument document) {
+      final Document doc = MongoUtils.dataDocumentToDocument(new DataDocument(document));
+      if (!doc.containsKey(DOCUMENT_ID)) {
+         doc.put(DOCUMENT_ID, new ObjectId());
+      }
+
+      return add(collectionName, DataBulkResult.Operation.INSERT, new InsertOneModel<>(doc), doc.get(DOCUMENT_ID).toString());
+   }
+
+   @Override
+   public DataBulk update(final String collectionName, final DataDocument updatedDocument, final DataFilter filter) {
+      final DataDocument toUpdate = new DataDocument(updatedDocument);
+      toUpdate.remove(DOCUMENT_ID);
+      final BasicDBObject updateBson = new BasicDBObject("$set", new BasicDBObject(toUpdate));
+
+      return add(collectionName, DataBulkResult.Operation.UPDATE, new UpdateOneModel<>(filter.<Bson>get(), updateBson, new UpdateOptions().upsert(true)), null);
+   }
+
+   @Override
+   public DataBulk replace(final String collectionName, final DataDocument replaceDocument, final DataFilter filter) {
+      final DataDocument toReplace = new DataDocument(replaceDocument);
+      toReplace.remove(DOCUMENT_ID);
+
+      return add(collectionName, DataBulkResult.Operation.REPLACE, new ReplaceOneModel<>(filter.<Bson>get(), new Document(toReplace), new ReplaceOptions().upsert(true)), null);
+   }
+
+   @Override
+   public DataBulk drop(final String collectionName, final DataFilter filter) {
+      return add(collectionName, DataBulkResult.Operation.DROP, new DeleteOneModel<>(filter.<Bson>get()), null);
+   }
+
+   @Override
+   public synchronized List<DataBulkResult> execute() {
+      if (!executed) {
+         executed = true;
+         new ArrayList<>(pendingOperations.keySet()).forEach(this::flush);
+         CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).join();
+      }
+
+      return results.values().stream()
+                    .sorted((r1, r2) -> Integer.compare(r1.getIndex(), r2.getIndex()))
+                    .collect(Collectors.toList());
+   }
+
+   @Override
+   public synchronized int size() {
+      return size;
+   }
+
+   @Override
+   public void close() {
+      execute();
+   }
+
+   private DataBulk add(final String collectionName, final DataBulkResult.Operation operation, final WriteModel<Document> model, final String documentId) {
+      List<BulkOperation> fullBatch = null;
+      CompletableFuture<Void> batch = null;
+
+      synchronized (this) {
+         if (executed) {
+            throw new IllegalStateException("The bulk has been already executed.");
+         }
+
+         final List<BulkOperation> operations = pendingOperations.computeIfAbsent(collectionName, name -> new ArrayList<>());
+         operations.add(new BulkOperation(size++, operation, model, documentId));
+
+         if (operations.size() >= batchSize) {
+            fullBatch = pendingOperations.remove(collectionName);
+            // registered under the lock, so that execute() waits for the batch even before it is written
+            batch = registerBatch();
+         }
+      }
+
+      // waiting for a free slot must not block the other threads adding to the bulk
+      if (fullBatch != null) {
+         flush(collectionName, fullBatch, batch);
+      }
+
+      return this;
+   }
+
+   private CompletableFuture<Void> registerBatch() {
+      final CompletableFuture<Void> batch = new CompletableFuture<>();
+      batches.add(batch);
+      return batch;
+   }
+
+   private void flush(final String collectionName) {
+      final List<BulkOperation> operations = pendingOperations.remove(collectionName);
+      if (operations != null && !operations.isEmpty()) {
+         flush(collectionName, operations, registerBatch());
+      }
+   }
+
+   private void flush(final String collectionName, final List<BulkOperation> operations, final CompletableFuture<Void> batch) {
+      inFlightBatches.acquireUninterruptibly();
+
+      if (executor == null) {
+         try {
+            write(collectionName, operations);
+         } finally {
+            inFlightBatches.release();
+            batch.complete(null);
+         }
+      } else {
+         try {
+            CompletableFuture.runAsync(() -> write(collectionName, operations), executor)
+                             .whenComplete((result, throwable) -> {
+                                inFlightBatches.release();
+                                if (throwable != null) {
+                                   batch.completeExceptionally(throwable);
+                                } else {
+                                   batch.complete(null);
+                                }
+                             });
+         } catch (RuntimeException e) {
+            inFlightBatches.release();
+            batch.complete(null);
+            throw e;
+         }
+      }
+   }
+
+   private void write(final String collectionName, final List<BulkOperation> operations) {
+      final List<WriteModel<Document>> models = operations.stream().map(BulkOperation::getModel).collect(Collectors.toList());
+      final Map<Integer, String> errors = new HashMap<>();
+      List<BulkWriteUpsert> upserts = Collections.emptyList();
+
+      try {
+         final BulkWriteResult result = database.getCollection(collectionName).bulkWrite(models, new BulkWriteOptions().ordered(false));
+         upserts = result.getUpserts();
+      } catch (MongoBulkWriteException e) {
+         upserts = e.getWriteResult().getUpserts();
+         for (final BulkWriteError error : e.getWriteErrors()) {
+            errors.put(error.getIndex(), error.getMessage());
+         }
+      } catch (RuntimeException e) {
+         // any other failure (including a codec error) fails the whole batch, the other batches keep their results
+         for (int i = 0; i < operations.size(); i++) {
+            errors.put(i, e.getMessage());
+         }
+      }
+
+      final Map<Integer, String> upsertedIds = new HashMap<>();
+      for (final BulkWriteUpsert upsert : upserts) {
+         upsertedIds.put(upsert.getIndex(), idToString(upsert.getId()));
+      }
+
+      for (int i = 0; i < operations.size(); i++) {
+         final BulkOperation operation = operations.get(i);
+         final String error = errors.get(i);
+         final String documentId = error != null ? null : (operation.getDocumentId() != null ? operation.getDocumentId() : upsertedIds.get(i));
+
+         results.put(operation.getIndex(), new DataBulkResult(operation.getIndex(), operation.getOperation(), collectionName, documentId, error));
+      }
+   }
+
+   private static String idToString(final BsonValue id) {
+      return id.isObjectId() ? id.asObjectId().getValue().toString() : id.toString();
+   }
+
+   private static class BulkOperation {
+
+      private final int index;
+      private final DataBulkResult.Operation operation;
+      private final WriteModel<Document> model;
+      private final String documentId;
+
+      private BulkOperation(final int index, final DataBulkResult.Operation operation, final WriteModel<Document> model, final String documentId) {
+         this.index = index;
+         this.operation = operation;
+         this.model = model;
+         this.documentId = documentId;
+      }
+
+      public int getIndex() {
+         return index;
+      }
+
+      public DataBulkResult.Operation getOperation() {
+         return operation;
+      }
+
+      public WriteModel<Document> getModel() {
+         return model;
+      }
+
+      public String getDocumentId() {
+         return documentId;
+      }
+   }
+}
@@ -24,6 +24,7 @@ import static com.mongodb.client.model.Filters.exists;
 import static com.mongodb.client.model.Sorts.descending;
 import static com.mongodb.client.model.Updates.*;
 
+import io.lumeer.engine.api.data.DataBulk;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.DataFilter;
 import io.lumeer.engine.api.data.DataSort;
@@ -64,16 +65,15 @@ import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoCredential;
 import com.mongodb.MongoNamespace;
 import com.mongodb.MongoWriteException;
+import com.mongodb.ReadPreference;
 import com.mongodb.ServerAddress;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
-import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.UpdateOptions;
 import org.bson.BsonDocument;
 import org.bson.Document;
@@ -89,6 +89,8 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -105,6 +107,8 @@ public class MongoDbStorage implements DataStorage {
 
    private MongoDatabase database;
    private MongoClient mongoClient = null;
+   private transient ExecutorService bulkExecutor = null;
+   private transient MongoSequences sequences;
 
    @Override
    public void connect(final List<StorageConnection> connections, final String database, final Boolean useSsl) {
@@ -119,7 +123,8 @@ public class MongoDbStorage implements DataStorage {
          credential = MongoCredential.createScramSha1Credential(connections.get(0).getUserName(), database, connections.get(0).getPassword());
       }
 
-      final MongoClientOptions.Builder optionsBuilder = (new MongoClientOptions.Builder()).connectTimeout(30000);
+      // everything reads from the primary unless explicitly routed by MongoUtils.STALE_READ_PREFERENCE
+      final MongoClientOptions.Builder optionsBuilder = (new MongoClientOptions.Builder()).connectTimeout(30000).readPreference(ReadPreference.primary());
 
       if (useSsl) {
          optionsBuilder.sslEnabled(true).socketFactory(NaiveTrustManager.getSocketFactory()).sslInvalidHostNameAllowed(true);
@@ -144,10 +149,18 @@ public class MongoDbStorage implements DataStorage {
       }
 
       this.database = mongoClient.getDatabase(database);
+      this.sequences = new MongoSequences(this.database, MongoSequences.DEFAULT_BLOCK_SIZE);
    }
 
    @Override
    public void disconnect() {
+      synchronized (this) {
+         if (bulkExecutor != null) {
+            bulkExecutor.shutdown();
+            bulkExecutor = null;
+         }
+      }
+
       if (mongoClient != null) {
          mongoClient.close();
       }
@@ -491,35 +504,30 @@ public class MongoDbStorage implements DataStorage {
    }
 
    @Override
-   public synchronized int getNextSequenceNo(final String collectionName, final String indexAttribute, final String index) {
-      final FindOneAndUpdateOptions options = new FindOneAndUpdateOptions();
-      options.returnDocument(ReturnDocument.AFTER);
-
-      final Document doc = database.getCollection(collectionName).findOneAndUpdate(eq(indexAttribute, index), inc("seq", 1),
-            options);
+   public DataBulk bulk(final int batchSize, final int maxInFlightBatches) {
+      return new MongoDbBulk(database, getBulkExecutor(), batchSize, maxInFlightBatches);
+   }
 
-      if (doc == null) { // the sequence did not exist
-         resetSequence(collectionName, indexAttribute, index);
-         return 0;
-      } else {
-         return doc.getInteger("seq");
+   private synchronized ExecutorService getBulkExecutor() {
+      if (bulkExecutor == null) {
+         bulkExecutor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "mongodb-bulk-writer");
+            thread.setDaemon(true);
+            return thread;
+         });
       }
+
+      return bulkExecutor;
    }
 
    @Override
-   public synchronized void resetSequence(final String collectionName, final String indexAttribute, final String index) {
-      final FindOneAndUpdateOptions options = new FindOneAndUpdateOptions();
-      options.returnDocument(ReturnDocument.AFTER);
-
-      final Document doc = database.getCollection(collectionName).findOneAndUpdate(eq(indexAttribute, index), set("seq", 0),
-            options);
+   public int getNextSequenceNo(final String collectionName, final String indexAttribute, final String index) {
+      return sequences.next(collectionName, indexAttribute, index);
+   }
 
-      if (doc == null) {
-         Document newSeq = new Document();
-         newSeq.put(indexAttribute, index);
-         newSeq.put("seq", 0);
-         database.getCollection(collectionName).insertOne(newSeq);
-      }
+   @Override
+   public void resetSequence(final String collectionName, final String indexAttribute, final String index) {
+      sequences.reset(collectionName, indexAttribute, index);
    }
 
    @Override
@@ -543,7 +551,7 @@ public class MongoDbStorage implements DataStorage {
 
    @Override
    public DataStorageStats getDbStats() {
-      final Document dbStats = database.runCommand(Document.parse("{ dbStats: 1, scale: 1 }"));
+      final Document dbStats = database.runCommand(Document.parse("{ dbStats: 1, scale: 1 }"), MongoUtils.STALE_READ_PREFERENCE);
       final DataStorageStats dss = new DataStorageStats();
 
       dss.setDatabaseName(dbStats.getString("db"));
@@ -559,7 +567,7 @@ public class MongoDbStorage implements DataStorage {
 
    @Override
    public DataStorageStats getCollectionStats(final String collectionName) {
-      final Document collStats = database.runCommand(Document.parse("{ collStats: \"" + collectionName + "\", scale: 1, verbose: false }"));
+      final Document collStats = database.runCommand(Document.parse("{ collStats: \"" + collectionName + "\", scale: 1, verbose: false }"), MongoUtils.STALE_READ_PREFERENCE);
       final DataStorageStats dss = new DataStorageStats();
 
       final String ns = collStats.getString("ns");
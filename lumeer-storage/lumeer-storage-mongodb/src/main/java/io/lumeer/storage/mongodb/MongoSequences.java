@@ -0,0 +1,270 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.in;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hands out sequence numbers from blocks reserved in the database.
+ * A block of numbers is reserved by a single atomic increment of the stored sequence, so the numbers
+ * are unique across all nodes sharing the database. Numbers are handed out from memory without locking,
+ * only threads that exhaust a block wait for the next one to be reserved. The numbers are increasing on a single node,
+ * unused numbers of a block are lost when the node stops.
+ */
+public class MongoSequences {
+
+   private static final Logger log = Logger.getLogger(MongoSequences.class.getName());
+
+   public static final int DEFAULT_BLOCK_SIZE = 50;
+
+   static final String SEQUENCE = "seq";
+
+   private final MongoDatabase database;
+   private final int blockSize;
+   private final ConcurrentMap<SequenceKey, AtomicReference<CompletableFuture<SequenceBlock>>> sequences = new ConcurrentHashMap<>();
+   private final Set<String> indexedCollections = ConcurrentHashMap.newKeySet();
+
+   public MongoSequences(final MongoDatabase database, final int blockSize) {
+      if (blockSize < 1) {
+         throw new IllegalArgumentException("Sequence block size must be positive.");
+      }
+
+      this.database = database;
+      this.blockSize = blockSize;
+   }
+
+   /**
+    * Gets the next value of sequence, a new sequence starts with zero.
+    *
+    * @param collectionName
+    *       Name of the collection with sequences.
+    * @param indexAttribute
+    *       Name of the attribute that identifies the sequence document.
+    * @param index
+    *       Value of the index attribute to identify the sequence.
+    * @return The next value in the sequence.
+    */
+   public int next(final String collectionName, final String indexAttribute, final String index) {
+      final AtomicReference<CompletableFuture<SequenceBlock>> sequence = sequences.computeIfAbsent(new SequenceKey(collectionName, indexAttribute, index), key -> new AtomicReference<>());
+
+      while (true) {
+         final CompletableFuture<SequenceBlock> current = sequence.get();
+         if (current != null) {
+            final int number = join(current).next();
+            if (number >= 0) {
+               return number;
+            }
+         }
+
+         final CompletableFuture<SequenceBlock> refill = new CompletableFuture<>();
+         if (sequence.compareAndSet(current, refill)) {
+            try {
+               refill.complete(reserve(collectionName, indexAttribute, index));
+            } catch (RuntimeException e) {
+               sequence.compareAndSet(refill, null);
+               refill.completeExceptionally(e);
+               throw e;
+            }
+         }
+      }
+   }
+
+   /**
+    * Resets a sequence to zero. Blocks already reserved by other nodes are not affected.
+    *
+    * @param collectionName
+    *       Name of the collection with sequences.
+    * @param indexAttribute
+    *       Name of the attribute that identifies the sequence document.
+    * @param index
+    *       Value of the index attribute to identify the sequence.
+    */
+   public void reset(final String collectionName, final String indexAttribute, final String index) {
+      sequenceCollection(collectionName, indexAttribute).updateOne(eq(indexAttribute, index), Updates.set(SEQUENCE, 0), new UpdateOptions().upsert(true));
+      sequences.remove(new SequenceKey(collectionName, indexAttribute, index));
+   }
+
+   private SequenceBlock reserve(final String collectionName, final String indexAttribute, final String index) {
+      final FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.BEFORE);
+      final MongoCollection<Document> collection = sequenceCollection(collectionName, indexAttribute);
+
+      Document previous;
+      try {
+         previous = collection.findOneAndUpdate(eq(indexAttribute, index), Updates.inc(SEQUENCE, blockSize), options);
+      } catch (MongoCommandException e) {
+         if (ErrorCategory.fromErrorCode(e.getErrorCode()) != ErrorCategory.DUPLICATE_KEY) {
+            throw e;
+         }
+         // another node created the sequence at the same time
+         previous = collection.findOneAndUpdate(eq(indexAttribute, index), Updates.inc(SEQUENCE, blockSize), options);
+      }
+
+      if (previous == null) { // the sequence did not exist, zero is the first number
+         return new SequenceBlock(0, blockSize);
+      }
+
+      final int last = previous.getInteger(SEQUENCE);
+      return new SequenceBlock(last + 1, last + blockSize);
+   }
+
+   private MongoCollection<Document> sequenceCollection(final String collectionName, final String indexAttribute) {
+      final MongoCollection<Document> collection = database.getCollection(collectionName);
+
+      if (indexedCollections.add(collectionName + "." + indexAttribute)) {
+         try {
+            createIndex(collection, indexAttribute);
+         } catch (MongoCommandException e) {
+            if (ErrorCategory.fromErrorCode(e.getErrorCode()) != ErrorCategory.DUPLICATE_KEY) {
+               log.log(Level.WARNING, "Unable to create unique sequence index in " + collectionName + ": ", e);
+            } else {
+               mergeDuplicates(collection, indexAttribute);
+               try {
+                  createIndex(collection, indexAttribute);
+               } catch (MongoException ex) {
+                  log.log(Level.WARNING, "Unable to create unique sequence index in " + collectionName + ", sequence numbers might collide between nodes: ", ex);
+               }
+            }
+         } catch (MongoException e) {
+            log.log(Level.WARNING, "Unable to create unique sequence index in " + collectionName + ": ", e);
+         }
+      }
+
+      return collection;
+   }
+
+   private static void createIndex(final MongoCollection<Document> collection, final String indexAttribute) {
+      collection.createIndex(Indexes.ascending(indexAttribute), new IndexOptions().unique(true));
+   }
+
+   /**
+    * Merges sequence documents with the same index created before the unique index existed.
+    * The remaining document keeps the highest value, so no number handed out before is used again.
+    */
+   private static void mergeDuplicates(final MongoCollection<Document> collection, final String indexAttribute) {
+      final List<Document> duplicates = collection.aggregate(Arrays.asList(
+            Aggregates.group("$" + indexAttribute, Accumulators.max(SEQUENCE, "$" + SEQUENCE), Accumulators.push("ids", "$_id"), Accumulators.sum("count", 1)),
+            Aggregates.match(gt("count", 1))
+      )).into(new ArrayList<>());
+
+      duplicates.forEach(duplicate -> {
+         final List<?> ids = (List<?>) duplicate.get("ids");
+         collection.updateOne(eq("_id", ids.get(0)), Updates.set(SEQUENCE, duplicate.get(SEQUENCE)));
+         collection.deleteMany(in("_id", ids.subList(1, ids.size())));
+      });
+
+      log.warning("Merged " + duplicates.size() + " duplicate sequences in " + collection.getNamespace().getCollectionName());
+   }
+
+   private static SequenceBlock join(final CompletableFuture<SequenceBlock> block) {
+      try {
+         return block.join();
+      } catch (CompletionException e) {
+         if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+         }
+         throw e;
+      }
+   }
+
+   private static class SequenceBlock {
+
+      private final AtomicInteger next;
+      private final int last;
+
+      private SequenceBlock(final int first, final int last) {
+         this.next = new AtomicInteger(first);
+         this.last = last;
+      }
+
+      /**
+       * @return The next number of the block or -1 when the block is exhausted.
+       */
+      private int next() {
+         if (next.get() > last) {
+            return -1;
+         }
+
+         final int number = next.getAndIncrement();
+         return number <= last ? number : -1;
+      }
+   }
+
+   private static class SequenceKey {
+
+      private final String collectionName;
+      private final String indexAttribute;
+      private final String index;
+
+      private SequenceKey(final String collectionName, final String indexAttribute, final String index) {
+         this.collectionName = collectionName;
+         this.indexAttribute = indexAttribute;
+         this.index = index;
+      }
+
+      @Override
+      public boolean equals(final Object o) {
+         if (this == o) {
+            return true;
+         }
+         if (!(o instanceof SequenceKey)) {
+            return false;
+         }
+         final SequenceKey that = (SequenceKey) o;
+         return Objects.equals(collectionName, that.collectionName) &&
+               Objects.equals(indexAttribute, that.indexAttribute) &&
+               Objects.equals(index, that.index);
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hash(collectionName, indexAttribute, index);
+      }
+   }
+}
@@ -21,6 +21,7 @@ package io.lumeer.storage.mongodb;
 import io.lumeer.engine.api.data.DataDocument;
 
 import com.mongodb.MongoClient;
+import com.mongodb.ReadPreference;
 import com.mongodb.client.MongoIterable;
 import org.bson.BsonDocument;
 import org.bson.Document;
@@ -29,6 +30,7 @@ import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author <a href="kubedo8@gmail.com">Jakub Rodák</a>
@@ -37,6 +39,17 @@ public class MongoUtils {
 
    private static final String DOCUMENT_ID = "_id";
 
+   /**
+    * Maximal replication lag of a secondary that can still serve searches, suggestions and statistics.
+    * MongoDB does not accept less than 90 seconds.
+    */
+   public static final long MAX_STALENESS_SECONDS = Long.getLong("lumeer.db.maxStaleness", 90L);
+
+   /**
+    * Read preference for reads that tolerate slightly stale data. Writes and reads of just written data must stay on the primary.
+    */
+   public static final ReadPreference STALE_READ_PREFERENCE = ReadPreference.secondaryPreferred(MAX_STALENESS_SECONDS, TimeUnit.SECONDS);
+
    private MongoUtils() {
 
    }
@@ -20,8 +20,10 @@ package io.lumeer.storage.mongodb.dao;
 
 import io.lumeer.api.model.Pagination;
 import io.lumeer.storage.api.query.DatabaseQuery;
+import io.lumeer.storage.mongodb.MongoUtils;
 
 import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Aggregates;
 
@@ -37,6 +39,13 @@ public abstract class MongoDao {
       this.database = database;
    }
 
+   /**
+    * Routes reads of the given collection to a secondary when available, only for searches, suggestions and statistics.
+    */
+   protected <T> MongoCollection<T> staleReads(final MongoCollection<T> collection) {
+      return collection.withReadPreference(MongoUtils.STALE_READ_PREFERENCE);
+   }
+
    public <T> void addPaginationToQuery(FindIterable<T> findIterable, DatabaseQuery query) {
       addPaginationToQuery(findIterable, query.getPagination());
    }
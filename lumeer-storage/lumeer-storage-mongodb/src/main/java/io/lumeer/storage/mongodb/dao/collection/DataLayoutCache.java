@@ -0,0 +1,92 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.collection;
+
+import org.bson.Document;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Data storage layouts of projects shared by the data DAOs of a node, so that a write does not read the layout from the database
+ * every time it checks for a migration. A layout older than the maximal age is read again, a migration waits at least as long
+ * after every change of the layout, so the layout seen by any node is never more than one change behind.
+ */
+@ApplicationScoped
+public class DataLayoutCache {
+
+   public static final long DEFAULT_MAX_AGE = 2_000L;
+
+   private final long maxAge;
+   private final Map<String, CachedLayout> layouts = new ConcurrentHashMap<>();
+
+   public DataLayoutCache() {
+      this(DEFAULT_MAX_AGE);
+   }
+
+   DataLayoutCache(final long maxAge) {
+      this.maxAge = maxAge;
+   }
+
+   public long getMaxAge() {
+      return maxAge;
+   }
+
+   /**
+    * Gets the stored layout of a project.
+    *
+    * @param databaseName
+    *       name of the database with the project data
+    * @param projectId
+    *       id of the project
+    * @param cached
+    *       whether a layout read recently can be used, otherwise it is always read from the database
+    * @param loader
+    *       reads the layout document from the database
+    * @return the layout document, null when the project has no layout stored
+    */
+   Document getLayout(final String databaseName, final String projectId, final boolean cached, final Supplier<Document> loader) {
+      final String key = databaseName + "/" + projectId;
+      final long now = System.currentTimeMillis();
+
+      final CachedLayout layout = layouts.get(key);
+      if (cached && layout != null && now - layout.loadedAt < maxAge) {
+         return layout.document;
+      }
+
+      // the age counts from before the read, the stored layout might have changed while it was being read
+      final CachedLayout loadedLayout = new CachedLayout(loader.get(), now);
+      layouts.merge(key, loadedLayout, (previous, loaded) -> loaded.loadedAt >= previous.loadedAt ? loaded : previous);
+
+      return loadedLayout.document;
+   }
+
+   private static class CachedLayout {
+
+      private final Document document;
+      private final long loadedAt;
+
+      private CachedLayout(final Document document, final long loadedAt) {
+         this.document = document;
+         this.loadedAt = loadedAt;
+      }
+   }
+}
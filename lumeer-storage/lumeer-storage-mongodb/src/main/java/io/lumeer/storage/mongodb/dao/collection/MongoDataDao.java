@@ -26,67 +26,136 @@ import io.lumeer.api.model.Pagination;
 import io.lumeer.api.model.ResourceType;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.DataStorageLayout;
 import io.lumeer.storage.api.exception.ResourceNotFoundException;
 import io.lumeer.storage.api.exception.StorageException;
 import io.lumeer.storage.api.filter.AttributeFilter;
 import io.lumeer.storage.api.query.SearchQueryStem;
 import io.lumeer.storage.mongodb.MongoUtils;
+import io.lumeer.storage.mongodb.index.MongoIndexAdvisor;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.UpdateResult;
-import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
 
 @RequestScoped
 public class MongoDataDao extends CollectionScopedDao implements DataDao {
 
    private static final String ID = "_id";
    private static final String PREFIX = "data_c-";
+   private static final String SHARED_PREFIX = "data_p-";
+
+   public static final String COLLECTION_ID = "collectionId";
+
+   private static final String LAYOUTS_COLLECTION = "datalayouts";
+   private static final String LAYOUT = "layout";
+   private static final String SHADOW_LAYOUT = "shadowLayout";
+   private static final String VERSION = "version";
+
+   private static final int MIGRATION_BATCH_SIZE = 1000;
+   private static final int STREAM_BATCH_SIZE = 2000;
+
+   private long layoutSwitchGracePeriod = 10_000L;
+
+   @Inject
+   private MongoIndexAdvisor indexAdvisor;
+
+   @Inject
+   private DataLayoutCache layoutCache;
+
+   private boolean layoutLoaded;
+   private DataStorageLayout layout;
+   private DataStorageLayout shadowLayout;
+   private long layoutVersion;
 
    @Override
    public void createDataRepository(final String collectionId) {
-      database.createCollection(dataCollectionName(collectionId));
-      createFulltextIndexOnAllFields(collectionId);
+      writeToActiveLayouts(EnumSet.noneOf(DataStorageLayout.class), activeLayout -> createDataRepository(activeLayout, collectionId));
+   }
+
+   private void createDataRepository(final DataStorageLayout layout, final String collectionId) {
+      if (layout == DataStorageLayout.SHARED) {
+         createSharedDataIndexes();
+      } else {
+         // creating the index creates the collection, unless a write mirrored during a layout migration has created it already
+         createFulltextIndexOnAllFields(collectionId);
+      }
    }
 
    private void createFulltextIndexOnAllFields(final String collectionId) {
       dataCollection(collectionId).createIndex(Indexes.text("$**"));
    }
 
+   private void createSharedDataIndexes() {
+      sharedDataCollection().createIndex(Indexes.ascending(COLLECTION_ID, ID));
+   }
+
    @Override
    public void deleteDataRepository(final String collectionId) {
-      dataCollection(collectionId).drop();
+      writeToActiveLayouts(EnumSet.noneOf(DataStorageLayout.class), activeLayout -> deleteDataRepository(activeLayout, collectionId));
+   }
+
+   private void deleteDataRepository(final DataStorageLayout layout, final String collectionId) {
+      if (layout == DataStorageLayout.SHARED) {
+         sharedDataCollection().deleteMany(scopeFilter(layout, collectionId, null));
+      } else {
+         dataCollection(collectionId).drop();
+      }
    }
 
    @Override
    public DataDocument createData(final String collectionId, final String documentId, final DataDocument data) {
       Document document = new Document(data).append(ID, new ObjectId(documentId));
-      dataCollection(collectionId).insertOne(document);
+      DataStorageLayout primaryLayout = getLayout();
+      dataCollection(primaryLayout, collectionId).insertOne(storedDocument(primaryLayout, collectionId, document));
+      mirrorInsert(primaryLayout, collectionId, List.of(document));
       return data;
    }
 
    @Override
    public List<DataDocument> createData(final String collectionId, final List<DataDocument> data) {
       List<Document> documents = data.stream().map(dataDocument -> new Document(dataDocument).append(ID, new ObjectId(dataDocument.getId()))).collect(Collectors.toList());
-      dataCollection(collectionId).insertMany(documents);
+      DataStorageLayout primaryLayout = getLayout();
+      dataCollection(primaryLayout, collectionId).insertMany(documents.stream().map(document -> storedDocument(primaryLayout, collectionId, document)).collect(Collectors.toList()),
+            new InsertManyOptions().ordered(false));
+      mirrorInsert(primaryLayout, collectionId, documents);
 
       for (int i = 0; i < documents.size(); i++) {
          Object idObj = documents.get(i).get(ID);
@@ -96,16 +165,48 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       return data;
    }
 
+   /**
+    * Reads the stored data of a collection without decoding them, for project snapshots.
+    *
+    * @param collectionId
+    *       the collection to read
+    * @return the data as they are stored
+    */
+   public MongoIterable<RawBsonDocument> getRawData(final String collectionId) {
+      return dataCollection(getLayout(), collectionId).withDocumentClass(RawBsonDocument.class)
+                                                      .find(scopeFilter(getLayout(), collectionId, null))
+                                                      .projection(Projections.exclude(COLLECTION_ID))
+                                                      .batchSize(MIGRATION_BATCH_SIZE);
+   }
+
+   /**
+    * Stores data of a collection with their ids, for project snapshots.
+    *
+    * @param collectionId
+    *       the collection to store the data to
+    * @param documents
+    *       the data as read by {@link #getRawData(String)}
+    */
+   public void createRawData(final String collectionId, final List<Document> documents) {
+      DataStorageLayout primaryLayout = getLayout();
+      dataCollection(primaryLayout, collectionId).insertMany(documents.stream().map(document -> storedDocument(primaryLayout, collectionId, document)).collect(Collectors.toList()),
+            new InsertManyOptions().ordered(false));
+      mirrorInsert(primaryLayout, collectionId, documents);
+   }
+
    @Override
    public DataDocument updateData(final String collectionId, final String documentId, final DataDocument data) {
+      DataStorageLayout primaryLayout = getLayout();
       Document document = new Document(data);
       FindOneAndReplaceOptions options = new FindOneAndReplaceOptions().returnDocument(ReturnDocument.AFTER);
 
-      Document updatedDocument = dataCollection(collectionId).findOneAndReplace(idFilter(documentId), document, options);
+      Document updatedDocument = dataCollection(primaryLayout, collectionId).findOneAndReplace(scopeFilter(primaryLayout, collectionId, idFilter(documentId)), storedDocument(primaryLayout, collectionId, document), options);
       if (updatedDocument == null) {
          throw new StorageException("Document '" + documentId + "' has not been updated (replaced).");
       }
-      return MongoUtils.convertDocument(updatedDocument);
+      mirrorWrite(primaryLayout, collectionId, updatedDocument.get(ID), activeLayout ->
+            dataCollection(activeLayout, collectionId).replaceOne(scopeFilter(activeLayout, collectionId, idFilter(documentId)), storedDocument(activeLayout, collectionId, document)));
+      return convertDocument(primaryLayout, updatedDocument);
    }
 
    @Override
@@ -114,41 +215,49 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       Document updateDocument = new Document("$set", new Document(data));
       FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
-      Document patchedDocument = dataCollection(collectionId).findOneAndUpdate(idFilter(documentId), updateDocument, options);
+      DataStorageLayout primaryLayout = getLayout();
+      Document patchedDocument = dataCollection(primaryLayout, collectionId).findOneAndUpdate(scopeFilter(primaryLayout, collectionId, idFilter(documentId)), updateDocument, options);
       if (patchedDocument == null) {
          throw new StorageException("Document '" + documentId + "' has not been patched (partially updated).");
       }
-      return MongoUtils.convertDocument(patchedDocument);
+      mirrorWrite(primaryLayout, collectionId, patchedDocument.get(ID), activeLayout ->
+            dataCollection(activeLayout, collectionId).updateOne(scopeFilter(activeLayout, collectionId, idFilter(documentId)), updateDocument));
+      return convertDocument(primaryLayout, patchedDocument);
    }
 
    @Override
    public void deleteData(final String collectionId, final String documentId) {
-      dataCollection(collectionId).deleteOne(idFilter(documentId));
+      writeToActiveLayouts(EnumSet.noneOf(DataStorageLayout.class), activeLayout ->
+            dataCollection(activeLayout, collectionId).deleteOne(scopeFilter(activeLayout, collectionId, idFilter(documentId))));
    }
 
    @Override
    public long deleteAttribute(final String collectionId, final String attributeId) {
-      final UpdateResult updateResult = dataCollection(collectionId).updateMany(new BsonDocument(), Updates.unset(attributeId));
+      final DataStorageLayout primaryLayout = getLayout();
+      final UpdateResult updateResult = dataCollection(primaryLayout, collectionId).updateMany(scopeFilter(primaryLayout, collectionId, null), Updates.unset(attributeId));
+      writeToActiveLayouts(EnumSet.of(primaryLayout), activeLayout ->
+            dataCollection(activeLayout, collectionId).updateMany(scopeFilter(activeLayout, collectionId, null), Updates.unset(attributeId)));
+
       return updateResult.getModifiedCount();
    }
 
    @Override
    public DataDocument getData(final String collectionId, final String documentId) {
-      MongoCursor<Document> mongoCursor = dataCollection(collectionId).find(idFilter(documentId)).iterator();
-      if (!mongoCursor.hasNext()) {
+      Document document = dataCollection(getLayout(), collectionId).find(scopeFilter(getLayout(), collectionId, idFilter(documentId))).first();
+      if (document == null) {
          throw new ResourceNotFoundException(ResourceType.DOCUMENT);
       }
-      return MongoUtils.convertDocument(mongoCursor.next());
+      return convertDocument(document);
    }
 
    @Override
    public List<DataDocument> getData(final String collectionId) {
-      return MongoUtils.convertIterableToList(dataCollection(collectionId).find());
+      return convertIterableToList(dataCollection(getLayout(), collectionId).find(scopeFilter(getLayout(), collectionId, null)));
    }
 
    @Override
    public List<DataDocument> getData(final String collectionId, final Set<String> documentIds) {
-      return MongoUtils.convertIterableToList(dataCollection(collectionId).find(documentIdsFilter(documentIds)));
+      return convertIterableToList(dataCollection(getLayout(), collectionId).find(scopeFilter(getLayout(), collectionId, documentIdsFilter(documentIds))));
    }
 
    private Bson documentIdsFilter(Set<String> documentIds) {
@@ -162,9 +271,32 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
    @Override
    public List<DataDocument> searchData(final SearchQueryStem stem, final Pagination pagination, final Collection collection) {
       Bson filter = createFilterForStem(stem, collection);
-      FindIterable<Document> iterable = dataCollection(collection.getId()).find(filter);
+      if (indexAdvisor != null && getProject().isPresent() && stem.containsFiltersQuery()) {
+         indexAdvisor.recordFilters(getProject().get().getId(), collection.getId(), stem.getFilters());
+      }
+
+      FindIterable<Document> iterable = searchCollection(collection.getId()).find(scopeFilter(getLayout(), collection.getId(), filter));
       addPaginationToQuery(iterable, pagination);
-      return MongoUtils.convertIterableToList(iterable);
+      return convertIterableToList(iterable);
+   }
+
+   @Override
+   public void streamData(final Collection collection, final SearchQueryStem stem, final Set<String> attributeIds, final Consumer<DataDocument> consumer) {
+      final Bson filter = stem != null ? createFilterForStem(stem, collection) : null;
+
+      // a slow reader must not lose the cursor, it is always closed below
+      final FindIterable<Document> iterable = searchCollection(collection.getId()).find(scopeFilter(getLayout(), collection.getId(), filter))
+                                                                                  .batchSize(STREAM_BATCH_SIZE)
+                                                                                  .noCursorTimeout(true);
+      if (attributeIds != null) {
+         iterable.projection(Projections.include(new ArrayList<>(attributeIds)));
+      }
+
+      try (MongoCursor<Document> cursor = iterable.iterator()) {
+         while (cursor.hasNext()) {
+            consumer.accept(convertDocument(cursor.next()));
+         }
+      }
    }
 
    private Bson createFilterForStem(final SearchQueryStem stem, Collection collection) {
@@ -218,9 +350,9 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       for (Collection collection : projectCollections) {
          Bson filter = createFilterForFulltexts(collection, fulltexts);
          if (filter != null) {
-            FindIterable<Document> iterable = dataCollection(collection.getId()).find(filter);
+            FindIterable<Document> iterable = searchCollection(collection.getId()).find(scopeFilter(getLayout(), collection.getId(), filter));
             addPaginationToQuery(iterable, pagination);
-            documents.addAll(MongoUtils.convertIterableToList(iterable));
+            documents.addAll(convertIterableToList(iterable));
          }
       }
 
@@ -257,6 +389,337 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       return contentFilter;
    }
 
+   @Override
+   public DataStorageLayout getDataStorageLayout() {
+      return getLayout();
+   }
+
+   @Override
+   public void migrateDataStorageLayout(final DataStorageLayout targetLayout, final Supplier<Set<String>> collectionIds) {
+      final String projectId = getProject().orElseThrow(() -> new ResourceNotFoundException(ResourceType.PROJECT)).getId();
+
+      reloadLayout();
+      final DataStorageLayout sourceLayout = layout;
+      if (shadowLayout != null) {
+         throw new StorageException("Data storage layout of project '" + projectId + "' is already being migrated.");
+      }
+      if (sourceLayout == targetLayout) {
+         return;
+      }
+
+      // leftovers of a previously failed migration must not be taken for mirrored writes
+      dropDataRepositories(targetLayout, collectionIds.get());
+
+      startLayoutMigration(projectId, sourceLayout, targetLayout);
+      try {
+         // writes of requests that have not seen the migration yet must not be missed by the copy
+         waitForLayoutSwitch();
+
+         // collections created since then are written to both layouts
+         collectionIds.get().forEach(collectionId -> {
+            createDataRepository(targetLayout, collectionId);
+            copyData(sourceLayout, targetLayout, collectionId);
+            removeOrphanedData(sourceLayout, targetLayout, collectionId);
+         });
+      } catch (RuntimeException ex) {
+         storeLayout(projectId, sourceLayout, null);
+         dropDataRepositories(targetLayout, collectionIds.get());
+         throw ex;
+      }
+
+      // switch reads while still mirroring writes to the source layout
+      storeLayout(projectId, targetLayout, sourceLayout);
+      waitForLayoutSwitch();
+
+      storeLayout(projectId, targetLayout, null);
+      dropDataRepositories(sourceLayout, collectionIds.get());
+   }
+
+   private void dropDataRepositories(final DataStorageLayout layout, final Set<String> collectionIds) {
+      if (layout == DataStorageLayout.SHARED) {
+         sharedDataCollection().drop();
+      } else {
+         collectionIds.forEach(collectionId -> dataCollection(collectionId).drop());
+      }
+   }
+
+   private void startLayoutMigration(final String projectId, final DataStorageLayout sourceLayout, final DataStorageLayout targetLayout) {
+      try {
+         Bson filter = Filters.and(Filters.eq(ID, projectId), Filters.exists(SHADOW_LAYOUT, false));
+         Bson update = Updates.combine(Updates.set(LAYOUT, sourceLayout.toString()), Updates.set(SHADOW_LAYOUT, targetLayout.toString()), Updates.inc(VERSION, 1L));
+         layoutsCollection().updateOne(filter, update, new UpdateOptions().upsert(true));
+      } catch (MongoWriteException ex) {
+         if (ex.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+            throw new StorageException("Data storage layout of project '" + projectId + "' is already being migrated.", ex);
+         }
+         throw new StorageException("Cannot start data storage layout migration of project '" + projectId + "'.", ex);
+      }
+      reloadLayout();
+   }
+
+   private void storeLayout(final String projectId, final DataStorageLayout layout, final DataStorageLayout shadowLayout) {
+      Bson update = shadowLayout != null ? Updates.combine(Updates.set(LAYOUT, layout.toString()), Updates.set(SHADOW_LAYOUT, shadowLayout.toString()), Updates.inc(VERSION, 1L))
+            : Updates.combine(Updates.set(LAYOUT, layout.toString()), Updates.unset(SHADOW_LAYOUT), Updates.inc(VERSION, 1L));
+      layoutsCollection().updateOne(Filters.eq(ID, projectId), update, new UpdateOptions().upsert(true));
+      reloadLayout();
+   }
+
+   private void waitForLayoutSwitch() {
+      // requests that have loaded the previous layout keep reading it, the other nodes might not have seen the change yet
+      try {
+         Thread.sleep(layoutCache != null ? Math.max(layoutSwitchGracePeriod, layoutCache.getMaxAge()) : layoutSwitchGracePeriod);
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new StorageException("Data storage layout migration has been interrupted.", ex);
+      }
+   }
+
+   private void copyData(final DataStorageLayout sourceLayout, final DataStorageLayout targetLayout, final String collectionId) {
+      final MongoCollection<Document> targetCollection = dataCollection(targetLayout, collectionId);
+      final List<WriteModel<Document>> batch = new ArrayList<>();
+
+      for (Document document : dataCollection(sourceLayout, collectionId).find(scopeFilter(sourceLayout, collectionId, null)).batchSize(MIGRATION_BATCH_SIZE)) {
+         document.remove(COLLECTION_ID);
+         batch.add(new InsertOneModel<>(storedDocument(targetLayout, collectionId, document)));
+
+         if (batch.size() >= MIGRATION_BATCH_SIZE) {
+            insertMissingDocuments(targetCollection, batch);
+            batch.clear();
+         }
+      }
+
+      if (!batch.isEmpty()) {
+         insertMissingDocuments(targetCollection, batch);
+      }
+   }
+
+   /**
+    * @return true when all the documents have been inserted, false when some of them were present already
+    */
+   private boolean insertMissingDocuments(final MongoCollection<Document> collection, final List<WriteModel<Document>> batch) {
+      try {
+         collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+         return true;
+      } catch (MongoBulkWriteException ex) {
+         // documents already present were written by mirrored requests and are newer than the copied ones
+         for (BulkWriteError error : ex.getWriteErrors()) {
+            if (ErrorCategory.fromErrorCode(error.getCode()) != ErrorCategory.DUPLICATE_KEY) {
+               throw new StorageException("Cannot copy data to collection '" + collection.getNamespace() + "'.", ex);
+            }
+         }
+         return false;
+      }
+   }
+
+   private void removeOrphanedData(final DataStorageLayout sourceLayout, final DataStorageLayout targetLayout, final String collectionId) {
+      // documents deleted while being copied could have been brought back by the copy
+      final List<Object> ids = new ArrayList<>();
+
+      for (Document document : dataCollection(targetLayout, collectionId).find(scopeFilter(targetLayout, collectionId, null)).projection(Projections.include(ID)).batchSize(MIGRATION_BATCH_SIZE)) {
+         ids.add(document.get(ID));
+
+         if (ids.size() >= MIGRATION_BATCH_SIZE) {
+            removeOrphanedData(sourceLayout, targetLayout, collectionId, ids);
+            ids.clear();
+         }
+      }
+
+      if (!ids.isEmpty()) {
+         removeOrphanedData(sourceLayout, targetLayout, collectionId, ids);
+      }
+   }
+
+   private void removeOrphanedData(final DataStorageLayout sourceLayout, final DataStorageLayout targetLayout, final String collectionId, final List<Object> ids) {
+      final Set<Object> existingIds = dataCollection(sourceLayout, collectionId).find(scopeFilter(sourceLayout, collectionId, Filters.in(ID, ids)))
+                                                                          .projection(Projections.include(ID))
+                                                                          .map(document -> document.get(ID))
+                                                                          .into(new HashSet<>());
+      final List<Object> orphanedIds = ids.stream().filter(id -> !existingIds.contains(id)).collect(Collectors.toList());
+
+      if (!orphanedIds.isEmpty()) {
+         dataCollection(targetLayout, collectionId).deleteMany(scopeFilter(targetLayout, collectionId, Filters.in(ID, orphanedIds)));
+      }
+   }
+
+   private void mirrorInsert(final DataStorageLayout primaryLayout, final String collectionId, final List<Document> documents) {
+      if (documents.isEmpty()) {
+         return;
+      }
+
+      // the copy of a migration might have inserted the new documents already
+      writeToActiveLayouts(EnumSet.of(primaryLayout), activeLayout ->
+            insertMissingDocuments(dataCollection(activeLayout, collectionId), documents.stream()
+                                                                                   .map(document -> new InsertOneModel<>(mirroredDocument(activeLayout, collectionId, document)))
+                                                                                   .collect(Collectors.toList())));
+   }
+
+   /**
+    * Mirrors a write of a single document to the other active layouts. The same operation is applied to them, never a copy
+    * of the written document, so concurrent writes to different attributes are not lost, and a document deleted meanwhile
+    * is not written again.
+    *
+    * @param primaryLayout
+    *       layout the write has been applied to
+    * @param documentId
+    *       id of the written document
+    * @param write
+    *       the write to a layout, it must not upsert the document
+    */
+   private void mirrorWrite(final DataStorageLayout primaryLayout, final String collectionId, final Object documentId, final Function<DataStorageLayout, UpdateResult> write) {
+      writeToActiveLayouts(EnumSet.of(primaryLayout), activeLayout -> {
+         if (write.apply(activeLayout).getMatchedCount() == 0 && !copyMissingDocument(primaryLayout, activeLayout, collectionId, documentId)) {
+            // the copy of a migration has inserted the document meanwhile, it might have read it before the write
+            write.apply(activeLayout);
+         }
+      });
+   }
+
+   /**
+    * Copies a document the migration has not copied yet, the copy might have read it before the mirrored write.
+    *
+    * @return false when the document was present in the target layout already
+    */
+   private boolean copyMissingDocument(final DataStorageLayout primaryLayout, final DataStorageLayout targetLayout, final String collectionId, final Object documentId) {
+      final Bson primaryFilter = scopeFilter(primaryLayout, collectionId, Filters.eq(ID, documentId));
+      final Document document = dataCollection(primaryLayout, collectionId).find(primaryFilter).first();
+      if (document == null) {
+         return true;
+      }
+
+      if (!insertMissingDocuments(dataCollection(targetLayout, collectionId), List.of(new InsertOneModel<>(mirroredDocument(targetLayout, collectionId, document))))) {
+         return false;
+      }
+
+      // a delete running meanwhile might have missed the inserted document
+      if (dataCollection(primaryLayout, collectionId).countDocuments(primaryFilter, new CountOptions().limit(1)) == 0) {
+         dataCollection(targetLayout, collectionId).deleteOne(scopeFilter(targetLayout, collectionId, Filters.eq(ID, documentId)));
+      }
+      return true;
+   }
+
+   private Document mirroredDocument(final DataStorageLayout layout, final String collectionId, final Document document) {
+      final Document mirroredDocument = new Document(document);
+      mirroredDocument.remove(COLLECTION_ID);
+      return storedDocument(layout, collectionId, mirroredDocument);
+   }
+
+   /**
+    * Applies a write to the active layouts. The layout is checked again after the write, when a migration has switched it meanwhile,
+    * the write is applied to the newly active layouts too. So a request that loaded the layout before the switch loses no write,
+    * however long it takes. The check uses the layout cache of the node, a migration waits for its entries to expire after every switch.
+    *
+    * @param writtenLayouts
+    *       layouts the write has been applied to already
+    * @param write
+    *       the write to a layout, it must not depend on the other layouts
+    */
+   private void writeToActiveLayouts(final Set<DataStorageLayout> writtenLayouts, final Consumer<DataStorageLayout> write) {
+      do {
+         for (DataStorageLayout activeLayout : activeLayouts()) {
+            if (writtenLayouts.add(activeLayout)) {
+               write.accept(activeLayout);
+            }
+         }
+      } while (reloadLayout(true));
+   }
+
+   private DataStorageLayout getLayout() {
+      if (!layoutLoaded) {
+         reloadLayout(true);
+      }
+      return layout;
+   }
+
+   private boolean reloadLayout() {
+      return reloadLayout(false);
+   }
+
+   /**
+    * @param cached
+    *       whether the layout cached by the node can be used
+    * @return true when the layout has been switched since it was loaded
+    */
+   private boolean reloadLayout(final boolean cached) {
+      DataStorageLayout storedLayout = null;
+      DataStorageLayout storedShadowLayout = null;
+      long storedVersion = 0;
+
+      if (getProject().isPresent()) {
+         final String projectId = getProject().get().getId();
+         final Supplier<Document> loader = () -> layoutsCollection().find(Filters.eq(ID, projectId)).first();
+         Document layoutDocument = layoutCache != null ? layoutCache.getLayout(database.getName(), projectId, cached, loader) : loader.get();
+         if (layoutDocument != null) {
+            storedLayout = DataStorageLayout.fromString(layoutDocument.getString(LAYOUT));
+            storedShadowLayout = DataStorageLayout.fromString(layoutDocument.getString(SHADOW_LAYOUT));
+            storedVersion = layoutDocument.get(VERSION, 0L);
+         }
+      }
+
+      final boolean switched = layoutLoaded && storedVersion != layoutVersion;
+      this.layout = storedLayout != null ? storedLayout : DataStorageLayout.SEPARATE;
+      this.shadowLayout = storedShadowLayout;
+      this.layoutVersion = storedVersion;
+      this.layoutLoaded = true;
+
+      return switched;
+   }
+
+   private List<DataStorageLayout> activeLayouts() {
+      getLayout();
+      return shadowLayout != null ? List.of(layout, shadowLayout) : List.of(layout);
+   }
+
+   private Bson scopeFilter(final DataStorageLayout layout, final String collectionId, final Bson filter) {
+      if (layout == DataStorageLayout.SHARED) {
+         return filter != null ? Filters.and(Filters.eq(COLLECTION_ID, collectionId), filter) : Filters.eq(COLLECTION_ID, collectionId);
+      }
+      return filter != null ? filter : new Document();
+   }
+
+   private Document storedDocument(final DataStorageLayout layout, final String collectionId, final Document document) {
+      if (layout == DataStorageLayout.SHARED) {
+         return new Document(document).append(COLLECTION_ID, collectionId);
+      }
+      return document;
+   }
+
+   private DataDocument convertDocument(final Document document) {
+      return convertDocument(getLayout(), document);
+   }
+
+   private DataDocument convertDocument(final DataStorageLayout layout, final Document document) {
+      if (layout == DataStorageLayout.SHARED) {
+         document.remove(COLLECTION_ID);
+      }
+      return MongoUtils.convertDocument(document);
+   }
+
+   private List<DataDocument> convertIterableToList(final MongoIterable<Document> documents) {
+      return documents.map(this::convertDocument).into(new ArrayList<>());
+   }
+
+   public void setLayoutCache(final DataLayoutCache layoutCache) {
+      this.layoutCache = layoutCache;
+   }
+
+   void setLayoutSwitchGracePeriod(final long layoutSwitchGracePeriod) {
+      this.layoutSwitchGracePeriod = layoutSwitchGracePeriod;
+   }
+
+   MongoCollection<Document> dataCollection(final DataStorageLayout layout, final String collectionId) {
+      return database.getCollection(dataCollectionName(layout, collectionId));
+   }
+
+   private MongoCollection<Document> searchCollection(final String collectionId) {
+      final MongoCollection<Document> collection = dataCollection(getLayout(), collectionId);
+      // secondaries might not have caught up with a layout migration yet
+      return shadowLayout == null ? staleReads(collection) : collection;
+   }
+
+   String dataCollectionName(final DataStorageLayout layout, final String collectionId) {
+      return layout == DataStorageLayout.SHARED ? sharedDataCollectionName() : dataCollectionName(collectionId);
+   }
+
    MongoCollection<Document> dataCollection(String collectionId) {
       return database.getCollection(dataCollectionName(collectionId));
    }
@@ -265,4 +728,19 @@ public class MongoDataDao extends CollectionScopedDao implements DataDao {
       return PREFIX + collectionId;
    }
 
+   MongoCollection<Document> sharedDataCollection() {
+      return database.getCollection(sharedDataCollectionName());
+   }
+
+   String sharedDataCollectionName() {
+      if (!getProject().isPresent()) {
+         throw new ResourceNotFoundException(ResourceType.PROJECT);
+      }
+      return SHARED_PREFIX + getProject().get().getId();
+   }
+
+   private MongoCollection<Document> layoutsCollection() {
+      return database.getCollection(LAYOUTS_COLLECTION);
+   }
+
 }
@@ -0,0 +1,191 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.collection;
+
+import io.lumeer.api.model.Document;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.ResourceType;
+import io.lumeer.storage.api.dao.DataStorageLayout;
+import io.lumeer.storage.api.dao.IndexDao;
+import io.lumeer.storage.api.exception.ResourceNotFoundException;
+import io.lumeer.storage.api.index.DataIndex;
+import io.lumeer.storage.mongodb.MongoUtils;
+import io.lumeer.storage.mongodb.codecs.DocumentCodec;
+import io.lumeer.storage.mongodb.codecs.LinkInstanceCodec;
+import io.lumeer.storage.mongodb.dao.project.MongoDocumentDao;
+import io.lumeer.storage.mongodb.dao.project.MongoLinkInstanceDao;
+import io.lumeer.storage.mongodb.index.MongoIndexAdvisor;
+import io.lumeer.storage.mongodb.index.QueryShape;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+
+@RequestScoped
+public class MongoIndexDao extends CollectionScopedDao implements IndexDao {
+
+   public static final String MANAGED_INDEX_PREFIX = "auto_";
+
+   private static final String ID_INDEX = "_id_";
+   private static final String NAME = "name";
+   private static final String KEY = "key";
+   private static final String ACCESSES = "accesses";
+   private static final String OPS = "ops";
+   private static final String INDEX_STATS = "$indexStats";
+
+   @Inject
+   private MongoIndexAdvisor indexAdvisor;
+
+   @Override
+   public List<DataIndex> getProposedIndexes(final Set<String> collectionIds) {
+      final Project project = getProject().orElseThrow(() -> new ResourceNotFoundException(ResourceType.PROJECT));
+      final MongoDataDao dataDao = dataDao(project);
+      final DataStorageLayout layout = dataDao.getDataStorageLayout();
+      final Map<String, List<List<String>>> existingKeys = new HashMap<>();
+
+      final List<DataIndex> proposals = getMissingLookupIndexes(project, existingKeys);
+
+      int budget = indexAdvisor.getIndexBudget() - countManagedIndexes(dataDao, layout, collectionIds);
+      for (Map.Entry<QueryShape, Long> entry : indexAdvisor.getQueryShapes(project.getId()).entrySet()) {
+         if (budget <= 0) {
+            break;
+         }
+
+         final QueryShape shape = entry.getKey();
+         if (!collectionIds.contains(shape.getCollectionId())) {
+            continue;
+         }
+
+         final String storageName = dataDao.dataCollectionName(layout, shape.getCollectionId());
+         final List<String> keys = new ArrayList<>();
+         if (layout == DataStorageLayout.SHARED) {
+            keys.add(MongoDataDao.COLLECTION_ID);
+         }
+         keys.addAll(shape.getKeys());
+
+         if (!isCovered(storageName, keys, existingKeys)) {
+            proposals.add(new DataIndex(storageName, MANAGED_INDEX_PREFIX + String.join("_", keys), keys, entry.getValue()));
+            existingKeys.get(storageName).add(keys);
+            budget--;
+         }
+      }
+
+      return proposals;
+   }
+
+   private List<DataIndex> getMissingLookupIndexes(final Project project, final Map<String, List<List<String>>> existingKeys) {
+      final List<DataIndex> lookupIndexes = new ArrayList<>();
+      final Map<String, String> lookups = Map.of(
+            MongoDocumentDao.PREFIX + project.getId(), MongoUtils.concatParams(DocumentCodec.META_DATA, Document.META_PARENT_ID),
+            MongoLinkInstanceDao.PREFIX + project.getId(), LinkInstanceCodec.DOCUMENTS_IDS);
+
+      lookups.forEach((storageName, key) -> {
+         if (!isCovered(storageName, List.of(key), existingKeys)) {
+            lookupIndexes.add(new DataIndex(storageName, key + "_1", List.of(key), 0));
+         }
+      });
+
+      return lookupIndexes;
+   }
+
+   @Override
+   public List<DataIndex> createProposedIndexes(final Set<String> collectionIds) {
+      final List<DataIndex> proposals = getProposedIndexes(collectionIds);
+
+      proposals.forEach(index -> database.getCollection(index.getStorageName())
+                                         .createIndex(Indexes.ascending(index.getKeys()), new IndexOptions().name(index.getName()).background(true)));
+
+      return proposals;
+   }
+
+   @Override
+   public List<DataIndex> getUnusedIndexes(final Set<String> collectionIds) {
+      final Project project = getProject().orElseThrow(() -> new ResourceNotFoundException(ResourceType.PROJECT));
+      final MongoDataDao dataDao = dataDao(project);
+
+      final List<DataIndex> unusedIndexes = new ArrayList<>();
+      for (String storageName : dataCollectionNames(dataDao, dataDao.getDataStorageLayout(), collectionIds)) {
+         for (org.bson.Document stats : database.getCollection(storageName).aggregate(List.of(new org.bson.Document(INDEX_STATS, new org.bson.Document())))) {
+            final String name = stats.getString(NAME);
+            final org.bson.Document accesses = stats.get(ACCESSES, org.bson.Document.class);
+            final long ops = accesses != null && accesses.get(OPS) != null ? ((Number) accesses.get(OPS)).longValue() : 0;
+
+            if (!ID_INDEX.equals(name) && ops == 0) {
+               unusedIndexes.add(new DataIndex(storageName, name, new ArrayList<>(stats.get(KEY, org.bson.Document.class).keySet()), ops));
+            }
+         }
+      }
+
+      return unusedIndexes;
+   }
+
+   private int countManagedIndexes(final MongoDataDao dataDao, final DataStorageLayout layout, final Set<String> collectionIds) {
+      int count = 0;
+      for (String storageName : dataCollectionNames(dataDao, layout, collectionIds)) {
+         for (org.bson.Document index : database.getCollection(storageName).listIndexes()) {
+            if (index.getString(NAME).startsWith(MANAGED_INDEX_PREFIX)) {
+               count++;
+            }
+         }
+      }
+      return count;
+   }
+
+   private Set<String> dataCollectionNames(final MongoDataDao dataDao, final DataStorageLayout layout, final Set<String> collectionIds) {
+      if (collectionIds.isEmpty()) {
+         return Collections.emptySet();
+      }
+      return collectionIds.stream().map(collectionId -> dataDao.dataCollectionName(layout, collectionId)).collect(Collectors.toCollection(LinkedHashSet::new));
+   }
+
+   private boolean isCovered(final String storageName, final List<String> keys, final Map<String, List<List<String>>> existingKeys) {
+      // an index is usable for a query when the query keys form its prefix
+      return existingKeys.computeIfAbsent(storageName, this::getIndexKeys).stream()
+                         .anyMatch(indexKeys -> indexKeys.size() >= keys.size() && indexKeys.subList(0, keys.size()).equals(keys));
+   }
+
+   private List<List<String>> getIndexKeys(final String storageName) {
+      final List<List<String>> indexKeys = new ArrayList<>();
+      for (org.bson.Document index : database.getCollection(storageName).listIndexes()) {
+         indexKeys.add(new ArrayList<>(index.get(KEY, org.bson.Document.class).keySet()));
+      }
+      return indexKeys;
+   }
+
+   private MongoDataDao dataDao(final Project project) {
+      final MongoDataDao dataDao = new MongoDataDao();
+      dataDao.setDatabase(database);
+      dataDao.setProject(project);
+      return dataDao;
+   }
+
+   void setIndexAdvisor(final MongoIndexAdvisor indexAdvisor) {
+      this.indexAdvisor = indexAdvisor;
+   }
+}
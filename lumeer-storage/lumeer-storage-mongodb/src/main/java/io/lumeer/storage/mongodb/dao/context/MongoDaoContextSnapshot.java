@@ -39,6 +39,7 @@ import io.lumeer.storage.api.dao.UserLoginDao;
 import io.lumeer.storage.api.dao.UserNotificationDao;
 import io.lumeer.storage.api.dao.ViewDao;
 import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
+import io.lumeer.storage.mongodb.dao.collection.DataLayoutCache;
 import io.lumeer.storage.mongodb.dao.collection.MongoDataDao;
 import io.lumeer.storage.mongodb.dao.organization.MongoCompanyContactDao;
 import io.lumeer.storage.mongodb.dao.organization.MongoFavoriteItemDao;
@@ -61,6 +62,8 @@ import io.lumeer.storage.mongodb.dao.system.SystemScopedDao;
 
 import com.mongodb.client.MongoDatabase;
 
+import java.util.Optional;
+
 /**
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
@@ -70,10 +73,12 @@ public class MongoDaoContextSnapshot implements DaoContextSnapshot {
    final private MongoDatabase userDatabase;
    final private Organization organization;
    final private Project project;
+   final private DataLayoutCache layoutCache;
 
-   MongoDaoContextSnapshot(final DataStorage systemDataStorage, final DataStorage userDataStorage, final SelectedWorkspace selectedWorkspace) {
+   MongoDaoContextSnapshot(final DataStorage systemDataStorage, final DataStorage userDataStorage, final SelectedWorkspace selectedWorkspace, final DataLayoutCache layoutCache) {
       this.systemDatabase = (MongoDatabase) systemDataStorage.getDatabase();
       this.userDatabase = (MongoDatabase) userDataStorage.getDatabase();
+      this.layoutCache = layoutCache;
 
       if (selectedWorkspace.getOrganization().isPresent()) {
          this.organization = selectedWorkspace.getOrganization().get();
@@ -88,6 +93,24 @@ public class MongoDaoContextSnapshot implements DaoContextSnapshot {
       }
    }
 
+   MongoDaoContextSnapshot(final DataStorage systemDataStorage, final DataStorage userDataStorage, final Organization organization, final Project project, final DataLayoutCache layoutCache) {
+      this.systemDatabase = (MongoDatabase) systemDataStorage.getDatabase();
+      this.userDatabase = (MongoDatabase) userDataStorage.getDatabase();
+      this.organization = organization;
+      this.project = project;
+      this.layoutCache = layoutCache;
+   }
+
+   @Override
+   public Optional<Organization> getOrganization() {
+      return Optional.ofNullable(organization);
+   }
+
+   @Override
+   public Optional<Project> getProject() {
+      return Optional.ofNullable(project);
+   }
+
    private <T extends SystemScopedDao> T initSystemScopedDao(T dao) {
       dao.setDatabase(systemDatabase);
       return dao;
@@ -128,7 +151,9 @@ public class MongoDaoContextSnapshot implements DaoContextSnapshot {
 
    @Override
    public DataDao getDataDao() {
-      return initProjectScopedDao(new MongoDataDao());
+      final MongoDataDao dataDao = initProjectScopedDao(new MongoDataDao());
+      dataDao.setLayoutCache(layoutCache);
+      return dataDao;
    }
 
    @Override
@@ -19,19 +19,22 @@
 package io.lumeer.storage.mongodb.dao.context;
 
 import io.lumeer.api.SelectedWorkspace;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Project;
 import io.lumeer.engine.annotation.SystemDataStorage;
 import io.lumeer.engine.annotation.UserDataStorage;
 import io.lumeer.engine.api.data.DataStorage;
 import io.lumeer.storage.api.dao.context.DaoContextSnapshot;
 import io.lumeer.storage.api.dao.context.DaoContextSnapshotFactory;
+import io.lumeer.storage.mongodb.dao.collection.DataLayoutCache;
 
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
 /**
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
-@RequestScoped
+@ApplicationScoped
 public class MongoDaoContextSnapshotFactory implements DaoContextSnapshotFactory {
 
    @UserDataStorage
@@ -45,8 +48,16 @@ public class MongoDaoContextSnapshotFactory implements DaoContextSnapshotFactory
    @Inject
    private SelectedWorkspace selectedWorkspace;
 
+   @Inject
+   private DataLayoutCache layoutCache;
+
    @Override
    public DaoContextSnapshot getInstance() {
-      return new MongoDaoContextSnapshot(systemDataStorage, dataStorage, selectedWorkspace);
+      return new MongoDaoContextSnapshot(systemDataStorage, dataStorage, selectedWorkspace, layoutCache);
+   }
+
+   @Override
+   public DaoContextSnapshot getInstance(final DataStorage systemDataStorage, final DataStorage userDataStorage, final Organization organization, final Project project) {
+      return new MongoDaoContextSnapshot(systemDataStorage, userDataStorage, organization, project, layoutCache);
    }
 }
@@ -52,7 +52,7 @@ import javax.inject.Inject;
 @RequestScoped
 public class MongoCollectionDao extends ProjectScopedDao implements CollectionDao {
 
-   private static final String PREFIX = "collections_p-";
+   public static final String PREFIX = "collections_p-";
 
    @Inject
    private Event<CreateResource> createResourceEvent;
@@ -167,7 +167,7 @@ public class MongoCollectionDao extends ProjectScopedDao implements CollectionDa
    @Override
    public List<Collection> getCollections(final SearchSuggestionQuery query, final boolean skipPermissions) {
       List<Bson> aggregates = collectionSuggestionAggregation(query, skipPermissions);
-      return databaseCollection().aggregate(aggregates).into(new ArrayList<>());
+      return staleReads(databaseCollection()).aggregate(aggregates).into(new ArrayList<>());
    }
 
    private List<Bson> collectionSuggestionAggregation(SearchSuggestionQuery query, boolean skipPermissions) {
@@ -207,7 +207,10 @@ public class MongoCollectionDao extends ProjectScopedDao implements CollectionDa
    @Override
    public List<Collection> getCollectionsByAttributes(final SearchSuggestionQuery query, final boolean skipPermissions) {
       Bson filter = attributeSuggestionQuery(query, skipPermissions);
-      return searchCollectionsByFilter(filter, query);
+      FindIterable<Collection> iterable = staleReads(databaseCollection()).find(filter);
+      addPaginationToQuery(iterable, query);
+
+      return iterable.into(new ArrayList<>());
    }
 
    private Bson attributeSuggestionQuery(SearchSuggestionQuery query, boolean skipPermissions) {
@@ -38,6 +38,7 @@ import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.ReturnDocument;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
@@ -54,7 +55,7 @@ import javax.inject.Inject;
 @RequestScoped
 public class MongoDocumentDao extends ProjectScopedDao implements DocumentDao {
 
-   private static final String PREFIX = "documents_p-";
+   public static final String PREFIX = "documents_p-";
 
    @Inject
    private Event<CreateDocument> createDocumentEvent;
@@ -71,6 +72,7 @@ public class MongoDocumentDao extends ProjectScopedDao implements DocumentDao {
 
       MongoCollection<org.bson.Document> collection = database.getCollection(databaseCollectionName(project));
       collection.createIndex(Indexes.ascending(DocumentCodec.COLLECTION_ID), new IndexOptions().unique(false));
+      collection.createIndex(Indexes.ascending(MongoUtils.concatParams(DocumentCodec.META_DATA, Document.META_PARENT_ID)), new IndexOptions().unique(false));
    }
 
    @Override
@@ -94,12 +96,17 @@ public class MongoDocumentDao extends ProjectScopedDao implements DocumentDao {
    @Override
    public List<Document> createDocuments(final List<Document> documents) {
       List<Document> returnDocuments = documents.stream().map(Document::new).collect(Collectors.toList());
-      databaseCollection().insertMany(returnDocuments);
+      databaseCollection().insertMany(returnDocuments, new InsertManyOptions().ordered(false));
       return new ArrayList<>(returnDocuments);
    }
 
    @Override
-   public Document updateDocument(final String id, final Document document) {
+   public String generateDocumentId() {
+      return new ObjectId().toHexString();
+   }
+
+   @Override
+   public Document updateDocument(final String id, final Document document, final Document originalDocument) {
       FindOneAndUpdateOptions options = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
 
       try {
@@ -111,7 +118,7 @@ public class MongoDocumentDao extends ProjectScopedDao implements DocumentDao {
          final Document updatedDocumentWithData = new Document(updatedDocument);
          updatedDocumentWithData.setData(document.getData());
          if (updateDocumentEvent != null) {
-            updateDocumentEvent.fire(new UpdateDocument(updatedDocumentWithData));
+            updateDocumentEvent.fire(new UpdateDocument(updatedDocumentWithData, originalDocument));
          }
          return updatedDocument;
       } catch (MongoException ex) {
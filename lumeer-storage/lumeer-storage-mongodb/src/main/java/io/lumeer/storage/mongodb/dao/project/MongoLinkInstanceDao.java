@@ -37,7 +37,7 @@ import javax.inject.Inject;
 @RequestScoped
 public class MongoLinkInstanceDao extends ProjectScopedDao implements LinkInstanceDao {
 
-   private static final String PREFIX = "linkinstances_p-";
+   public static final String PREFIX = "linkinstances_p-";
 
    @Inject
    private Event<CreateLinkInstance> createLinkInstanceEvent;
@@ -54,6 +54,7 @@ public class MongoLinkInstanceDao extends ProjectScopedDao implements LinkInstan
 
       MongoCollection<Document> projectCollection = database.getCollection(databaseCollectionName(project));
       projectCollection.createIndex(Indexes.ascending(LinkInstanceCodec.LINK_TYPE_ID), new IndexOptions().unique(false));
+      projectCollection.createIndex(Indexes.ascending(LinkInstanceCodec.DOCUMENTS_IDS), new IndexOptions().unique(false));
    }
 
    @Override
@@ -132,7 +133,7 @@ public class MongoLinkInstanceDao extends ProjectScopedDao implements LinkInstan
 
    @Override
    public List<LinkInstance> searchLinkInstances(final SearchQuery query) {
-      final FindIterable<LinkInstance> linkInstances = databaseCollection().find(linkInstancesFilter(query));
+      final FindIterable<LinkInstance> linkInstances = staleReads(databaseCollection()).find(linkInstancesFilter(query));
       addPaginationToQuery(linkInstances, query);
       return linkInstances.into(new ArrayList<>());
    }
@@ -139,7 +139,7 @@ public class MongoLinkTypeDao extends ProjectScopedDao implements LinkTypeDao {
    @Override
    public List<LinkType> getLinkTypes(final SearchSuggestionQuery query) {
       List<Bson> aggregates = linkTypesSuggestionAggregation(query);
-      return databaseCollection().aggregate(aggregates).into(new ArrayList<>());
+      return staleReads(databaseCollection()).aggregate(aggregates).into(new ArrayList<>());
    }
 
    private List<Bson> linkTypesSuggestionAggregation(SearchSuggestionQuery query) {
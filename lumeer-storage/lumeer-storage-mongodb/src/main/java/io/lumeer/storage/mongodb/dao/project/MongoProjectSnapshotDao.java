@@ -0,0 +1,324 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.project;
+
+import io.lumeer.api.model.Project;
+import io.lumeer.storage.api.dao.ProjectSnapshotDao;
+import io.lumeer.storage.api.exception.StorageException;
+import io.lumeer.storage.mongodb.dao.collection.MongoDataDao;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * Dumps a project as a gzip compressed stream of BSON documents. Stored documents are copied byte by byte,
+ * sections are separated by marker documents with a {@value #SECTION} field, which stored documents cannot have.
+ * The ids of all entities come first, grouped by their repository, so that the references can be remapped while the rest is streamed
+ * and the content of the snapshot is known before anything is restored.
+ */
+@RequestScoped
+public class MongoProjectSnapshotDao extends ProjectScopedDao implements ProjectSnapshotDao {
+
+   static final String SECTION = "$section";
+   static final String SNAPSHOT = "snapshot";
+   static final String IDS = "ids";
+   static final String REPOSITORY = "repository";
+   static final String DATA = "data";
+   static final String END = "end";
+
+   private static final String ID = "_id";
+   private static final String VERSION = "version";
+   private static final String PROJECT_ID = "projectId";
+   private static final String COLLECTION_ID = "collectionId";
+   private static final int SNAPSHOT_VERSION = 2;
+
+   private static final int BATCH_SIZE = 1000;
+   private static final int IDS_CHUNK_SIZE = 10_000;
+   private static final int BUFFER_SIZE = 64 * 1024;
+   private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 1024;
+
+   private static final DocumentCodec documentCodec = new DocumentCodec();
+
+   /**
+    * Entity repositories in the order they are written, entities reference only the ones written before.
+    */
+   private static final List<String> SECTIONS = Arrays.asList(MongoCollectionDao.PREFIX, MongoLinkTypeDao.PREFIX, MongoDocumentDao.PREFIX,
+         MongoLinkInstanceDao.PREFIX, MongoViewDao.PREFIX);
+
+   @Override
+   public void dumpProject(final Project project, final OutputStream output) {
+      try {
+         final GZIPOutputStream stream = new GZIPOutputStream(output, BUFFER_SIZE);
+         write(stream, new Document(SECTION, SNAPSHOT).append(VERSION, SNAPSHOT_VERSION).append(PROJECT_ID, project.getId()));
+
+         write(stream, new Document(SECTION, IDS));
+         for (final String section : SECTIONS) {
+            writeIds(stream, section, repository(section, project));
+         }
+
+         for (final String section : SECTIONS) {
+            write(stream, new Document(SECTION, section));
+            for (final RawBsonDocument document : repository(section, project).withDocumentClass(RawBsonDocument.class).find().batchSize(BATCH_SIZE)) {
+               write(stream, document);
+            }
+         }
+
+         final MongoDataDao dataDao = dataDao(project);
+         for (final Document collection : repository(MongoCollectionDao.PREFIX, project).find().projection(Projections.include(ID))) {
+            final String collectionId = collection.getObjectId(ID).toHexString();
+            write(stream, new Document(SECTION, DATA).append(COLLECTION_ID, collectionId));
+            for (final RawBsonDocument document : dataDao.getRawData(collectionId)) {
+               write(stream, document);
+            }
+         }
+
+         write(stream, new Document(SECTION, END));
+         stream.finish();
+         stream.flush();
+      } catch (IOException e) {
+         throw new StorageException("Cannot write snapshot of project " + project.getId(), e);
+      }
+   }
+
+   private void writeIds(final OutputStream stream, final String section, final MongoCollection<Document> repository) throws IOException {
+      List<Object> ids = new ArrayList<>(IDS_CHUNK_SIZE);
+      for (final Document document : repository.find().projection(Projections.include(ID)).batchSize(IDS_CHUNK_SIZE)) {
+         ids.add(document.get(ID));
+         if (ids.size() >= IDS_CHUNK_SIZE) {
+            write(stream, new Document(REPOSITORY, section).append(IDS, ids));
+            ids = new ArrayList<>(IDS_CHUNK_SIZE);
+         }
+      }
+
+      if (!ids.isEmpty()) {
+         write(stream, new Document(REPOSITORY, section).append(IDS, ids));
+      }
+   }
+
+   private static void write(final OutputStream stream, final Document document) throws IOException {
+      write(stream, new RawBsonDocument(document, documentCodec));
+   }
+
+   private static void write(final OutputStream stream, final RawBsonDocument document) throws IOException {
+      final ByteBuffer buffer = document.getByteBuffer().asNIO();
+      if (buffer.hasArray()) {
+         stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+         final byte[] bytes = new byte[buffer.remaining()];
+         buffer.get(bytes);
+         stream.write(bytes);
+      }
+   }
+
+   @Override
+   public void restoreProject(final Project project, final InputStream input, final Consumer<Summary> validator) {
+      final MongoDataDao dataDao = dataDao(project);
+      final List<String> restoredCollectionIds = new ArrayList<>();
+
+      try {
+         final DataInputStream stream = new DataInputStream(new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE));
+         final Document header = read(stream);
+         if (header == null || !SNAPSHOT.equals(header.get(SECTION)) || !Integer.valueOf(SNAPSHOT_VERSION).equals(header.get(VERSION))) {
+            throw new StorageException("Not a project snapshot.");
+         }
+
+         final Map<String, ObjectId> ids = new HashMap<>();
+         final Map<String, Set<String>> pendingIds = new HashMap<>();
+         SECTIONS.forEach(section -> pendingIds.put(section, new HashSet<>()));
+         Set<String> collectionIds = null;
+         Set<String> pendingDataIds = null;
+
+         final List<Document> batch = new ArrayList<>(BATCH_SIZE);
+         String section = null;
+         String collectionId = null;
+
+         while (true) {
+            final Document document = read(stream);
+            if (document == null) {
+               throw new StorageException("The project snapshot is incomplete.");
+            }
+
+            if (document.containsKey(SECTION)) {
+               flush(project, dataDao, section, collectionId, batch);
+               if (IDS.equals(section)) {
+                  validator.accept(summary(pendingIds));
+                  collectionIds = new HashSet<>(pendingIds.get(MongoCollectionDao.PREFIX));
+                  pendingDataIds = new HashSet<>(pendingIds.get(MongoDocumentDao.PREFIX));
+               }
+               section = document.getString(SECTION);
+
+               if (END.equals(section)) {
+                  break;
+               } else if (collectionIds == null && !IDS.equals(section)) {
+                  throw new StorageException("The project snapshot does not start with the ids.");
+               } else if (DATA.equals(section)) {
+                  final String originalCollectionId = document.getString(COLLECTION_ID);
+                  if (!collectionIds.remove(originalCollectionId)) {
+                     throw new StorageException("Unexpected data of collection " + originalCollectionId + " in the project snapshot.");
+                  }
+                  collectionId = ids.get(originalCollectionId).toHexString();
+                  dataDao.createDataRepository(collectionId);
+                  restoredCollectionIds.add(collectionId);
+               } else if (!IDS.equals(section) && !SECTIONS.contains(section)) {
+                  throw new StorageException("Unknown section of the project snapshot: " + section);
+               }
+            } else if (IDS.equals(section)) {
+               final Set<String> sectionIds = pendingIds.get(document.getString(REPOSITORY));
+               if (sectionIds == null) {
+                  throw new StorageException("Unknown repository of the project snapshot: " + document.getString(REPOSITORY));
+               }
+               for (final Object id : document.get(IDS, List.class)) {
+                  if (!(id instanceof ObjectId) || ids.put(((ObjectId) id).toHexString(), new ObjectId()) != null) {
+                     throw new StorageException("Invalid id in the project snapshot: " + id);
+                  }
+                  sectionIds.add(((ObjectId) id).toHexString());
+               }
+            } else if (section != null) {
+               // every entity must have been announced, and it can be restored only once
+               final Set<String> expectedIds = DATA.equals(section) ? pendingDataIds : pendingIds.get(section);
+               final Object id = document.get(ID);
+               if (!(id instanceof ObjectId) || !expectedIds.remove(((ObjectId) id).toHexString())) {
+                  throw new StorageException("Unexpected entity in the project snapshot: " + id);
+               }
+
+               batch.add((Document) remap(document, ids));
+               if (batch.size() >= BATCH_SIZE) {
+                  flush(project, dataDao, section, collectionId, batch);
+               }
+            }
+         }
+      } catch (IOException | RuntimeException e) {
+         restoredCollectionIds.forEach(dataDao::deleteDataRepository);
+         // exceptions of the validator are passed as they are
+         throw e instanceof RuntimeException ? (RuntimeException) e : new StorageException("Cannot restore snapshot to project " + project.getId(), e);
+      }
+   }
+
+   private static Summary summary(final Map<String, Set<String>> ids) {
+      return new Summary(ids.get(MongoCollectionDao.PREFIX).size(), ids.get(MongoDocumentDao.PREFIX).size(), ids.get(MongoLinkTypeDao.PREFIX).size(),
+            ids.get(MongoLinkInstanceDao.PREFIX).size(), ids.get(MongoViewDao.PREFIX).size());
+   }
+
+   private void flush(final Project project, final MongoDataDao dataDao, final String section, final String collectionId, final List<Document> batch) {
+      if (batch.isEmpty()) {
+         return;
+      }
+
+      if (DATA.equals(section)) {
+         dataDao.createRawData(collectionId, batch);
+      } else {
+         repository(section, project).insertMany(new ArrayList<>(batch), new InsertManyOptions().ordered(false));
+      }
+      batch.clear();
+   }
+
+   /**
+    * @return The next document of the snapshot, null at the end of the stream.
+    */
+   private static Document read(final DataInputStream stream) throws IOException {
+      final byte[] size = new byte[4];
+      final int first = stream.read();
+      if (first < 0) {
+         return null;
+      }
+      size[0] = (byte) first;
+      stream.readFully(size, 1, 3);
+
+      final int length = ByteBuffer.wrap(size).order(ByteOrder.LITTLE_ENDIAN).getInt();
+      if (length < 5 || length > MAX_DOCUMENT_SIZE) {
+         throw new EOFException("Invalid document size " + length);
+      }
+
+      final byte[] bytes = new byte[length];
+      System.arraycopy(size, 0, bytes, 0, 4);
+      stream.readFully(bytes, 4, length - 4);
+
+      return new RawBsonDocument(bytes).decode(documentCodec);
+   }
+
+   /**
+    * Replaces the ids of the snapshot entities with the new ones wherever they are used, in values as well as in keys.
+    */
+   static Object remap(final Object value, final Map<String, ObjectId> ids) {
+      if (value instanceof ObjectId) {
+         final ObjectId id = ids.get(((ObjectId) value).toHexString());
+         return id != null ? id : value;
+      }
+
+      if (value instanceof String) {
+         final String string = (String) value;
+         if (string.length() == 24) {
+            final ObjectId id = ids.get(string);
+            return id != null ? id.toHexString() : string;
+         }
+         return string;
+      }
+
+      if (value instanceof Document) {
+         final Map<String, Object> document = new LinkedHashMap<>();
+         ((Document) value).forEach((key, entry) -> document.put((String) remap(key, ids), remap(entry, ids)));
+         return new Document(document);
+      }
+
+      if (value instanceof List) {
+         final List<Object> list = new ArrayList<>(((List<?>) value).size());
+         ((List<?>) value).forEach(entry -> list.add(remap(entry, ids)));
+         return list;
+      }
+
+      return value;
+   }
+
+   private MongoCollection<Document> repository(final String prefix, final Project project) {
+      return database.getCollection(prefix + project.getId());
+   }
+
+   private MongoDataDao dataDao(final Project project) {
+      final MongoDataDao dataDao = new MongoDataDao();
+      dataDao.setDatabase(database);
+      dataDao.setProject(project);
+      return dataDao;
+   }
+}
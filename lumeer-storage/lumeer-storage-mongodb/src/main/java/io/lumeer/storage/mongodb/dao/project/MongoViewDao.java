@@ -41,6 +41,7 @@ import io.lumeer.storage.mongodb.codecs.LinkTypeCodec;
 import io.lumeer.storage.mongodb.codecs.QueryCodec;
 import io.lumeer.storage.mongodb.codecs.QueryStemCodec;
 import io.lumeer.storage.mongodb.codecs.ViewCodec;
+import io.lumeer.storage.mongodb.index.MongoIndexAdvisor;
 import io.lumeer.storage.mongodb.util.MongoFilters;
 
 import com.mongodb.MongoException;
@@ -67,7 +68,7 @@ import javax.inject.Inject;
 @RequestScoped
 public class MongoViewDao extends ProjectScopedDao implements ViewDao {
 
-   private static final String PREFIX = "views_p-";
+   public static final String PREFIX = "views_p-";
 
    @Inject
    private Event<CreateResource> createResourceEvent;
@@ -78,6 +79,9 @@ public class MongoViewDao extends ProjectScopedDao implements ViewDao {
    @Inject
    private Event<RemoveResource> removeResourceEvent;
 
+   @Inject
+   private MongoIndexAdvisor indexAdvisor;
+
    @Override
    public void createViewsRepository(Project project) {
       database.createCollection(databaseCollectionName(project));
@@ -97,6 +101,7 @@ public class MongoViewDao extends ProjectScopedDao implements ViewDao {
    public View createView(final View view) {
       try {
          databaseCollection().insertOne(view);
+         recordViewQuery(view);
          if (createResourceEvent != null) {
             createResourceEvent.fire(new CreateResource(view));
          }
@@ -121,6 +126,7 @@ public class MongoViewDao extends ProjectScopedDao implements ViewDao {
          if (updatedView == null) {
             throw new StorageException("View '" + id + "' has not been updated.");
          }
+         recordViewQuery(updatedView);
 
          if (updateResourceEvent != null) {
             updateResourceEvent.fire(new UpdateResource(updatedView, originalView));
@@ -131,6 +137,12 @@ public class MongoViewDao extends ProjectScopedDao implements ViewDao {
       }
    }
 
+   private void recordViewQuery(final View view) {
+      if (indexAdvisor != null && getProject().isPresent()) {
+         indexAdvisor.recordQuery(getProject().get().getId(), view.getQuery());
+      }
+   }
+
    @Override
    public void deleteView(final String id) {
       final View view = databaseCollection().findOneAndDelete(idFilter(id));
@@ -165,7 +177,7 @@ public class MongoViewDao extends ProjectScopedDao implements ViewDao {
 
    @Override
    public List<View> getViews(final SearchSuggestionQuery query, boolean skipPermissions) {
-      FindIterable<View> findIterable = databaseCollection().find(suggestionsFilter(query, skipPermissions));
+      FindIterable<View> findIterable = staleReads(databaseCollection()).find(suggestionsFilter(query, skipPermissions));
       addPaginationToQuery(findIterable, query);
       return findIterable.into(new ArrayList<>());
    }
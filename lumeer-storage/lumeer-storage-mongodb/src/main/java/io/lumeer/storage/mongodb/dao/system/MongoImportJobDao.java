@@ -0,0 +1,204 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import io.lumeer.storage.api.dao.ImportJobDao;
+import io.lumeer.storage.api.dao.ImportJobState;
+import io.lumeer.storage.api.exception.StorageException;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class MongoImportJobDao extends SystemScopedDao implements ImportJobDao {
+
+   /**
+    * Number of days the finished jobs are kept for.
+    */
+   public static final long FINISHED_JOB_RETENTION = 1;
+
+   public static final String ID = "_id";
+   public static final String OWNER = "owner";
+   public static final String USER_ID = "userId";
+   public static final String PROJECT_ID = "projectId";
+   public static final String COLLECTION_ID = "collectionId";
+   public static final String FORMAT = "format";
+   public static final String STATUS = "status";
+   public static final String ROWS_PARSED = "rowsParsed";
+   public static final String ROWS_INSERTED = "rowsInserted";
+   public static final String ERROR = "error";
+   public static final String CANCEL_REQUESTED = "cancelRequested";
+   public static final String FINISHED_AT = "finishedAt";
+
+   private static final Set<ImportJobState.Status> UNFINISHED = EnumSet.of(ImportJobState.Status.QUEUED, ImportJobState.Status.RUNNING);
+
+   @PostConstruct
+   public void initDb() {
+      createImportJobsRepository();
+   }
+
+   @Override
+   public void createImportJobsRepository() {
+      if (!database.listCollectionNames().into(new ArrayList<>()).contains(COLLECTION_NAME)) {
+         database.createCollection(COLLECTION_NAME);
+
+         MongoCollection<Document> jobCollection = databaseCollection();
+         jobCollection.createIndex(Indexes.ascending(FINISHED_AT), new IndexOptions().expireAfter(FINISHED_JOB_RETENTION, TimeUnit.DAYS));
+      }
+   }
+
+   @Override
+   public ImportJobState createJob(final ImportJobState job) {
+      try {
+         databaseCollection().insertOne(toDocument(job));
+         return job;
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot create import job " + job, ex);
+      }
+   }
+
+   @Override
+   public ImportJobState getJob(final String jobId) {
+      final Document document = databaseCollection().find(Filters.eq(ID, jobId)).first();
+      return document != null ? fromDocument(document) : null;
+   }
+
+   @Override
+   public ImportJobState updateProgress(final String jobId, final long rowsParsed, final long rowsInserted) {
+      final Bson filter = Filters.and(Filters.eq(ID, jobId), Filters.eq(STATUS, ImportJobState.Status.RUNNING.name()));
+      final Bson update = Updates.combine(Updates.set(ROWS_PARSED, rowsParsed), Updates.set(ROWS_INSERTED, rowsInserted));
+
+      return findOneAndUpdate(filter, update);
+   }
+
+   @Override
+   public boolean updateStatus(final ImportJobState job, final Set<ImportJobState.Status> expectedStatuses) {
+      final Bson filter = Filters.and(Filters.eq(ID, job.getId()), statusFilter(expectedStatuses));
+      final Bson update = Updates.combine(
+            Updates.set(STATUS, job.getStatus().name()),
+            Updates.set(ROWS_PARSED, job.getRowsParsed()),
+            Updates.set(ROWS_INSERTED, job.getRowsInserted()),
+            Updates.set(ERROR, job.getError()),
+            Updates.set(CANCEL_REQUESTED, false),
+            UNFINISHED.contains(job.getStatus()) ? Updates.unset(FINISHED_AT) : Updates.set(FINISHED_AT, new Date()));
+
+      try {
+         return databaseCollection().updateOne(filter, update).getModifiedCount() > 0;
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot update import job " + job, ex);
+      }
+   }
+
+   @Override
+   public ImportJobState cancelJob(final String jobId) {
+      final ImportJobState cancelled = findOneAndUpdate(
+            Filters.and(Filters.eq(ID, jobId), Filters.eq(STATUS, ImportJobState.Status.QUEUED.name())),
+            Updates.combine(Updates.set(STATUS, ImportJobState.Status.CANCELLED.name()), Updates.set(FINISHED_AT, new Date())));
+      if (cancelled != null) {
+         return cancelled;
+      }
+
+      return findOneAndUpdate(
+            Filters.and(Filters.eq(ID, jobId), Filters.eq(STATUS, ImportJobState.Status.RUNNING.name())),
+            Updates.set(CANCEL_REQUESTED, true));
+   }
+
+   private ImportJobState findOneAndUpdate(final Bson filter, final Bson update) {
+      try {
+         final Document document = databaseCollection().findOneAndUpdate(filter, update, new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER));
+         return document != null ? fromDocument(document) : null;
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot update import job", ex);
+      }
+   }
+
+   private static Bson statusFilter(final Set<ImportJobState.Status> statuses) {
+      return Filters.in(STATUS, statuses.stream().map(ImportJobState.Status::name).collect(Collectors.toList()));
+   }
+
+   private static Document toDocument(final ImportJobState job) {
+      final Document document = new Document(ID, job.getId())
+            .append(OWNER, job.getOwner())
+            .append(USER_ID, job.getUserId())
+            .append(PROJECT_ID, job.getProjectId())
+            .append(COLLECTION_ID, job.getCollectionId())
+            .append(FORMAT, job.getFormat())
+            .append(STATUS, job.getStatus().name())
+            .append(ROWS_PARSED, job.getRowsParsed())
+            .append(ROWS_INSERTED, job.getRowsInserted())
+            .append(ERROR, job.getError())
+            .append(CANCEL_REQUESTED, job.isCancelRequested())
+            .append(FINISHED_AT, job.getFinishedAt() != null ? new Date(job.getFinishedAt()) : null);
+
+      // an unfinished job stays out of the expiration index
+      document.values().removeIf(Objects::isNull);
+
+      return document;
+   }
+
+   private static ImportJobState fromDocument(final Document document) {
+      final ImportJobState job = new ImportJobState();
+      job.setId(document.getString(ID));
+      job.setOwner(document.getString(OWNER));
+      job.setUserId(document.getString(USER_ID));
+      job.setProjectId(document.getString(PROJECT_ID));
+      job.setCollectionId(document.getString(COLLECTION_ID));
+      job.setFormat(document.getString(FORMAT));
+      job.setStatus(ImportJobState.Status.valueOf(document.getString(STATUS)));
+      job.setRowsParsed(toLong(document.get(ROWS_PARSED)));
+      job.setRowsInserted(toLong(document.get(ROWS_INSERTED)));
+      job.setError(document.getString(ERROR));
+      job.setCancelRequested(document.getBoolean(CANCEL_REQUESTED, false));
+
+      final Date finishedAt = document.getDate(FINISHED_AT);
+      job.setFinishedAt(finishedAt != null ? finishedAt.getTime() : null);
+
+      return job;
+   }
+
+   private static long toLong(final Object value) {
+      return value instanceof Number ? ((Number) value).longValue() : 0;
+   }
+
+   String databaseCollectionName() {
+      return COLLECTION_NAME;
+   }
+
+   MongoCollection<Document> databaseCollection() {
+      return database.getCollection(databaseCollectionName());
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import io.lumeer.storage.api.dao.PushTicketDao;
+import io.lumeer.storage.api.exception.StorageException;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class MongoPushTicketDao extends SystemScopedDao implements PushTicketDao {
+
+   public static final String ID = "_id";
+   public static final String USER_ID = "userId";
+   public static final String EXPIRES_AT = "expiresAt";
+
+   @PostConstruct
+   public void initDb() {
+      createPushTicketRepository();
+   }
+
+   @Override
+   public void createPushTicketRepository() {
+      if (!database.listCollectionNames().into(new ArrayList<>()).contains(COLLECTION_NAME)) {
+         database.createCollection(COLLECTION_NAME);
+
+         // expired tickets are rejected by the queries already, the index only cleans them up
+         MongoCollection<Document> ticketCollection = databaseCollection();
+         ticketCollection.createIndex(Indexes.ascending(EXPIRES_AT), new IndexOptions().expireAfter(0L, TimeUnit.SECONDS));
+      }
+   }
+
+   @Override
+   public void createTicket(final String ticket, final String userId, final long expiresAt) {
+      try {
+         databaseCollection().insertOne(new Document(ID, ticket).append(USER_ID, userId).append(EXPIRES_AT, new Date(expiresAt)));
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot create push ticket for user " + userId, ex);
+      }
+   }
+
+   @Override
+   public String getTicketUser(final String ticket) {
+      final Document document = databaseCollection().find(validTicketFilter(ticket)).first();
+      return document != null ? document.getString(USER_ID) : null;
+   }
+
+   @Override
+   public String consumeTicket(final String ticket) {
+      final Document document = databaseCollection().findOneAndDelete(validTicketFilter(ticket));
+      return document != null ? document.getString(USER_ID) : null;
+   }
+
+   private Bson validTicketFilter(final String ticket) {
+      return Filters.and(Filters.eq(ID, ticket), Filters.gte(EXPIRES_AT, new Date()));
+   }
+
+   String databaseCollectionName() {
+      return COLLECTION_NAME;
+   }
+
+   MongoCollection<Document> databaseCollection() {
+      return database.getCollection(databaseCollectionName());
+   }
+}
@@ -0,0 +1,250 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.api.dao.TaskQueueDao;
+import io.lumeer.storage.api.exception.StorageException;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class MongoTaskQueueDao extends SystemScopedDao implements TaskQueueDao {
+
+   /**
+    * Number of days the finished tasks are kept for.
+    */
+   public static final long FINISHED_TASK_RETENTION = 1;
+
+   public static final String ID = "_id";
+   public static final String TYPE = "type";
+   public static final String PRIORITY = "priority";
+   public static final String MAX_ATTEMPTS = "maxAttempts";
+   public static final String ATTEMPTS = "attempts";
+   public static final String STATE = "state";
+   public static final String CREATED_AT = "createdAt";
+   public static final String RUN_AT = "runAt";
+   public static final String STARTED_AT = "startedAt";
+   public static final String FINISHED_AT = "finishedAt";
+   public static final String OWNER = "owner";
+   public static final String LEASE_UNTIL = "leaseUntil";
+   public static final String ORGANIZATION_ID = "organizationId";
+   public static final String PROJECT_ID = "projectId";
+   public static final String USER_ID = "userId";
+   public static final String PAYLOAD = "payload";
+   public static final String ERROR = "error";
+
+   private static final String QUEUED = QueuedTask.State.QUEUED.name();
+   private static final String RUNNING = QueuedTask.State.RUNNING.name();
+
+   @PostConstruct
+   public void initDb() {
+      createTaskQueueRepository();
+   }
+
+   @Override
+   public void createTaskQueueRepository() {
+      if (!database.listCollectionNames().into(new ArrayList<>()).contains(COLLECTION_NAME)) {
+         database.createCollection(COLLECTION_NAME);
+
+         MongoCollection<Document> taskCollection = databaseCollection();
+         taskCollection.createIndex(Indexes.compoundIndex(Indexes.ascending(STATE), Indexes.descending(PRIORITY), Indexes.ascending(RUN_AT)));
+         taskCollection.createIndex(Indexes.ascending(OWNER), new IndexOptions().sparse(true));
+         taskCollection.createIndex(Indexes.ascending(LEASE_UNTIL), new IndexOptions().sparse(true));
+         taskCollection.createIndex(Indexes.ascending(FINISHED_AT), new IndexOptions().expireAfter(FINISHED_TASK_RETENTION, TimeUnit.DAYS));
+      }
+   }
+
+   @Override
+   public QueuedTask createTask(final QueuedTask task) {
+      try {
+         databaseCollection().insertOne(toDocument(task));
+         return task;
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot create task " + task, ex);
+      }
+   }
+
+   @Override
+   public QueuedTask getTask(final String taskId) {
+      final Document document = databaseCollection().find(Filters.eq(ID, taskId)).first();
+      return document != null ? fromDocument(document) : null;
+   }
+
+   @Override
+   public QueuedTask leaseTask(final String nodeId, final long leaseDuration) {
+      final Date now = new Date();
+      final Bson filter = Filters.or(
+            Filters.and(Filters.eq(STATE, QUEUED), Filters.lte(RUN_AT, now), Filters.in(OWNER, null, nodeId)),
+            Filters.and(Filters.in(STATE, QUEUED, RUNNING), Filters.lt(LEASE_UNTIL, now)));
+      final Bson update = Updates.combine(
+            Updates.set(STATE, RUNNING),
+            Updates.set(OWNER, nodeId),
+            Updates.set(LEASE_UNTIL, new Date(now.getTime() + leaseDuration)),
+            Updates.set(STARTED_AT, now),
+            Updates.inc(ATTEMPTS, 1));
+      final FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+            .sort(Sorts.orderBy(Sorts.descending(PRIORITY), Sorts.ascending(RUN_AT)))
+            .returnDocument(ReturnDocument.AFTER);
+
+      try {
+         final Document document = databaseCollection().findOneAndUpdate(filter, update, options);
+         return document != null ? fromDocument(document) : null;
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot lease a task for node " + nodeId, ex);
+      }
+   }
+
+   @Override
+   public long renewLeases(final String nodeId, final Set<String> taskIds, final long leaseDuration) {
+      final Bson filter = Filters.and(Filters.in(ID, taskIds), Filters.eq(OWNER, nodeId), Filters.in(STATE, QUEUED, RUNNING));
+      return databaseCollection().updateMany(filter, Updates.set(LEASE_UNTIL, new Date(System.currentTimeMillis() + leaseDuration))).getModifiedCount();
+   }
+
+   @Override
+   public boolean retryTask(final String taskId, final String nodeId, final long runAt, final String error, final boolean keepLease) {
+      final List<Bson> updates = new ArrayList<>(Arrays.asList(
+            Updates.set(STATE, QUEUED),
+            Updates.set(RUN_AT, new Date(runAt)),
+            Updates.set(ERROR, error)));
+      if (!keepLease) {
+         updates.add(Updates.unset(OWNER));
+         updates.add(Updates.unset(LEASE_UNTIL));
+      }
+
+      final Bson update = Updates.combine(updates);
+      return databaseCollection().updateOne(leasedTaskFilter(taskId, nodeId), update).getModifiedCount() > 0;
+   }
+
+   @Override
+   public boolean finishTask(final String taskId, final String nodeId, final QueuedTask.State state, final String error) {
+      final Bson update = Updates.combine(
+            Updates.set(STATE, state.name()),
+            Updates.set(FINISHED_AT, new Date()),
+            Updates.set(ERROR, error),
+            Updates.unset(OWNER),
+            Updates.unset(LEASE_UNTIL),
+            Updates.unset(PAYLOAD));
+      return databaseCollection().updateOne(leasedTaskFilter(taskId, nodeId), update).getModifiedCount() > 0;
+   }
+
+   @Override
+   public Map<QueuedTask.State, Long> countTasks() {
+      final Map<QueuedTask.State, Long> counts = new EnumMap<>(QueuedTask.State.class);
+      Arrays.stream(QueuedTask.State.values()).forEach(state -> counts.put(state, 0L));
+
+      for (Document document : databaseCollection().aggregate(Arrays.asList(Aggregates.group("$" + STATE, Accumulators.sum("count", 1L))))) {
+         counts.put(QueuedTask.State.valueOf(document.getString(ID)), ((Number) document.get("count")).longValue());
+      }
+
+      return counts;
+   }
+
+   private Bson leasedTaskFilter(final String taskId, final String nodeId) {
+      return Filters.and(Filters.eq(ID, taskId), Filters.eq(OWNER, nodeId), Filters.eq(STATE, RUNNING));
+   }
+
+   private static Document toDocument(final QueuedTask task) {
+      final Document document = new Document(ID, task.getId())
+            .append(TYPE, task.getType())
+            .append(PRIORITY, task.getPriority())
+            .append(MAX_ATTEMPTS, task.getMaxAttempts())
+            .append(ATTEMPTS, task.getAttempts())
+            .append(STATE, task.getState().name())
+            .append(CREATED_AT, new Date(task.getCreatedAt()))
+            .append(RUN_AT, new Date(task.getRunAt()))
+            .append(OWNER, task.getOwner())
+            .append(LEASE_UNTIL, toDate(task.getLeaseUntil()))
+            .append(ORGANIZATION_ID, task.getOrganizationId())
+            .append(PROJECT_ID, task.getProjectId())
+            .append(USER_ID, task.getUserId())
+            .append(PAYLOAD, task.getPayload() != null ? new Binary(task.getPayload()) : null);
+
+      // missing fields do not match the lease filters and stay out of the sparse indexes
+      document.values().removeIf(Objects::isNull);
+
+      return document;
+   }
+
+   private static QueuedTask fromDocument(final Document document) {
+      final QueuedTask task = new QueuedTask();
+      task.setId(document.getString(ID));
+      task.setType(document.getString(TYPE));
+      task.setPriority(document.getInteger(PRIORITY, 0));
+      task.setMaxAttempts(document.getInteger(MAX_ATTEMPTS, 1));
+      task.setAttempts(document.getInteger(ATTEMPTS, 0));
+      task.setState(QueuedTask.State.valueOf(document.getString(STATE)));
+      task.setCreatedAt(document.getDate(CREATED_AT).getTime());
+      task.setRunAt(document.getDate(RUN_AT).getTime());
+      task.setStartedAt(toMillis(document.getDate(STARTED_AT)));
+      task.setFinishedAt(toMillis(document.getDate(FINISHED_AT)));
+      task.setOwner(document.getString(OWNER));
+      task.setLeaseUntil(toMillis(document.getDate(LEASE_UNTIL)));
+      task.setOrganizationId(document.getString(ORGANIZATION_ID));
+      task.setProjectId(document.getString(PROJECT_ID));
+      task.setUserId(document.getString(USER_ID));
+      task.setError(document.getString(ERROR));
+
+      final Binary payload = document.get(PAYLOAD, Binary.class);
+      task.setPayload(payload != null ? payload.getData() : null);
+
+      return task;
+   }
+
+   private static Date toDate(final Long millis) {
+      return millis != null ? new Date(millis) : null;
+   }
+
+   private static Long toMillis(final Date date) {
+      return date != null ? date.getTime() : null;
+   }
+
+   String databaseCollectionName() {
+      return COLLECTION_NAME;
+   }
+
+   MongoCollection<Document> databaseCollection() {
+      return database.getCollection(databaseCollectionName());
+   }
+}
@@ -24,27 +24,42 @@ import io.lumeer.api.model.UserNotification;
 import io.lumeer.engine.api.event.CreateOrUpdateUserNotification;
 import io.lumeer.engine.api.event.RemoveUserNotification;
 import io.lumeer.storage.api.dao.UserNotificationDao;
+import io.lumeer.storage.api.dao.UserNotificationWrite;
 import io.lumeer.storage.api.exception.StorageException;
 import io.lumeer.storage.mongodb.codecs.UserNotificationCodec;
 
 import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndReplaceOptions;
 import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateManyModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -58,6 +73,9 @@ import javax.inject.Inject;
 public class MongoUserNotificationDao extends SystemScopedDao implements UserNotificationDao {
 
    public static final String COLLECTION_NAME = "userNotifications";
+   public static final String ARCHIVE_COLLECTION_NAME = "userNotificationsArchive";
+
+   private static final String READ_TTL_INDEX = "readNotificationsTtl";
 
    @Inject
    private Event<CreateOrUpdateUserNotification> createOrUpdateUserNotificationEvent;
@@ -81,6 +99,40 @@ public class MongoUserNotificationDao extends SystemScopedDao implements UserNot
             .into(new ArrayList<>());
    }
 
+   @Override
+   public List<UserNotification> getNotificationsSince(final String userId, final ZonedDateTime since, final String sinceId, final ZonedDateTime until, final int limit) {
+      final Bson userFilter = until != null ?
+            Filters.and(Filters.eq(UserNotificationCodec.USER_ID, userId), Filters.lte(UserNotificationCodec.CREATED_AT, new Date(until.toInstant().toEpochMilli()))) :
+            Filters.eq(UserNotificationCodec.USER_ID, userId);
+
+      if (since == null) {
+         final List<UserNotification> recent = databaseCollection()
+               .find(userFilter)
+               .sort(Sorts.descending(UserNotificationCodec.CREATED_AT, UserNotificationCodec.ID))
+               .limit(limit)
+               .into(new ArrayList<>());
+         Collections.reverse(recent);
+         return recent;
+      }
+
+      final Date sinceDate = new Date(since.toInstant().toEpochMilli());
+      final Bson cursorFilter = sinceId != null && ObjectId.isValid(sinceId) ?
+            Filters.or(Filters.gt(UserNotificationCodec.CREATED_AT, sinceDate),
+                  Filters.and(Filters.eq(UserNotificationCodec.CREATED_AT, sinceDate), Filters.gt(UserNotificationCodec.ID, new ObjectId(sinceId)))) :
+            Filters.gt(UserNotificationCodec.CREATED_AT, sinceDate);
+
+      return databaseCollection()
+            .find(Filters.and(userFilter, cursorFilter))
+            .sort(Sorts.ascending(UserNotificationCodec.CREATED_AT, UserNotificationCodec.ID))
+            .limit(limit)
+            .into(new ArrayList<>());
+   }
+
+   @Override
+   public long getUnreadNotificationsCount(final String userId) {
+      return databaseCollection().countDocuments(Filters.and(Filters.eq(UserNotificationCodec.USER_ID, userId), Filters.eq(UserNotificationCodec.READ, false)));
+   }
+
    @Override
    public UserNotification getNotificationById(final String notificationId) {
       return databaseCollection().find(idFilter(notificationId)).first();
@@ -158,6 +210,146 @@ public class MongoUserNotificationDao extends SystemScopedDao implements UserNot
       return notifications;
    }
 
+   @Override
+   public void writeNotifications(final List<UserNotificationWrite> writes) {
+      if (writes.isEmpty()) {
+         return;
+      }
+
+      final List<WriteModel<UserNotification>> models = new ArrayList<>();
+      final List<Bson> createFilters = new ArrayList<>();
+      final List<Bson> updateFilters = new ArrayList<>();
+      final List<Bson> removeFilters = new ArrayList<>();
+
+      for (final UserNotificationWrite write : writes) {
+         switch (write.getOperation()) {
+            case CREATE:
+               final UserNotification notification = write.getNotification();
+               final Bson createFilter = Filters.and(Filters.eq(UserNotificationCodec.USER_ID, notification.getUserId()),
+                     Filters.eq(UserNotificationCodec.TYPE, notification.getType().ordinal()),
+                     Filters.eq(write.getSearchField(), write.getSearchId()));
+               createFilters.add(createFilter);
+               models.add(new ReplaceOneModel<>(createFilter, notification, new ReplaceOptions().upsert(true)));
+               break;
+            case UPDATE:
+               if (write.getUpdates().isEmpty()) {
+                  break;
+               }
+               final Bson updateFilter = Filters.and(Filters.eq(write.getSearchField(), write.getSearchId()),
+                     Filters.or(write.getUpdates().entrySet().stream().map(e -> Filters.ne(e.getKey(), e.getValue())).collect(Collectors.toList())));
+               updateFilters.add(updateFilter);
+               models.add(new UpdateManyModel<>(updateFilter,
+                     Updates.combine(write.getUpdates().entrySet().stream().map(e -> Updates.set(e.getKey(), e.getValue())).collect(Collectors.toList()))));
+               break;
+            case REMOVE:
+               final Bson removeFilter = createRemoveNotificationsFilter(write.getSearchField(), write.getSearchId(), write.getUsers());
+               removeFilters.add(removeFilter);
+               models.add(new DeleteManyModel<>(removeFilter));
+               break;
+         }
+      }
+
+      if (models.isEmpty()) {
+         return;
+      }
+
+      try {
+         final List<UserNotification> removedNotifications = removeFilters.isEmpty() || removeUserNotificationEvent == null ?
+               Collections.emptyList() : databaseCollection().find(Filters.or(removeFilters)).into(new ArrayList<>());
+         final List<ObjectId> updatedIds = updateFilters.isEmpty() || createOrUpdateUserNotificationEvent == null ?
+               Collections.emptyList() : database.getCollection(COLLECTION_NAME).find(Filters.or(updateFilters)).projection(Projections.include(UserNotificationCodec.ID))
+                                                             .map(document -> document.getObjectId(UserNotificationCodec.ID)).into(new ArrayList<>());
+
+         final BulkWriteResult result = databaseCollection().bulkWrite(models, new BulkWriteOptions().ordered(true));
+
+         if (removeUserNotificationEvent != null && result.getDeletedCount() > 0) {
+            removedNotifications.forEach(notification -> removeUserNotificationEvent.fire(new RemoveUserNotification(notification)));
+         }
+
+         if (createOrUpdateUserNotificationEvent != null) {
+            final List<Bson> changedFilters = new ArrayList<>(createFilters);
+            if (!updatedIds.isEmpty()) {
+               changedFilters.add(Filters.in(UserNotificationCodec.ID, updatedIds));
+            }
+            if (!changedFilters.isEmpty()) {
+               databaseCollection().find(Filters.or(changedFilters))
+                                   .forEach((Consumer<UserNotification>) notification -> createOrUpdateUserNotificationEvent.fire(new CreateOrUpdateUserNotification(notification)));
+            }
+         }
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot write notifications " + writes, ex);
+      }
+   }
+
+   @Override
+   public void setReadNotificationsRetention(final Long retentionSeconds) {
+      try {
+         final MongoCollection<Document> collection = database.getCollection(COLLECTION_NAME);
+         final Document currentIndex = collection.listIndexes().into(new ArrayList<>()).stream()
+                                                 .filter(index -> READ_TTL_INDEX.equals(index.getString("name")))
+                                                 .findFirst().orElse(null);
+
+         if (currentIndex != null) {
+            final Number currentRetention = currentIndex.get("expireAfterSeconds", Number.class);
+            if (retentionSeconds != null && currentRetention != null && currentRetention.longValue() == retentionSeconds) {
+               return;
+            }
+            collection.dropIndex(READ_TTL_INDEX);
+         }
+
+         if (retentionSeconds != null) {
+            collection.createIndex(Indexes.ascending(UserNotificationCodec.CREATED_AT), new IndexOptions()
+                  .name(READ_TTL_INDEX)
+                  .expireAfter(retentionSeconds, TimeUnit.SECONDS)
+                  .partialFilterExpression(Filters.eq(UserNotificationCodec.READ, true)));
+         }
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot set retention of read notifications to " + retentionSeconds + "s", ex);
+      }
+   }
+
+   @Override
+   public int archiveNotifications(final ZonedDateTime createdBefore, final int limit) {
+      try {
+         final MongoCollection<Document> collection = database.getCollection(COLLECTION_NAME);
+         final List<Document> notifications = collection.find(Filters.lt(UserNotificationCodec.CREATED_AT, new Date(createdBefore.toInstant().toEpochMilli())))
+                                                        .limit(limit)
+                                                        .into(new ArrayList<>());
+         if (notifications.isEmpty()) {
+            return 0;
+         }
+
+         // upserts keep archiving idempotent when more nodes archive the same notifications
+         final List<WriteModel<Document>> archived = notifications.stream()
+                                                                  .map(notification -> new ReplaceOneModel<>(Filters.eq(UserNotificationCodec.ID, notification.get(UserNotificationCodec.ID)),
+                                                                        archivedNotification(notification), new ReplaceOptions().upsert(true)))
+                                                                  .collect(Collectors.toList());
+         database.getCollection(ARCHIVE_COLLECTION_NAME).bulkWrite(archived, new BulkWriteOptions().ordered(false));
+
+         final Bson archivedFilter = Filters.in(UserNotificationCodec.ID, notifications.stream().map(notification -> notification.get(UserNotificationCodec.ID)).collect(Collectors.toList()));
+         final List<UserNotification> removedNotifications = removeUserNotificationEvent == null ?
+               Collections.emptyList() : databaseCollection().find(archivedFilter).into(new ArrayList<>());
+         final DeleteResult result = collection.deleteMany(archivedFilter);
+
+         // archived notifications are no longer returned to the users, the clients and the unread counts must forget them
+         if (removeUserNotificationEvent != null && result.getDeletedCount() > 0) {
+            removedNotifications.forEach(notification -> removeUserNotificationEvent.fire(new RemoveUserNotification(notification)));
+         }
+
+         return notifications.size();
+      } catch (MongoException ex) {
+         throw new StorageException("Cannot archive notifications created before " + createdBefore, ex);
+      }
+   }
+
+   private Document archivedNotification(final Document notification) {
+      return new Document(UserNotificationCodec.ID, notification.get(UserNotificationCodec.ID))
+            .append(UserNotificationCodec.USER_ID, notification.get(UserNotificationCodec.USER_ID))
+            .append(UserNotificationCodec.TYPE, notification.get(UserNotificationCodec.TYPE))
+            .append(UserNotificationCodec.CREATED_AT, notification.get(UserNotificationCodec.CREATED_AT))
+            .append(UserNotificationCodec.DATA, notification.get(UserNotificationCodec.DATA));
+   }
+
    @Override
    public void createUserNotificationsRepository() {
       if (!database.listCollectionNames().into(new ArrayList<>()).contains(COLLECTION_NAME)) {
@@ -170,6 +362,15 @@ public class MongoUserNotificationDao extends SystemScopedDao implements UserNot
          userNotificationCollection.createIndex(Indexes.ascending(UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ID));
          userNotificationCollection.createIndex(Indexes.ascending(UserNotification.DATA + "." + UserNotification.ViewShared.VIEW_CODE));
       }
+
+      // used by archiving, the key of the read notifications retention index is the creation time alone
+      database.getCollection(COLLECTION_NAME).createIndex(Indexes.ascending(UserNotification.CREATED_AT, UserNotification.USER_ID), new IndexOptions().unique(false));
+
+      if (!database.listCollectionNames().into(new ArrayList<>()).contains(ARCHIVE_COLLECTION_NAME)) {
+         database.createCollection(ARCHIVE_COLLECTION_NAME);
+
+         database.getCollection(ARCHIVE_COLLECTION_NAME).createIndex(Indexes.ascending(UserNotification.USER_ID, UserNotification.CREATED_AT), new IndexOptions().unique(false));
+      }
    }
 
    private MongoCollection<UserNotification> databaseCollection() {
@@ -0,0 +1,97 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.index;
+
+import io.lumeer.api.model.Query;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.query.SearchQueryStem;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * Collects shapes of the queries run against documents data per project so that matching indexes can be proposed.
+ */
+@ApplicationScoped
+public class MongoIndexAdvisor {
+
+   public static final int DEFAULT_INDEX_BUDGET = 10;
+
+   private final Map<String, Map<QueryShape, LongAdder>> queryShapes = new ConcurrentHashMap<>();
+
+   private volatile int indexBudget = DEFAULT_INDEX_BUDGET;
+
+   public void recordFilters(final String projectId, final String collectionId, final Collection<AttributeFilter> filters) {
+      if (filters == null || filters.isEmpty()) {
+         return;
+      }
+
+      final QueryShape shape = QueryShape.fromFilters(collectionId, filters);
+      if (shape != null) {
+         queryShapes.computeIfAbsent(projectId, id -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(shape, s -> new LongAdder())
+                    .increment();
+      }
+   }
+
+   public void recordQuery(final String projectId, final Query query) {
+      if (query == null || query.getStems() == null) {
+         return;
+      }
+
+      query.getStems().stream()
+           .map(stem -> new SearchQueryStem(stem, Collections.emptySet()))
+           .filter(SearchQueryStem::containsFiltersQuery)
+           .forEach(stem -> recordFilters(projectId, stem.getCollectionId(), stem.getFilters()));
+   }
+
+   /**
+    * @param projectId
+    *       id of the project
+    * @return recorded query shapes with the number of their occurrences, the most frequent first
+    */
+   public Map<QueryShape, Long> getQueryShapes(final String projectId) {
+      final Map<QueryShape, Long> result = new LinkedHashMap<>();
+      queryShapes.getOrDefault(projectId, Collections.emptyMap()).entrySet().stream()
+                 .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                 .sorted(Map.Entry.<QueryShape, Long>comparingByValue().reversed())
+                 .forEachOrdered(entry -> result.put(entry.getKey(), entry.getValue()));
+      return result;
+   }
+
+   public void clearQueryShapes(final String projectId) {
+      queryShapes.remove(projectId);
+   }
+
+   /**
+    * @return maximal number of automatically managed indexes per project
+    */
+   public int getIndexBudget() {
+      return indexBudget;
+   }
+
+   public void setIndexBudget(final int indexBudget) {
+      this.indexBudget = indexBudget;
+   }
+}
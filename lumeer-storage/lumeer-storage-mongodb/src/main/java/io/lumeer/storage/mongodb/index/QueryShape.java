@@ -0,0 +1,114 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.index;
+
+import io.lumeer.api.model.ConditionType;
+import io.lumeer.storage.api.filter.AttributeFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Attributes a query filters documents of a single collection by, ordered the way a matching index should be keyed:
+ * equality conditions first, range conditions last.
+ */
+public class QueryShape {
+
+   static final int MAX_KEYS = 4;
+
+   private final String collectionId;
+   private final List<String> keys;
+
+   public QueryShape(final String collectionId, final List<String> keys) {
+      this.collectionId = collectionId;
+      this.keys = Collections.unmodifiableList(keys);
+   }
+
+   /**
+    * Creates the shape of the given filters.
+    *
+    * @param collectionId
+    *       id of the filtered collection
+    * @param filters
+    *       filters applied to the collection
+    * @return the shape or null when the filters cannot benefit from an index
+    */
+   public static QueryShape fromFilters(final String collectionId, final Collection<AttributeFilter> filters) {
+      final TreeSet<String> equalityKeys = new TreeSet<>();
+      final TreeSet<String> rangeKeys = new TreeSet<>();
+
+      for (AttributeFilter filter : filters) {
+         if (filter.getConditionType() == null || filter.getAttributeId() == null) {
+            continue;
+         }
+         if (filter.getConditionType() == ConditionType.EQUALS) {
+            equalityKeys.add(filter.getAttributeId());
+         } else if (filter.getConditionType() != ConditionType.NOT_EQUALS) {
+            rangeKeys.add(filter.getAttributeId());
+         }
+      }
+      rangeKeys.removeAll(equalityKeys);
+
+      final List<String> keys = new ArrayList<>(equalityKeys);
+      keys.addAll(rangeKeys);
+      if (keys.isEmpty()) {
+         return null;
+      }
+
+      return new QueryShape(collectionId, keys.size() > MAX_KEYS ? keys.subList(0, MAX_KEYS) : keys);
+   }
+
+   public String getCollectionId() {
+      return collectionId;
+   }
+
+   public List<String> getKeys() {
+      return keys;
+   }
+
+   @Override
+   public boolean equals(final Object o) {
+      if (this == o) {
+         return true;
+      }
+      if (!(o instanceof QueryShape)) {
+         return false;
+      }
+      final QueryShape that = (QueryShape) o;
+      return Objects.equals(collectionId, that.collectionId) &&
+            Objects.equals(keys, that.keys);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hash(collectionId, keys);
+   }
+
+   @Override
+   public String toString() {
+      return "QueryShape{" +
+            "collectionId='" + collectionId + '\'' +
+            ", keys=" + keys +
+            '}';
+   }
+}
@@ -21,6 +21,8 @@ package io.lumeer.storage.mongodb;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import io.lumeer.engine.api.data.DataBulk;
+import io.lumeer.engine.api.data.DataBulkResult;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.engine.api.data.DataFilter;
 import io.lumeer.engine.api.data.DataStorageStats;
@@ -29,6 +31,7 @@ import io.lumeer.engine.api.data.Query;
 import com.mongodb.MongoBulkWriteException;
 import com.mongodb.client.model.Filters;
 import org.assertj.core.api.SoftAssertions;
+import org.bson.Document;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -37,6 +40,10 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class MongoDbStorageTest extends MongoDbTestBase {
 
@@ -61,6 +68,9 @@ public class MongoDbStorageTest extends MongoDbTestBase {
    private final String COLLECTION_CREATE_AND_READ_OLD_DOCUMENT = "collectionCreateAndReadOldDocument";
    private final String COLLECTION_UPDATE_DOCUMENT = "collectionUpdateDocument";
    private final String COLLECTION_REPLACE_DOCUMENT = "collectionReplaceDocument";
+   private final String COLLECTION_BULK = "collectionBulk";
+   private final String COLLECTION_BULK_FAILURE = "collectionBulkFailure";
+   private final String COLLECTION_SEQUENCES = "collectionSequences";
    private final String COLLECTION_DROP_DOCUMENT = "collectionDropDocument";
    private final String COLLECTION_DROP_MANY = "collectionDropMany";
    private final String COLLECTION_DROP_ATTRIBUTE = "collectionRemoveAttribute";
@@ -108,6 +118,9 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       mongoDbStorage.dropCollection(COLLECTION_RUN);
       mongoDbStorage.dropCollection(COLLECTION_RENAME_ATTRIBUTE);
       mongoDbStorage.dropCollection(COLLECTION_REPLACE_DOCUMENT);
+      mongoDbStorage.dropCollection(COLLECTION_BULK);
+      mongoDbStorage.dropCollection(COLLECTION_BULK_FAILURE);
+      mongoDbStorage.dropCollection(COLLECTION_SEQUENCES);
       mongoDbStorage.dropCollection(COLLECTION_INC_ATTR_VALUE_BY);
       mongoDbStorage.dropCollection(COLLECTION_GET_ATTRIBUTE_VALUES);
       mongoDbStorage.dropCollection(COLLECTION_NESTED_DOCUMENTS);
@@ -237,6 +250,94 @@ public class MongoDbStorageTest extends MongoDbTestBase {
       assertions.assertAll();
    }
 
+   @Test
+   public void testBulk() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_BULK);
+      mongoDbStorage.createIndex(COLLECTION_BULK, new DataDocument("b", 1), true);
+      String documentId = mongoDbStorage.createDocument(COLLECTION_BULK, new DataDocument("a", "a").append("b", "x"));
+      String droppedId = mongoDbStorage.createDocument(COLLECTION_BULK, new DataDocument("a", "a").append("b", "y"));
+
+      List<DataBulkResult> results;
+      try (DataBulk bulk = mongoDbStorage.bulk(2, 2)) {
+         bulk.insert(COLLECTION_BULK, new DataDocument("a", "a").append("b", "a"))
+             .insert(COLLECTION_BULK, new DataDocument("a", "a").append("b", "b"))
+             .insert(COLLECTION_BULK, new DataDocument("a", "a").append("b", "a"))
+             .update(COLLECTION_BULK, new DataDocument("a", "updated"), mongoDbStorageDialect.documentIdFilter(documentId))
+             .drop(COLLECTION_BULK, mongoDbStorageDialect.documentIdFilter(droppedId));
+         assertThat(bulk.size()).isEqualTo(5);
+
+         results = bulk.execute();
+      }
+
+      assertThat(results).hasSize(5);
+      assertThat(results).extracting(DataBulkResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+      assertThat(results).extracting(DataBulkResult::isSuccessful).containsExactly(true, true, false, true, true);
+      assertThat(results.get(0).getDocumentId()).isNotNull();
+      assertThat(results.get(2).getError()).isNotNull();
+
+      assertThat(mongoDbStorage.search(COLLECTION_BULK, null, null, 0, 0)).hasSize(3);
+      assertThat(mongoDbStorage.readDocument(COLLECTION_BULK, mongoDbStorageDialect.documentIdFilter(documentId)).getString("a")).isEqualTo("updated");
+      assertThat(mongoDbStorage.readDocument(COLLECTION_BULK, mongoDbStorageDialect.documentIdFilter(droppedId))).isNull();
+      assertThat(mongoDbStorage.readDocument(COLLECTION_BULK, mongoDbStorageDialect.documentIdFilter(results.get(1).getDocumentId()))).isNotNull();
+   }
+
+   @Test
+   public void testBulkFailure() throws Exception {
+      mongoDbStorage.createCollection(COLLECTION_BULK_FAILURE);
+
+      List<DataBulkResult> results;
+      try (DataBulk bulk = mongoDbStorage.bulk(1, 2)) {
+         // a value without codec fails before reaching the database
+         bulk.insert(COLLECTION_BULK_FAILURE, new DataDocument("a", "a"))
+             .insert(COLLECTION_BULK_FAILURE, new DataDocument("a", new Object()))
+             .insert(COLLECTION_BULK_FAILURE, new DataDocument("a", "c"));
+
+         results = bulk.execute();
+      }
+
+      assertThat(results).extracting(DataBulkResult::isSuccessful).containsExactly(true, false, true);
+      assertThat(results.get(1).getError()).isNotNull();
+      assertThat(mongoDbStorage.search(COLLECTION_BULK_FAILURE, null, null, 0, 0)).hasSize(2);
+   }
+
+   @Test
+   public void testSequences() throws Exception {
+      assertThat(mongoDbStorage.getNextSequenceNo(COLLECTION_SEQUENCES, "name", "seq1")).isEqualTo(0);
+      assertThat(mongoDbStorage.getNextSequenceNo(COLLECTION_SEQUENCES, "name", "seq1")).isEqualTo(1);
+      assertThat(mongoDbStorage.getNextSequenceNo(COLLECTION_SEQUENCES, "name", "seq2")).isEqualTo(0);
+
+      mongoDbStorage.resetSequence(COLLECTION_SEQUENCES, "name", "seq1");
+      assertThat(mongoDbStorage.getNextSequenceNo(COLLECTION_SEQUENCES, "name", "seq1")).isEqualTo(1);
+   }
+
+   @Test
+   public void testSequencesAcrossNodes() throws Exception {
+      final MongoSequences node1 = new MongoSequences(mongoDbStorage.getDatabase(), 3);
+      final MongoSequences node2 = new MongoSequences(mongoDbStorage.getDatabase(), 5);
+
+      final Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      for (int i = 0; i < 400; i++) {
+         final MongoSequences node = i % 2 == 0 ? node1 : node2;
+         executor.submit(() -> numbers.add(node.next(COLLECTION_SEQUENCES, "name", "shared")));
+      }
+      executor.shutdown();
+      assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+      assertThat(numbers).hasSize(400);
+   }
+
+   @Test
+   public void testSequencesWithDuplicates() throws Exception {
+      mongoDbStorage.getDatabase().getCollection(COLLECTION_SEQUENCES).insertMany(Arrays.asList(
+            new Document("name", "dup").append(MongoSequences.SEQUENCE, 7),
+            new Document("name", "dup").append(MongoSequences.SEQUENCE, 12)));
+
+      final MongoSequences sequences = new MongoSequences(mongoDbStorage.getDatabase(), 1);
+      assertThat(sequences.next(COLLECTION_SEQUENCES, "name", "dup")).isEqualTo(13);
+      assertThat(mongoDbStorage.getDatabase().getCollection(COLLECTION_SEQUENCES).countDocuments(Filters.eq("name", "dup"))).isEqualTo(1);
+   }
+
    @Test
    public void testDropDocument() throws Exception {
       mongoDbStorage.createCollection(COLLECTION_DROP_DOCUMENT);
@@ -25,8 +25,10 @@ import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.ConditionType;
 import io.lumeer.api.model.Pagination;
 import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.Project;
 import io.lumeer.engine.api.data.DataDocument;
 import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataStorageLayout;
 import io.lumeer.storage.api.filter.AttributeFilter;
 import io.lumeer.storage.api.query.SearchQueryStem;
 import io.lumeer.storage.mongodb.MongoDbTestBase;
@@ -34,18 +36,26 @@ import io.lumeer.storage.mongodb.MongoDbTestBase;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class MongoDataDaoTest extends MongoDbTestBase {
 
+   private static final String PROJECT_ID = "596e3b86d412bc5a3caaa22a";
    private static final String COLLECTION_ID = "59a51b83d412bc2da88b010f";
+   private static final String COLLECTION_ID2 = "59a51b83d412bc2da88b0110";
    private static final String DOCUMENT_ID = "59a58ba7d412bc562eea2e6a";
 
    private static final String USER = "notNeeded";
@@ -304,6 +314,218 @@ public class MongoDataDaoTest extends MongoDbTestBase {
       assertThat(data).extracting(DataDocument::getId).isEmpty();
    }
 
+   @Test
+   public void testStreamData() {
+      Collection collection = collectionDao.getCollectionById(COLLECTION_ID);
+      String id1 = createDocument();
+      String id2 = createDocument(KEY1, "4");
+      createDocument(KEY1, "8");
+
+      List<DataDocument> data = new ArrayList<>();
+      dataDao.streamData(collection, null, null, data::add);
+      assertThat(data).hasSize(3);
+
+      data.clear();
+      AttributeFilter filter = new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, KEY1, "4");
+      SearchQueryStem stem = SearchQueryStem.createBuilder(COLLECTION_ID)
+                                            .filters(Collections.singleton(filter))
+                                            .build();
+      dataDao.streamData(collection, stem, null, data::add);
+      assertThat(data).extracting(DataDocument::getId).containsOnly(id2);
+
+      data.clear();
+      stem = SearchQueryStem.createBuilder(COLLECTION_ID)
+                            .documentIds(Collections.singleton(id1))
+                            .build();
+      dataDao.streamData(collection, stem, Collections.singleton(KEY2), data::add);
+      assertThat(data).extracting(DataDocument::getId).containsOnly(id1);
+      assertThat(data.get(0)).containsOnlyKeys("_id", KEY2);
+   }
+
+   @Test
+   public void testSeparateLayoutByDefault() {
+      assertThat(dataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SEPARATE);
+      assertThat(projectDataDao().getDataStorageLayout()).isEqualTo(DataStorageLayout.SEPARATE);
+   }
+
+   @Test
+   public void testMigrateToSharedLayout() {
+      String id = createDocument();
+      MongoDataDao projectDataDao = projectDataDao();
+      projectDataDao.migrateDataStorageLayout(DataStorageLayout.SHARED, () -> Collections.singleton(COLLECTION_ID));
+
+      assertThat(projectDataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SHARED);
+      assertThat(projectDataDao().getDataStorageLayout()).isEqualTo(DataStorageLayout.SHARED);
+      assertThat(database.listCollectionNames()).doesNotContain(dataDao.dataCollectionName(COLLECTION_ID));
+
+      Document stored = projectDataDao.sharedDataCollection().find().first();
+      assertThat(stored).containsEntry(MongoDataDao.COLLECTION_ID, COLLECTION_ID)
+                        .containsEntry(KEY1, VALUE1);
+
+      DataDocument data = projectDataDao.getData(COLLECTION_ID, id);
+      assertThat(data).containsEntry(KEY1, VALUE1)
+                      .containsEntry(KEY2, VALUE2)
+                      .doesNotContainKey(MongoDataDao.COLLECTION_ID);
+   }
+
+   @Test
+   public void testSharedLayoutScopesCollections() {
+      MongoDataDao projectDataDao = projectDataDao();
+      projectDataDao.migrateDataStorageLayout(DataStorageLayout.SHARED, () -> Collections.singleton(COLLECTION_ID));
+      projectDataDao.createDataRepository(COLLECTION_ID2);
+
+      projectDataDao.createData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1));
+      projectDataDao.createData(COLLECTION_ID2, "59a58ba7d412bc562eea2e6b", new DataDocument(KEY1, VALUE2));
+
+      assertThat(projectDataDao.getData(COLLECTION_ID)).extracting(DataDocument::getId).containsOnly(DOCUMENT_ID);
+
+      projectDataDao.patchData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY2, VALUE2));
+      assertThat(projectDataDao.getData(COLLECTION_ID, DOCUMENT_ID)).containsEntry(KEY1, VALUE1).containsEntry(KEY2, VALUE2);
+
+      projectDataDao.deleteDataRepository(COLLECTION_ID);
+      assertThat(projectDataDao.getData(COLLECTION_ID)).isEmpty();
+      assertThat(projectDataDao.getData(COLLECTION_ID2)).hasSize(1);
+   }
+
+   @Test
+   public void testMigrateBackToSeparateLayout() {
+      MongoDataDao projectDataDao = projectDataDao();
+      projectDataDao.migrateDataStorageLayout(DataStorageLayout.SHARED, () -> Collections.singleton(COLLECTION_ID));
+      projectDataDao.createData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1));
+
+      projectDataDao.migrateDataStorageLayout(DataStorageLayout.SEPARATE, () -> Collections.singleton(COLLECTION_ID));
+
+      assertThat(projectDataDao.sharedDataCollection().countDocuments()).isZero();
+      Document stored = dataCollection().find().first();
+      assertThat(stored).containsEntry(KEY1, VALUE1).doesNotContainKey(MongoDataDao.COLLECTION_ID);
+   }
+
+   @Test
+   public void testWriteOfStaleLayout() {
+      MongoDataDao staleDataDao = projectDataDao();
+      assertThat(staleDataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SEPARATE);
+
+      projectDataDao().migrateDataStorageLayout(DataStorageLayout.SHARED, () -> Collections.singleton(COLLECTION_ID));
+      staleDataDao.createData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1));
+
+      assertThat(staleDataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SHARED);
+      assertThat(projectDataDao().getData(COLLECTION_ID, DOCUMENT_ID)).containsEntry(KEY1, VALUE1);
+   }
+
+   @Test
+   public void testCollectionCreatedDuringMigration() {
+      MongoDataDao staleDataDao = projectDataDao();
+      staleDataDao.getDataStorageLayout();
+
+      Set<String> collectionIds = new HashSet<>(Collections.singleton(COLLECTION_ID));
+      AtomicInteger phase = new AtomicInteger();
+      projectDataDao().migrateDataStorageLayout(DataStorageLayout.SHARED, () -> {
+         if (phase.incrementAndGet() == 2) {
+            // created after the migration started, but not copied
+            staleDataDao.createDataRepository(COLLECTION_ID2);
+            staleDataDao.createData(COLLECTION_ID2, DOCUMENT_ID, new DataDocument(KEY1, VALUE2));
+            Set<String> copiedIds = new HashSet<>(collectionIds);
+            collectionIds.add(COLLECTION_ID2);
+            return copiedIds;
+         }
+         return new HashSet<>(collectionIds);
+      });
+
+      assertThat(database.listCollectionNames()).doesNotContain(dataDao.dataCollectionName(COLLECTION_ID2));
+      assertThat(projectDataDao().getData(COLLECTION_ID2, DOCUMENT_ID)).containsEntry(KEY1, VALUE2);
+   }
+
+   @Test
+   public void testPatchMirroredAsOperation() {
+      String id = createDocument();
+
+      projectDataDao().migrateDataStorageLayout(DataStorageLayout.SHARED, new MigrationHook(projectDataDao -> {
+         // written to the target layout by a concurrent mirrored write
+         projectDataDao.sharedDataCollection().insertOne(new Document("_id", new ObjectId(id)).append(MongoDataDao.COLLECTION_ID, COLLECTION_ID)
+                                                                                                         .append(KEY1, VALUE1).append(KEY3, VALUE2));
+         projectDataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE1));
+      }));
+
+      assertThat(projectDataDao().getData(COLLECTION_ID, id)).containsEntry(KEY1, VALUE1)
+                                                              .containsEntry(KEY2, VALUE1)
+                                                              .containsEntry(KEY3, VALUE2);
+   }
+
+   @Test
+   public void testPatchOfDocumentNotCopied() {
+      String id = createDocument();
+
+      projectDataDao().migrateDataStorageLayout(DataStorageLayout.SHARED, new MigrationHook(projectDataDao -> {
+         projectDataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE1));
+         assertThat(projectDataDao.sharedDataCollection().find().first()).containsEntry(KEY2, VALUE1);
+      }));
+
+      assertThat(projectDataDao().getData(COLLECTION_ID, id)).containsEntry(KEY1, VALUE1).containsEntry(KEY2, VALUE1);
+   }
+
+   @Test
+   public void testDeleteDuringMigration() {
+      String id = createDocument();
+
+      projectDataDao().migrateDataStorageLayout(DataStorageLayout.SHARED, new MigrationHook(projectDataDao -> {
+         projectDataDao.patchData(COLLECTION_ID, id, new DataDocument(KEY2, VALUE1));
+         projectDataDao.deleteData(COLLECTION_ID, id);
+      }));
+
+      assertThat(projectDataDao().getData(COLLECTION_ID)).isEmpty();
+      assertThat(projectDataDao().sharedDataCollection().countDocuments()).isZero();
+   }
+
+   @Test
+   public void testWriteOfStaleLayoutWithCache() {
+      DataLayoutCache layoutCache = new DataLayoutCache(50);
+      MongoDataDao staleDataDao = projectDataDao();
+      staleDataDao.setLayoutCache(layoutCache);
+      assertThat(staleDataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SEPARATE);
+
+      MongoDataDao migratingDataDao = projectDataDao();
+      migratingDataDao.setLayoutCache(layoutCache);
+      migratingDataDao.migrateDataStorageLayout(DataStorageLayout.SHARED, () -> Collections.singleton(COLLECTION_ID));
+      staleDataDao.createData(COLLECTION_ID, DOCUMENT_ID, new DataDocument(KEY1, VALUE1));
+
+      assertThat(staleDataDao.getDataStorageLayout()).isEqualTo(DataStorageLayout.SHARED);
+      assertThat(projectDataDao().getData(COLLECTION_ID, DOCUMENT_ID)).containsEntry(KEY1, VALUE1);
+   }
+
+   /**
+    * Runs an action with a data DAO that has seen the migration, before the data are copied.
+    */
+   private class MigrationHook implements Supplier<Set<String>> {
+
+      private final Consumer<MongoDataDao> action;
+      private final AtomicInteger phase = new AtomicInteger();
+
+      private MigrationHook(final Consumer<MongoDataDao> action) {
+         this.action = action;
+      }
+
+      @Override
+      public Set<String> get() {
+         if (phase.incrementAndGet() == 2) {
+            MongoDataDao projectDataDao = projectDataDao();
+            projectDataDao.getDataStorageLayout();
+            action.accept(projectDataDao);
+         }
+         return Collections.singleton(COLLECTION_ID);
+      }
+   }
+
+   private MongoDataDao projectDataDao() {
+      Project project = Mockito.mock(Project.class);
+      Mockito.when(project.getId()).thenReturn(PROJECT_ID);
+
+      MongoDataDao projectDataDao = new MongoDataDao();
+      projectDataDao.setDatabase(database);
+      projectDataDao.setProject(project);
+      projectDataDao.setLayoutSwitchGracePeriod(0);
+      return projectDataDao;
+   }
+
    private MongoCollection<Document> dataCollection() {
       return dataDao.dataCollection(COLLECTION_ID);
    }
@@ -0,0 +1,131 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.ConditionType;
+import io.lumeer.api.model.Project;
+import io.lumeer.storage.api.filter.AttributeFilter;
+import io.lumeer.storage.api.index.DataIndex;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+import io.lumeer.storage.mongodb.index.MongoIndexAdvisor;
+
+import org.bson.Document;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class MongoIndexDaoTest extends MongoDbTestBase {
+
+   private static final String PROJECT_ID = "596e3b86d412bc5a3caaa22a";
+   private static final String COLLECTION_ID = "59a51b83d412bc2da88b010f";
+   private static final Set<String> COLLECTION_IDS = Collections.singleton(COLLECTION_ID);
+
+   private static final String ATTRIBUTE1 = "a1";
+   private static final String ATTRIBUTE2 = "a2";
+
+   private MongoIndexAdvisor indexAdvisor;
+   private MongoIndexDao indexDao;
+   private MongoDataDao dataDao;
+
+   @Before
+   public void initIndexDao() {
+      Project project = Mockito.mock(Project.class);
+      Mockito.when(project.getId()).thenReturn(PROJECT_ID);
+
+      indexAdvisor = new MongoIndexAdvisor();
+
+      indexDao = new MongoIndexDao();
+      indexDao.setDatabase(database);
+      indexDao.setProject(project);
+      indexDao.setIndexAdvisor(indexAdvisor);
+
+      dataDao = new MongoDataDao();
+      dataDao.setDatabase(database);
+      dataDao.setProject(project);
+      dataDao.createDataRepository(COLLECTION_ID);
+   }
+
+   private void recordQuery(AttributeFilter... filters) {
+      indexAdvisor.recordFilters(PROJECT_ID, COLLECTION_ID, Arrays.asList(filters));
+   }
+
+   private List<DataIndex> proposedDataIndexes() {
+      List<DataIndex> proposals = indexDao.getProposedIndexes(COLLECTION_IDS);
+      proposals.removeIf(index -> !index.getStorageName().equals(dataDao.dataCollectionName(COLLECTION_ID)));
+      return proposals;
+   }
+
+   @Test
+   public void testProposeIndexesByFrequency() {
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.GREATER_THAN, ATTRIBUTE2, "1"),
+            new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, ATTRIBUTE1, "x"));
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, ATTRIBUTE2, "y"));
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, ATTRIBUTE2, "z"));
+
+      List<DataIndex> proposals = proposedDataIndexes();
+      assertThat(proposals).extracting(DataIndex::getKeys)
+                           .containsExactly(Collections.singletonList(ATTRIBUTE2), Arrays.asList(ATTRIBUTE1, ATTRIBUTE2));
+      assertThat(proposals).extracting(DataIndex::getUsageCount).containsExactly(2L, 1L);
+   }
+
+   @Test
+   public void testNotEqualsIsNotIndexed() {
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.NOT_EQUALS, ATTRIBUTE1, "x"));
+
+      assertThat(proposedDataIndexes()).isEmpty();
+   }
+
+   @Test
+   public void testCreateIndexesWithinBudget() {
+      indexAdvisor.setIndexBudget(1);
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, ATTRIBUTE1, "x"));
+      recordQuery(new AttributeFilter(COLLECTION_ID, ConditionType.EQUALS, ATTRIBUTE2, "y"));
+
+      indexDao.createProposedIndexes(COLLECTION_IDS);
+
+      List<String> indexNames = dataDao.dataCollection(COLLECTION_ID).listIndexes().map(index -> index.getString("name")).into(new java.util.ArrayList<>());
+      assertThat(indexNames).filteredOn(name -> name.startsWith(MongoIndexDao.MANAGED_INDEX_PREFIX)).hasSize(1);
+      assertThat(proposedDataIndexes()).isEmpty();
+   }
+
+   @Test
+   public void testCreateMissingLookupIndexes() {
+      database.createCollection("documents_p-" + PROJECT_ID);
+
+      List<DataIndex> created = indexDao.createProposedIndexes(COLLECTION_IDS);
+      assertThat(created).extracting(DataIndex::getStorageName).contains("documents_p-" + PROJECT_ID);
+      assertThat(indexDao.getProposedIndexes(COLLECTION_IDS)).isEmpty();
+   }
+
+   @Test
+   public void testUnusedIndexes() {
+      dataDao.dataCollection(COLLECTION_ID).createIndex(new Document(ATTRIBUTE1, 1));
+
+      List<DataIndex> unused = indexDao.getUnusedIndexes(COLLECTION_IDS);
+      assertThat(unused).extracting(DataIndex::getKeys).contains(Collections.singletonList(ATTRIBUTE1));
+      assertThat(unused).extracting(DataIndex::getName).doesNotContain("_id_");
+   }
+}
@@ -138,7 +138,7 @@ public class MongoDocumentDaoTest extends MongoDbTestBase {
       document.setUpdatedBy(UPDATED_BY);
       document.setUpdateDate(updateDate);
 
-      documentDao.updateDocument(document.getId(), document);
+      documentDao.updateDocument(document.getId(), document, null);
 
       Document storedDocument = documentDao.databaseCollection().find(MongoFilters.idFilter(id)).first();
       assertThat(storedDocument).isNotNull();
@@ -157,7 +157,7 @@ public class MongoDocumentDaoTest extends MongoDbTestBase {
    @Test
    public void testUpdateDocumentNotExisting() {
       Document document = prepareDocument();
-      assertThatThrownBy(() -> documentDao.updateDocument(DOCUMENT_ID, document))
+      assertThatThrownBy(() -> documentDao.updateDocument(DOCUMENT_ID, document, null))
             .isInstanceOf(StorageException.class);
    }
 
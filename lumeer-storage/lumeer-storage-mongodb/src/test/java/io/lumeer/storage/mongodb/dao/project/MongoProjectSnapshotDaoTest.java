@@ -0,0 +1,182 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.project;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.lumeer.api.model.Project;
+import io.lumeer.storage.api.dao.ProjectSnapshotDao;
+import io.lumeer.storage.api.exception.StorageException;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+import io.lumeer.storage.mongodb.dao.collection.MongoDataDao;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class MongoProjectSnapshotDaoTest extends MongoDbTestBase {
+
+   private static final String PROJECT_ID = "596e3b86d412bc5a3caaa22a";
+   private static final String PROJECT_ID2 = "596e3b86d412bc5a3caaa22b";
+
+   private static final ObjectId COLLECTION_ID = new ObjectId("59a51b83d412bc2da88b010f");
+   private static final ObjectId DOCUMENT_ID1 = new ObjectId("59a52042d412bc346576fad7");
+   private static final ObjectId DOCUMENT_ID2 = new ObjectId("59a52042d412bc346576fad8");
+   private static final ObjectId LINK_TYPE_ID = new ObjectId("596e3b86d412bc5a3caaa29a");
+   private static final ObjectId VIEW_ID = new ObjectId("596e3b86d412bc5a3caaa30a");
+   private static final String USER = "59a52042d412bc346576fa00";
+
+   private MongoProjectSnapshotDao snapshotDao;
+   private Project project;
+   private Project project2;
+
+   @Before
+   public void initSnapshotDao() {
+      project = Mockito.mock(Project.class);
+      Mockito.when(project.getId()).thenReturn(PROJECT_ID);
+      project2 = Mockito.mock(Project.class);
+      Mockito.when(project2.getId()).thenReturn(PROJECT_ID2);
+
+      snapshotDao = new MongoProjectSnapshotDao();
+      snapshotDao.setDatabase(database);
+
+      database.getCollection(MongoCollectionDao.PREFIX + PROJECT_ID).insertOne(new Document("_id", COLLECTION_ID).append("code", "C1"));
+      database.getCollection(MongoDocumentDao.PREFIX + PROJECT_ID).insertMany(Arrays.asList(
+            new Document("_id", DOCUMENT_ID1).append("collectionId", COLLECTION_ID.toHexString()),
+            new Document("_id", DOCUMENT_ID2).append("collectionId", COLLECTION_ID.toHexString()).append("createdBy", USER)));
+      database.getCollection(MongoLinkTypeDao.PREFIX + PROJECT_ID).insertOne(new Document("_id", LINK_TYPE_ID)
+            .append("collectionIds", Arrays.asList(COLLECTION_ID.toHexString(), COLLECTION_ID.toHexString())));
+      database.getCollection(MongoLinkInstanceDao.PREFIX + PROJECT_ID).insertOne(new Document("linkTypeId", LINK_TYPE_ID.toHexString())
+            .append("documentIds", Arrays.asList(DOCUMENT_ID1.toHexString(), DOCUMENT_ID2.toHexString())));
+      database.getCollection(MongoViewDao.PREFIX + PROJECT_ID).insertOne(new Document("_id", VIEW_ID)
+            .append("config", new Document(COLLECTION_ID.toHexString(), new Document("width", 10))));
+
+      final MongoDataDao dataDao = new MongoDataDao();
+      dataDao.setDatabase(database);
+      dataDao.setProject(project);
+      dataDao.createDataRepository(COLLECTION_ID.toHexString());
+      dataDao.createRawData(COLLECTION_ID.toHexString(), Arrays.asList(new Document("_id", DOCUMENT_ID1).append("a1", 42),
+            new Document("_id", DOCUMENT_ID2).append("a1", "text")));
+   }
+
+   private byte[] dump() {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      snapshotDao.dumpProject(project, output);
+      return output.toByteArray();
+   }
+
+   @Test
+   public void testDumpAndRestore() {
+      snapshotDao.restoreProject(project2, new ByteArrayInputStream(dump()), summary -> {
+      });
+
+      final Document collection = database.getCollection(MongoCollectionDao.PREFIX + PROJECT_ID2).find().first();
+      assertThat(collection).isNotNull();
+      assertThat(collection.getString("code")).isEqualTo("C1");
+      final ObjectId collectionId = collection.getObjectId("_id");
+      assertThat(collectionId).isNotEqualTo(COLLECTION_ID);
+
+      final List<Document> documents = database.getCollection(MongoDocumentDao.PREFIX + PROJECT_ID2).find().into(new ArrayList<>());
+      assertThat(documents).hasSize(2).extracting(document -> document.getString("collectionId")).containsOnly(collectionId.toHexString());
+      assertThat(documents).extracting(document -> document.getObjectId("_id")).doesNotContain(DOCUMENT_ID1, DOCUMENT_ID2);
+      assertThat(documents).extracting(document -> document.getString("createdBy")).contains(USER);
+
+      final Document linkType = database.getCollection(MongoLinkTypeDao.PREFIX + PROJECT_ID2).find().first();
+      assertThat(linkType.get("collectionIds", List.class)).containsOnly(collectionId.toHexString());
+
+      final Document linkInstance = database.getCollection(MongoLinkInstanceDao.PREFIX + PROJECT_ID2).find().first();
+      assertThat(linkInstance.getString("linkTypeId")).isEqualTo(linkType.getObjectId("_id").toHexString());
+      assertThat(linkInstance.get("documentIds", List.class))
+            .containsExactlyInAnyOrderElementsOf(documents.stream().map(document -> document.getObjectId("_id").toHexString()).collect(Collectors.toList()));
+
+      final Document view = database.getCollection(MongoViewDao.PREFIX + PROJECT_ID2).find().first();
+      assertThat(view.get("config", Document.class)).containsOnlyKeys(collectionId.toHexString());
+
+      final List<Document> data = database.getCollection("data_c-" + collectionId.toHexString()).find().into(new ArrayList<>());
+      assertThat(data).extracting(document -> document.get("a1")).containsOnly(42, "text");
+      assertThat(data).extracting(document -> document.getObjectId("_id"))
+                      .containsExactlyInAnyOrderElementsOf(documents.stream().map(document -> document.getObjectId("_id")).collect(Collectors.toList()));
+   }
+
+   @Test
+   public void testRestoreIncompleteSnapshot() {
+      final byte[] snapshot = dump();
+      final ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+      try (GZIPOutputStream stream = new GZIPOutputStream(truncated)) {
+         final byte[] bytes = new GZIPInputStream(new ByteArrayInputStream(snapshot)).readAllBytes();
+         stream.write(bytes, 0, bytes.length - 30);
+      } catch (IOException e) {
+         throw new RuntimeException(e);
+      }
+
+      assertThatThrownBy(() -> snapshotDao.restoreProject(project2, new ByteArrayInputStream(truncated.toByteArray()), summary -> {
+      }))
+            .isInstanceOf(StorageException.class);
+      assertThat(database.listCollectionNames()).noneMatch(name -> name.startsWith("data_c-") && !name.endsWith(COLLECTION_ID.toHexString()));
+   }
+
+   @Test
+   public void testValidateSummary() {
+      final List<ProjectSnapshotDao.Summary> summaries = new ArrayList<>();
+
+      assertThatThrownBy(() -> snapshotDao.restoreProject(project2, new ByteArrayInputStream(dump()), summary -> {
+         summaries.add(summary);
+         throw new IllegalStateException("Too many documents");
+      })).isInstanceOf(IllegalStateException.class);
+
+      assertThat(summaries).hasSize(1);
+      assertThat(summaries.get(0).getCollections()).isEqualTo(1);
+      assertThat(summaries.get(0).getDocuments()).isEqualTo(2);
+      assertThat(summaries.get(0).getLinkTypes()).isEqualTo(1);
+      assertThat(summaries.get(0).getLinkInstances()).isEqualTo(1);
+      assertThat(summaries.get(0).getViews()).isEqualTo(1);
+      assertThat(database.getCollection(MongoCollectionDao.PREFIX + PROJECT_ID2).countDocuments()).isZero();
+      assertThat(database.getCollection(MongoDocumentDao.PREFIX + PROJECT_ID2).countDocuments()).isZero();
+   }
+
+   @Test
+   public void testRemap() {
+      final ObjectId newId = new ObjectId();
+      final Map<String, ObjectId> ids = new HashMap<>(Collections.singletonMap(COLLECTION_ID.toHexString(), newId));
+
+      final Document remapped = (Document) MongoProjectSnapshotDao.remap(new Document("_id", COLLECTION_ID)
+            .append("list", Arrays.asList(COLLECTION_ID.toHexString(), USER))
+            .append(COLLECTION_ID.toHexString(), "key"), ids);
+
+      assertThat(remapped.getObjectId("_id")).isEqualTo(newId);
+      assertThat(remapped.get("list", List.class)).containsExactly(newId.toHexString(), USER);
+      assertThat(remapped).containsKey(newId.toHexString());
+   }
+}
@@ -0,0 +1,107 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.dao.ImportJobState;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+public class MongoImportJobDaoTest extends MongoDbTestBase {
+
+   private MongoImportJobDao importJobDao;
+
+   @Before
+   public void initImportJobDao() {
+      importJobDao = new MongoImportJobDao();
+      importJobDao.setDatabase(database);
+
+      importJobDao.createImportJobsRepository();
+      assertThat(database.listCollectionNames()).contains(importJobDao.databaseCollectionName());
+   }
+
+   @Test
+   public void testProgressAndFinish() {
+      final ImportJobState job = importJobDao.createJob(prepareJob());
+      assertThat(importJobDao.updateProgress(job.getId(), 10, 0)).isNull();
+
+      job.setStatus(ImportJobState.Status.RUNNING);
+      assertThat(importJobDao.updateStatus(job, EnumSet.of(ImportJobState.Status.QUEUED))).isTrue();
+      assertThat(importJobDao.updateStatus(job, EnumSet.of(ImportJobState.Status.QUEUED))).isFalse();
+
+      final ImportJobState progress = importJobDao.updateProgress(job.getId(), 1200, 1000);
+      assertThat(progress.getRowsParsed()).isEqualTo(1200);
+      assertThat(progress.getRowsInserted()).isEqualTo(1000);
+      assertThat(progress.isCancelRequested()).isFalse();
+
+      job.setStatus(ImportJobState.Status.FAILED);
+      job.setError("database unavailable");
+      assertThat(importJobDao.updateStatus(job, EnumSet.of(ImportJobState.Status.RUNNING))).isTrue();
+
+      final ImportJobState stored = importJobDao.getJob(job.getId());
+      assertThat(stored.getStatus()).isEqualTo(ImportJobState.Status.FAILED);
+      assertThat(stored.getError()).isEqualTo("database unavailable");
+      assertThat(stored.getOwner()).isEqualTo("node1");
+      assertThat(stored.getFinishedAt()).isNotNull();
+
+      // resumed by another node
+      stored.setStatus(ImportJobState.Status.QUEUED);
+      stored.setError(null);
+      assertThat(importJobDao.updateStatus(stored, EnumSet.of(ImportJobState.Status.FAILED, ImportJobState.Status.CANCELLED))).isTrue();
+      assertThat(importJobDao.getJob(job.getId()).getFinishedAt()).isNull();
+      assertThat(importJobDao.getJob(job.getId()).getRowsInserted()).isEqualTo(1000);
+   }
+
+   @Test
+   public void testCancel() {
+      final ImportJobState queued = importJobDao.createJob(prepareJob());
+      assertThat(importJobDao.cancelJob(queued.getId()).getStatus()).isEqualTo(ImportJobState.Status.CANCELLED);
+      assertThat(importJobDao.cancelJob(queued.getId())).isNull();
+
+      final ImportJobState running = prepareJob();
+      running.setStatus(ImportJobState.Status.RUNNING);
+      importJobDao.createJob(running);
+
+      final ImportJobState cancelled = importJobDao.cancelJob(running.getId());
+      assertThat(cancelled.getStatus()).isEqualTo(ImportJobState.Status.RUNNING);
+      assertThat(cancelled.isCancelRequested()).isTrue();
+      assertThat(importJobDao.updateProgress(running.getId(), 1, 1).isCancelRequested()).isTrue();
+
+      assertThat(importJobDao.cancelJob(UUID.randomUUID().toString())).isNull();
+   }
+
+   private ImportJobState prepareJob() {
+      final ImportJobState job = new ImportJobState();
+      job.setId(UUID.randomUUID().toString());
+      job.setOwner("node1");
+      job.setUserId("user1");
+      job.setProjectId("project1");
+      job.setCollectionId("coll1");
+      job.setFormat("csv");
+      job.setStatus(ImportJobState.Status.QUEUED);
+
+      return job;
+   }
+}
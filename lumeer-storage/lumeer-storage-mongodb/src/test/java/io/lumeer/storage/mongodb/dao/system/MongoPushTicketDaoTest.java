@@ -0,0 +1,61 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MongoPushTicketDaoTest extends MongoDbTestBase {
+
+   private static final String USER = "user1";
+
+   private MongoPushTicketDao pushTicketDao;
+
+   @Before
+   public void initPushTicketDao() {
+      pushTicketDao = new MongoPushTicketDao();
+      pushTicketDao.setDatabase(database);
+
+      pushTicketDao.createPushTicketRepository();
+      assertThat(database.listCollectionNames()).contains(pushTicketDao.databaseCollectionName());
+   }
+
+   @Test
+   public void testConsumeTicket() {
+      pushTicketDao.createTicket("ticket1", USER, System.currentTimeMillis() + 60_000);
+
+      assertThat(pushTicketDao.getTicketUser("ticket1")).isEqualTo(USER);
+      assertThat(pushTicketDao.getTicketUser("ticket2")).isNull();
+      assertThat(pushTicketDao.consumeTicket("ticket1")).isEqualTo(USER);
+      assertThat(pushTicketDao.consumeTicket("ticket1")).isNull();
+      assertThat(pushTicketDao.getTicketUser("ticket1")).isNull();
+   }
+
+   @Test
+   public void testExpiredTicket() {
+      pushTicketDao.createTicket("ticket1", USER, System.currentTimeMillis() - 1);
+
+      assertThat(pushTicketDao.getTicketUser("ticket1")).isNull();
+      assertThat(pushTicketDao.consumeTicket("ticket1")).isNull();
+   }
+}
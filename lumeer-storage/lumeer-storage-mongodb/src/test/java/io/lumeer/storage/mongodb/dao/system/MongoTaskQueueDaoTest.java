@@ -0,0 +1,146 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.storage.api.dao.QueuedTask;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.UUID;
+
+public class MongoTaskQueueDaoTest extends MongoDbTestBase {
+
+   private static final String NODE1 = "node1";
+   private static final String NODE2 = "node2";
+   private static final long LEASE = 60_000;
+
+   private MongoTaskQueueDao taskQueueDao;
+
+   @Before
+   public void initTaskQueueDao() {
+      taskQueueDao = new MongoTaskQueueDao();
+      taskQueueDao.setDatabase(database);
+
+      taskQueueDao.createTaskQueueRepository();
+      assertThat(database.listCollectionNames()).contains(taskQueueDao.databaseCollectionName());
+   }
+
+   @Test
+   public void testLeaseByPriority() {
+      final QueuedTask low = taskQueueDao.createTask(prepareTask(0, 0));
+      final QueuedTask high = taskQueueDao.createTask(prepareTask(10, 0));
+
+      final QueuedTask leased = taskQueueDao.leaseTask(NODE1, LEASE);
+      assertThat(leased.getId()).isEqualTo(high.getId());
+      assertThat(leased.getState()).isEqualTo(QueuedTask.State.RUNNING);
+      assertThat(leased.getOwner()).isEqualTo(NODE1);
+      assertThat(leased.getAttempts()).isEqualTo(1);
+      assertThat(leased.getPayload()).containsExactly(1, 2, 3);
+
+      assertThat(taskQueueDao.leaseTask(NODE2, LEASE).getId()).isEqualTo(low.getId());
+      assertThat(taskQueueDao.leaseTask(NODE2, LEASE)).isNull();
+   }
+
+   @Test
+   public void testDelayedAndPinnedTasks() {
+      taskQueueDao.createTask(prepareTask(0, System.currentTimeMillis() + LEASE));
+      final QueuedTask pinned = prepareTask(0, 0);
+      pinned.setPayload(null);
+      pinned.setOwner(NODE1);
+      pinned.setLeaseUntil(System.currentTimeMillis() + LEASE);
+      taskQueueDao.createTask(pinned);
+
+      assertThat(taskQueueDao.leaseTask(NODE2, LEASE)).isNull();
+      assertThat(taskQueueDao.leaseTask(NODE1, LEASE).getId()).isEqualTo(pinned.getId());
+   }
+
+   @Test
+   public void testExpiredLease() {
+      final QueuedTask task = taskQueueDao.createTask(prepareTask(0, 0));
+      assertThat(taskQueueDao.leaseTask(NODE1, LEASE)).isNotNull();
+      assertThat(taskQueueDao.leaseTask(NODE2, LEASE)).isNull();
+
+      taskQueueDao.databaseCollection().updateOne(Filters.eq(MongoTaskQueueDao.ID, task.getId()), Updates.set(MongoTaskQueueDao.LEASE_UNTIL, new Date(0)));
+
+      final QueuedTask leased = taskQueueDao.leaseTask(NODE2, LEASE);
+      assertThat(leased.getOwner()).isEqualTo(NODE2);
+      assertThat(leased.getAttempts()).isEqualTo(2);
+
+      assertThat(taskQueueDao.finishTask(task.getId(), NODE1, QueuedTask.State.COMPLETED, null)).isFalse();
+      assertThat(taskQueueDao.finishTask(task.getId(), NODE2, QueuedTask.State.COMPLETED, null)).isTrue();
+   }
+
+   @Test
+   public void testRetryAndFinish() {
+      final QueuedTask task = taskQueueDao.createTask(prepareTask(0, 0));
+      taskQueueDao.leaseTask(NODE1, LEASE);
+
+      assertThat(taskQueueDao.retryTask(task.getId(), NODE1, System.currentTimeMillis() + LEASE, "error", false)).isTrue();
+      QueuedTask stored = taskQueueDao.getTask(task.getId());
+      assertThat(stored.getState()).isEqualTo(QueuedTask.State.QUEUED);
+      assertThat(stored.getOwner()).isNull();
+      assertThat(stored.getError()).isEqualTo("error");
+      assertThat(taskQueueDao.leaseTask(NODE1, LEASE)).isNull();
+
+      taskQueueDao.databaseCollection().updateOne(Filters.eq(MongoTaskQueueDao.ID, task.getId()), Updates.set(MongoTaskQueueDao.RUN_AT, new Date(0)));
+      assertThat(taskQueueDao.leaseTask(NODE1, LEASE).getAttempts()).isEqualTo(2);
+      assertThat(taskQueueDao.finishTask(task.getId(), NODE1, QueuedTask.State.FAILED, "failed")).isTrue();
+
+      stored = taskQueueDao.getTask(task.getId());
+      assertThat(stored.getState()).isEqualTo(QueuedTask.State.FAILED);
+      assertThat(stored.getFinishedAt()).isNotNull();
+      assertThat(stored.getPayload()).isNull();
+      assertThat(taskQueueDao.countTasks()).containsEntry(QueuedTask.State.FAILED, 1L).containsEntry(QueuedTask.State.QUEUED, 0L);
+   }
+
+   @Test
+   public void testRenewLeases() {
+      final QueuedTask task = taskQueueDao.createTask(prepareTask(0, 0));
+      final long leaseUntil = taskQueueDao.leaseTask(NODE1, LEASE).getLeaseUntil();
+
+      final QueuedTask other = taskQueueDao.createTask(prepareTask(0, 0));
+      final long otherLeaseUntil = taskQueueDao.leaseTask(NODE1, LEASE).getLeaseUntil();
+
+      assertThat(taskQueueDao.renewLeases(NODE2, Set.of(task.getId()), 10 * LEASE)).isZero();
+      assertThat(taskQueueDao.renewLeases(NODE1, Set.of(task.getId()), 10 * LEASE)).isEqualTo(1);
+      assertThat(taskQueueDao.getTask(task.getId()).getLeaseUntil()).isGreaterThan(leaseUntil);
+      assertThat(taskQueueDao.getTask(other.getId()).getLeaseUntil()).isEqualTo(otherLeaseUntil);
+   }
+
+   private QueuedTask prepareTask(final int priority, final long runAt) {
+      final QueuedTask task = new QueuedTask();
+      task.setId(UUID.randomUUID().toString());
+      task.setType("task");
+      task.setPriority(priority);
+      task.setMaxAttempts(3);
+      task.setState(QueuedTask.State.QUEUED);
+      task.setCreatedAt(System.currentTimeMillis());
+      task.setRunAt(runAt);
+      task.setPayload(new byte[] { 1, 2, 3 });
+      return task;
+   }
+}
@@ -0,0 +1,148 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.storage.mongodb.dao.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.UserNotification;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.dao.UserNotificationWrite;
+import io.lumeer.storage.mongodb.MongoDbTestBase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class MongoUserNotificationDaoTest extends MongoDbTestBase {
+
+   private static final String USER1 = "596e3b86d412bc5a3caaa22a";
+   private static final String USER2 = "596e3b86d412bc5a3caaa22b";
+   private static final String COLLECTION_ID = "596e3b86d412bc5a3caaa22c";
+   private static final String COLLECTION_ID_FIELD = UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_ID;
+   private static final String COLLECTION_NAME_FIELD = UserNotification.DATA + "." + UserNotification.CollectionShared.COLLECTION_NAME;
+
+   private MongoUserNotificationDao userNotificationDao;
+
+   @Before
+   public void initUserNotificationDao() {
+      userNotificationDao = new MongoUserNotificationDao();
+      userNotificationDao.setDatabase(database);
+
+      userNotificationDao.createUserNotificationsRepository();
+   }
+
+   @Test
+   public void testWriteNotifications() {
+      userNotificationDao.writeNotifications(Arrays.asList(
+            UserNotificationWrite.create(prepareNotification(USER1, "name"), COLLECTION_ID_FIELD, COLLECTION_ID),
+            UserNotificationWrite.create(prepareNotification(USER2, "name"), COLLECTION_ID_FIELD, COLLECTION_ID),
+            UserNotificationWrite.create(prepareNotification(USER1, "name"), COLLECTION_ID_FIELD, COLLECTION_ID),
+            UserNotificationWrite.update(COLLECTION_ID_FIELD, COLLECTION_ID, Map.of(COLLECTION_NAME_FIELD, "new name"))
+      ));
+
+      List<UserNotification> notifications = userNotificationDao.getRecentNotifications(USER1);
+      assertThat(notifications).hasSize(1);
+      assertThat(notifications.get(0).getData().getString(UserNotification.CollectionShared.COLLECTION_NAME)).isEqualTo("new name");
+
+      userNotificationDao.writeNotifications(Collections.singletonList(
+            UserNotificationWrite.remove(COLLECTION_ID_FIELD, COLLECTION_ID, Collections.singleton(USER2))
+      ));
+
+      assertThat(userNotificationDao.getRecentNotifications(USER1)).hasSize(1);
+      assertThat(userNotificationDao.getRecentNotifications(USER2)).isEmpty();
+   }
+
+   @Test
+   public void testGetNotificationsSince() {
+      final ZonedDateTime now = ZonedDateTime.now().withNano(0);
+      final List<UserNotification> created = userNotificationDao.createNotificationsBatch(Arrays.asList(
+            prepareNotification(USER1, "n1", now.minusMinutes(2), false),
+            prepareNotification(USER1, "n2", now.minusMinutes(1), true),
+            prepareNotification(USER1, "n3", now.minusMinutes(1), false),
+            prepareNotification(USER2, "n4", now, false)
+      ));
+
+      final List<UserNotification> latest = userNotificationDao.getNotificationsSince(USER1, null, null, null, 2);
+      assertThat(latest).extracting(notification -> notification.getData().getString(UserNotification.CollectionShared.COLLECTION_NAME))
+                        .containsExactlyInAnyOrder("n2", "n3");
+
+      final UserNotification first = created.get(0);
+      assertThat(userNotificationDao.getNotificationsSince(USER1, first.getCreatedAt(), first.getId(), null, 10)).hasSize(2);
+      assertThat(userNotificationDao.getNotificationsSince(USER1, now.minusMinutes(2), null, null, 10)).hasSize(2);
+      assertThat(userNotificationDao.getNotificationsSince(USER1, now.minusMinutes(1), null, null, 10)).isEmpty();
+
+      // the notifications created after the upper bound are left for the next page
+      assertThat(userNotificationDao.getNotificationsSince(USER1, null, null, now.minusMinutes(2), 10)).hasSize(1);
+      assertThat(userNotificationDao.getNotificationsSince(USER1, first.getCreatedAt(), first.getId(), now.minusSeconds(90), 10)).isEmpty();
+
+      assertThat(userNotificationDao.getUnreadNotificationsCount(USER1)).isEqualTo(2);
+      assertThat(userNotificationDao.getUnreadNotificationsCount(USER2)).isEqualTo(1);
+   }
+
+   @Test
+   public void testArchiveNotifications() {
+      final ZonedDateTime now = ZonedDateTime.now();
+      userNotificationDao.createNotificationsBatch(Arrays.asList(
+            prepareNotification(USER1, "old", now.minusDays(40), false),
+            prepareNotification(USER1, "older", now.minusDays(50), true),
+            prepareNotification(USER1, "new", now, false)
+      ));
+
+      assertThat(userNotificationDao.archiveNotifications(now.minusDays(30), 1)).isEqualTo(1);
+      assertThat(userNotificationDao.archiveNotifications(now.minusDays(30), 10)).isEqualTo(1);
+      assertThat(userNotificationDao.archiveNotifications(now.minusDays(30), 10)).isZero();
+
+      assertThat(userNotificationDao.getRecentNotifications(USER1)).hasSize(1);
+      assertThat(database.getCollection(MongoUserNotificationDao.ARCHIVE_COLLECTION_NAME).countDocuments()).isEqualTo(2);
+      assertThat(database.getCollection(MongoUserNotificationDao.COLLECTION_NAME).listIndexes().map(index -> index.getString("name")).into(new ArrayList<>()))
+            .contains("createdAt_1_userId_1");
+   }
+
+   @Test
+   public void testReadNotificationsRetention() {
+      userNotificationDao.setReadNotificationsRetention(3600L);
+      userNotificationDao.setReadNotificationsRetention(7200L);
+
+      assertThat(database.getCollection(MongoUserNotificationDao.COLLECTION_NAME).listIndexes().into(new ArrayList<>()))
+            .filteredOn(index -> index.containsKey("expireAfterSeconds"))
+            .extracting(index -> index.get("expireAfterSeconds", Number.class).longValue())
+            .containsExactly(7200L);
+
+      userNotificationDao.setReadNotificationsRetention(null);
+
+      assertThat(database.getCollection(MongoUserNotificationDao.COLLECTION_NAME).listIndexes().into(new ArrayList<>()))
+            .noneMatch(index -> index.containsKey("expireAfterSeconds"));
+   }
+
+   private UserNotification prepareNotification(final String userId, final String collectionName) {
+      return prepareNotification(userId, collectionName, ZonedDateTime.now(), false);
+   }
+
+   private UserNotification prepareNotification(final String userId, final String collectionName, final ZonedDateTime createdAt, final boolean read) {
+      final DataDocument data = new DataDocument(UserNotification.CollectionShared.COLLECTION_ID, COLLECTION_ID)
+            .append(UserNotification.CollectionShared.COLLECTION_NAME, collectionName);
+      return new UserNotification(userId, createdAt, read, null, UserNotification.NotificationType.COLLECTION_SHARED, data);
+   }
+}
@@ -18,6 +18,7 @@
  */
 package io.lumeer.utils;
 
+import io.lumeer.utils.rest.ImportJournal;
 import io.lumeer.utils.rest.JsonResource;
 import io.lumeer.utils.rest.RestRequest;
 
@@ -25,10 +26,12 @@ import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.json.simple.parser.JSONParser;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -37,7 +40,18 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 
@@ -65,6 +79,18 @@ public class RestImport {
    @Parameter(names = { "-v", "--verbose" }, description = "Enables verbose output")
    private boolean verbose = false;
 
+   @Parameter(names = { "-c", "--concurrency" }, description = "Number of requests sent in parallel, requests are started in the input order and requests to the same path are always sent in order")
+   private int concurrency = 1;
+
+   @Parameter(names = { "-r", "--retries" }, description = "Number of retries of an idempotent request (GET, HEAD, PUT, DELETE, OPTIONS or with an Idempotency-Key header) that failed on a connection or server error")
+   private int retries = 3;
+
+   @Parameter(names = { "--retry-delay" }, description = "Delay before the first retry in milliseconds, it doubles with every retry")
+   private long retryDelay = 500;
+
+   @Parameter(names = { "-j", "--journal" }, description = "Journal of the sent requests, a run with the journal of a failed run continues where it stopped")
+   private String journalFile;
+
    private List<JsonResource> includes = new ArrayList<>();
 
    public static void main(final String... args) throws Exception {
@@ -72,14 +98,16 @@ public class RestImport {
       final JCommander jCommander = new JCommander(restImport);
       jCommander.parse(args);
 
-      if (restImport.baseUrl == null || restImport.rootDirs.isEmpty() || restImport.help) {
+      if (restImport.baseUrl == null || restImport.rootDirs.isEmpty() || restImport.help || restImport.concurrency < 1) {
          jCommander.usage();
          System.exit(1);
       }
 
       restImport.parseIncludes();
       restImport.parseHeaders();
-      restImport.run();
+      if (!restImport.run()) {
+         System.exit(2);
+      }
    }
 
    private void parseHeaders() {
@@ -112,18 +140,99 @@ public class RestImport {
       Collections.sort(includes);
    }
 
-   private void run() {
-      includes.forEach(this::processFile);
+   /**
+    * Sends the requests of all files. Files with the same order number are processed together. Requests are started in
+    * the order of the files, a request waits for the previous request to the same path to complete.
+    *
+    * @return True when all requests were sent, false when the import stopped because of a failed request.
+    */
+   private boolean run() throws IOException, InterruptedException {
+      final Map<Integer, List<JsonResource>> stages = includes.stream().collect(Collectors.groupingBy(JsonResource::getOrder, TreeMap::new, Collectors.toList()));
+      final Client client = new ResteasyClientBuilder().connectionPoolSize(concurrency).maxPooledPerRoute(concurrency).build();
+      final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+
+      try (ImportJournal journal = new ImportJournal(journalFile != null ? Paths.get(journalFile) : null)) {
+         for (final List<JsonResource> stage : stages.values()) {
+            if (!runStage(client, executor, journal, stage)) {
+               System.err.println("Import stopped after a failed request" + (journalFile != null ? ", run it again with the same journal to continue" : ""));
+               return false;
+            }
+         }
+
+         return true;
+      } finally {
+         executor.shutdownNow();
+         client.close();
+      }
+   }
+
+   private boolean runStage(final Client client, final ExecutorService executor, final ImportJournal journal, final List<JsonResource> stage) throws InterruptedException {
+      final List<Command> commands = new ArrayList<>();
+      stage.forEach(resource -> commands.addAll(processFile(client, resource)));
+
+      // the executor starts the tasks in the order they were submitted, so a task waits only for a task that is already running
+      final AtomicBoolean failed = new AtomicBoolean();
+      final Map<String, Future<Boolean>> lastByPath = new HashMap<>();
+      final List<Future<Boolean>> results = new ArrayList<>();
+      for (final Command command : commands) {
+         final Future<Boolean> previous = lastByPath.get(command.path);
+         final Future<Boolean> result = executor.submit(() -> (previous == null || previous.get()) && sendCommand(journal, command, failed));
+         lastByPath.put(command.path, result);
+         results.add(result);
+      }
+
+      boolean successful = true;
+      for (final Future<Boolean> result : results) {
+         try {
+            successful &= result.get();
+         } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            failed.set(true);
+            successful = false;
+         }
+      }
+
+      return successful;
+   }
+
+   private boolean sendCommand(final ImportJournal journal, final Command command, final AtomicBoolean failed) throws InterruptedException {
+      final String key = ImportJournal.key(command.resource, command.index);
+      if (journal.isCompleted(key)) {
+         return true;
+      }
+
+      // later requests might depend on a failed one
+      if (failed.get()) {
+         return false;
+      }
+
+      final RestRequest request = command.request.get();
+      request.invoke(retries, retryDelay);
+
+      final boolean successful = request.isSuccessful();
+      final boolean requestFailed = request.isFailed();
+      request.finalizeResponse(verbose);
+
+      if (requestFailed) {
+         failed.set(true);
+         return false;
+      }
+
+      if (successful) {
+         journal.complete(key);
+      }
+
+      return true;
    }
 
-   private void processFile(final JsonResource resource) {
+   private List<Command> processFile(final Client client, final JsonResource resource) {
       final JSONParser parser = new JSONParser();
 
-      try {
-         final Object o = parser.parse(new FileReader(resource.getPath()));
+      try (Reader reader = new FileReader(resource.getPath())) {
+         final Object o = parser.parse(reader);
 
          if (o instanceof JSONObject) {
-            sendRestCommand((JSONObject) o);
+            return createCommands(client, resource, (JSONObject) o);
          } else {
             throw new IOException("File does not contain JSON object: " + resource.getPath().toString());
          }
@@ -131,49 +240,42 @@ public class RestImport {
          System.err.println("Error processing " + resource.getPath().toString());
          e.printStackTrace();
       }
+
+      return Collections.emptyList();
    }
 
-   private void sendRestCommand(final JSONObject command) {
+   private List<Command> createCommands(final Client client, final JsonResource resource, final JSONObject command) {
       final String path = (String) command.get("path");
       final String method = (String) command.get("method");
-      final JSONObject commandHeaders = (JSONObject) command.get("headers");
+      final MultivaluedMap<String, Object> requestHeaders = prepareHeaders((JSONObject) command.get("headers"));
       final Object content = command.get("content");
-      RestRequest request = null;
+      final List<Command> commands = new ArrayList<>();
 
       if (content instanceof JSONObject) {
-         request = RestRequest.json(baseUrl, path, method, prepareHeaders(commandHeaders), (JSONObject) content);
+         commands.add(new Command(resource, 0, path, () -> RestRequest.json(client, baseUrl, path, method, requestHeaders, (JSONObject) content)));
       } else if (content instanceof String) {
-         request = RestRequest.xml(baseUrl, path, method, prepareHeaders(commandHeaders), (String) content);
+         commands.add(new Command(resource, 0, path, () -> RestRequest.xml(client, baseUrl, path, method, requestHeaders, (String) content)));
       } else if (content instanceof JSONArray) {
          final JSONArray array = (JSONArray) content;
-         array.forEach(o -> {
+         for (int i = 0; i < array.size(); i++) {
+            final Object o = array.get(i);
             if (o instanceof JSONObject) {
-               final RestRequest r = RestRequest.json(baseUrl, path, method, prepareHeaders(commandHeaders), (JSONObject) o);
-               r.invoke();
-               r.finalizeResponse(verbose);
+               commands.add(new Command(resource, i, path, () -> RestRequest.json(client, baseUrl, path, method, requestHeaders, (JSONObject) o)));
             } else if (o instanceof JSONArray) {
-               final RestRequest r = RestRequest.jsonArray(baseUrl, path, method, prepareHeaders(commandHeaders), (JSONArray) o);
-               r.invoke();
-               r.finalizeResponse(verbose);
+               commands.add(new Command(resource, i, path, () -> RestRequest.jsonArray(client, baseUrl, path, method, requestHeaders, (JSONArray) o)));
             } else if (o instanceof String) {
-               final RestRequest r = RestRequest.xml(baseUrl, path, method, prepareHeaders(commandHeaders), (String) o);
-               r.invoke();
-               r.finalizeResponse(verbose);
+               commands.add(new Command(resource, i, path, () -> RestRequest.xml(client, baseUrl, path, method, requestHeaders, (String) o)));
             } else {
                System.err.println("Unknown content: " + o.toString());
             }
-         });
+         }
       } else if (content == null) {
-         request = RestRequest.simple(baseUrl, path, method, prepareHeaders(commandHeaders));
+         commands.add(new Command(resource, 0, path, () -> RestRequest.simple(client, baseUrl, path, method, requestHeaders)));
       } else {
          System.err.println("Unknown content: " + content.toString());
-         return;
       }
 
-      if (request != null) {
-         request.invoke();
-         request.finalizeResponse(verbose);
-      }
+      return commands;
    }
 
    @SuppressWarnings("unchecked")
@@ -191,4 +293,21 @@ public class RestImport {
       return result;
    }
 
+   /**
+    * A single request of a file.
+    */
+   private static class Command {
+
+      private final JsonResource resource;
+      private final int index;
+      private final String path;
+      private final Supplier<RestRequest> request;
+
+      private Command(final JsonResource resource, final int index, final String path, final Supplier<RestRequest> request) {
+         this.resource = resource;
+         this.index = index;
+         this.path = path != null ? path : "";
+         this.request = request;
+      }
+   }
 }
@@ -0,0 +1,90 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.utils.rest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Remembers the requests that were sent successfully, so that an interrupted import can be resumed.
+ * Every completed request is written to the journal file right away.
+ */
+public class ImportJournal implements AutoCloseable {
+
+   private final Set<String> completed = new HashSet<>();
+   private final BufferedWriter writer;
+
+   /**
+    * @param file
+    *       The journal file, it is created when it does not exist. Null for a run that cannot be resumed.
+    */
+   public ImportJournal(final Path file) throws IOException {
+      if (file == null) {
+         writer = null;
+         return;
+      }
+
+      if (Files.exists(file)) {
+         completed.addAll(Files.readAllLines(file, StandardCharsets.UTF_8));
+      }
+
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+   }
+
+   /**
+    * @param resource
+    *       The file with the request.
+    * @param index
+    *       Index of the request in the file.
+    * @return Key identifying the request across runs.
+    */
+   public static String key(final JsonResource resource, final int index) {
+      return resource.getPath().getAbsolutePath() + "#" + index;
+   }
+
+   public synchronized boolean isCompleted(final String key) {
+      return completed.contains(key);
+   }
+
+   public synchronized void complete(final String key) {
+      if (completed.add(key) && writer != null) {
+         try {
+            writer.write(key);
+            writer.newLine();
+            writer.flush();
+         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+         }
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException {
+      if (writer != null) {
+         writer.close();
+      }
+   }
+}
@@ -22,8 +22,12 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONAware;
 import org.json.simple.JSONObject;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.core.MediaType;
@@ -35,55 +39,56 @@ import javax.ws.rs.core.Response;
  */
 public class RestRequest {
 
+   private static final int TOO_MANY_REQUESTS = 429;
+
+   public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+   private static final List<String> IDEMPOTENT_METHODS = Arrays.asList(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.OPTIONS);
+
+   private final String description;
+   private final boolean idempotent;
    private final Invocation invocation;
    private Response response;
 
-   private RestRequest(final Invocation invocation) {
+   private RestRequest(final String method, final String path, final MultivaluedMap<String, Object> headers, final Invocation invocation) {
+      this.description = method + " " + path;
+      this.idempotent = isIdempotent(method, headers);
       this.invocation = invocation;
    }
 
-   public static RestRequest json(final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONObject content) {
-      return jsonAware(url, path, method, headers, content);
+   public static RestRequest json(final Client client, final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONObject content) {
+      return jsonAware(client, url, path, method, headers, content);
    }
 
-   public static RestRequest jsonArray(final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONArray content) {
-      return jsonAware(url, path, method, headers, content);
+   public static RestRequest jsonArray(final Client client, final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONArray content) {
+      return jsonAware(client, url, path, method, headers, content);
    }
 
-   private static RestRequest jsonAware(final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONAware content) {
-      System.out.print(method + " " + path + ": ");
-
-      return new RestRequest(ClientBuilder.newClient()
-                                          .target(url)
-                                          .path(path)
-                                          .request(MediaType.APPLICATION_JSON_TYPE)
-                                          .accept(MediaType.APPLICATION_JSON_TYPE)
-                                          .headers(headers)
-                                          .build(method, Entity.json(content.toJSONString())));
+   private static RestRequest jsonAware(final Client client, final String url, final String path, final String method, final MultivaluedMap<String, Object> headers, final JSONAware content) {
+      return new RestRequest(method, path, headers, client.target(url)
+                                                 .path(path)
+                                                 .request(MediaType.APPLICATION_JSON_TYPE)
+                                                 .accept(MediaType.APPLICATION_JSON_TYPE)
+                                                 .headers(headers)
+                                                 .build(method, Entity.json(content.toJSONString())));
    }
 
-   public static RestRequest xml(String url, String path, String method, MultivaluedMap<String, Object> headers, String content) {
-      System.out.print(method + " " + path + ": ");
-
-      return new RestRequest(ClientBuilder.newClient()
-                                          .target(url)
-                                          .path(path)
-                                          .request(MediaType.APPLICATION_JSON_TYPE)
-                                          .accept(MediaType.APPLICATION_JSON_TYPE)
-                                          .headers(headers)
-                                          .build(method, Entity.xml(content)));
+   public static RestRequest xml(final Client client, String url, String path, String method, MultivaluedMap<String, Object> headers, String content) {
+      return new RestRequest(method, path, headers, client.target(url)
+                                                 .path(path)
+                                                 .request(MediaType.APPLICATION_JSON_TYPE)
+                                                 .accept(MediaType.APPLICATION_JSON_TYPE)
+                                                 .headers(headers)
+                                                 .build(method, Entity.xml(content)));
    }
 
-   public static RestRequest simple(String url, String path, String method, MultivaluedMap<String, Object> headers) {
-      System.out.print(method + " " + path + ": ");
-
-      return new RestRequest(ClientBuilder.newClient()
-                                          .target(url)
-                                          .path(path)
-                                          .request(MediaType.APPLICATION_JSON_TYPE)
-                                          .accept(MediaType.APPLICATION_JSON_TYPE)
-                                          .headers(headers)
-                                          .build(method));
+   public static RestRequest simple(final Client client, String url, String path, String method, MultivaluedMap<String, Object> headers) {
+      return new RestRequest(method, path, headers, client.target(url)
+                                                 .path(path)
+                                                 .request(MediaType.APPLICATION_JSON_TYPE)
+                                                 .accept(MediaType.APPLICATION_JSON_TYPE)
+                                                 .headers(headers)
+                                                 .build(method));
    }
 
    public Response invoke() {
@@ -91,11 +96,92 @@ public class RestRequest {
       return response;
    }
 
+   /**
+    * Invokes the request until the server accepts it. Connection errors, server errors and throttled requests are
+    * retried, the delay doubles with every attempt. Requests that are not idempotent are sent only once, because a
+    * failed attempt might have been processed by the server anyway.
+    *
+    * @param retries
+    *       Maximal number of retries.
+    * @param retryDelay
+    *       Delay before the first retry in milliseconds.
+    * @return The last response, null when the server could not be reached at all.
+    * @throws InterruptedException
+    *       When interrupted while waiting for a retry.
+    */
+   public Response invoke(final int retries, final long retryDelay) throws InterruptedException {
+      final int maxRetries = idempotent ? retries : 0;
+      long delay = retryDelay;
+
+      for (int attempt = 0; ; attempt++) {
+         try {
+            invoke();
+            if (!isRetryable(response.getStatus()) || attempt >= maxRetries) {
+               return response;
+            }
+
+            System.err.println(description + ": " + response.getStatus() + " " + response.getStatusInfo().getReasonPhrase() + ", retrying");
+            response.close();
+            response = null;
+         } catch (ProcessingException e) {
+            if (attempt >= maxRetries) {
+               System.err.println(description + ": " + e.getMessage());
+               return null;
+            }
+
+            System.err.println(description + ": " + e.getMessage() + ", retrying");
+         }
+
+         Thread.sleep(delay);
+         delay *= 2;
+      }
+   }
+
+   /**
+    * @return True when the request can be sent repeatedly without changing the result, that is when its method is
+    * idempotent or when it carries an idempotency key.
+    */
+   public boolean isIdempotent() {
+      return idempotent;
+   }
+
+   static boolean isIdempotent(final String method, final MultivaluedMap<String, Object> headers) {
+      if (method != null && IDEMPOTENT_METHODS.contains(method.toUpperCase())) {
+         return true;
+      }
+
+      return headers != null && headers.keySet().stream().anyMatch(IDEMPOTENCY_KEY::equalsIgnoreCase);
+   }
+
+   private static boolean isRetryable(final int status) {
+      return status >= 500 || status == TOO_MANY_REQUESTS;
+   }
+
+   /**
+    * @return True when the request was invoked and the server did not return an error.
+    */
+   public boolean isSuccessful() {
+      return response != null && response.getStatus() < 400;
+   }
+
+   /**
+    * @return True when the request failed in a way that might succeed later.
+    */
+   public boolean isFailed() {
+      return response == null || isRetryable(response.getStatus());
+   }
+
    public void finalizeResponse(final boolean verbose) {
-      System.out.println(response.getStatus() + " " + response.getStatusInfo().getReasonPhrase());
+      if (response == null) {
+         System.out.println(description + ": failed");
+         return;
+      }
 
+      final String status = description + ": " + response.getStatus() + " " + response.getStatusInfo().getReasonPhrase();
       if (verbose) {
-         System.out.println(Optional.ofNullable(response.getEntity()).orElse("").toString());
+         System.out.println(status + System.lineSeparator() + Optional.ofNullable(response.getEntity()).orElse("").toString());
+      } else {
+         System.out.println(status);
       }
 
       response.close();
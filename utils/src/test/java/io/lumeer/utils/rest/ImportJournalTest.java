@@ -0,0 +1,63 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.utils.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ImportJournalTest {
+
+   @Test
+   public void testResume() throws IOException {
+      final Path file = Files.createTempFile("lumeer-import", ".journal");
+      Files.delete(file);
+      final JsonResource resource = new JsonResource("01-collections.json");
+
+      try {
+         try (ImportJournal journal = new ImportJournal(file)) {
+            Assert.assertFalse(journal.isCompleted(ImportJournal.key(resource, 0)));
+            journal.complete(ImportJournal.key(resource, 0));
+            journal.complete(ImportJournal.key(resource, 1));
+            journal.complete(ImportJournal.key(resource, 1));
+         }
+
+         try (ImportJournal journal = new ImportJournal(file)) {
+            Assert.assertTrue(journal.isCompleted(ImportJournal.key(resource, 0)));
+            Assert.assertTrue(journal.isCompleted(ImportJournal.key(resource, 1)));
+            Assert.assertFalse(journal.isCompleted(ImportJournal.key(resource, 2)));
+         }
+
+         Assert.assertEquals(2, Files.readAllLines(file).size());
+      } finally {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   @Test
+   public void testWithoutFile() throws IOException {
+      try (ImportJournal journal = new ImportJournal(null)) {
+         journal.complete("request");
+         Assert.assertTrue(journal.isCompleted("request"));
+      }
+   }
+}
@@ -0,0 +1,43 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.utils.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+
+public class RestRequestTest {
+
+   @Test
+   public void testIdempotent() {
+      final MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+      headers.add("Content-Language", "en");
+
+      Assert.assertTrue(RestRequest.isIdempotent("GET", headers));
+      Assert.assertTrue(RestRequest.isIdempotent("put", headers));
+      Assert.assertTrue(RestRequest.isIdempotent("DELETE", null));
+      Assert.assertFalse(RestRequest.isIdempotent("POST", headers));
+      Assert.assertFalse(RestRequest.isIdempotent("PATCH", null));
+
+      headers.add("idempotency-key", "import-1");
+      Assert.assertTrue(RestRequest.isIdempotent("POST", headers));
+   }
+}
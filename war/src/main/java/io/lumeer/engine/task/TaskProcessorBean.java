@@ -18,23 +18,52 @@
  */
 package io.lumeer.engine.task;
 
+import io.lumeer.core.task.TaskExecutor;
+import io.lumeer.engine.util.JmsService;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ejb.ActivationConfigProperty;
+import javax.ejb.MessageDriven;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+
 /**
+ * Processes the tasks distributed by {@link JmsService}. Tasks run outside of any transaction as they can take long,
+ * a message is acknowledged once its task finishes, so the task of a crashed node gets redelivered to another one.
+ * Failures of the task itself are retried by the {@link io.lumeer.core.task.TaskEngine}, anything else is logged and the message is dropped
+ * rather than redelivered immediately.
+ * The number of sessions corresponds to the default number of task workers, it limits the concurrency of the distributed tasks on each node
+ * regardless of {@link io.lumeer.core.facade.configuration.DefaultConfigurationProducer#TASKS_WORKERS}.
+ *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
-/*@MessageDriven(mappedName = "TaskProcessor", activationConfig = {
+@MessageDriven(name = "TaskProcessor", activationConfig = {
       @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge"),
       @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "javax.jms.Queue"),
-      @ActivationConfigProperty(propertyName = "destination", propertyValue = "java:/jms/queue/TaskQueue") })*/
-public class TaskProcessorBean {
-//public class TaskProcessorBean implements MessageListener {
+      @ActivationConfigProperty(propertyName = "destinationLookup", propertyValue = JmsService.TASK_QUEUE),
+      @ActivationConfigProperty(propertyName = "maxSession", propertyValue = "2") })
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class TaskProcessorBean implements MessageListener {
+
+   @Inject
+   private TaskExecutor taskExecutor;
 
-   /*@Resource
-   private MessageDrivenContext mdc;
+   @Inject
+   private Logger log;
 
    @Override
    public void onMessage(final Message message) {
-      if (message instanceof TextMessage) {
-         System.out.println("Processing incoming message: " + message.toString());
+      try {
+         taskExecutor.processTask(JmsService.readTask(message));
+      } catch (JMSException e) {
+         log.log(Level.WARNING, "Unable to process task message " + message, e);
+      } catch (Throwable e) {
+         log.log(Level.SEVERE, "Task message " + message + " failed: ", e);
       }
-   }*/
+   }
 }
@@ -0,0 +1,134 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.engine.util;
+
+import io.lumeer.core.util.ClusterTransport;
+
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSConsumer;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSProducer;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.Topic;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+/**
+ * Exchanges cluster events through a JMS topic of the messaging subsystem, the topic is declared in WEB-INF/lumeer-jms.xml.
+ * The topic is optional, nodes deployed without it run standalone. Events are transient, they are not persisted by the broker.
+ */
+@ApplicationScoped
+public class JmsClusterTransport implements ClusterTransport {
+
+   public static final String CONNECTION_FACTORY = "java:/ConnectionFactory";
+   public static final String EVENT_BUS_TOPIC = "java:/jms/topic/EventBus";
+
+   private static final long RECEIVE_TIMEOUT = 1000L;
+
+   @Inject
+   private Logger log;
+
+   @Inject
+   private ManagedThreadFactory threadFactory;
+
+   private JMSContext producerContext;
+   private JMSProducer producer;
+   private JMSContext consumerContext;
+   private Topic topic;
+   private Thread receiverThread;
+   private volatile boolean running;
+
+   @Override
+   public boolean start(final Consumer<byte[]> receiver) {
+      final ConnectionFactory connectionFactory;
+      try {
+         final InitialContext initialContext = new InitialContext();
+         connectionFactory = (ConnectionFactory) initialContext.lookup(CONNECTION_FACTORY);
+         topic = (Topic) initialContext.lookup(EVENT_BUS_TOPIC);
+      } catch (NamingException e) {
+         log.info("JMS topic " + EVENT_BUS_TOPIC + " is not available, running standalone.");
+         return false;
+      }
+
+      final JMSConsumer consumer;
+      try {
+         producerContext = connectionFactory.createContext();
+         producer = producerContext.createProducer().setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+         consumerContext = connectionFactory.createContext();
+         consumer = consumerContext.createConsumer(topic);
+      } catch (JMSRuntimeException e) {
+         log.log(Level.WARNING, "Unable to connect to JMS topic " + EVENT_BUS_TOPIC + ", running standalone.", e);
+         stop();
+         return false;
+      }
+
+      running = true;
+      receiverThread = threadFactory.newThread(() -> receive(consumer, receiver));
+      receiverThread.setName("cluster-event-bus");
+      receiverThread.start();
+
+      return true;
+   }
+
+   private void receive(final JMSConsumer consumer, final Consumer<byte[]> receiver) {
+      while (running) {
+         try {
+            final Message message = consumer.receive(RECEIVE_TIMEOUT);
+            if (message != null) {
+               receiver.accept(message.getBody(byte[].class));
+            }
+         } catch (JMSException | JMSRuntimeException e) {
+            if (running) {
+               log.log(Level.WARNING, "Unable to receive cluster event", e);
+            }
+         }
+      }
+   }
+
+   @Override
+   public void send(final byte[] message) {
+      // the bus sends from a single thread, the context does not need to be shared
+      producer.send(topic, message);
+   }
+
+   @Override
+   public void stop() {
+      running = false;
+      if (receiverThread != null) {
+         receiverThread.interrupt();
+      }
+      if (consumerContext != null) {
+         consumerContext.close();
+         consumerContext = null;
+      }
+      if (producerContext != null) {
+         producerContext.close();
+         producerContext = null;
+      }
+   }
+}
@@ -18,28 +18,151 @@
  */
 package io.lumeer.engine.util;
 
+import io.lumeer.core.task.Task;
+import io.lumeer.core.task.TaskTransport;
+import io.lumeer.storage.api.dao.QueuedTask;
+
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.jms.BytesMessage;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSContext;
+import javax.jms.JMSException;
+import javax.jms.JMSRuntimeException;
+import javax.jms.Message;
+import javax.jms.Queue;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 
 /**
- * TODO JMS is disabled at the moment
+ * Distributes tasks through a JMS queue of the messaging subsystem, they are processed by the {@link io.lumeer.engine.task.TaskProcessorBean}
+ * of any node. The queue is declared by the deployment, nodes running without the messaging subsystem keep the tasks in the database queue.
  *
  * @author <a href="mailto:marvenec@gmail.com">Martin Večeřa</a>
  */
-@RequestScoped
-public class JmsService {
+@ApplicationScoped
+public class JmsService implements TaskTransport {
+
+   public static final String TASK_QUEUE = "java:/jms/queue/TaskQueue";
 
-   //@Resource(mappedName = "java:/jms/queue/TaskQueue")
-   //private Queue taskQueue;
+   public static final String TASK_ID = "taskId";
+   public static final String TASK_TYPE = "taskType";
+   public static final String PRIORITY = "priority";
+   public static final String MAX_ATTEMPTS = "maxAttempts";
+   public static final String ATTEMPTS = "attempts";
+   public static final String CREATED_AT = "createdAt";
+   public static final String ORGANIZATION_ID = "organizationId";
+   public static final String PROJECT_ID = "projectId";
+   public static final String USER_ID = "userId";
+   public static final String ERROR = "error";
 
-   //@Inject
-   //private JMSContext context;
+   private static final String DELIVERY_COUNT = "JMSXDeliveryCount";
 
    @Inject
    private Logger log;
 
-   /*public void enqueueTask(final Task task) {
-      context.createProducer().send(taskQueue, task);
-   }*/
+   private JMSContext context;
+   private Queue taskQueue;
+
+   @Override
+   public boolean start() {
+      final ConnectionFactory connectionFactory;
+      try {
+         final InitialContext initialContext = new InitialContext();
+         connectionFactory = (ConnectionFactory) initialContext.lookup(JmsClusterTransport.CONNECTION_FACTORY);
+         taskQueue = (Queue) initialContext.lookup(TASK_QUEUE);
+      } catch (NamingException e) {
+         log.info("JMS queue " + TASK_QUEUE + " is not available, tasks are kept in the database.");
+         return false;
+      }
+
+      try {
+         context = connectionFactory.createContext();
+      } catch (JMSRuntimeException e) {
+         log.log(Level.WARNING, "Unable to connect to JMS queue " + TASK_QUEUE + ", tasks are kept in the database: ", e);
+         return false;
+      }
+
+      log.info("Tasks are distributed through JMS queue " + TASK_QUEUE);
+
+      return true;
+   }
+
+   @Override
+   public void send(final QueuedTask task, final long delay) {
+      // JMSContext is not thread safe
+      synchronized (this) {
+         final BytesMessage message = context.createBytesMessage();
+         try {
+            message.writeBytes(task.getPayload());
+            message.setStringProperty(TASK_ID, task.getId());
+            message.setStringProperty(TASK_TYPE, task.getType());
+            message.setIntProperty(PRIORITY, task.getPriority());
+            message.setIntProperty(MAX_ATTEMPTS, task.getMaxAttempts());
+            message.setIntProperty(ATTEMPTS, task.getAttempts());
+            message.setLongProperty(CREATED_AT, task.getCreatedAt());
+            message.setStringProperty(ORGANIZATION_ID, task.getOrganizationId());
+            message.setStringProperty(PROJECT_ID, task.getProjectId());
+            message.setStringProperty(USER_ID, task.getUserId());
+            message.setStringProperty(ERROR, task.getError());
+         } catch (JMSException e) {
+            throw new IllegalStateException("Unable to create message of task " + task, e);
+         }
+
+         context.createProducer()
+                .setPriority(getJmsPriority(task.getPriority()))
+                .setDeliveryDelay(delay)
+                .send(taskQueue, message);
+      }
+   }
+
+   @Override
+   public void stop() {
+      if (context != null) {
+         context.close();
+         context = null;
+      }
+   }
+
+   /**
+    * Reads a task sent by {@link #send(QueuedTask, long)}. A redelivered message means the node processing it crashed,
+    * the interrupted attempts are counted as well.
+    *
+    * @param message
+    *       The received message.
+    * @return The task with its payload and context.
+    * @throws JMSException
+    *       When the message is not a task.
+    */
+   public static QueuedTask readTask(final Message message) throws JMSException {
+      final QueuedTask task = new QueuedTask();
+      task.setId(message.getStringProperty(TASK_ID));
+      task.setType(message.getStringProperty(TASK_TYPE));
+      task.setPriority(message.getIntProperty(PRIORITY));
+      task.setMaxAttempts(message.getIntProperty(MAX_ATTEMPTS));
+      task.setAttempts(message.getIntProperty(ATTEMPTS) + getRedeliveries(message));
+      task.setState(QueuedTask.State.RUNNING);
+      task.setCreatedAt(message.getLongProperty(CREATED_AT));
+      task.setRunAt(message.getJMSDeliveryTime());
+      task.setOrganizationId(message.getStringProperty(ORGANIZATION_ID));
+      task.setProjectId(message.getStringProperty(PROJECT_ID));
+      task.setUserId(message.getStringProperty(USER_ID));
+      task.setError(message.getStringProperty(ERROR));
+      task.setPayload(message.getBody(byte[].class));
+
+      return task;
+   }
+
+   private static int getRedeliveries(final Message message) throws JMSException {
+      return message.propertyExists(DELIVERY_COUNT) ? Math.max(0, message.getIntProperty(DELIVERY_COUNT) - 1) : 0;
+   }
+
+   /**
+    * Maps the task priority to the JMS priority between 0 and 9, {@link Task#PRIORITY_NORMAL} being the default JMS priority 4.
+    */
+   static int getJmsPriority(final int priority) {
+      return Math.max(0, Math.min(9, 4 + priority / 2));
+   }
 }
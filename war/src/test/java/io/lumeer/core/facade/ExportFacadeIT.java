@@ -0,0 +1,141 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.facade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.ImportedCollection;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Permission;
+import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.Query;
+import io.lumeer.api.model.QueryStem;
+import io.lumeer.api.model.User;
+import io.lumeer.core.WorkspaceKeeper;
+import io.lumeer.core.auth.AuthenticatedUser;
+import io.lumeer.core.util.DocumentParser;
+import io.lumeer.engine.IntegrationTestBase;
+import io.lumeer.engine.api.data.DataDocument;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.DataDao;
+import io.lumeer.storage.api.dao.OrganizationDao;
+import io.lumeer.storage.api.dao.ProjectDao;
+import io.lumeer.storage.api.dao.UserDao;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import javax.inject.Inject;
+
+@RunWith(Arquillian.class)
+public class ExportFacadeIT extends IntegrationTestBase {
+
+   private static final String ORGANIZATION_CODE = "TORG";
+   private static final String PROJECT_CODE = "TPROJ";
+   private static final String USER = AuthenticatedUser.DEFAULT_EMAIL;
+
+   @Inject
+   private ExportFacade exportFacade;
+
+   @Inject
+   private ImportFacade importFacade;
+
+   @Inject
+   private DataDao dataDao;
+
+   @Inject
+   private CollectionDao collectionDao;
+
+   @Inject
+   private ProjectDao projectDao;
+
+   @Inject
+   private UserDao userDao;
+
+   @Inject
+   private OrganizationDao organizationDao;
+
+   @Inject
+   private WorkspaceKeeper workspaceKeeper;
+
+   @Before
+   public void configureProject() {
+      User user = userDao.createUser(new User(USER));
+
+      Organization organization = new Organization();
+      organization.setCode(ORGANIZATION_CODE);
+      organization.setPermissions(new Permissions());
+      organization.getPermissions().updateUserPermissions(Permission.buildWithRoles(user.getId(), Organization.ROLES));
+      organization = organizationDao.createOrganization(organization);
+
+      projectDao.setOrganization(organization);
+      Project project = new Project();
+      project.setCode(PROJECT_CODE);
+      project.setPermissions(new Permissions());
+      project.getPermissions().updateUserPermissions(Permission.buildWithRoles(user.getId(), Project.ROLES));
+      project = projectDao.createProject(project);
+
+      workspaceKeeper.setWorkspace(ORGANIZATION_CODE, PROJECT_CODE);
+
+      collectionDao.setProject(project);
+   }
+
+   @Test
+   public void testExportDocumentIds() throws IOException {
+      final Collection collection = importCollection("exported", "h1\na\nb\n");
+      final String documentId = dataDao.getData(collection.getId()).stream()
+                                       .filter(data -> "b".equals(data.getString(Collection.ATTRIBUTE_PREFIX + 1)))
+                                       .map(DataDocument::getId)
+                                       .findFirst().get();
+
+      final Query query = new Query(new QueryStem(collection.getId(), null, Set.of(documentId), null));
+      assertThat(export(collection, query)).isEqualTo("{\"h1\":\"b\"}\n");
+      assertThat(export(collection, null)).isEqualTo("{\"h1\":\"a\"}\n{\"h1\":\"b\"}\n");
+   }
+
+   @Test
+   public void testExportForeignDocumentIds() throws IOException {
+      final Collection collection = importCollection("exported", "h1\na\nb\n");
+      final Collection other = importCollection("other", "h1\nc\n");
+      final String otherDocumentId = dataDao.getData(other.getId()).get(0).getId();
+
+      final Query query = new Query(new QueryStem(collection.getId(), null, Set.of(otherDocumentId), null));
+      assertThat(export(collection, query)).isEmpty();
+   }
+
+   private Collection importCollection(final String name, final String csv) {
+      final Collection collection = new Collection(name, name, "fa-user", "#ababab", new Permissions());
+      return importFacade.importDocuments(ImportFacade.FORMAT_CSV, new ImportedCollection(collection, csv));
+   }
+
+   private String export(final Collection collection, final Query query) throws IOException {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      exportFacade.exportDocuments(collection.getId(), DocumentParser.FORMAT_JSON_LINES, query, Collections.emptyList()).writeTo(output);
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+   }
+}
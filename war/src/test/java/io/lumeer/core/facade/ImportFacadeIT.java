@@ -44,6 +44,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.StringReader;
 import java.util.List;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
@@ -285,6 +286,22 @@ public class ImportFacadeIT extends IntegrationTestBase {
       assertThat(h3Num).isEqualTo(2);
    }
 
+   @Test
+   public void testImportStreamedCSV() {
+      final StringBuilder csv = new StringBuilder("h1;h2\n");
+      for (int i = 0; i < 2500; i++) {
+         csv.append("a").append(i).append(";b\n");
+      }
+
+      Collection collection = importFacade.importDocuments(ImportFacade.FORMAT_CSV,
+            new Collection(COLLECTION_CODE, COLLECTION_NAME, COLLECTION_ICON, COLLECTION_COLOR, new Permissions()), new StringReader(csv.toString()));
+      assertThat(collection).isNotNull();
+      assertThat(collection.getDocumentsCount()).isEqualTo(2500);
+
+      List<DataDocument> data = dataDao.getData(collection.getId());
+      assertThat(data).hasSize(2500);
+   }
+
    private ImportedCollection createImportObject(String data) {
       return new ImportedCollection(new Collection(COLLECTION_CODE, COLLECTION_NAME, COLLECTION_ICON, COLLECTION_COLOR, new Permissions()), data);
    }
@@ -22,6 +22,7 @@ import static io.lumeer.test.util.LumeerAssertions.assertPermissions;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
+import io.lumeer.api.model.Collection;
 import io.lumeer.api.model.Organization;
 import io.lumeer.api.model.Permission;
 import io.lumeer.api.model.Permissions;
@@ -32,6 +33,7 @@ import io.lumeer.api.model.common.Resource;
 import io.lumeer.core.auth.AuthenticatedUser;
 import io.lumeer.core.WorkspaceKeeper;
 import io.lumeer.engine.IntegrationTestBase;
+import io.lumeer.storage.api.dao.CollectionDao;
 import io.lumeer.storage.api.dao.OrganizationDao;
 import io.lumeer.storage.api.dao.ProjectDao;
 import io.lumeer.storage.api.dao.UserDao;
@@ -67,6 +69,9 @@ public class ProjectFacadeIT extends IntegrationTestBase {
    @Inject
    private OrganizationDao organizationDao;
 
+   @Inject
+   private CollectionDao collectionDao;
+
    private static final String USER = AuthenticatedUser.DEFAULT_EMAIL;
    private static final String STRANGER_USER = "stranger@nowhere.com";
    private static final String GROUP = "testGroup";
@@ -192,6 +197,28 @@ public class ProjectFacadeIT extends IntegrationTestBase {
       assertions.assertAll();
    }
 
+   @Test
+   public void testCloneProjectResetsPermissions() {
+      addOrganizationManagePermission();
+      Project project = projectFacade.createProject(new Project(CODE1, NAME, ICON, COLOR, null, null));
+
+      workspaceKeeper.setWorkspace(ORGANIZATION_CODE, CODE1);
+      collectionDao.setProject(project);
+      Collection collection = new Collection("C1", "Collection", ICON, COLOR, new Permissions());
+      collection.getPermissions().updateUserPermissions(userStrangerPermissions);
+      collection.getPermissions().updateGroupPermissions(groupPermissions);
+      collectionDao.createCollection(collection);
+
+      Project clonedProject = projectFacade.cloneProject(CODE1, new Project(CODE2, NAME, ICON, COLOR, null, null));
+
+      collectionDao.setProject(clonedProject);
+      assertThat(collectionDao.getAllCollections()).hasSize(1);
+      Collection clonedCollection = collectionDao.getAllCollections().get(0);
+      assertThat(clonedCollection.getCode()).isEqualTo("C1");
+      assertPermissions(clonedCollection.getPermissions().getUserPermissions(), Permission.buildWithRoles(this.user.getId(), Collection.ROLES));
+      assertThat(clonedCollection.getPermissions().getGroupPermissions()).isEmpty();
+   }
+
    private void addOrganizationManagePermission() {
       Permissions organizationPermissions = new Permissions();
       organizationPermissions.updateUserPermissions(Permission.buildWithRoles(this.user.getId(), Organization.ROLES));
@@ -0,0 +1,134 @@
+/*
+ * Lumeer: Modern Data Definition and Processing Platform
+ *
+ * Copyright (C) since 2017 Answer Institute, s.r.o. and/or its affiliates.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package io.lumeer.core.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lumeer.api.model.Collection;
+import io.lumeer.api.model.Organization;
+import io.lumeer.api.model.Permission;
+import io.lumeer.api.model.Permissions;
+import io.lumeer.api.model.Project;
+import io.lumeer.api.model.User;
+import io.lumeer.core.WorkspaceKeeper;
+import io.lumeer.core.auth.AuthenticatedUser;
+import io.lumeer.engine.IntegrationTestBase;
+import io.lumeer.storage.api.dao.CollectionDao;
+import io.lumeer.storage.api.dao.OrganizationDao;
+import io.lumeer.storage.api.dao.ProjectDao;
+import io.lumeer.storage.api.dao.UserDao;
+
+import org.jboss.arquillian.junit.Arquillian;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+/**
+ * Runs the tasks through the JMS queue of the embedded broker, the server must run the full profile.
+ */
+@RunWith(Arquillian.class)
+public class TaskExecutorIT extends IntegrationTestBase {
+
+   private static final String ORGANIZATION_CODE = "TORG";
+   private static final String PROJECT_CODE = "TPROJ";
+   private static final String USER = AuthenticatedUser.DEFAULT_EMAIL;
+
+   private static final BlockingQueue<String> results = new LinkedBlockingQueue<>();
+
+   @Inject
+   private TaskExecutor taskExecutor;
+
+   @Inject
+   private ContextualTaskFactory contextualTaskFactory;
+
+   @Inject
+   private OrganizationDao organizationDao;
+
+   @Inject
+   private ProjectDao projectDao;
+
+   @Inject
+   private CollectionDao collectionDao;
+
+   @Inject
+   private UserDao userDao;
+
+   @Inject
+   private WorkspaceKeeper workspaceKeeper;
+
+   private User user;
+
+   @Before
+   public void configureProject() {
+      user = userDao.createUser(new User(USER));
+
+      Organization organization = new Organization();
+      organization.setCode(ORGANIZATION_CODE);
+      organization.setPermissions(new Permissions());
+      organization.getPermissions().updateUserPermissions(Permission.buildWithRoles(user.getId(), Organization.ROLES));
+      organization = organizationDao.createOrganization(organization);
+
+      projectDao.setOrganization(organization);
+      Project project = new Project();
+      project.setCode(PROJECT_CODE);
+      project.setPermissions(new Permissions());
+      project.getPermissions().updateUserPermissions(Permission.buildWithRoles(user.getId(), Project.ROLES));
+      project = projectDao.createProject(project);
+
+      workspaceKeeper.setWorkspace(ORGANIZATION_CODE, PROJECT_CODE);
+
+      collectionDao.setProject(project);
+      collectionDao.createCollectionsRepository(project);
+      collectionDao.createCollection(new Collection("TCOLL", "Test collection", "fa-eye", "#00ee00", null));
+
+      results.clear();
+   }
+
+   @Test
+   public void testDistributedTask() throws InterruptedException {
+      final long dispatched = taskExecutor.getMetrics().get("dispatched");
+      final String taskId = taskExecutor.submitTask(contextualTaskFactory.getInstance(CountCollectionsTask.class));
+
+      assertThat(results.poll(30, TimeUnit.SECONDS)).isEqualTo(user.getId() + ":1");
+      assertThat(taskExecutor.getTask(taskId)).isNull();
+      assertThat(taskExecutor.getMetrics()).containsEntry("dispatched", dispatched + 1);
+   }
+
+   @Test
+   public void testDelayedTask() throws InterruptedException {
+      final long submittedAt = System.currentTimeMillis();
+      taskExecutor.submitTask(contextualTaskFactory.getInstance(CountCollectionsTask.class), 2, TimeUnit.SECONDS);
+
+      assertThat(results.poll(30, TimeUnit.SECONDS)).isNotNull();
+      assertThat(System.currentTimeMillis() - submittedAt).isGreaterThanOrEqualTo(2000);
+   }
+
+   public static class CountCollectionsTask extends AbstractContextualTask {
+
+      @Override
+      public void process() {
+         results.add(initiator.getId() + ":" + daoContextSnapshot.getCollectionDao().getAllCollections().size());
+      }
+   }
+}
@@ -36,6 +36,7 @@ import org.jboss.shrinkwrap.api.spec.WebArchive;
 import org.jboss.shrinkwrap.resolver.api.maven.Maven;
 import org.junit.Before;
 
+import java.io.File;
 import javax.inject.Inject;
 
 public abstract class IntegrationTestBase {
@@ -63,6 +64,7 @@ public abstract class IntegrationTestBase {
                              "com.auth0", "okhttp3", "okio", "org.marvec.pusher", "io.sentry")
                        .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
                        .addAsWebInfResource("jboss-deployment-structure.xml")
+                       .addAsWebInfResource(new File("src/main/webapp/WEB-INF/lumeer-jms.xml"))
                        .addAsResource("defaults-ci.properties")
                        .addAsResource("defaults-dev.properties")
                        .addAsLibraries(Maven.resolver()